@@ -0,0 +1,108 @@
+package org.odema.posnew.api.rest.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.security.CustomUserDetails;
+import org.odema.posnew.domain.model.enums.ExportFormat;
+import org.odema.posnew.domain.service.SalesExportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/exports")
+@RequiredArgsConstructor
+@Tag(name = "Exports", description = "Exports comptables en flux (NDJSON / CSV)")
+@Slf4j
+@SecurityRequirement(name = "bearerAuth")
+public class ExportController {
+
+    private final SalesExportService salesExportService;
+
+    @GetMapping("/orders")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'ACCOUNTANT')")
+    @Operation(summary = "Exporter les commandes d'une période (magasin du gérant pour un STORE_ADMIN)")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @Parameter(description = "ID du magasin (optionnel, tous les magasins si absent)")
+            @RequestParam(required = false) UUID storeId,
+
+            @Parameter(description = "Date de début (format: yyyy-MM-dd)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+
+            @Parameter(description = "Date de fin (format: yyyy-MM-dd)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "Format: NDJSON ou CSV")
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+
+            @AuthenticationPrincipal CustomUserDetails userDetails
+    ) throws UnauthorizedException {
+        validateRange(startDate, endDate);
+        UUID scopedStoreId = salesExportService.resolveExportStore(userDetails.getUserId(), storeId);
+        log.info("Export commandes du {} au {} ({}) magasin {}", startDate, endDate, format,
+                scopedStoreId != null ? scopedStoreId : "tous");
+
+        StreamingResponseBody body = out -> salesExportService.exportOrders(
+                scopedStoreId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59), format, out);
+
+        return streaming(body, format, "commandes_" + startDate + "_" + endDate);
+    }
+
+    @GetMapping("/receipts/store/{storeId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'ACCOUNTANT')")
+    @Operation(summary = "Exporter les tickets d'un magasin sur une période")
+    public ResponseEntity<StreamingResponseBody> exportReceipts(
+            @Parameter(description = "ID du magasin")
+            @PathVariable UUID storeId,
+
+            @Parameter(description = "Date de début (format: yyyy-MM-dd)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+
+            @Parameter(description = "Date de fin (format: yyyy-MM-dd)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "Format: NDJSON ou CSV")
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+
+            @AuthenticationPrincipal CustomUserDetails userDetails
+    ) throws UnauthorizedException {
+        validateRange(startDate, endDate);
+        salesExportService.resolveExportStore(userDetails.getUserId(), storeId);
+        log.info("Export tickets magasin {} du {} au {} ({})", storeId, startDate, endDate, format);
+
+        StreamingResponseBody body = out -> salesExportService.exportReceipts(
+                storeId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59), format, out);
+
+        return streaming(body, format, "tickets_" + startDate + "_" + endDate);
+    }
+
+    private static void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new BadRequestException("La date de début doit être avant la date de fin");
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> streaming(StreamingResponseBody body,
+                                                                  ExportFormat format,
+                                                                  String baseName) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + baseName + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+}
@@ -13,16 +13,23 @@ import org.odema.posnew.application.dto.InventorySummaryResponse;
 import org.odema.posnew.application.dto.InventoryTransferRequest;
 import org.odema.posnew.application.dto.InventoryUpdateRequest;
 import org.odema.posnew.application.dto.response.ApiResponse;
+import org.odema.posnew.application.dto.response.InventoryAlertResponse;
 import org.odema.posnew.application.dto.response.PaginatedResponse;
+import org.odema.posnew.application.dto.response.StockLevelResponse;
+import org.odema.posnew.application.dto.response.StockMovementResponse;
 import org.odema.posnew.domain.service.InventoryService;
+import org.odema.posnew.domain.service.LowStockService;
+import org.odema.posnew.domain.service.StockMovementService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -34,6 +41,8 @@ import java.util.UUID;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final StockMovementService stockMovementService;
+    private final LowStockService lowStockService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
@@ -147,6 +156,14 @@ public class InventoryController {
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
 
+    @GetMapping("/store/{storeId}/alerts")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
+    @Operation(summary = "Alertes de stock faible d'un store (ensemble maintenu, sans scan)")
+    public ResponseEntity<ApiResponse<List<InventoryAlertResponse>>> getStoreAlerts(@PathVariable UUID storeId) {
+        List<InventoryAlertResponse> alerts = lowStockService.getStoreAlerts(storeId);
+        return ResponseEntity.ok(ApiResponse.success(alerts));
+    }
+
     // Méthode paginée par statut
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
@@ -216,6 +233,28 @@ public class InventoryController {
         return ResponseEntity.ok(ApiResponse.success(value));
     }
 
+    @GetMapping("/product/{productId}/store/{storeId}/movements")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
+    @Operation(summary = "Historique des mouvements de stock d'un produit dans un store")
+    public ResponseEntity<ApiResponse<PaginatedResponse<StockMovementResponse>>> getStockMovements(
+            @PathVariable UUID productId,
+            @PathVariable UUID storeId,
+            Pageable pageable) {
+        Page<StockMovementResponse> page = stockMovementService.getMovements(storeId, productId, pageable);
+        return ResponseEntity.ok(ApiResponse.success(PaginatedResponse.from(page)));
+    }
+
+    @GetMapping("/product/{productId}/store/{storeId}/at")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
+    @Operation(summary = "Stock d'un produit dans un store à une date donnée")
+    public ResponseEntity<ApiResponse<StockLevelResponse>> getStockAt(
+            @PathVariable UUID productId,
+            @PathVariable UUID storeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        StockLevelResponse response = stockMovementService.getStockAt(storeId, productId, at);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     @PostMapping("/{inventoryId}/restock")
     @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
     @Operation(summary = "Réapprovisionner un inventaire")
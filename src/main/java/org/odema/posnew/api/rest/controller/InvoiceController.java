@@ -9,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.odema.posnew.api.exception.NotFoundException;
 import org.odema.posnew.application.dto.InvoiceResponse;
+import org.odema.posnew.application.dto.response.CursorPage;
 import org.odema.posnew.domain.service.InvoiceService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
@@ -160,13 +161,19 @@ public class InvoiceController {
     @GetMapping("/customer/{customerId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'SALES')")
     @Operation(summary = "Lister les factures d'un client")
-    public ResponseEntity<List<InvoiceResponse>> getInvoicesByCustomer(
+    public ResponseEntity<CursorPage<InvoiceResponse>> getInvoicesByCustomer(
             @Parameter(description = "ID du client")
-            @PathVariable UUID customerId
+            @PathVariable UUID customerId,
+
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Taille de page (défaut 50, max 200)")
+            @RequestParam(required = false) Integer size
     ) {
         log.debug("Récupération factures client: {}", customerId);
 
-        List<InvoiceResponse> invoices = invoiceService.getInvoicesByCustomer(customerId);
+        CursorPage<InvoiceResponse> invoices = invoiceService.getInvoicesByCustomer(customerId, cursor, size);
 
         return ResponseEntity.ok(invoices);
     }
@@ -174,13 +181,19 @@ public class InvoiceController {
     @GetMapping("/store/{storeId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Lister les factures d'un magasin")
-    public ResponseEntity<List<InvoiceResponse>> getInvoicesByStore(
+    public ResponseEntity<CursorPage<InvoiceResponse>> getInvoicesByStore(
             @Parameter(description = "ID du magasin")
-            @PathVariable UUID storeId
+            @PathVariable UUID storeId,
+
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Taille de page (défaut 50, max 200)")
+            @RequestParam(required = false) Integer size
     ) {
         log.debug("Récupération factures magasin: {}", storeId);
 
-        List<InvoiceResponse> invoices = invoiceService.getInvoicesByStore(storeId);
+        CursorPage<InvoiceResponse> invoices = invoiceService.getInvoicesByStore(storeId, cursor, size);
 
         return ResponseEntity.ok(invoices);
     }
@@ -188,13 +201,19 @@ public class InvoiceController {
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Lister les factures par statut")
-    public ResponseEntity<List<InvoiceResponse>> getInvoicesByStatus(
+    public ResponseEntity<CursorPage<InvoiceResponse>> getInvoicesByStatus(
             @Parameter(description = "Statut", example = "ISSUED")
-            @PathVariable String status
+            @PathVariable String status,
+
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Taille de page (défaut 50, max 200)")
+            @RequestParam(required = false) Integer size
     ) {
         log.debug("Récupération factures statut: {}", status);
 
-        List<InvoiceResponse> invoices = invoiceService.getInvoicesByStatus(status);
+        CursorPage<InvoiceResponse> invoices = invoiceService.getInvoicesByStatus(status, cursor, size);
 
         return ResponseEntity.ok(invoices);
     }
@@ -202,17 +221,23 @@ public class InvoiceController {
     @GetMapping("/date-range")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Lister les factures par période")
-    public ResponseEntity<List<InvoiceResponse>> getInvoicesByDateRange(
+    public ResponseEntity<CursorPage<InvoiceResponse>> getInvoicesByDateRange(
             @Parameter(description = "Date de début")
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
             @Parameter(description = "Date de fin")
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Taille de page (défaut 50, max 200)")
+            @RequestParam(required = false) Integer size
     ) {
         log.debug("Récupération factures du {} au {}", startDate, endDate);
 
-        List<InvoiceResponse> invoices = invoiceService.getInvoicesByDateRange(
-                startDate, endDate
+        CursorPage<InvoiceResponse> invoices = invoiceService.getInvoicesByDateRange(
+                startDate, endDate, cursor, size
         );
 
         return ResponseEntity.ok(invoices);
@@ -7,15 +7,21 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.application.dto.request.CheckoutRequest;
 import org.odema.posnew.application.dto.request.CreateOrderWithPaymentRequest;
+import org.odema.posnew.application.dto.request.OfflineSaleBatchRequest;
 import org.odema.posnew.application.dto.request.OrderRequest;
 import org.odema.posnew.application.dto.request.PaymentRequest;
 import org.odema.posnew.application.dto.response.ApiResponse;
+import org.odema.posnew.application.dto.response.OfflineSyncResponse;
+import org.odema.posnew.application.dto.response.CursorPage;
 import org.odema.posnew.application.dto.response.OrderResponse;
+import org.odema.posnew.application.dto.response.OrderSummaryResponse;
 import org.odema.posnew.application.dto.response.PaginatedResponse;
 import org.odema.posnew.api.exception.UnauthorizedException;
 import org.odema.posnew.application.dto.response.ProductResponse;
 import org.odema.posnew.application.security.CustomUserDetails;
+import org.odema.posnew.domain.service.OfflineSaleService;
 import org.odema.posnew.domain.service.OrderService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -42,6 +48,7 @@ import java.util.UUID;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OfflineSaleService offlineSaleService;
 
     /**
      * ✅ Create order WITHOUT payment
@@ -79,6 +86,38 @@ public class OrderController {
                 .body(ApiResponse.success("Commande et paiement créés avec succès", response));
     }
 
+    /**
+     * Encaissement en un appel : panier, paiements fractionnés et clôture
+     * (remplace création + paiements successifs + clôture)
+     */
+    @PostMapping("/checkout")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
+    @Operation(summary = "Encaisser une vente en un seul appel (multi-paiements)")
+    public ResponseEntity<ApiResponse<OrderResponse>> checkout(
+            @Valid @RequestBody CheckoutRequest request,
+            @AuthenticationPrincipal CustomUserDetails userDetails) throws UnauthorizedException {
+
+        OrderResponse response = orderService.checkout(request, userDetails.getUserId());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Vente encaissée avec succès", response));
+    }
+
+    /**
+     * Synchronisation des ventes réalisées hors ligne par une caisse
+     */
+    @PostMapping("/offline-sync")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
+    @Operation(summary = "Synchroniser un lot de ventes hors ligne (idempotent par clientSaleId)")
+    public ResponseEntity<ApiResponse<OfflineSyncResponse>> syncOfflineSales(
+            @Valid @RequestBody OfflineSaleBatchRequest request,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        OfflineSyncResponse response = offlineSaleService.syncSales(request, userDetails.getUserId());
+        return ResponseEntity.ok(ApiResponse.success(String.format(
+                "Synchronisation terminée: %d créées, %d doublons, %d refusées",
+                response.created(), response.duplicates(), response.rejected()), response));
+    }
+
     /**
      * ✅ Add payment to existing order
      */
@@ -123,10 +162,10 @@ public class OrderController {
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
     @Operation(summary = "Obtenir toutes les commandes (paginé)")
-    public ResponseEntity<ApiResponse<PaginatedResponse<OrderResponse>>> getAllOrders(
+    public ResponseEntity<ApiResponse<PaginatedResponse<OrderSummaryResponse>>> getAllOrders(
 
             @AuthenticationPrincipal CustomUserDetails userDetails,
-            @PageableDefault(sort = "orderId", direction = Sort.Direction.ASC) Pageable pageable) {
+            @PageableDefault(sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         if (pageable.getSort().isSorted()) {
             pageable.getSort().forEach(order -> {
                 if (!List.of("orderNumber", "orderType", "createdAt").contains(order.getProperty())) {
@@ -137,46 +176,67 @@ public class OrderController {
 
 
         UUID userId = userDetails.getUserId();
-        Page<OrderResponse> responses = orderService.getOrders(userId, pageable);
+        Page<OrderSummaryResponse> responses = orderService.getOrders(userId, pageable);
         return ResponseEntity.ok(ApiResponse.success(PaginatedResponse.from(responses)));
     }
 
 
 
+    @GetMapping("/history")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'CASHIER')")
+    @Operation(summary = "Historique des commandes (pagination par curseur)")
+    public ResponseEntity<ApiResponse<CursorPage<OrderSummaryResponse>>> getOrderHistory(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<OrderSummaryResponse> responses =
+                orderService.getOrderHistory(userDetails.getUserId(), cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(responses));
+    }
+
     @GetMapping("/store/{storeId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
     @Operation(summary = "Obtenir les commandes d'un store")
-    public ResponseEntity<ApiResponse<List<OrderResponse>>> getOrdersByStore(
-            @PathVariable UUID storeId) {
-        List<OrderResponse> responses = orderService.getOrdersByStore(storeId);
+    public ResponseEntity<ApiResponse<CursorPage<OrderSummaryResponse>>> getOrdersByStore(
+            @PathVariable UUID storeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<OrderSummaryResponse> responses = orderService.getOrdersByStore(storeId, cursor, size);
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
 
     @GetMapping("/customer/{customerId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
     @Operation(summary = "Obtenir les commandes d'un client")
-    public ResponseEntity<ApiResponse<List<OrderResponse>>> getOrdersByCustomer(
-            @PathVariable UUID customerId) {
-        List<OrderResponse> responses = orderService.getOrdersByCustomer(customerId);
+    public ResponseEntity<ApiResponse<CursorPage<OrderSummaryResponse>>> getOrdersByCustomer(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<OrderSummaryResponse> responses = orderService.getOrdersByCustomer(customerId, cursor, size);
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
 
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
     @Operation(summary = "Obtenir les commandes par statut")
-    public ResponseEntity<ApiResponse<List<OrderResponse>>> getOrdersByStatus(
-            @PathVariable String status) {
-        List<OrderResponse> responses = orderService.getOrdersByStatus(status);
+    public ResponseEntity<ApiResponse<CursorPage<OrderSummaryResponse>>> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<OrderSummaryResponse> responses = orderService.getOrdersByStatus(status, cursor, size);
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
 
     @GetMapping("/date-range")
     @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER')")
     @Operation(summary = "Obtenir les commandes par plage de dates")
-    public ResponseEntity<ApiResponse<List<OrderResponse>>> getOrdersByDateRange(
+    public ResponseEntity<ApiResponse<CursorPage<OrderSummaryResponse>>> getOrdersByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<OrderResponse> responses = orderService.getOrdersByDateRange(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<OrderSummaryResponse> responses =
+                orderService.getOrdersByDateRange(startDate, endDate, cursor, size);
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
 
@@ -5,11 +5,14 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.odema.posnew.application.dto.request.MobileMoneyCallbackRequest;
+import org.odema.posnew.application.dto.request.MobileMoneyPaymentRequest;
 import org.odema.posnew.application.dto.request.PaymentRequest;
 import org.odema.posnew.application.dto.response.ApiResponse;
 import org.odema.posnew.application.dto.response.PaymentResponse;
 import org.odema.posnew.api.exception.UnauthorizedException;
 import org.odema.posnew.application.security.CustomUserDetails;
+import org.odema.posnew.domain.service.MobileMoneyPaymentService;
 import org.odema.posnew.domain.service.PaymentService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,8 +21,10 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/payments")
@@ -28,7 +33,11 @@ import java.util.UUID;
 @SecurityRequirement(name = "bearerAuth")
 public class PaymentController {
 
+    /** Attente maximale d'un résultat Mobile Money par requête (la caisse relance ensuite) */
+    private static final long MAX_RESULT_WAIT_SECONDS = 25;
+
     private final PaymentService paymentService;
+    private final MobileMoneyPaymentService mobileMoneyPaymentService;
 
     /**
      * ✅ Process payment for order (redirects to OrderService.addPaymentToOrder)
@@ -61,6 +70,48 @@ public class PaymentController {
                 .body(ApiResponse.success("Crédit enregistré avec succès", response));
     }
 
+    @PostMapping("/orders/{orderId}/mobile-money")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
+    @Operation(summary = "Demander un paiement Mobile Money (confirmation asynchrone)")
+    public ResponseEntity<ApiResponse<PaymentResponse>> initiateMobileMoneyPayment(
+            @PathVariable UUID orderId,
+            @Valid @RequestBody MobileMoneyPaymentRequest request,
+            @AuthenticationPrincipal CustomUserDetails userDetails) throws UnauthorizedException {
+
+        PaymentResponse response = mobileMoneyPaymentService.initiatePayment(orderId, request, userDetails.getUserId());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Paiement en attente de confirmation du client", response));
+    }
+
+    /**
+     * Attente du résultat sans bloquer de thread : répond dès la confirmation
+     * ou le refus, sinon avec l'état PENDING au bout de {@code waitSeconds}.
+     */
+    @GetMapping("/{paymentId}/result")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
+    @Operation(summary = "Attendre le résultat d'un paiement Mobile Money")
+    public CompletableFuture<ResponseEntity<ApiResponse<PaymentResponse>>> awaitPaymentResult(
+            @PathVariable UUID paymentId,
+            @RequestParam(defaultValue = "20") long waitSeconds) {
+
+        Duration wait = Duration.ofSeconds(Math.clamp(waitSeconds, 0, MAX_RESULT_WAIT_SECONDS));
+        return mobileMoneyPaymentService.awaitResult(paymentId, wait)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
+    }
+
+    @PostMapping("/mobile-money/callback")
+    @Operation(summary = "Callback opérateur Mobile Money (secret partagé)")
+    public ResponseEntity<Void> mobileMoneyCallback(
+            @RequestHeader(value = "X-Callback-Token", required = false) String callbackToken,
+            @Valid @RequestBody MobileMoneyCallbackRequest callback) {
+        try {
+            mobileMoneyPaymentService.handleCallback(callbackToken, callback);
+        } catch (UnauthorizedException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/orders/{orderId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STORE_ADMIN', 'SHOP_MANAGER', 'CASHIER')")
     @Operation(summary = "Obtenir tous les paiements d'une commande")
@@ -10,8 +10,10 @@ import org.odema.posnew.application.dto.request.ProductRequest;
 import org.odema.posnew.application.dto.response.ApiResponse;
 import org.odema.posnew.application.dto.response.PaginatedResponse;
 import org.odema.posnew.application.dto.response.ProductResponse;
+import org.odema.posnew.application.dto.response.ProductScanResponse;
 import org.odema.posnew.api.exception.NotFoundException;
 import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.domain.service.ProductScanService;
 import org.odema.posnew.domain.service.ProductService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -35,6 +37,7 @@ import java.util.UUID;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductScanService productScanService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
@@ -53,8 +56,9 @@ public class ProductController {
     @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER', 'CASHIER', 'EMPLOYEE')")
     @Operation(summary = "Obtenir un produit par son ID")
     public ResponseEntity<ApiResponse<ProductResponse>> getProduct(
-            @PathVariable UUID productId) throws NotFoundException {
-        ProductResponse response = productService.getProductById(productId);
+            @PathVariable UUID productId,
+            @RequestParam(required = false) UUID storeId) throws NotFoundException {
+        ProductResponse response = productService.getProductById(productId, storeId);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -84,6 +88,16 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(responses));
     }
 
+    @GetMapping("/scan")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SHOP_MANAGER', 'CASHIER', 'EMPLOYEE')")
+    @Operation(summary = "Scanner un code-barres (produit, prix magasin et stock)")
+    public ResponseEntity<ApiResponse<ProductScanResponse>> scanProduct(
+            @RequestParam String barcode,
+            @RequestParam UUID storeId) {
+        ProductScanResponse response = productScanService.scan(barcode, storeId);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     @GetMapping("/search")
     @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER', 'CASHIER', 'EMPLOYEE')")
     @Operation(summary = "Rechercher des produits")
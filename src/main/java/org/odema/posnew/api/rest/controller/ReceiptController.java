@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.application.dto.response.CursorPage;
 import org.odema.posnew.application.dto.response.ReceiptResponse;
 
 import org.odema.posnew.domain.model.enums.ReceiptType;
@@ -180,7 +181,7 @@ public class ReceiptController {
     @GetMapping("/store/{storeId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Lister les tickets d'un magasin par période")
-    public ResponseEntity<List<ReceiptResponse>> getReceiptsByStore(
+    public ResponseEntity<CursorPage<ReceiptResponse>> getReceiptsByStore(
             @Parameter(description = "ID du magasin")
             @PathVariable UUID storeId,
 
@@ -188,13 +189,19 @@ public class ReceiptController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
             @Parameter(description = "Date de fin (format: yyyy-MM-dd)")
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Taille de page (défaut 50, max 200)")
+            @RequestParam(required = false) Integer size
     ) {
         log.debug("Récupération tickets magasin {} du {} au {}",
                 storeId, startDate, endDate);
 
-        List<ReceiptResponse> receipts = receiptService.getReceiptsByDateRange(
-                storeId, startDate, endDate
+        CursorPage<ReceiptResponse> receipts = receiptService.getReceiptsByDateRange(
+                storeId, startDate, endDate, cursor, size
         );
 
         return ResponseEntity.ok(receipts);
@@ -203,7 +210,7 @@ public class ReceiptController {
     @GetMapping("/cashier/{cashierId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Lister les tickets d'un caissier par période")
-    public ResponseEntity<List<ReceiptResponse>> getReceiptsByCashier(
+    public ResponseEntity<CursorPage<ReceiptResponse>> getReceiptsByCashier(
             @Parameter(description = "ID du caissier")
             @PathVariable UUID cashierId,
 
@@ -211,13 +218,19 @@ public class ReceiptController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 
             @Parameter(description = "Date de fin")
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "Curseur de la page suivante (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Taille de page (défaut 50, max 200)")
+            @RequestParam(required = false) Integer size
     ) {
         log.debug("Récupération tickets caissier {} du {} au {}",
                 cashierId, startDate, endDate);
 
-        List<ReceiptResponse> receipts = receiptService.getReceiptsByCashier(
-                cashierId, startDate, endDate
+        CursorPage<ReceiptResponse> receipts = receiptService.getReceiptsByCashier(
+                cashierId, startDate, endDate, cursor, size
         );
 
         return ResponseEntity.ok(receipts);
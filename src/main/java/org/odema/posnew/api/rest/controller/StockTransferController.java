@@ -0,0 +1,64 @@
+package org.odema.posnew.api.rest.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.odema.posnew.application.dto.request.StockTransferRequest;
+import org.odema.posnew.application.dto.response.ApiResponse;
+import org.odema.posnew.application.dto.response.StockTransferResponse;
+import org.odema.posnew.application.security.CustomUserDetails;
+import org.odema.posnew.domain.service.StockTransferService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/inventory/transfers")
+@RequiredArgsConstructor
+@Tag(name = "Stock transfers", description = "Transferts de stock multi-lignes entre stores")
+@SecurityRequirement(name = "bearerAuth")
+public class StockTransferController {
+
+    private final StockTransferService stockTransferService;
+
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
+    @Operation(summary = "Transférer plusieurs produits entre deux stores (un bon de livraison)")
+    public ResponseEntity<ApiResponse<StockTransferResponse>> createTransfer(
+            @Valid @RequestBody StockTransferRequest request,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        StockTransferResponse response = stockTransferService.createTransfer(
+                request, userDetails != null ? userDetails.getUserId() : null);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Transfert effectué", response));
+    }
+
+    @GetMapping("/{transferId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
+    @Operation(summary = "Obtenir un transfert et ses lignes")
+    public ResponseEntity<ApiResponse<StockTransferResponse>> getTransfer(@PathVariable UUID transferId) {
+        return ResponseEntity.ok(ApiResponse.success(stockTransferService.getTransfer(transferId)));
+    }
+
+    @GetMapping("/{transferId}/delivery-note")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEPOT_MANAGER', 'SHOP_MANAGER')")
+    @Operation(summary = "Télécharger le bon de livraison d'un transfert")
+    public ResponseEntity<byte[]> downloadDeliveryNote(@PathVariable UUID transferId) {
+        StockTransferResponse transfer = stockTransferService.getTransfer(transferId);
+        byte[] pdfBytes = stockTransferService.getDeliveryNotePdf(transferId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", transfer.transferNumber() + ".pdf");
+        headers.setContentLength(pdfBytes.length);
+        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+    }
+}
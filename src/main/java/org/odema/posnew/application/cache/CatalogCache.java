@@ -0,0 +1,450 @@
+package org.odema.posnew.application.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.application.dto.CategoryResponse;
+import org.odema.posnew.application.mapper.CategoryMapper;
+import org.odema.posnew.domain.model.Product;
+import org.odema.posnew.domain.model.StoreProductPrice;
+import org.odema.posnew.domain.repository.CategoryRepository;
+import org.odema.posnew.domain.repository.ProductRepository;
+import org.odema.posnew.domain.repository.StoreProductPriceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Cache catalogue en lecture seule (read-through), borné en taille.
+ *
+ * Contient des instantanés immuables — jamais d'entités JPA — :
+ *  - produits par id, code-barres et SKU
+ *  - codes-barres inconnus (TTL court : un scan répété d'un code absent ne relit pas la base)
+ *  - prix actif (avec taux de TVA) par (magasin, produit)
+ *  - arbre des catégories (racines et sous-catégories)
+ *
+ * Les services d'écriture (produits, prix, catégories) invalident en fin de transaction.
+ * Chaque invalidation fait avancer une génération : une lecture commencée avant
+ * (donc éventuellement sur l'ancienne version) n'insère pas sa valeur après coup.
+ * Les prix ont un TTL court : un prix programmé ou une remise temporaire qui
+ * démarre/expire est pris en compte sans écriture. Produits et catégories ont un TTL
+ * plus long, qui borne la durée de vie d'une entrée modifiée par une autre instance.
+ */
+@Slf4j
+@Component
+public class CatalogCache {
+
+    private static final UUID ROOT = new UUID(0L, 0L);
+    // EAN-8/13, UPC-A, GTIN-14... : jusqu'à 17 chiffres tiennent dans un long avec la longueur
+    private static final Pattern NUMERIC_BARCODE = Pattern.compile("\\d{1,17}");
+
+    private final ProductRepository productRepository;
+    private final StoreProductPriceRepository priceRepository;
+    private final CategoryRepository categoryRepository;
+    private final CategoryMapper categoryMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxProducts;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Region<UUID, ProductView> products;
+    private final Region<Object, UUID> barcodes;
+    private final Region<Object, Boolean> unknownBarcodes;
+    private final Region<String, UUID> skus;
+    private final Region<PriceKey, Optional<PriceView>> prices;
+    private final Region<UUID, List<CategoryResponse>> categories;
+
+    public CatalogCache(ProductRepository productRepository,
+                        StoreProductPriceRepository priceRepository,
+                        CategoryRepository categoryRepository,
+                        CategoryMapper categoryMapper,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.catalog.cache.max-products:20000}") int maxProducts,
+                        @Value("${app.catalog.cache.max-prices:50000}") int maxPrices,
+                        @Value("${app.catalog.cache.price-ttl-ms:60000}") long priceTtlMs,
+                        @Value("${app.catalog.cache.product-ttl-ms:600000}") long productTtlMs,
+                        @Value("${app.catalog.cache.unknown-barcode-ttl-ms:30000}") long unknownBarcodeTtlMs) {
+        this.productRepository = productRepository;
+        this.priceRepository = priceRepository;
+        this.categoryRepository = categoryRepository;
+        this.categoryMapper = categoryMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxProducts = maxProducts;
+
+        this.products   = new Region<>("products", maxProducts, productTtlMs, meterRegistry);
+        this.barcodes   = new Region<>("barcodes", maxProducts, productTtlMs, meterRegistry);
+        this.unknownBarcodes = new Region<>("unknown_barcodes", 10000, unknownBarcodeTtlMs, meterRegistry);
+        this.skus       = new Region<>("skus", maxProducts, productTtlMs, meterRegistry);
+        this.prices     = new Region<>("prices", maxPrices, priceTtlMs, meterRegistry);
+        this.categories = new Region<>("categories", 1000, productTtlMs, meterRegistry);
+    }
+
+    // ═══════════════════════════════════════════════════
+    // LECTURES
+    // ═══════════════════════════════════════════════════
+
+    public Optional<ProductView> productById(UUID productId) {
+        return Optional.ofNullable(products.get(productId, generation.get(), id ->
+                readOnlyTx.execute(status -> productRepository.findById(id)
+                        .map(ProductView::of)
+                        .orElse(null))));
+    }
+
+    public Optional<ProductView> productByBarcode(String barcode) {
+        if (barcode == null || barcode.isBlank()) return Optional.empty();
+        String code = barcode.trim();
+        Object key = barcodeKey(code);
+        if (unknownBarcodes.contains(key)) return Optional.empty();
+        long gen = generation.get();
+        UUID productId = barcodes.get(key, gen, k ->
+                readOnlyTx.execute(status -> productRepository.findByBarcode(code)
+                        .map(product -> cacheProduct(product, gen))
+                        .orElse(null)));
+        if (productId == null) {
+            unknownBarcodes.put(key, Boolean.TRUE, gen);
+            return Optional.empty();
+        }
+        return productById(productId);
+    }
+
+    public Optional<ProductView> productBySku(String sku) {
+        long gen = generation.get();
+        UUID productId = skus.get(sku, gen, code ->
+                readOnlyTx.execute(status -> productRepository.findBySku(code)
+                        .map(product -> cacheProduct(product, gen))
+                        .orElse(null)));
+        return productId != null ? productById(productId) : Optional.empty();
+    }
+
+    /**
+     * Prix actif du produit dans le magasin (l'absence de prix est aussi mise en cache).
+     */
+    public Optional<PriceView> activePrice(UUID storeId, UUID productId) {
+        Optional<PriceView> price = prices.get(new PriceKey(storeId, productId), generation.get(), key ->
+                readOnlyTx.execute(status -> loadActivePrice(key)));
+        if (price == null) return Optional.empty();
+        // Un prix arrivé à échéance n'est plus servi, même avant expiration du TTL
+        if (price.isPresent() && !price.get().isValidAt(LocalDateTime.now())) {
+            prices.evict(new PriceKey(storeId, productId));
+            return activePrice(storeId, productId);
+        }
+        return price;
+    }
+
+    /**
+     * Vue magasin : produit + prix actif (vide si le produit n'existe pas).
+     */
+    public Optional<StoreProductView> storeView(UUID storeId, UUID productId) {
+        return productById(productId)
+                .map(product -> new StoreProductView(product, activePrice(storeId, productId).orElse(null)));
+    }
+
+    /**
+     * Sous-catégories d'un parent ; {@code null} pour les catégories racines.
+     */
+    public List<CategoryResponse> categoryChildren(UUID parentId) {
+        return categories.get(parentId != null ? parentId : ROOT, generation.get(), key ->
+                readOnlyTx.execute(status -> (ROOT.equals(key)
+                        ? categoryRepository.findByParentCategoryIsNull()
+                        : categoryRepository.findByParentCategory_CategoryId(key))
+                        .stream()
+                        .map(categoryMapper::toResponse)
+                        .toList()));
+    }
+
+    // ═══════════════════════════════════════════════════
+    // INVALIDATION (fin de transaction)
+    // ═══════════════════════════════════════════════════
+
+    /**
+     * Produit modifié ou supprimé : anciennes clés code-barres/SKU comprises.
+     */
+    public void evictProduct(UUID productId, String... oldCodes) {
+        atCompletion(() -> {
+            ProductView cached = products.peek(productId);
+            if (cached != null) {
+                barcodes.evict(barcodeKey(cached.barcode()));
+                skus.evict(cached.sku());
+            }
+            for (String code : oldCodes) {
+                barcodes.evict(barcodeKey(code));
+                skus.evict(code);
+            }
+            products.evict(productId);
+            // Le code d'un produit créé ou modifié n'est plus inconnu
+            unknownBarcodes.clear();
+            // Le nombre de produits des catégories change aussi
+            categories.clear();
+        });
+    }
+
+    public void evictPrice(UUID storeId, UUID productId) {
+        atCompletion(() -> prices.evict(new PriceKey(storeId, productId)));
+    }
+
+    public void evictCategories() {
+        atCompletion(categories::clear);
+    }
+
+    /**
+     * Catégorie renommée ou déplacée : l'arbre, et les produits qui en portent le nom.
+     */
+    public void evictCategory(UUID categoryId) {
+        atCompletion(() -> {
+            categories.clear();
+            products.evictIf(product -> categoryId.equals(product.categoryId()));
+        });
+    }
+
+    /**
+     * Préchargement de l'index code-barres → produit au démarrage :
+     * le premier scan en caisse ne touche pas la base.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmBarcodeIndex() {
+        long gen = generation.get();
+        List<Product> loaded = readOnlyTx.execute(status -> {
+            List<Product> list = productRepository.findActiveWithBarcode(PageRequest.of(0, maxProducts));
+            list.forEach(product -> cacheProduct(product, gen));
+            return list;
+        });
+        log.info("Index code-barres préchargé: {} produits", loaded != null ? loaded.size() : 0);
+    }
+
+    // ═══════════════════════════════════════════════════
+    // INTERNES
+    // ═══════════════════════════════════════════════════
+
+    private UUID cacheProduct(Product product, long gen) {
+        products.put(product.getProductId(), ProductView.of(product), gen);
+        Object key = barcodeKey(product.getBarcode());
+        if (key != null) barcodes.put(key, product.getProductId(), gen);
+        return product.getProductId();
+    }
+
+    /**
+     * Clé compacte : les codes numériques (cas courant) deviennent un Long
+     * (valeur × 32 + longueur, pour distinguer les zéros de tête) ; les autres restent des String.
+     */
+    private static Object barcodeKey(String barcode) {
+        if (barcode == null || barcode.isBlank()) return null;
+        String code = barcode.trim();
+        if (NUMERIC_BARCODE.matcher(code).matches()) {
+            return Long.parseLong(code) * 32 + code.length();
+        }
+        return code;
+    }
+
+    private Optional<PriceView> loadActivePrice(PriceKey key) {
+        return priceRepository
+                .findActivePricesForProductsAtDate(key.storeId(), List.of(key.productId()), LocalDateTime.now())
+                .stream()
+                .findFirst()
+                .map(PriceView::of);
+    }
+
+    /**
+     * Invalidation en fin de transaction, validée ou non : une lecture faite dans la
+     * transaction d'écriture a pu mettre en cache une version qui ne sera jamais validée.
+     */
+    private void atCompletion(Runnable eviction) {
+        Runnable invalidation = () -> {
+            generation.incrementAndGet();
+            eviction.run();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════
+    // VUES IMMUABLES
+    // ═══════════════════════════════════════════════════
+
+    public record ProductView(
+            UUID productId,
+            String name,
+            String description,
+            String sku,
+            String barcode,
+            UUID categoryId,
+            String categoryName,
+            String imageUrl,
+            String imageFilename,
+            boolean active,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt
+    ) {
+        static ProductView of(Product product) {
+            return new ProductView(
+                    product.getProductId(),
+                    product.getName(),
+                    product.getDescription(),
+                    product.getSku(),
+                    product.getBarcode(),
+                    product.getCategory() != null ? product.getCategory().getCategoryId() : null,
+                    product.getCategory() != null ? product.getCategory().getName() : null,
+                    product.getImageUrl(),
+                    product.getImageFilename(),
+                    Boolean.TRUE.equals(product.getIsActive()),
+                    product.getCreatedAt(),
+                    product.getUpdatedAt());
+        }
+    }
+
+    public record PriceView(
+            UUID priceId,
+            BigDecimal basePrice,
+            BigDecimal taxRate,
+            BigDecimal discountValue,
+            BigDecimal finalPrice,
+            LocalDateTime effectiveDate,
+            LocalDateTime endDate
+    ) {
+        static PriceView of(StoreProductPrice price) {
+            return new PriceView(
+                    price.getPriceId(),
+                    price.getBasePrice(),
+                    price.getTaxRate(),
+                    price.getDiscountValue(),
+                    price.getFinalPrice(),
+                    price.getEffectiveDate(),
+                    price.getEndDate());
+        }
+
+        public boolean isValidAt(LocalDateTime dateTime) {
+            return !dateTime.isBefore(effectiveDate) &&
+                    (endDate == null || !dateTime.isAfter(endDate));
+        }
+    }
+
+    public record StoreProductView(ProductView product, PriceView price) {
+    }
+
+    private record PriceKey(UUID storeId, UUID productId) {
+    }
+
+    /**
+     * Région du cache : map concurrente bornée, TTL, métriques hit/miss/éviction.
+     * Quand la région est pleine, une entrée quelconque est retirée (pas de LRU strict).
+     * Une valeur n'est insérée que si aucune invalidation n'a eu lieu depuis la génération
+     * relevée avant son chargement.
+     */
+    private final class Region<K, V> {
+
+        private final int maxSize;
+        private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter evictions;
+        private final long ttlMs;
+
+        Region(String name, int maxSize, long ttlMs, MeterRegistry meterRegistry) {
+            this.maxSize = maxSize;
+            this.ttlMs = ttlMs;
+            this.hits      = meterRegistry.counter("pos.catalog.cache", "region", name, "result", "hit");
+            this.misses    = meterRegistry.counter("pos.catalog.cache", "region", name, "result", "miss");
+            this.evictions = meterRegistry.counter("pos.catalog.cache.evictions", "region", name);
+            meterRegistry.gauge("pos.catalog.cache.size", List.of(Tag.of("region", name)),
+                    entries, Map::size);
+        }
+
+        V get(K key, long gen, Function<K, V> loader) {
+            if (key == null) return null;
+            Entry<V> entry = entries.get(key);
+            long now = System.currentTimeMillis();
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.value();
+            }
+            misses.increment();
+            V value = loader.apply(key);
+            if (value != null) put(key, value, gen);
+            return value;
+        }
+
+        boolean contains(K key) {
+            Entry<V> entry = key != null ? entries.get(key) : null;
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return true;
+            }
+            return false;
+        }
+
+        V peek(K key) {
+            Entry<V> entry = key != null ? entries.get(key) : null;
+            return entry != null ? entry.value() : null;
+        }
+
+        void put(K key, V value, long gen) {
+            if (generation.get() != gen) return;
+            if (entries.size() >= maxSize && !entries.containsKey(key)) {
+                Iterator<K> it = entries.keySet().iterator();
+                while (entries.size() >= maxSize && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            long expiresAt = ttlMs > 0
+                    ? System.currentTimeMillis() + ttlMs
+                    : Long.MAX_VALUE;
+            Entry<V> entry = new Entry<>(value, expiresAt);
+            entries.put(key, entry);
+            // Invalidation passée entre la vérification et l'insertion
+            if (generation.get() != gen) entries.remove(key, entry);
+        }
+
+        void evict(K key) {
+            if (key != null && entries.remove(key) != null) {
+                evictions.increment();
+            }
+        }
+
+        void evictIf(Predicate<V> predicate) {
+            entries.values().removeIf(entry -> {
+                if (!predicate.test(entry.value())) return false;
+                evictions.increment();
+                return true;
+            });
+        }
+
+        void clear() {
+            int size = entries.size();
+            entries.clear();
+            evictions.increment(size);
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
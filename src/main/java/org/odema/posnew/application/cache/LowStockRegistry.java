@@ -0,0 +1,96 @@
+package org.odema.posnew.application.cache;
+
+import org.odema.posnew.application.dto.response.InventoryLevelProjection;
+import org.odema.posnew.domain.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ensemble des produits en stock faible par magasin, en mémoire.
+ * <p>
+ * Chaque magasin est amorcé au premier accès depuis l'index (magasin, statut), puis
+ * maintenu par {@code LowStockService} après commit, à partir des niveaux relus en fin
+ * de transaction. Le tableau de bord lit cet ensemble sans parcourir les inventaires.
+ * <p>
+ * Ensemble local à l'instance : il est vidé périodiquement et réamorcé au besoin, ce qui
+ * rattrape les écritures faites par une autre instance ou les changements de seuil.
+ * Garde aussi la date du dernier signal par (magasin, produit) pour l'anti-rebond.
+ */
+@Component
+public class LowStockRegistry {
+
+    private final InventoryRepository inventoryRepository;
+    private final Map<UUID, Map<UUID, InventoryLevelProjection>> lowByStore = new ConcurrentHashMap<>();
+    private final Map<StockKey, Signal> lastSignals = new ConcurrentHashMap<>();
+    private final long debounceNanos;
+
+    public LowStockRegistry(InventoryRepository inventoryRepository,
+                            @Value("${app.stock.low-stock.debounce-minutes:30}") long debounceMinutes) {
+        this.inventoryRepository = inventoryRepository;
+        this.debounceNanos = Duration.ofMinutes(debounceMinutes).toNanos();
+    }
+
+    /**
+     * Inventaires en stock faible ou en rupture du magasin.
+     */
+    public List<InventoryLevelProjection> lowStock(UUID storeId) {
+        Map<UUID, InventoryLevelProjection> low = lowByStore.get(storeId);
+        if (low == null) {
+            Map<UUID, InventoryLevelProjection> seeded = new ConcurrentHashMap<>();
+            inventoryRepository.findLowStockLevels(storeId).forEach(level -> seeded.put(level.productId(), level));
+            low = lowByStore.putIfAbsent(storeId, seeded);
+            if (low == null) low = seeded;
+        }
+        return List.copyOf(low.values());
+    }
+
+    /**
+     * Niveau validé d'un inventaire : entre dans l'ensemble, y est mis à jour ou en sort.
+     * Sans effet sur un magasin pas encore amorcé (l'amorçage lira la base).
+     */
+    public void apply(InventoryLevelProjection level) {
+        Map<UUID, InventoryLevelProjection> low = lowByStore.get(level.storeId());
+        if (low == null) return;
+        if (level.isLow()) {
+            low.put(level.productId(), level);
+        } else {
+            low.remove(level.productId());
+        }
+    }
+
+    /**
+     * Vrai si un signal de ce niveau peut partir : aucun signal dans la fenêtre
+     * d'anti-rebond, ou un signal moins grave (stock faible puis rupture).
+     */
+    public boolean shouldSignal(UUID storeId, UUID productId, boolean outOfStock) {
+        Signal last = lastSignals.get(new StockKey(storeId, productId));
+        return last == null
+                || System.nanoTime() - last.at() >= debounceNanos
+                || (outOfStock && !last.outOfStock());
+    }
+
+    /**
+     * Signal validé (appelé après commit).
+     */
+    public void signalled(UUID storeId, UUID productId, boolean outOfStock) {
+        lastSignals.put(new StockKey(storeId, productId), new Signal(System.nanoTime(), outOfStock));
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.low-stock.resync-interval-ms:900000}")
+    public void resync() {
+        lowByStore.clear();
+        long now = System.nanoTime();
+        lastSignals.values().removeIf(signal -> now - signal.at() >= debounceNanos);
+    }
+
+    private record StockKey(UUID storeId, UUID productId) {}
+
+    private record Signal(long at, boolean outOfStock) {}
+}
@@ -0,0 +1,113 @@
+package org.odema.posnew.application.cache;
+
+import org.odema.posnew.domain.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quantités réservées par (magasin, produit), en mémoire.
+ * <p>
+ * Chaque compteur est amorcé depuis le journal {@code stock_reservations} au premier
+ * accès, puis maintenu par {@code StockReservationService} : réservation immédiate,
+ * libération après commit. L'admission d'une réservation (disponible ≥ demandé) se fait
+ * sous un verrou choisi parmi {@code stripes} selon la clé : deux caisses qui vendent
+ * le même produit sont sérialisées, les autres produits ne se bloquent pas.
+ * <p>
+ * Compteurs locaux à l'instance : la conversion en déduction (décrément conditionnel
+ * en SQL) reste l'arbitre final du stock physique.
+ */
+@Component
+public class ReservedStockCounters {
+
+    private final StockReservationRepository reservationRepository;
+    private final ReentrantLock[] stripes;
+    private final Map<StockKey, AtomicLong> reserved = new ConcurrentHashMap<>();
+
+    public ReservedStockCounters(StockReservationRepository reservationRepository,
+                                 @Value("${app.stock.reservation.stripes:64}") int stripeCount) {
+        this.reservationRepository = reservationRepository;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Réserve {@code quantity} si le disponible à la vente le permet.
+     *
+     * @param onHand stock physique connu de l'appelant
+     * @return disponible avant réservation si accordée, sinon {@code -(disponible + 1)}
+     */
+    public long tryReserve(UUID storeId, UUID productId, int onHand, int quantity) {
+        StockKey key = new StockKey(storeId, productId);
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            AtomicLong counter = counter(key);
+            long available = onHand - counter.get();
+            if (available < quantity) {
+                return -(Math.max(available, 0) + 1);
+            }
+            counter.addAndGet(quantity);
+            return available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retire {@code quantity} des réservations (conversion, libération, expiration, rollback).
+     */
+    public void release(UUID storeId, UUID productId, int quantity) {
+        AtomicLong counter = reserved.get(new StockKey(storeId, productId));
+        if (counter != null) {
+            // Jamais négatif : un compteur amorcé après coup a pu ne pas voir la réservation
+            counter.updateAndGet(value -> Math.max(0, value - quantity));
+        }
+    }
+
+    public long reserved(UUID storeId, UUID productId) {
+        StockKey key = new StockKey(storeId, productId);
+        AtomicLong counter = reserved.get(key);
+        if (counter != null) {
+            return counter.get();
+        }
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            return counter(key).get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Disponible à la vente : stock physique moins réservations actives.
+     */
+    public int availableToSell(UUID storeId, UUID productId, int onHand) {
+        return (int) Math.max(0, onHand - reserved(storeId, productId));
+    }
+
+    // Appelé sous le verrou de la clé : amorçage unique depuis la base
+    private AtomicLong counter(StockKey key) {
+        AtomicLong counter = reserved.get(key);
+        if (counter == null) {
+            counter = new AtomicLong(reservationRepository.sumActive(key.storeId(), key.productId()));
+            reserved.put(key, counter);
+        }
+        return counter;
+    }
+
+    private ReentrantLock stripe(StockKey key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private record StockKey(UUID storeId, UUID productId) {}
+}
@@ -0,0 +1,107 @@
+package org.odema.posnew.application.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.odema.posnew.application.dto.response.InventoryLevelProjection;
+import org.odema.posnew.domain.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stock physique par (magasin, produit) pour le scan en caisse, en mémoire.
+ * <p>
+ * Lu en base au premier scan, puis remplacé après commit par le niveau relu en fin de
+ * transaction ({@code LowStockService}) : toute écriture de stock passe par le journal,
+ * une vente ou un transfert validé met donc l'entrée à jour sans relecture. Un chargement
+ * commencé avant un commit n'écrase pas le niveau posé par ce commit.
+ * <p>
+ * Local à l'instance : le TTL court borne la durée de vie d'une entrée modifiée par une
+ * autre instance ou par un changement de seuil. Affichage seulement : la déduction
+ * conditionnelle en SQL reste l'arbitre du stock au paiement.
+ */
+@Component
+public class StockLevelCache {
+
+    private final InventoryRepository inventoryRepository;
+    private final Map<StockKey, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMs;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StockLevelCache(InventoryRepository inventoryRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.catalog.cache.max-stock-levels:50000}") int maxSize,
+                           @Value("${app.catalog.cache.stock-ttl-ms:5000}") long ttlMs) {
+        this.inventoryRepository = inventoryRepository;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.hits   = meterRegistry.counter("pos.catalog.cache", "region", "stock", "result", "hit");
+        this.misses = meterRegistry.counter("pos.catalog.cache", "region", "stock", "result", "miss");
+        meterRegistry.gauge("pos.catalog.cache.size", List.of(Tag.of("region", "stock")), entries, Map::size);
+    }
+
+    /**
+     * Niveau de l'inventaire actif du produit dans le magasin (vide s'il n'y en a pas).
+     */
+    public Optional<Level> level(UUID storeId, UUID productId) {
+        StockKey key = new StockKey(storeId, productId);
+        Entry observed = entries.get(key);
+        if (observed != null && observed.expiresAt() > System.currentTimeMillis()) {
+            hits.increment();
+            return observed.level();
+        }
+        misses.increment();
+        Optional<Level> loaded = inventoryRepository.findStockLevel(productId, storeId)
+                .map(stock -> new Level(
+                        stock.getQuantity() != null ? stock.getQuantity() : 0,
+                        stock.getReorderPoint() != null ? stock.getReorderPoint() : 0,
+                        stock.getMaxStock() != null ? stock.getMaxStock() : Integer.MAX_VALUE));
+        Entry entry = newEntry(loaded);
+        // Remplace seulement l'entrée observée avant la lecture : un niveau posé
+        // entre-temps par un commit est plus récent que la valeur lue
+        entries.compute(key, (k, current) -> current == observed ? entry : current);
+        return loaded;
+    }
+
+    /**
+     * Niveau validé d'un inventaire (après commit).
+     */
+    public void apply(InventoryLevelProjection level) {
+        Optional<Level> value = Boolean.TRUE.equals(level.isActive())
+                ? Optional.of(new Level(level.quantity(), level.threshold(),
+                        level.maxStock() != null ? level.maxStock() : Integer.MAX_VALUE))
+                : Optional.empty();
+        entries.put(new StockKey(level.storeId(), level.productId()), newEntry(value));
+    }
+
+    private Entry newEntry(Optional<Level> level) {
+        if (entries.size() >= maxSize) {
+            // Région pleine : entrées quelconques retirées (pas de LRU strict)
+            Iterator<StockKey> it = entries.keySet().iterator();
+            while (entries.size() >= maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return new Entry(level, System.currentTimeMillis() + ttlMs);
+    }
+
+    /**
+     * Stock physique et seuils, de quoi dériver le statut d'une quantité.
+     */
+    public record Level(int quantity, int reorderPoint, int maxStock) {
+    }
+
+    private record StockKey(UUID storeId, UUID productId) {}
+
+    private record Entry(Optional<Level> level, long expiresAt) {}
+}
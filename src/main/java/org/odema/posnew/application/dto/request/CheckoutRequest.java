@@ -0,0 +1,21 @@
+package org.odema.posnew.application.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Encaissement en un seul appel : panier, moyens de paiement (paiement fractionné)
+ * et clôture immédiate de la commande.
+ */
+public record CheckoutRequest(
+        @NotNull @Valid OrderRequest order,
+        @Size(max = 20) List<PaymentRequest> tenders,  // vide : commande non payée
+        boolean complete
+) {
+    public List<PaymentRequest> tendersOrEmpty() {
+        return tenders != null ? tenders : List.of();
+    }
+}
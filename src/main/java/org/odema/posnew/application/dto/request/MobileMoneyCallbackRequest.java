@@ -0,0 +1,19 @@
+package org.odema.posnew.application.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Notification de l'opérateur Mobile Money. {@code paymentId} est la référence
+ * marchande transmise à l'initiation.
+ */
+public record MobileMoneyCallbackRequest(
+        @NotNull UUID paymentId,
+        String providerReference,
+        boolean success,
+        BigDecimal amount,
+        String message
+) {
+}
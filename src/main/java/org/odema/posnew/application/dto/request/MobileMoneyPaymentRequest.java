@@ -0,0 +1,19 @@
+package org.odema.posnew.application.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+
+/**
+ * Demande de paiement Mobile Money : le client valide sur son téléphone,
+ * la confirmation arrive par callback opérateur.
+ */
+public record MobileMoneyPaymentRequest(
+        @NotNull @Positive BigDecimal amount,
+        @NotBlank String provider,
+        @NotBlank String phoneNumber,
+        String notes
+) {
+}
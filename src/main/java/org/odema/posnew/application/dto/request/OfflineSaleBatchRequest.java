@@ -0,0 +1,15 @@
+package org.odema.posnew.application.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public record OfflineSaleBatchRequest(
+        @NotNull UUID storeId,
+        @NotEmpty @Size(max = 1000) List<@Valid OfflineSaleRequest> sales
+) {
+}
@@ -0,0 +1,21 @@
+package org.odema.posnew.application.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Vente réalisée hors ligne par une caisse : commande, paiements et identifiant
+ * généré par la caisse (rejouer la même vente ne la duplique pas).
+ */
+public record OfflineSaleRequest(
+        @NotNull UUID clientSaleId,
+        @NotNull @Valid OrderRequest order,
+        @NotEmpty List<PaymentRequest> payments,
+        LocalDateTime soldAt
+) {
+}
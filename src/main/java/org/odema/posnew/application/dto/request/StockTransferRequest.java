@@ -0,0 +1,25 @@
+package org.odema.posnew.application.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transfert de plusieurs produits d'un magasin vers un autre, en un seul document.
+ */
+public record StockTransferRequest(
+        @NotNull UUID fromStoreId,
+        @NotNull UUID toStoreId,
+        @NotEmpty @Size(max = 500) List<@Valid Line> lines,
+        String notes
+) {
+    public record Line(
+            @NotNull UUID productId,
+            @NotNull @Positive Integer quantity
+    ) {}
+}
@@ -0,0 +1,28 @@
+package org.odema.posnew.application.dto.response;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page d'un historique paginé par clé : {@code nextCursor} est null sur la dernière page.
+ */
+public record CursorPage<T>(
+        List<T> items,
+        int size,
+        boolean hasMore,
+        String nextCursor
+) {
+    /**
+     * @param rows  lignes lues avec {@link KeysetCursor#fetchLimit(int)} (taille + 1)
+     * @param key   position de pagination d'une ligne
+     * @param toDto conversion en réponse
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int pageSize,
+                                          Function<E, KeysetCursor> key,
+                                          Function<E, T> toDto) {
+        boolean hasMore = rows.size() > pageSize;
+        List<E> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String next = hasMore ? key.apply(page.getLast()).encode() : null;
+        return new CursorPage<>(page.stream().map(toDto).toList(), page.size(), hasMore, next);
+    }
+}
@@ -0,0 +1,27 @@
+package org.odema.posnew.application.dto.response;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record InventoryLevelProjection(
+        UUID inventoryId,
+        UUID storeId,
+        String storeName,
+        UUID productId,
+        String productName,
+        Integer quantity,
+        Integer reorderPoint,
+        Integer minStock,
+        Integer maxStock,
+        BigDecimal unitCost,
+        Boolean isActive
+) {
+
+    public boolean isLow() {
+        return Boolean.TRUE.equals(isActive) && quantity <= threshold();
+    }
+
+    public int threshold() {
+        return reorderPoint != null ? reorderPoint : 0;
+    }
+}
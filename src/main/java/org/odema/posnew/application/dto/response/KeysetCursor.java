@@ -0,0 +1,57 @@
+package org.odema.posnew.application.dto.response;
+
+import org.odema.posnew.api.exception.BadRequestException;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position de pagination par clé (createdAt, id), tri décroissant.
+ *
+ * Le client ne voit qu'un jeton opaque (Base64 URL) : la requête suivante reprend
+ * strictement après la dernière ligne servie, sans OFFSET — la page N coûte
+ * autant que la page 1.
+ */
+public record KeysetCursor(LocalDateTime createdAt, UUID id) {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    /** Avant toute ligne réelle : sert de position pour la première page */
+    private static final KeysetCursor START = new KeysetCursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59), new UUID(-1L, -1L));
+
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) return START;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Curseur de pagination invalide");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Taille demandée bornée ; on lit une ligne de plus pour savoir s'il reste une page.
+     */
+    public static int pageSize(Integer size) {
+        if (size == null) return DEFAULT_SIZE;
+        return Math.clamp(size, 1, MAX_SIZE);
+    }
+
+    public static Limit fetchLimit(int pageSize) {
+        return Limit.of(pageSize + 1);
+    }
+}
@@ -0,0 +1,26 @@
+package org.odema.posnew.application.dto.response;
+
+import org.odema.posnew.domain.model.enums.OfflineSaleOutcome;
+
+import java.util.UUID;
+
+public record OfflineSaleResult(
+        UUID clientSaleId,
+        OfflineSaleOutcome outcome,
+        UUID orderId,
+        String orderNumber,
+        String message
+) {
+    public static OfflineSaleResult created(UUID clientSaleId, UUID orderId, String orderNumber) {
+        return new OfflineSaleResult(clientSaleId, OfflineSaleOutcome.CREATED, orderId, orderNumber, null);
+    }
+
+    public static OfflineSaleResult duplicate(UUID clientSaleId, UUID orderId, String orderNumber) {
+        return new OfflineSaleResult(clientSaleId, OfflineSaleOutcome.DUPLICATE, orderId, orderNumber,
+                "Vente déjà synchronisée");
+    }
+
+    public static OfflineSaleResult rejected(UUID clientSaleId, String message) {
+        return new OfflineSaleResult(clientSaleId, OfflineSaleOutcome.REJECTED, null, null, message);
+    }
+}
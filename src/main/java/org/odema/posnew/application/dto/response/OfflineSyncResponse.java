@@ -0,0 +1,31 @@
+package org.odema.posnew.application.dto.response;
+
+import org.odema.posnew.domain.model.enums.OfflineSaleOutcome;
+
+import java.util.List;
+
+/**
+ * Résultat d'une synchronisation : un résultat par vente, dans l'ordre du lot reçu.
+ */
+public record OfflineSyncResponse(
+        int received,
+        long created,
+        long duplicates,
+        long rejected,
+        long durationMs,
+        List<OfflineSaleResult> results
+) {
+    public static OfflineSyncResponse of(List<OfflineSaleResult> results, long durationMs) {
+        return new OfflineSyncResponse(
+                results.size(),
+                count(results, OfflineSaleOutcome.CREATED),
+                count(results, OfflineSaleOutcome.DUPLICATE),
+                count(results, OfflineSaleOutcome.REJECTED),
+                durationMs,
+                results);
+    }
+
+    private static long count(List<OfflineSaleResult> results, OfflineSaleOutcome outcome) {
+        return results.stream().filter(r -> r.outcome() == outcome).count();
+    }
+}
@@ -0,0 +1,42 @@
+package org.odema.posnew.application.dto.response;
+
+import org.odema.posnew.domain.model.enums.OrderStatus;
+import org.odema.posnew.domain.model.enums.OrderType;
+import org.odema.posnew.domain.model.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ligne de liste des commandes : projection construite directement par la requête
+ * (aucune entité chargée). Le détail complet passe par {@link OrderResponse}.
+ */
+public record OrderSummaryResponse(
+        UUID orderId,
+        String orderNumber,
+
+        OrderStatus status,
+        PaymentStatus paymentStatus,
+        OrderType orderType,
+
+        UUID storeId,
+        String storeName,
+
+        UUID cashierId,
+        String cashierName,
+
+        UUID customerId,
+        String customerName,
+
+        BigDecimal totalAmount,
+        BigDecimal totalPaid,
+        BigDecimal totalCredit,
+
+        Long itemCount,
+        Long paymentCount,
+
+        LocalDateTime createdAt,
+        LocalDateTime completedAt
+) {
+}
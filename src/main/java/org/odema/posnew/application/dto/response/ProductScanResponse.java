@@ -0,0 +1,30 @@
+package org.odema.posnew.application.dto.response;
+
+import org.odema.posnew.domain.model.enums.StockStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Résultat d'un scan en caisse : produit, prix magasin et stock en un seul appel.
+ */
+public record ProductScanResponse(
+        UUID productId,
+        String name,
+        String sku,
+        String barcode,
+        UUID categoryId,
+        String categoryName,
+        String imageUrl,
+
+        UUID storeId,
+        BigDecimal basePrice,   // null si aucun prix actif dans ce magasin
+        BigDecimal taxRate,
+        BigDecimal discountValue,
+        BigDecimal finalPrice,
+
+        Integer quantity,
+        StockStatus stockStatus,
+        Boolean inStock
+) {
+}
@@ -0,0 +1,16 @@
+package org.odema.posnew.application.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stock reconstitué à une date : snapshot de référence + mouvements postérieurs.
+ */
+public record StockLevelResponse(
+        UUID storeId,
+        UUID productId,
+        LocalDateTime at,
+        int quantity,
+        LocalDateTime snapshotAt,
+        int deltaSinceSnapshot
+) {}
@@ -0,0 +1,17 @@
+package org.odema.posnew.application.dto.response;
+
+import org.odema.posnew.domain.model.enums.StockMovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record StockMovementResponse(
+        Long movementId,
+        UUID storeId,
+        UUID productId,
+        StockMovementType type,
+        Integer quantity,
+        UUID referenceId,
+        String note,
+        LocalDateTime occurredAt
+) {}
@@ -0,0 +1,25 @@
+package org.odema.posnew.application.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record StockTransferResponse(
+        UUID transferId,
+        String transferNumber,
+        UUID fromStoreId,
+        String fromStoreName,
+        UUID toStoreId,
+        String toStoreName,
+        List<Line> lines,
+        Integer totalQuantity,
+        String notes,
+        LocalDateTime createdAt
+) {
+    public record Line(
+            UUID productId,
+            String productName,
+            String sku,
+            Integer quantity
+    ) {}
+}
@@ -1,11 +1,13 @@
 package org.odema.posnew.application.mapper;
 
+import org.odema.posnew.application.cache.CatalogCache;
 import org.odema.posnew.application.dto.request.ProductRequest;
 import org.odema.posnew.application.dto.response.ProductResponse;
 import org.odema.posnew.domain.model.Category;
 import org.odema.posnew.domain.model.Product;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -29,6 +31,14 @@ public class ProductMapper {
 
     public ProductResponse toResponse(Product product) {
         if (product == null) return null;
+        return toResponse(product, product.getTotalStock());
+    }
+
+    /**
+     * Variante avec stock total déjà calculé (listes : une requête groupée pour la page).
+     */
+    public ProductResponse toResponse(Product product, int totalStock) {
+        if (product == null) return null;
 
         return new ProductResponse(
                 product.getProductId(),
@@ -36,14 +46,14 @@ public class ProductMapper {
                 product.getDescription(),
                 product.getStorePrices() != null && !product.getStorePrices().isEmpty()
                         ? product.getStorePrices().get(0).getFinalPrice() : null,
-                product.getTotalStock(),
+                totalStock,
                 product.getCategory() != null ? product.getCategory().getCategoryId() : null,
                 product.getCategory() != null ? product.getCategory().getName() : null,
                 product.getImageUrl(),
                 product.getImageFilename(),
                 product.getSku(),
                 product.getBarcode(),
-                product.isInStock(),
+                totalStock > 0,
                 product.getCreatedAt(),
                 product.getUpdatedAt(),
                 null, // storeId
@@ -52,6 +62,33 @@ public class ProductMapper {
         );
     }
 
+    /**
+     * Variante depuis le cache catalogue (prix et stock lus à part).
+     */
+    public ProductResponse toResponse(CatalogCache.ProductView product, BigDecimal price, int totalStock) {
+        if (product == null) return null;
+
+        return new ProductResponse(
+                product.productId(),
+                product.name(),
+                product.description(),
+                price,
+                totalStock,
+                product.categoryId(),
+                product.categoryName(),
+                product.imageUrl(),
+                product.imageFilename(),
+                product.sku(),
+                product.barcode(),
+                totalStock > 0,
+                product.createdAt(),
+                product.updatedAt(),
+                null, // storeId
+                product.active(),
+                null  // storeName
+        );
+    }
+
     public ProductResponse toResponseWithStore(Product product, UUID storeId) {
         if (product == null) return null;
 
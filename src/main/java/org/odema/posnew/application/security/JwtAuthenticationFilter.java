@@ -1,5 +1,6 @@
 package org.odema.posnew.application.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +8,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,6 +19,10 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
@@ -23,6 +30,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -31,15 +39,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (StringUtils.hasText(jwt)) {
+                // Un seul parsing : signature + expiration + claims
+                Optional<Claims> claims = tokenProvider.parseClaims(jwt);
+                if (claims.isPresent()) {
+                    authenticate(claims.get(), request);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -48,6 +53,42 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private void authenticate(Claims claims, HttpServletRequest request) {
+        Optional<UUID> userId = tokenProvider.getUserId(claims);
+
+        UserDetails userDetails;
+        Collection<? extends GrantedAuthority> authorities;
+        if (userId.isPresent()) {
+            // Jeton avec claims : principal depuis le cache, autorités depuis le jeton
+            Optional<CustomUserDetails> cached = principalCache.get(userId.get());
+            if (cached.isEmpty()) return;
+            userDetails = cached.get();
+            authorities = toAuthorities(tokenProvider.getRoles(claims));
+
+            // Compte désactivé ou rôle modifié depuis l'émission du jeton : reconnexion requise
+            if (!userDetails.isEnabled()
+                    || !authorities.equals(userDetails.getAuthorities())) {
+                return;
+            }
+        } else {
+            // Ancien jeton sans claims : chargement par username
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            authorities = userDetails.getAuthorities();
+        }
+
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    private List<GrantedAuthority> toAuthorities(List<String> roles) {
+        return roles.stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
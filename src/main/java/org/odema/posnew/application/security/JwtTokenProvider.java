@@ -2,64 +2,100 @@ package org.odema.posnew.application.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
 
+    /** Identifiant utilisateur (UUID) */
+    public static final String CLAIM_USER_ID = "uid";
+    /** Autorités Spring Security (ROLE_…) */
+    public static final String CLAIM_ROLES = "roles";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // Clé et parser construits une fois : ils sont immuables et thread-safe
+    private SecretKey key;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+    }
+
     public String generateToken(Authentication authentication) {
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
         assert userDetails != null;
-        return Jwts.builder()
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+
+        var builder = Jwts.builder()
                 .subject(userDetails.getUsername())
+                .claim(CLAIM_ROLES, roles)
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(key)
-                .compact();
+                .expiration(expiryDate);
+        if (userDetails instanceof CustomUserDetails custom) {
+            builder.claim(CLAIM_USER_ID, custom.getUserId().toString());
+        }
+        return builder.signWith(key).compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Vérifie la signature et l'expiration, et retourne les claims —
+     * un seul parsing par requête. Vide si le jeton est invalide.
+     */
+    public Optional<Claims> parseClaims(String token) {
+        try {
+            return Optional.of(parser.parseSignedClaims(token).getPayload());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
 
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Identifiant utilisateur du jeton ; vide pour les jetons émis avant
+     * l'ajout du claim (le filtre retombe alors sur le username).
+     */
+    public Optional<UUID> getUserId(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        return userId != null ? Optional.of(UUID.fromString(userId)) : Optional.empty();
+    }
 
-        return claims.getSubject();
+    @SuppressWarnings("unchecked")
+    public List<String> getRoles(Claims claims) {
+        List<String> roles = claims.get(CLAIM_ROLES, List.class);
+        return roles != null ? roles : List.of();
+    }
+
+    public String getUsernameFromToken(String token) {
+        return parser.parseSignedClaims(token).getPayload().getSubject();
     }
 
     public boolean validateToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return parseClaims(token).isPresent();
     }
 }
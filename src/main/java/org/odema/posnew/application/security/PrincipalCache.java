@@ -0,0 +1,107 @@
+package org.odema.posnew.application.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache borné (taille + TTL) des principals authentifiés par JWT, indexé par userId.
+ *
+ * Le filtre JWT fait confiance aux claims signés ; ce cache ne sert qu'à
+ * vérifier que le compte est toujours actif et que son rôle n'a pas changé,
+ * sans requête base en régime établi. Les modifications d'employé
+ * (désactivation, changement de rôle) l'invalident après commit.
+ */
+@Slf4j
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMs;
+    private final int maxSize;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    public PrincipalCache(UserRepository userRepository,
+                          @Value("${jwt.principal-cache.ttl-ms:300000}") long ttlMs,
+                          @Value("${jwt.principal-cache.max-size:1000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMs = ttlMs;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Principal du cache, rechargé depuis la base si absent ou expiré.
+     * Vide si l'utilisateur n'existe plus.
+     */
+    public Optional<CustomUserDetails> get(UUID userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.expiresAt() > now) {
+            return Optional.of(entry.details());
+        }
+
+        Optional<CustomUserDetails> loaded = userRepository.findById(userId)
+                .map(PrincipalCache::detach);
+        loaded.ifPresentOrElse(
+                details -> put(userId, new Entry(details, now + ttlMs), now),
+                () -> entries.remove(userId));
+        return loaded;
+    }
+
+    /**
+     * Retire l'utilisateur du cache après le commit de la transaction courante
+     * (immédiatement s'il n'y en a pas), pour ne pas recharger l'état d'avant.
+     */
+    public void invalidate(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(userId);
+                }
+            });
+        } else {
+            entries.remove(userId);
+        }
+        log.debug("Principal {} invalidé", userId);
+    }
+
+    private void put(UUID userId, Entry entry, long now) {
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(e -> e.expiresAt() <= now);
+            // Toujours plein : on libère une entrée quelconque
+            Iterator<UUID> it = entries.keySet().iterator();
+            while (entries.size() >= maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        entries.put(userId, entry);
+    }
+
+    /**
+     * Copie minimale détachée de la session JPA (sans mot de passe ni relations).
+     */
+    private static CustomUserDetails detach(User user) {
+        return new CustomUserDetails(User.builder()
+                .userId(user.getUserId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .userRole(user.getUserRole())
+                .active(user.getActive())
+                .build());
+    }
+
+    private record Entry(CustomUserDetails details, long expiresAt) {
+    }
+}
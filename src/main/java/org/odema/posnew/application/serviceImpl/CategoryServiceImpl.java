@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 
 import org.odema.posnew.api.exception.BusinessException;
 import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.application.cache.CatalogCache;
 import org.odema.posnew.application.dto.CategoryRequest;
 import org.odema.posnew.application.dto.CategoryResponse;
 import org.odema.posnew.application.mapper.CategoryMapper;
@@ -22,6 +23,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final CatalogCache catalogCache;
 
     @Override
     @Transactional
@@ -51,6 +53,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setIsActive(true);
 
         Category savedCategory = categoryRepository.save(category);
+        catalogCache.evictCategories();
         return categoryMapper.toResponse(savedCategory);
     }
 
@@ -88,6 +91,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        catalogCache.evictCategory(categoryId);
         return categoryMapper.toResponse(updatedCategory);
     }
 
@@ -116,6 +120,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryRepository.delete(category);
+        catalogCache.evictCategories();
     }
 
     @Override
@@ -127,19 +132,13 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<CategoryResponse> getMainCategories() {
-        return categoryRepository.findByParentCategoryIsNull().stream()
-                .map(categoryMapper::toResponse)
-                .toList();
+        return catalogCache.categoryChildren(null);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<CategoryResponse> getSubCategories(UUID parentId) {
-        return categoryRepository.findByParentCategory_CategoryId(parentId).stream()
-                .map(categoryMapper::toResponse)
-                .toList();
+        return catalogCache.categoryChildren(parentId);
     }
 
     @Override
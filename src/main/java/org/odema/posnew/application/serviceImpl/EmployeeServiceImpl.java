@@ -7,6 +7,7 @@ import org.odema.posnew.application.dto.EmployeeResponse;
 import org.odema.posnew.application.dto.request.EmployeeRequest;
 import org.odema.posnew.application.dto.request.EmployeeUpdateRequest;
 import org.odema.posnew.application.mapper.EmployeeMapper;
+import org.odema.posnew.application.security.PrincipalCache;
 import org.odema.posnew.domain.model.Store;
 import org.odema.posnew.domain.model.User;
 import org.odema.posnew.domain.model.enums.StoreType;
@@ -30,6 +31,7 @@ public class EmployeeServiceImpl implements EmployeeService {
     private final StoreRepository storeRepository;
     private final EmployeeMapper employeeMapper;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     @Override
     @Transactional
@@ -158,6 +160,7 @@ public class EmployeeServiceImpl implements EmployeeService {
         employeeMapper.updateEntityFromRequest(user, request, store);
 
         User updatedUser = userRepository.save(user);
+        principalCache.invalidate(employeeId);
         return employeeMapper.toResponse(updatedUser);
     }
 
@@ -173,6 +176,7 @@ public class EmployeeServiceImpl implements EmployeeService {
 
         user.setActive(false);
         userRepository.save(user);
+        principalCache.invalidate(employeeId);
     }
 
     @Override
@@ -187,6 +191,7 @@ public class EmployeeServiceImpl implements EmployeeService {
 
         user.setActive(true);
         userRepository.save(user);
+        principalCache.invalidate(employeeId);
     }
 
     @Override
@@ -250,6 +255,7 @@ public class EmployeeServiceImpl implements EmployeeService {
         user.setUserRole(newRole);
 
         User updatedUser = userRepository.save(user);
+        principalCache.invalidate(employeeId);
         return employeeMapper.toResponse(updatedUser);
     }
 
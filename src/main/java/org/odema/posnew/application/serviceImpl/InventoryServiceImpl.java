@@ -14,17 +14,19 @@ import org.odema.posnew.application.dto.InventoryTransferRequest;
 import org.odema.posnew.application.dto.InventoryUpdateRequest;
 import org.odema.posnew.application.dto.response.InventorySummaryProjection;
 import org.odema.posnew.application.mapper.InventoryMapper;
-import org.odema.posnew.design.event.LowStockEvent;
 import org.odema.posnew.design.event.StockAdjustmentEvent;
 import org.odema.posnew.design.event.StockTransferEvent;
 import org.odema.posnew.domain.model.Inventory;
 import org.odema.posnew.domain.model.Product;
 import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.enums.StockMovementType;
 import org.odema.posnew.domain.model.enums.StockStatus;
 import org.odema.posnew.domain.repository.InventoryRepository;
 import org.odema.posnew.domain.repository.ProductRepository;
 import org.odema.posnew.domain.repository.StoreRepository;
 import org.odema.posnew.domain.service.InventoryService;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockValuationService;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -46,6 +48,8 @@ public class InventoryServiceImpl implements InventoryService {
     private final StoreRepository storeRepository;
     private final InventoryMapper inventoryMapper;
     private final ApplicationEventPublisher eventPublisher;
+    private final StockMovementService stockMovementService;
+    private final StockValuationService stockValuationService;
 
     @Override
     @Transactional
@@ -62,10 +66,10 @@ public class InventoryServiceImpl implements InventoryService {
                 .orElseThrow(() -> new NotFoundException("Store non trouvé"));
 
         Inventory inventory = inventoryMapper.toEntity(request, product, store);
+        stockValuationService.beforeChange(inventory);
         Inventory savedInventory = inventoryRepository.save(inventory);
-
-        // Vérifier si stock bas après création
-        checkAndPublishLowStockEvent(savedInventory);
+        recordMovement(savedInventory, StockMovementType.ADJUSTMENT,
+                savedInventory.getQuantity(), "Stock initial");
 
         return inventoryMapper.toResponse(savedInventory);
     }
@@ -96,6 +100,8 @@ public class InventoryServiceImpl implements InventoryService {
         Inventory inventory = inventoryRepository.findById(inventoryId)
                 .orElseThrow(() -> new NotFoundException("Inventaire non trouvé"));
         int oldQuantity = inventory.getQuantity();
+        // Coût, seuil ou statut peuvent changer : état antérieur pour les agrégats
+        stockValuationService.beforeChange(inventory);
 
         if (request.quantity() != null && request.operation() != null) {
             updateStockQuantity(inventory, request.quantity(), request.operation());
@@ -120,11 +126,11 @@ public class InventoryServiceImpl implements InventoryService {
 
         // Publier événement d'ajustement si la quantité a changé
         if (oldQuantity != updatedInventory.getQuantity()) {
+            recordMovement(updatedInventory, StockMovementType.ADJUSTMENT,
+                    updatedInventory.getQuantity() - oldQuantity, request.notes());
             publishStockAdjustmentEvent(updatedInventory, "UPDATE", Math.abs(updatedInventory.getQuantity() - oldQuantity), request.notes());
         }
 
-        checkAndPublishLowStockEvent(updatedInventory);
-
         return inventoryMapper.toResponse(updatedInventory);
     }
 
@@ -134,6 +140,7 @@ public class InventoryServiceImpl implements InventoryService {
         Inventory inventory = inventoryRepository.findById(inventoryId)
                 .orElseThrow(() -> new NotFoundException("Inventaire non trouvé"));
 
+        stockValuationService.beforeChange(inventory);
         inventory.setIsActive(false);
         inventoryRepository.save(inventory);
     }
@@ -143,13 +150,13 @@ public class InventoryServiceImpl implements InventoryService {
     public InventoryResponse updateStock(UUID inventoryId, Integer quantity, String operation) {
         Inventory inventory = inventoryRepository.findById(inventoryId)
                 .orElseThrow(() -> new NotFoundException("Inventaire non trouvé"));
+        int oldQuantity = inventory.getQuantity();
 
         updateStockQuantity(inventory, quantity, operation);
 
         Inventory updatedInventory = inventoryRepository.save(inventory);
-
-        // Vérifier si stock bas après mise à jour
-        checkAndPublishLowStockEvent(updatedInventory);
+        recordMovement(updatedInventory, StockMovementType.ADJUSTMENT,
+                updatedInventory.getQuantity() - oldQuantity, "Opération: " + operation);
 
         return inventoryMapper.toResponse(updatedInventory);
     }
@@ -198,6 +205,7 @@ public class InventoryServiceImpl implements InventoryService {
                             .build();
                 });
 
+        stockValuationService.beforeChange(targetInventory);
         sourceInventory.decreaseQuantity(request.quantity());
         targetInventory.increaseQuantity(request.quantity());
 
@@ -220,8 +228,10 @@ public class InventoryServiceImpl implements InventoryService {
 
         inventoryRepository.save(sourceInventory);
         Inventory savedTargetInventory = inventoryRepository.save(targetInventory);
+        recordMovement(sourceInventory, StockMovementType.TRANSFER_OUT, -request.quantity(), transferNote);
+        recordMovement(savedTargetInventory, StockMovementType.TRANSFER_IN, request.quantity(), transferNote);
 
-        // Vérifier les stocks après transfert
+        // Stock faible : détecté au commit à partir des mouvements du journal
         // Publier événement de transfert
         eventPublisher.publishEvent(new StockTransferEvent(
                 this,
@@ -234,9 +244,6 @@ public class InventoryServiceImpl implements InventoryService {
                 request.quantity()
         ));
 
-        checkAndPublishLowStockEvent(sourceInventory);
-        checkAndPublishLowStockEvent(savedTargetInventory);
-
         return inventoryMapper.toResponse(savedTargetInventory);
 
     }
@@ -341,9 +348,8 @@ public class InventoryServiceImpl implements InventoryService {
         Store store = storeRepository.findById(storeId)
                 .orElseThrow(() -> new NotFoundException("Store non trouvé"));
 
-        // ✅ Une seule requête SQL au lieu de N+1
-        InventorySummaryProjection proj =
-                inventoryRepository.getSummaryByStore(storeId);
+        // Agrégats maintenus au fil des écritures : lecture d'une ligne
+        InventorySummaryProjection proj = stockValuationService.getSummary(storeId);
 
         return new InventorySummaryResponse(
                 storeId,
@@ -359,7 +365,7 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getTotalStockValue(UUID storeId) {
-        BigDecimal value = inventoryRepository.findTotalStockValueByStore(storeId);
+        BigDecimal value = stockValuationService.getSummary(storeId).totalValue();
         return value != null ? value : BigDecimal.ZERO;
     }
 
@@ -373,6 +379,10 @@ public class InventoryServiceImpl implements InventoryService {
             throw new BusinessException("La quantité de réapprovisionnement doit être positive");
         }
 
+        if (unitCost != null) {
+            // Revalorisation du stock existant au nouveau coût
+            stockValuationService.beforeChange(inventory);
+        }
         inventory.increaseQuantity(quantity);
         if (unitCost != null) {
             inventory.setUnitCost(unitCost);
@@ -380,10 +390,8 @@ public class InventoryServiceImpl implements InventoryService {
         inventory.setLastRestocked(LocalDateTime.now());
 
         Inventory updated = inventoryRepository.save(inventory);
+        recordMovement(updated, StockMovementType.RESTOCK, quantity, "Réapprovisionnement");
         publishStockAdjustmentEvent(updated, "RESTOCK", quantity, "Réapprovisionnement automatique ou manuel");
-
-        // Vérifier si stock bas après réapprovisionnement (devrait être OK maintenant)
-        checkAndPublishLowStockEvent(updated);
     }
 
     @Override
@@ -407,26 +415,11 @@ public class InventoryServiceImpl implements InventoryService {
         }
     }
 
-    private void checkAndPublishLowStockEvent(Inventory inventory) {
-        if (inventory.isLowStock() || inventory.isOutOfStock()) {
-            Product product = inventory.getProduct();
-            Store store = inventory.getStore();
-
-            // Correction : Ajout de 'this' comme source de l'événement
-            LowStockEvent event = new LowStockEvent(
-                    this,
-                    product.getProductId(),
-                    product.getName(),
-                    store.getStoreId(),
-                    store.getName(),
-                    inventory.getQuantity(),
-                    inventory.getReorderPoint() != null ? inventory.getReorderPoint() : 0
-            );
-
-            eventPublisher.publishEvent(event);
-            log.warn("Low stock event published for product {} in store {}: {} units remaining",
-                    product.getName(), store.getName(), inventory.getQuantity());
-        }
+    private void recordMovement(Inventory inventory, StockMovementType type, int quantity, String note) {
+        stockMovementService.record(
+                inventory.getStore().getStoreId(),
+                inventory.getProduct().getProductId(),
+                type, quantity, inventory.getInventoryId(), note);
     }
 
     private void publishStockAdjustmentEvent(Inventory inventory, String operation, int quantityChanged, String reason) {
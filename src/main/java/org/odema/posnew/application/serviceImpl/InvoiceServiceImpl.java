@@ -3,6 +3,8 @@ package org.odema.posnew.application.serviceImpl;
 import lombok.extern.slf4j.Slf4j;
 
 import org.odema.posnew.application.dto.InvoiceResponse;
+import org.odema.posnew.application.dto.response.CursorPage;
+import org.odema.posnew.application.dto.response.KeysetCursor;
 import org.odema.posnew.application.mapper.InvoiceMapper;
 import org.odema.posnew.design.builder.DocumentBuilder;
 import org.odema.posnew.design.builder.impl.InvoiceDocumentBuilder;
@@ -13,6 +15,7 @@ import org.odema.posnew.design.event.InvoiceGeneratedEvent;
 import org.odema.posnew.design.factory.DocumentBuilderFactory;
 import org.odema.posnew.design.factory.DocumentStrategyFactory;
 import org.odema.posnew.design.strategy.DocumentStrategy;
+import org.odema.posnew.design.template.DocumentRenderQueue;
 import org.odema.posnew.design.template.DocumentServiceTemplate;
 
 import org.odema.posnew.api.exception.BadRequestException;
@@ -32,9 +35,12 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.PathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -43,6 +49,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -55,6 +62,8 @@ public class InvoiceServiceImpl
     private final InvoiceMapper invoiceMapper;
     private final ApplicationEventPublisher eventPublisher;
     private final FileStorageService fileStorageService;
+    private final TransactionTemplate writeTx;
+    private final TransactionTemplate readOnlyTx;
 
     @Value("${app.file.directories.invoices:invoices}")
     private String invoicesDirectory;
@@ -78,16 +87,21 @@ public class InvoiceServiceImpl
             DocumentNumberService documentNumberService,
             FileStorageService fileStorageService,
             DocumentBuilderFactory builderFactory,        // ✅ AJOUTÉ
+            DocumentRenderQueue renderQueue,
             InvoiceRepository invoiceRepository,
             InvoiceMapper invoiceMapper,
-            ApplicationEventPublisher eventPublisher
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager
     ) {
         super(orderRepository, strategyFactory, documentNumberService,
-                fileStorageService, builderFactory);
+                fileStorageService, builderFactory, renderQueue);
         this.invoiceRepository = invoiceRepository;
         this.invoiceMapper     = invoiceMapper;
         this.eventPublisher    = eventPublisher;
         this.fileStorageService = fileStorageService;
+        this.writeTx           = new TransactionTemplate(transactionManager);
+        this.readOnlyTx        = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
     }
 
     // =========================================================================
@@ -105,51 +119,14 @@ public class InvoiceServiceImpl
     @Override
     public byte[] getOrGenerateInvoicePdf(UUID orderId) throws IOException {
         // 1. Check if invoice exists in database
-        Invoice invoice = invoiceRepository.findByOrder_OrderId(orderId)
+        UUID invoiceId = readOnlyTx.execute(status -> invoiceRepository.findByOrder_OrderId(orderId)
+                .map(Invoice::getInvoiceId)
                 .orElseThrow(() -> new NotFoundException(
                         "Aucune facture trouvée pour la commande: " + orderId
-                ));
-
-        // 2. Check if PDF file already exists on disk
-        if (invoice.getPdfFilename() != null && !invoice.getPdfFilename().isBlank()) {
-            Path pdfPath = getInvoicePdfPath(invoice.getPdfFilename());
-
-            if (Files.exists(pdfPath)) {
-                log.info("PDF trouvé sur disque pour facture {}: {}",
-                        invoice.getInvoiceNumber(), pdfPath);
-
-                // Increment print count for tracking
-                invoice.incrementPrintCount();
-                invoiceRepository.save(invoice);
-
-                // Read and return existing file
-                return Files.readAllBytes(pdfPath);
-            }
-        }
-
-        // 3. File doesn't exist - generate new PDF
-        log.info("PDF non trouvé sur disque, génération pour facture {}",
-                invoice.getInvoiceNumber());
-
-        byte[] pdfBytes = buildPdfWithDecorators(invoice);
-
-        // 4. Save to disk
-        String filename = generatePdfFilename(invoice);
-        Path pdfPath = getInvoicePdfPath(filename);
-
-        // Ensure directory exists
-        Files.createDirectories(pdfPath.getParent());
-        Files.write(pdfPath, pdfBytes);
-
-        // 5. Update invoice with file path
-        invoice.setPdfFilename(filename);
-        invoice.setPdfPath(pdfPath.toString());
-        invoice.incrementPrintCount();
-        invoiceRepository.save(invoice);
-
-        log.info("PDF généré et sauvegardé: {} ({} bytes)", pdfPath, pdfBytes.length);
+                )));
 
-        return pdfBytes;
+        // 2. Disk, queued render or new render
+        return servePdf(invoiceId);
     }
 
     /**
@@ -221,26 +198,7 @@ public class InvoiceServiceImpl
 
     @Override
     public byte[] generateInvoicePdf(UUID invoiceId) throws IOException {
-        Invoice invoice = loadDocument(invoiceId);
-
-        // Check disk first
-        if (invoice.getPdfFilename() != null) {
-            Path pdfPath = getInvoicePdfPath(invoice.getPdfFilename());
-            if (Files.exists(pdfPath)) {
-                invoice.incrementPrintCount();
-                invoiceRepository.save(invoice);
-                return Files.readAllBytes(pdfPath);
-            }
-        }
-
-        // Generate and save
-        byte[] pdfBytes = buildPdfWithDecorators(invoice);
-        savePdfToDisk(invoice, pdfBytes);
-
-        invoice.incrementPrintCount();
-        invoiceRepository.save(invoice);
-
-        return pdfBytes;
+        return servePdf(invoiceId);
     }
 
     // =========================================================================
@@ -282,47 +240,57 @@ public class InvoiceServiceImpl
     }
 
     @Override
-    public List<InvoiceResponse> getInvoicesByCustomer(UUID customerId) {
-        return invoiceRepository.findByCustomer_CustomerId(customerId)
-                .stream()
-                .map(invoiceMapper::toResponse)
-                .toList();
+    @Transactional(readOnly = true)
+    public CursorPage<InvoiceResponse> getInvoicesByCustomer(UUID customerId, String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return invoicePage(invoiceRepository.findByCustomerAfter(
+                customerId, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
     }
 
     @Override
-    public List<InvoiceResponse> getInvoicesByStore(UUID storeId) {
-        return invoiceRepository.findByStore_StoreId(storeId)
-                .stream()
-                .map(invoiceMapper::toResponse)
-                .toList();
+    @Transactional(readOnly = true)
+    public CursorPage<InvoiceResponse> getInvoicesByStore(UUID storeId, String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return invoicePage(invoiceRepository.findByStoreAfter(
+                storeId, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
     }
 
     @Override
-    public List<InvoiceResponse> getInvoicesByStatus(String status) {
+    @Transactional(readOnly = true)
+    public CursorPage<InvoiceResponse> getInvoicesByStatus(String status, String cursor, Integer size) {
+        InvoiceStatus invoiceStatus;
         try {
-            InvoiceStatus invoiceStatus = InvoiceStatus.valueOf(status.toUpperCase());
-            return invoiceRepository.findByStatus(invoiceStatus)
-                    .stream()
-                    .map(invoiceMapper::toResponse)
-                    .toList();
+            invoiceStatus = InvoiceStatus.valueOf(status.toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new BadRequestException("Statut de facture invalide: " + status +
                     ". Valeurs acceptées: " + List.of(InvoiceStatus.values()));
         }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return invoicePage(invoiceRepository.findByStatusAfter(
+                invoiceStatus, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
     }
 
     @Override
-    public List<InvoiceResponse> getInvoicesByDateRange(LocalDate startDate, LocalDate endDate) {
+    @Transactional(readOnly = true)
+    public CursorPage<InvoiceResponse> getInvoicesByDateRange(LocalDate startDate, LocalDate endDate,
+                                                              String cursor, Integer size) {
         if (startDate.isAfter(endDate)) {
             throw new BadRequestException("La date de début doit être avant la date de fin");
         }
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime   = endDate.atTime(23, 59, 59);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return invoicePage(invoiceRepository.findByDateRangeAfter(
+                startDate.atStartOfDay(), endDate.atTime(23, 59, 59),
+                after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
+    }
 
-        return invoiceRepository.findByDateRange(startDateTime, endDateTime)
-                .stream()
-                .map(invoiceMapper::toResponse)
-                .toList();
+    private CursorPage<InvoiceResponse> invoicePage(List<Invoice> rows, int pageSize) {
+        return CursorPage.of(rows, pageSize,
+                invoice -> new KeysetCursor(invoice.getCreatedAt(), invoice.getInvoiceId()),
+                invoiceMapper::toResponse);
     }
 
     @Override
@@ -432,6 +400,27 @@ public class InvoiceServiceImpl
     protected UUID getDocumentId(Invoice document) {
         return document.getInvoiceId();
     }
+
+    @Override
+    protected String getDocumentNumber(Invoice document) {
+        return document.getInvoiceNumber();
+    }
+
+    @Override
+    protected List<Invoice> findStaleRenders(LocalDateTime requestedBefore, int limit) {
+        return invoiceRepository.findStaleRenders(requestedBefore, limit);
+    }
+
+    @Override
+    protected int getRenderAttempts(Invoice document) {
+        return document.getRenderAttempts() != null ? document.getRenderAttempts() : 0;
+    }
+
+    @Override
+    protected void markRenderRequested(Invoice document) {
+        document.setRenderAttempts(getRenderAttempts(document) + 1);
+        document.setRenderRequestedAt(LocalDateTime.now());
+    }
     @Override
     public void sendInvoiceByEmail(UUID invoiceId, String email) throws Exception {
         Invoice invoice = loadDocument(invoiceId);
@@ -639,6 +628,11 @@ protected byte[] generatePdfDocument(Invoice invoice, DocumentStrategy strategy)
         invoice.setPdfPath(pdfPath);
     }
 
+    @Override
+    protected void updateRenderStatus(Invoice invoice, RenderStatus status) {
+        invoice.setRenderStatus(status);
+    }
+
     @Override
     protected Invoice afterDocumentGeneration(Invoice invoice,
                                               Order order,
@@ -703,6 +697,64 @@ protected byte[] generatePdfDocument(Invoice invoice, DocumentStrategy strategy)
     // FILE STORAGE HELPER METHODS
     // =========================================================================
 
+    /**
+     * PDF de la facture : depuis le disque, sinon le rendu en file, sinon un rendu immédiat.
+     * Lectures et écritures en transactions courtes ; l'attente d'un rendu en file
+     * (jusqu'à {@code await-timeout-ms}) se fait hors transaction, sans connexion retenue.
+     */
+    private byte[] servePdf(UUID invoiceId) throws IOException {
+        String pdfFilename = readOnlyTx.execute(status -> loadDocument(invoiceId).getPdfFilename());
+
+        // Check disk first
+        if (pdfFilename != null && !pdfFilename.isBlank()) {
+            Path pdfPath = getInvoicePdfPath(pdfFilename);
+            if (Files.exists(pdfPath)) {
+                byte[] stored = Files.readAllBytes(pdfPath);
+                recordPrint(invoiceId);
+                log.info("PDF trouvé sur disque pour facture {}: {}", invoiceId, pdfPath);
+                return stored;
+            }
+        }
+
+        // Rendering already queued - wait for it instead of rendering twice
+        Optional<byte[]> rendered = renderQueue.await(invoiceId);
+        if (rendered.isPresent()) {
+            recordPrint(invoiceId);  // chemin PDF posé par le worker
+            return rendered.get();
+        }
+
+        // Generate and save
+        try {
+            return writeTx.execute(status -> renderNow(invoiceId));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void recordPrint(UUID invoiceId) {
+        writeTx.executeWithoutResult(status -> {
+            Invoice invoice = loadDocument(invoiceId);
+            invoice.incrementPrintCount();
+            invoiceRepository.save(invoice);
+        });
+    }
+
+    private byte[] renderNow(UUID invoiceId) {
+        Invoice invoice = loadDocument(invoiceId);
+        log.info("PDF non trouvé sur disque, génération pour facture {}", invoice.getInvoiceNumber());
+        try {
+            byte[] pdfBytes = buildPdfWithDecorators(invoice);
+            savePdfToDisk(invoice, pdfBytes);
+            invoice.setRenderStatus(RenderStatus.RENDERED);
+            invoice.incrementPrintCount();
+            invoiceRepository.save(invoice);
+            log.info("PDF généré et sauvegardé: {} ({} bytes)", invoice.getPdfPath(), pdfBytes.length);
+            return pdfBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private Path getInvoicePdfPath(String filename) {
         return Paths.get(storageBasePath, invoicesDirectory, filename);
     }
@@ -930,22 +982,8 @@ protected byte[] generatePdfDocument(Invoice invoice, DocumentStrategy strategy)
                     ));
         }
 
-        // 3. Vérifier le PDF sur disque
-        if (invoice.getPdfFilename() != null) {
-            Path pdfPath = getInvoicePdfPath(invoice.getPdfFilename());
-            if (Files.exists(pdfPath)) {
-                invoice.incrementPrintCount();
-                invoiceRepository.save(invoice);
-                return Files.readAllBytes(pdfPath);
-            }
-        }
-
-        // 4. Régénérer le PDF
-        byte[] pdfBytes = buildPdfWithDecorators(invoice);
-        savePdfToDisk(invoice, pdfBytes);
-        invoice.incrementPrintCount();
-        invoiceRepository.save(invoice);
-        return pdfBytes;
+        // 3. PDF sur disque, rendu en file ou rendu immédiat
+        return servePdf(invoice.getInvoiceId());
     }
 
     private DocumentType mapInvoiceTypeToDocumentType(InvoiceType type) {
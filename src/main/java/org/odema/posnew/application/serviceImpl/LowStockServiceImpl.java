@@ -0,0 +1,118 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.application.cache.LowStockRegistry;
+import org.odema.posnew.application.cache.StockLevelCache;
+import org.odema.posnew.application.dto.response.InventoryAlertResponse;
+import org.odema.posnew.application.dto.response.InventoryLevelProjection;
+import org.odema.posnew.design.event.LowStockEvent;
+import org.odema.posnew.domain.model.StockMovement;
+import org.odema.posnew.domain.repository.InventoryRepository;
+import org.odema.posnew.domain.service.LowStockService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Détection par franchissement.
+ * <p>
+ * Le journal donne le delta net de la transaction par (magasin, produit) ; le niveau
+ * après écriture est relu en une requête pour tous les couples touchés, le niveau avant
+ * s'en déduit. Un signal ne part que si le seuil (ou zéro) est franchi vers le bas :
+ * une vente de plus sur un produit déjà sous le seuil ne republie rien.
+ * L'ensemble en mémoire, l'anti-rebond et les niveaux du scan ne sont mis à jour
+ * qu'après commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LowStockServiceImpl implements LowStockService {
+
+    private final InventoryRepository inventoryRepository;
+    private final LowStockRegistry registry;
+    private final StockLevelCache stockLevelCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void detectCrossings(List<StockMovement> movements) {
+        Map<StockKey, Integer> deltas = new HashMap<>();
+        Set<UUID> storeIds = new HashSet<>();
+        Set<UUID> productIds = new HashSet<>();
+        for (StockMovement movement : movements) {
+            deltas.merge(new StockKey(movement.getStoreId(), movement.getProductId()),
+                    movement.getQuantity(), Integer::sum);
+            storeIds.add(movement.getStoreId());
+            productIds.add(movement.getProductId());
+        }
+
+        List<InventoryLevelProjection> levels = new ArrayList<>();
+        List<LowStockEvent> signals = new ArrayList<>();
+        for (InventoryLevelProjection level : inventoryRepository.findLevels(storeIds, productIds)) {
+            Integer delta = deltas.get(new StockKey(level.storeId(), level.productId()));
+            if (delta == null) continue; // produit cumulé d'un autre magasin
+            levels.add(level);
+
+            int after = level.quantity();
+            int before = after - delta;
+            int threshold = level.threshold();
+            boolean outOfStock = before > 0 && after <= 0;
+            boolean crossed = outOfStock || (before > threshold && after <= threshold);
+            if (!crossed || !level.isLow()) continue;
+
+            if (!registry.shouldSignal(level.storeId(), level.productId(), outOfStock)) {
+                meterRegistry.counter("pos.stock.low_stock.signals", "outcome", "debounced").increment();
+                continue;
+            }
+            LowStockEvent event = new LowStockEvent(this, level.productId(), level.productName(),
+                    level.storeId(), level.storeName(), after, threshold);
+            // Enregistré dans l'outbox par la transaction en cours de validation
+            eventPublisher.publishEvent(event);
+            signals.add(event);
+            meterRegistry.counter("pos.stock.low_stock.signals", "outcome", "published").increment();
+            log.warn("Stock faible pour {} dans {}: {} unité(s), seuil {}",
+                    level.productName(), level.storeName(), after, threshold);
+        }
+
+        if (levels.isEmpty()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                levels.forEach(registry::apply);
+                levels.forEach(stockLevelCache::apply);
+                signals.forEach(event -> registry.signalled(
+                        event.getStoreId(), event.getProductId(), event.getCurrentQuantity() <= 0));
+            }
+        });
+    }
+
+    @Override
+    public List<InventoryAlertResponse> getStoreAlerts(UUID storeId) {
+        return registry.lowStock(storeId).stream()
+                .sorted(Comparator.comparing(InventoryLevelProjection::quantity))
+                .map(level -> new InventoryAlertResponse(
+                        level.inventoryId(),
+                        level.productId(),
+                        level.productName(),
+                        level.quantity(),
+                        level.reorderPoint(),
+                        level.minStock(),
+                        level.maxStock(),
+                        level.unitCost(),
+                        alertLevel(level)))
+                .toList();
+    }
+
+    private static String alertLevel(InventoryLevelProjection level) {
+        if (level.quantity() <= 0) return "OUT_OF_STOCK";
+        if (level.minStock() != null && level.quantity() <= level.minStock()) return "CRITICAL";
+        return "LOW";
+    }
+
+    private record StockKey(UUID storeId, UUID productId) {}
+}
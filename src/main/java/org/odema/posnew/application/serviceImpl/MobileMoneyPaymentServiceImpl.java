@@ -0,0 +1,463 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.dto.request.MobileMoneyCallbackRequest;
+import org.odema.posnew.application.dto.request.MobileMoneyPaymentRequest;
+import org.odema.posnew.application.dto.response.PaymentResponse;
+import org.odema.posnew.application.mapper.PaymentMapper;
+import org.odema.posnew.config.AsyncExecutorsConfiguration;
+import org.odema.posnew.config.LaneExecutor;
+import org.odema.posnew.design.event.PaymentReceivedEvent;
+import org.odema.posnew.design.mobilemoney.MobileMoneyCharge;
+import org.odema.posnew.design.mobilemoney.MobileMoneyGateway;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Payment;
+import org.odema.posnew.domain.model.ShiftReport;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.OrderStatus;
+import org.odema.posnew.domain.model.enums.PaymentMethod;
+import org.odema.posnew.domain.model.enums.PaymentStatus;
+import org.odema.posnew.domain.repository.OrderRepository;
+import org.odema.posnew.domain.repository.PaymentRepository;
+import org.odema.posnew.domain.repository.ShiftReportRepository;
+import org.odema.posnew.domain.repository.UserRepository;
+import org.odema.posnew.domain.service.MobileMoneyPaymentService;
+import org.odema.posnew.domain.service.ShiftPaymentTotalService;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Paiements Mobile Money sans attente bloquante.
+ * <p>
+ * Le paiement est enregistré PENDING (hors totaux de la commande et du shift) ;
+ * après le commit, la demande opérateur part sur la voie I/O avec un délai maximal.
+ * Le callback opérateur confirme ou refuse le paiement, les caisses en attente
+ * sont notifiées après le commit. Sans callback au-delà de
+ * {@code confirmation-timeout-ms}, le paiement expire (FAILED).
+ * <p>
+ * Sans opérateur configuré ({@code app.payment.mobile-money.gateway}), les paiements
+ * Mobile Money sont refusés. Avec un opérateur, le secret du callback est obligatoire
+ * au démarrage.
+ */
+@Slf4j
+@Service
+public class MobileMoneyPaymentServiceImpl implements MobileMoneyPaymentService {
+
+    private final PaymentRepository paymentRepository;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ShiftReportRepository shiftReportRepository;
+    private final ShiftPaymentTotalService shiftPaymentTotalService;
+    private final PaymentMapper paymentMapper;
+    private final StockReservationService stockReservationService;
+    private final MobileMoneyGateway gateway;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final LaneExecutor ioExecutor;
+    private final TransactionTemplate writeTx;
+    private final TransactionTemplate readOnlyTx;
+
+    // Caisses en attente du résultat d'un paiement (instance locale)
+    private final Map<UUID, Waiters> waiters = new ConcurrentHashMap<>();
+
+    private final List<String> providers;
+    private final long initiationTimeoutMs;
+    private final long confirmationTimeoutMs;
+    private final byte[] callbackSecret;
+
+    public MobileMoneyPaymentServiceImpl(
+            PaymentRepository paymentRepository,
+            OrderRepository orderRepository,
+            UserRepository userRepository,
+            ShiftReportRepository shiftReportRepository,
+            ShiftPaymentTotalService shiftPaymentTotalService,
+            PaymentMapper paymentMapper,
+            StockReservationService stockReservationService,
+            ObjectProvider<MobileMoneyGateway> gateway,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Qualifier(AsyncExecutorsConfiguration.IO) LaneExecutor ioExecutor,
+            @Value("${app.payment.mobile-money.providers:MTN,ORANGE,AIRTEL}") List<String> providers,
+            @Value("${app.payment.mobile-money.timeout:30000}") long initiationTimeoutMs,
+            @Value("${app.payment.mobile-money.confirmation-timeout-ms:300000}") long confirmationTimeoutMs,
+            @Value("${app.payment.mobile-money.callback-secret:}") String callbackSecret) {
+        this.paymentRepository = paymentRepository;
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.shiftReportRepository = shiftReportRepository;
+        this.shiftPaymentTotalService = shiftPaymentTotalService;
+        this.paymentMapper = paymentMapper;
+        this.stockReservationService = stockReservationService;
+        this.gateway = gateway.getIfAvailable();
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.ioExecutor = ioExecutor;
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.providers = providers.stream().map(p -> p.trim().toUpperCase(Locale.ROOT)).toList();
+        this.initiationTimeoutMs = initiationTimeoutMs;
+        this.confirmationTimeoutMs = confirmationTimeoutMs;
+        this.callbackSecret = callbackSecret.getBytes(StandardCharsets.UTF_8);
+        if (this.gateway != null && callbackSecret.isBlank()) {
+            throw new IllegalStateException("Opérateur Mobile Money configuré sans " +
+                    "app.payment.mobile-money.callback-secret (MOBILE_MONEY_CALLBACK_SECRET)");
+        }
+    }
+
+    // =========================================================================
+    // INITIATION
+    // =========================================================================
+
+    @Override
+    @Transactional
+    public PaymentResponse initiatePayment(UUID orderId, MobileMoneyPaymentRequest request, UUID cashierId)
+            throws UnauthorizedException {
+        if (gateway == null) {
+            throw new BadRequestException("Paiement Mobile Money indisponible : aucun opérateur configuré");
+        }
+        String provider = request.provider().trim().toUpperCase(Locale.ROOT);
+        if (!providers.contains(provider)) {
+            throw new BadRequestException("Opérateur Mobile Money non supporté: " + request.provider());
+        }
+        if (request.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BadRequestException("Le montant doit être positif");
+        }
+
+        // Verrou : deux initiations concurrentes ne réservent pas deux fois le même restant dû
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new NotFoundException("Commande non trouvée"));
+        if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.COMPLETED) {
+            throw new BadRequestException("Impossible d'ajouter un paiement à une commande " + order.getStatus());
+        }
+
+        // Les paiements encore en attente réservent leur part du montant dû
+        BigDecimal available = order.getRemainingAmount()
+                .subtract(paymentRepository.getTotalPendingByOrder(orderId));
+        if (request.amount().compareTo(available) > 0) {
+            throw new BadRequestException(String.format(
+                    "Le montant dépasse le restant dû hors paiements en attente: %.2f FCFA", available));
+        }
+
+        User cashier = userRepository.findById(cashierId)
+                .orElseThrow(() -> new NotFoundException("Caissier non trouvé"));
+        if (!cashier.getActive()) {
+            throw new UnauthorizedException("Ce compte caissier est désactivé");
+        }
+        ShiftReport shift = shiftReportRepository.findOpenShiftByCashier(cashierId)
+                .orElseThrow(() -> new BadRequestException(
+                        "Aucun shift ouvert pour ce caissier. Veuillez ouvrir un shift."));
+
+        Payment payment = Payment.builder()
+                .order(order)
+                .method(PaymentMethod.MOBILE_MONEY)
+                .amount(request.amount())
+                .cashier(cashier)
+                .shiftReport(shift)
+                .status(PaymentStatus.PENDING)
+                .provider(provider)
+                .payerPhone(request.phoneNumber().trim())
+                .notes(request.notes())
+                .isActive(true)
+                .build();
+        Payment saved = paymentRepository.save(payment);
+        // PENDING : rattaché à la commande sans modifier ses totaux
+        order.addPayment(saved);
+
+        MobileMoneyCharge charge = new MobileMoneyCharge(saved.getPaymentId(), provider,
+                saved.getPayerPhone(), saved.getAmount(), order.getOrderNumber());
+        afterCommit(() -> dispatch(charge));
+
+        meterRegistry.counter("pos.mobile-money.payments", "outcome", "initiated").increment();
+        log.info("Paiement Mobile Money {} en attente: {} FCFA via {} pour commande {}",
+                saved.getPaymentId(), saved.getAmount(), provider, order.getOrderNumber());
+
+        return paymentMapper.toResponse(saved);
+    }
+
+    /**
+     * Appel opérateur sur la voie I/O, borné par {@code timeout}. Un refus explicite
+     * passe le paiement en échec ; un délai dépassé le laisse PENDING (l'opérateur
+     * a pu transmettre la demande) jusqu'au callback ou à l'expiration.
+     */
+    private void dispatch(MobileMoneyCharge charge) {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        boolean submitted = ioExecutor.trySubmit(() -> {
+            try {
+                call.complete(gateway.initiate(charge));
+            } catch (RuntimeException e) {
+                call.completeExceptionally(e);
+            }
+        });
+        if (!submitted) {
+            call.completeExceptionally(new RejectedExecutionException("Voie I/O saturée"));
+        }
+
+        call.orTimeout(initiationTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((reference, error) -> {
+                    if (error == null) {
+                        recordReference(charge.paymentId(), reference);
+                    } else if (error instanceof TimeoutException) {
+                        meterRegistry.counter("pos.mobile-money.payments", "outcome", "initiation_timeout").increment();
+                        log.warn("Opérateur {} sans réponse après {} ms pour le paiement {} — attente du callback",
+                                charge.provider(), initiationTimeoutMs, charge.paymentId());
+                    } else {
+                        fail(charge.paymentId(), "Demande refusée par l'opérateur: " + error.getMessage(), "failed");
+                    }
+                }, ioExecutor);
+    }
+
+    private void recordReference(UUID paymentId, String reference) {
+        if (reference == null) return;
+        writeTx.executeWithoutResult(status -> paymentRepository.findByIdForUpdate(paymentId)
+                .filter(p -> p.getProviderReference() == null)
+                .ifPresent(p -> p.setProviderReference(reference)));
+    }
+
+    // =========================================================================
+    // CALLBACK OPÉRATEUR
+    // =========================================================================
+
+    @Override
+    @Transactional
+    public void handleCallback(String callbackToken, MobileMoneyCallbackRequest callback)
+            throws UnauthorizedException {
+        if (callbackSecret.length == 0 || callbackToken == null
+                || !MessageDigest.isEqual(callbackSecret, callbackToken.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException("Callback Mobile Money non authentifié");
+        }
+
+        // Commande verrouillée avant le paiement (même ordre que l'annulation) :
+        // deux callbacks d'un paiement fractionné ne s'écrasent pas paidAmount
+        UUID orderId = paymentRepository.findOrderIdByPaymentId(callback.paymentId())
+                .orElseThrow(() -> new NotFoundException("Paiement non trouvé"));
+        orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new NotFoundException("Commande non trouvée"));
+        Payment payment = paymentRepository.findByIdForUpdate(callback.paymentId())
+                .orElseThrow(() -> new NotFoundException("Paiement non trouvé"));
+        if (payment.getMethod() != PaymentMethod.MOBILE_MONEY) {
+            throw new BadRequestException("Le paiement n'est pas un paiement Mobile Money");
+        }
+
+        if (!payment.isPending()) {
+            // Callback rejoué : déjà traité. Confirmation tardive d'un paiement expiré ou
+            // annulé : le client a pu être débité, rapprochement manuel nécessaire.
+            if (callback.success() && payment.getStatus() != PaymentStatus.PAID) {
+                recordLateConfirmation(payment, callback.providerReference());
+            }
+            return;
+        }
+
+        if (!callback.success()) {
+            applyFailure(payment, callback.message() != null ? callback.message() : "Refusé par l'opérateur", "failed");
+            return;
+        }
+        if (callback.amount() != null && callback.amount().compareTo(payment.getAmount()) != 0) {
+            applyFailure(payment, "Montant confirmé (" + callback.amount() + ") différent du montant demandé", "failed");
+            return;
+        }
+        confirm(payment, callback.providerReference());
+    }
+
+    private void confirm(Payment payment, String providerReference) {
+        Order order = payment.getOrder();
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            // Commande annulée entre-temps : ni vente, ni totaux de shift, ni stock.
+            // Échec et non annulation : un paiement annulé compte en remboursement du shift
+            payment.fail("Commande annulée avant confirmation");
+            recordLateConfirmation(payment, providerReference);
+            notifyAfterCommit(payment);
+            return;
+        }
+        order.confirmPayment(payment, providerReference);
+        stockReservationService.convert(order);
+
+        ShiftReport shift = payment.getShiftReport();
+        if (shift != null) {
+            shiftPaymentTotalService.recordPayment(
+                    shift.getShiftReportId(), payment.getMethod(), payment.getAmount());
+            shift.addSale(payment.getAmount(), payment.getMethod());
+            shiftReportRepository.save(shift);
+        }
+
+        if (order.getPaymentStatus() == PaymentStatus.PAID && order.getStatus() == OrderStatus.PENDING) {
+            order.setStatus(OrderStatus.COMPLETED);
+            order.setCompletedAt(LocalDateTime.now());
+        }
+        orderRepository.save(order);
+        eventPublisher.publishEvent(new PaymentReceivedEvent(this, order, payment));
+
+        meterRegistry.counter("pos.mobile-money.payments", "outcome", "confirmed").increment();
+        meterRegistry.timer("pos.mobile-money.confirmation", "provider", String.valueOf(payment.getProvider()))
+                .record(Duration.between(payment.getCreatedAt(), payment.getConfirmedAt()));
+        log.info("Paiement Mobile Money {} confirmé (réf. {}) pour commande {}",
+                payment.getPaymentId(), payment.getProviderReference(), order.getOrderNumber());
+
+        notifyAfterCommit(payment);
+    }
+
+    private void recordLateConfirmation(Payment payment, String providerReference) {
+        payment.recordLateConfirmation(providerReference);
+        paymentRepository.save(payment);
+        meterRegistry.counter("pos.mobile-money.payments", "outcome", "late_confirmation").increment();
+        log.error("Confirmation opérateur reçue pour le paiement {} déjà {} (réf. {}) — remboursement à effectuer",
+                payment.getPaymentId(), payment.getStatus(), providerReference);
+    }
+
+    // =========================================================================
+    // ANNULATION DE COMMANDE
+    // =========================================================================
+
+    @Override
+    public int cancelPending(UUID orderId, String reason) {
+        List<Payment> pending = paymentRepository.findPendingByOrderForUpdate(orderId);
+        // Jamais encaissés : échec (hors totaux) plutôt qu'annulation (remboursement)
+        for (Payment payment : pending) {
+            payment.fail(reason);
+            notifyAfterCommit(payment);
+        }
+        if (!pending.isEmpty()) {
+            paymentRepository.saveAll(pending);
+            meterRegistry.counter("pos.mobile-money.payments", "outcome", "cancelled").increment(pending.size());
+            log.info("{} paiement(s) Mobile Money en attente annulé(s) avec la commande {}", pending.size(), orderId);
+        }
+        return pending.size();
+    }
+
+    private void fail(UUID paymentId, String reason, String outcome) {
+        writeTx.executeWithoutResult(status -> paymentRepository.findByIdForUpdate(paymentId)
+                .filter(Payment::isPending)
+                .ifPresent(p -> applyFailure(p, reason, outcome)));
+    }
+
+    private void applyFailure(Payment payment, String reason, String outcome) {
+        payment.fail(reason);
+        paymentRepository.save(payment);
+        meterRegistry.counter("pos.mobile-money.payments", "outcome", outcome).increment();
+        log.warn("Paiement Mobile Money {} en échec: {}", payment.getPaymentId(), reason);
+        notifyAfterCommit(payment);
+    }
+
+    // =========================================================================
+    // ATTENTE DU RÉSULTAT
+    // =========================================================================
+
+    @Override
+    public CompletableFuture<PaymentResponse> awaitResult(UUID paymentId, Duration maxWait) {
+        // Inscription avant lecture : un callback commité entre les deux n'est pas manqué
+        Waiters registered = waiters.compute(paymentId, (id, w) -> {
+            Waiters entry = w != null ? w : new Waiters();
+            entry.count++;
+            return entry;
+        });
+
+        PaymentResponse current;
+        try {
+            current = readOnlyTx.execute(status -> paymentRepository.findById(paymentId)
+                    .map(paymentMapper::toResponse)
+                    .orElseThrow(() -> new NotFoundException("Paiement non trouvé")));
+        } catch (RuntimeException e) {
+            leave(paymentId, registered);
+            throw e;
+        }
+
+        if (current.status() != PaymentStatus.PENDING) {
+            leave(paymentId, registered);
+            return CompletableFuture.completedFuture(current);
+        }
+        // Copie : le délai d'une caisse ne termine pas l'attente des autres
+        CompletableFuture<PaymentResponse> result =
+                registered.signal.copy().completeOnTimeout(current, maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((r, e) -> leave(paymentId, registered));
+        return result;
+    }
+
+    /**
+     * Désinscription d'une caisse : l'entrée partagée n'est retirée qu'au départ de la
+     * dernière, les autres caisses restent notifiées du callback.
+     */
+    private void leave(UUID paymentId, Waiters registered) {
+        waiters.computeIfPresent(paymentId, (id, w) ->
+                w != registered || --w.count > 0 ? w : null);
+    }
+
+    private void notifyAfterCommit(Payment payment) {
+        PaymentResponse result = paymentMapper.toResponse(payment);
+        afterCommit(() -> {
+            Waiters registered = waiters.remove(result.paymentId());
+            if (registered != null) {
+                registered.signal.complete(result);
+            }
+        });
+    }
+
+    /**
+     * Signal partagé par les caisses qui attendent un même paiement. Le compteur n'est
+     * modifié que dans {@code compute}/{@code computeIfPresent}, sous le verrou de l'entrée.
+     */
+    private static final class Waiters {
+        private final CompletableFuture<PaymentResponse> signal = new CompletableFuture<>();
+        private int count;
+    }
+
+    // =========================================================================
+    // EXPIRATION
+    // =========================================================================
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.payment.mobile-money.expiry-check-ms:30000}")
+    public int expireStalePayments() {
+        List<UUID> stale = paymentRepository.findPendingIdsCreatedBefore(
+                LocalDateTime.now().minus(Duration.ofMillis(confirmationTimeoutMs)));
+        for (UUID paymentId : stale) {
+            fail(paymentId, "Délai de confirmation dépassé", "expired");
+        }
+        if (!stale.isEmpty()) {
+            log.info("{} paiement(s) Mobile Money expiré(s)", stale.size());
+        }
+        return stale.size();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
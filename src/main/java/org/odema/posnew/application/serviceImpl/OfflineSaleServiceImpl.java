@@ -0,0 +1,378 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.application.dto.request.OfflineSaleBatchRequest;
+import org.odema.posnew.application.dto.request.OfflineSaleRequest;
+import org.odema.posnew.application.dto.request.OrderItemRequest;
+import org.odema.posnew.application.dto.request.OrderRequest;
+import org.odema.posnew.application.dto.request.PaymentRequest;
+import org.odema.posnew.application.dto.response.OfflineSaleResult;
+import org.odema.posnew.application.dto.response.OfflineSyncResponse;
+import org.odema.posnew.application.mapper.OrderMapper;
+import org.odema.posnew.config.StatementCountInspector;
+import org.odema.posnew.design.context.BasketContext;
+import org.odema.posnew.design.event.OrderCompletedEvent;
+import org.odema.posnew.design.factory.SaleStrategyFactory;
+import org.odema.posnew.design.template.OrderServiceTemplate;
+import org.odema.posnew.domain.model.*;
+import org.odema.posnew.domain.model.enums.OrderStatus;
+import org.odema.posnew.domain.model.enums.PaymentMethod;
+import org.odema.posnew.domain.model.enums.PaymentStatus;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.*;
+import org.odema.posnew.domain.service.OfflineSaleService;
+import org.odema.posnew.domain.service.ShiftPaymentTotalService;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Synchronisation des ventes réalisées hors ligne par les caisses.
+ * <p>
+ * Le contexte commun (caissier, magasin, shift ouvert, clients, produits, inventaires,
+ * prix actifs, ventes déjà synchronisées) est chargé une fois pour tout le lot.
+ * Les ventes sont ensuite écrites par tranches, une transaction par tranche, inserts
+ * envoyés en batch JDBC au flush. Une vente refusée (produit inconnu, stock insuffisant…)
+ * ne fait pas échouer sa tranche : ses décréments de stock sont compensés et elle est
+ * simplement absente du flush. Si une tranche échoue malgré tout (contrainte en base,
+ * synchro concurrente du même lot), elle est rejouée vente par vente.
+ * <p>
+ * Comme en ligne, seule une vente entièrement couverte (payé + crédit) est terminée ;
+ * une vente partiellement payée est enregistrée, stock déduit, et reste en attente
+ * du solde.
+ */
+@Slf4j
+@Service
+public class OfflineSaleServiceImpl extends OrderServiceTemplate implements OfflineSaleService {
+
+    private final ShiftReportRepository shiftReportRepository;
+    private final ShiftPaymentTotalService shiftPaymentTotalService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate writeTx;
+    private final int chunkSize;
+
+    public OfflineSaleServiceImpl(
+            OrderRepository orderRepository,
+            OrderItemRepository orderItemRepository,
+            CustomerRepository customerRepository,
+            UserRepository userRepository,
+            StoreRepository storeRepository,
+            ProductRepository productRepository,
+            InventoryRepository inventoryRepository,
+            StoreProductPriceRepository storeProductPriceRepository,
+            OrderMapper orderMapper,
+            SaleStrategyFactory strategyFactory,
+            MeterRegistry meterRegistry,
+            StockReservationService stockReservationService,
+            StockMovementService stockMovementService,
+            ShiftReportRepository shiftReportRepository,
+            ShiftPaymentTotalService shiftPaymentTotalService,
+            ApplicationEventPublisher eventPublisher,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.offline-sync.chunk-size:50}") int chunkSize
+    ) {
+        super(orderRepository, orderItemRepository, customerRepository,
+                userRepository, storeRepository, productRepository,
+                inventoryRepository, storeProductPriceRepository,
+                orderMapper, strategyFactory, meterRegistry, stockReservationService,
+                stockMovementService);
+
+        this.shiftReportRepository = shiftReportRepository;
+        this.shiftPaymentTotalService = shiftPaymentTotalService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Override
+    public OfflineSyncResponse syncSales(OfflineSaleBatchRequest request, UUID cashierId) {
+        long startNanos = System.nanoTime();
+        long statementsBefore = StatementCountInspector.current();
+        List<OfflineSaleRequest> sales = request.sales();
+        log.info("Synchro hors ligne - Magasin: {}, Caissier: {}, Ventes: {}",
+                request.storeId(), cashierId, sales.size());
+
+        SyncContext context = readOnlyTx.execute(status -> loadContext(request, cashierId));
+
+        // 1. Tri préalable : identifiants manquants/répétés, ventes déjà synchronisées
+        OfflineSaleResult[] results = new OfflineSaleResult[sales.size()];
+        List<Integer> pending = new ArrayList<>();
+        Set<UUID> seen = new HashSet<>();
+        for (int i = 0; i < sales.size(); i++) {
+            OfflineSaleRequest sale = sales.get(i);
+            UUID clientSaleId = sale.clientSaleId();
+            if (clientSaleId == null) {
+                results[i] = OfflineSaleResult.rejected(null, "clientSaleId obligatoire");
+            } else if (!seen.add(clientSaleId)) {
+                results[i] = OfflineSaleResult.rejected(clientSaleId, "clientSaleId répété dans le lot");
+            } else if (context.existing().containsKey(clientSaleId)) {
+                OrderRepository.ClientSaleRef ref = context.existing().get(clientSaleId);
+                results[i] = OfflineSaleResult.duplicate(clientSaleId, ref.getOrderId(), ref.getOrderNumber());
+            } else if (sale.order() != null && sale.order().storeId() != null
+                    && !sale.order().storeId().equals(request.storeId())) {
+                results[i] = OfflineSaleResult.rejected(clientSaleId, "Magasin différent de celui du lot");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        // 2. Écriture par tranches
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            try {
+                writeTx.executeWithoutResult(status -> writeChunk(chunk, sales, context, results));
+            } catch (RuntimeException e) {
+                log.warn("Tranche de {} ventes rejouée unitairement: {}", chunk.size(), e.getMessage());
+                for (Integer index : chunk) {
+                    retrySingle(index, sales, context, results);
+                }
+            }
+        }
+
+        List<OfflineSaleResult> resultList = Arrays.asList(results);
+        long durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+        OfflineSyncResponse response = OfflineSyncResponse.of(resultList, durationMs);
+
+        meterRegistry.counter("pos.offline.sync.sales", "outcome", "created").increment(response.created());
+        meterRegistry.counter("pos.offline.sync.sales", "outcome", "duplicate").increment(response.duplicates());
+        meterRegistry.counter("pos.offline.sync.sales", "outcome", "rejected").increment(response.rejected());
+        long statements = StatementCountInspector.current() - statementsBefore;
+        meterRegistry.summary("pos.offline.sync.statements").record(statements);
+        log.info("Synchro hors ligne terminée - {} créées, {} doublons, {} refusées en {} ms ({} requêtes)",
+                response.created(), response.duplicates(), response.rejected(), durationMs, statements);
+        return response;
+    }
+
+    // =========================================================================
+    // CONTEXTE DU LOT
+    // =========================================================================
+
+    private SyncContext loadContext(OfflineSaleBatchRequest request, UUID cashierId) {
+        User cashier = loadCashier(cashierId);
+        if (!cashier.getActive()) {
+            throw new BadRequestException("Ce compte caissier est désactivé");
+        }
+        Store store = loadStore(request.storeId());
+        // Même règle qu'à l'ouverture de shift : un caissier ne vend que pour son magasin
+        if (cashier.getUserRole() != UserRole.ADMIN
+                && (cashier.getAssignedStore() == null
+                || !cashier.getAssignedStore().getStoreId().equals(store.getStoreId()))) {
+            throw new BadRequestException("Ce caissier n'est pas assigné au magasin " + store.getStoreId());
+        }
+        UUID shiftId = shiftReportRepository.findOpenShiftByCashier(cashierId)
+                .map(ShiftReport::getShiftReportId)
+                .orElse(null);
+
+        Set<UUID> customerIds = new HashSet<>();
+        Set<UUID> clientSaleIds = new HashSet<>();
+        List<OrderItemRequest> allItems = new ArrayList<>();
+        for (OfflineSaleRequest sale : request.sales()) {
+            if (sale.clientSaleId() != null) clientSaleIds.add(sale.clientSaleId());
+            if (sale.order() == null) continue;
+            if (sale.order().customerId() != null) customerIds.add(sale.order().customerId());
+            if (sale.order().items() != null) allItems.addAll(sale.order().items());
+        }
+
+        Map<UUID, Customer> customers = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(customerIds)) {
+            customers.put(customer.getCustomerId(), customer);
+        }
+
+        Map<UUID, OrderRepository.ClientSaleRef> existing = new HashMap<>();
+        if (!clientSaleIds.isEmpty()) {
+            for (OrderRepository.ClientSaleRef ref : orderRepository.findByClientSaleIdIn(clientSaleIds)) {
+                existing.put(ref.getClientSaleId(), ref);
+            }
+        }
+
+        BasketContext basket = resolveBasket(store.getStoreId(), allItems);
+        return new SyncContext(cashier, store, shiftId, customers, basket, existing);
+    }
+
+    // =========================================================================
+    // ÉCRITURE
+    // =========================================================================
+
+    private void writeChunk(List<Integer> chunk, List<OfflineSaleRequest> sales,
+                            SyncContext context, OfflineSaleResult[] results) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+
+        List<Payment> shiftPayments = new ArrayList<>();
+        List<Order> completed = new ArrayList<>();
+        OfflineSaleResult[] chunkResults = new OfflineSaleResult[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            chunkResults[i] = ingest(sales.get(chunk.get(i)), context, shiftPayments, completed);
+        }
+
+        if (context.shiftId() != null && !shiftPayments.isEmpty()) {
+            recordShiftPayments(context.shiftId(), shiftPayments);
+        }
+        completed.forEach(order -> eventPublisher.publishEvent(new OrderCompletedEvent(this, order)));
+
+        // Flush explicite : une contrainte violée est levée ici, dans la tranche
+        entityManager.flush();
+        for (int i = 0; i < chunk.size(); i++) {
+            results[chunk.get(i)] = chunkResults[i];
+        }
+    }
+
+    private void retrySingle(int index, List<OfflineSaleRequest> sales,
+                             SyncContext context, OfflineSaleResult[] results) {
+        UUID clientSaleId = sales.get(index).clientSaleId();
+        try {
+            writeTx.executeWithoutResult(status -> writeChunk(List.of(index), sales, context, results));
+        } catch (RuntimeException e) {
+            // Synchro concurrente du même lot : la vente a été écrite entre-temps
+            List<OrderRepository.ClientSaleRef> refs = orderRepository.findByClientSaleIdIn(List.of(clientSaleId));
+            if (!refs.isEmpty()) {
+                results[index] = OfflineSaleResult.duplicate(
+                        clientSaleId, refs.getFirst().getOrderId(), refs.getFirst().getOrderNumber());
+            } else {
+                log.error("Vente hors ligne {} refusée", clientSaleId, e);
+                results[index] = OfflineSaleResult.rejected(clientSaleId, "Erreur d'enregistrement");
+            }
+        }
+    }
+
+    /**
+     * Construit et enregistre une vente. Toute vérification a lieu avant le moindre
+     * write, sauf le stock : un décrément en échec est compensé avant le refus.
+     */
+    private OfflineSaleResult ingest(OfflineSaleRequest sale, SyncContext context,
+                                     List<Payment> shiftPayments, List<Order> completed) {
+        UUID clientSaleId = sale.clientSaleId();
+        try {
+            OrderRequest orderRequest = sale.order();
+            if (orderRequest == null) {
+                throw new BadRequestException("Commande manquante");
+            }
+            if (orderRequest.items() == null || orderRequest.items().isEmpty()) {
+                throw new BadRequestException("La commande doit contenir au moins un article");
+            }
+
+            Customer customer = null;
+            if (orderRequest.customerId() != null) {
+                customer = context.customers().get(orderRequest.customerId());
+                if (customer == null) {
+                    throw new NotFoundException("Client non trouvé: " + orderRequest.customerId());
+                }
+            }
+
+            Order order = buildBaseOrder(orderRequest, context.cashier(), context.store(), customer);
+            order.setClientSaleId(clientSaleId);
+            addOrderItems(order, orderRequest, context.basket());
+            if (order.getTotalAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new BadRequestException("Le montant total doit être supérieur à 0");
+            }
+
+            List<Payment> payments = new ArrayList<>();
+            for (PaymentRequest paymentRequest : sale.payments() != null ? sale.payments() : List.<PaymentRequest>of()) {
+                Payment payment = buildPayment(paymentRequest, order, context);
+                order.addPayment(payment);
+                payments.add(payment);
+            }
+            if (order.getPaymentStatus() == PaymentStatus.UNPAID) {
+                throw new BadRequestException("Vente sans paiement");
+            }
+
+            Optional<UUID> outOfStock = tryUpdateInventoryForOrder(order);
+            if (outOfStock.isPresent()) {
+                throw new BadRequestException("Stock insuffisant pour " + productName(order, outOfStock.get()));
+            }
+
+            // Marchandise partie dans tous les cas ; commande terminée seulement si couverte
+            boolean covered = order.getRemainingAmount().signum() == 0;
+            if (covered) {
+                order.setStatus(OrderStatus.COMPLETED);
+                order.setCompletedAt(sale.soldAt() != null ? sale.soldAt() : LocalDateTime.now());
+            }
+            orderRepository.save(order);
+            // Après save : le mouvement référence la commande
+            stockMovementService.recordOrder(order, StockMovementType.SALE);
+
+            shiftPayments.addAll(payments);
+            if (covered) {
+                completed.add(order);
+            } else {
+                log.info("Vente hors ligne {} partiellement payée : {} restant dû",
+                        clientSaleId, order.getRemainingAmount());
+            }
+            return OfflineSaleResult.created(clientSaleId, order.getOrderId(), order.getOrderNumber());
+
+        } catch (BadRequestException | NotFoundException e) {
+            log.debug("Vente hors ligne {} refusée: {}", clientSaleId, e.getMessage());
+            return OfflineSaleResult.rejected(clientSaleId, e.getMessage());
+        }
+    }
+
+    private Payment buildPayment(PaymentRequest request, Order order, SyncContext context) {
+        if (request.method() == null) {
+            throw new BadRequestException("Méthode de paiement obligatoire");
+        }
+        if (request.amount() == null || request.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BadRequestException("Le montant du paiement doit être positif");
+        }
+        return Payment.builder()
+                .order(order)
+                .method(request.method())
+                .amount(request.amount())
+                .cashier(context.cashier())
+                .shiftReport(context.shiftId() != null
+                        ? entityManager.getReference(ShiftReport.class, context.shiftId())
+                        : null)
+                .status(request.method() == PaymentMethod.CREDIT ? PaymentStatus.CREDIT : PaymentStatus.PAID)
+                .notes(request.notes())
+                .isActive(true)
+                .build();
+    }
+
+    /**
+     * Totaux du shift : un chargement et une sauvegarde du shift par tranche,
+     * une instruction d'agrégat par méthode de paiement.
+     */
+    private void recordShiftPayments(UUID shiftId, List<Payment> payments) {
+        ShiftReport shift = shiftReportRepository.findById(shiftId).orElse(null);
+        if (shift == null) return;
+
+        Map<PaymentMethod, BigDecimal> amounts = new EnumMap<>(PaymentMethod.class);
+        Map<PaymentMethod, Integer> counts = new EnumMap<>(PaymentMethod.class);
+        for (Payment payment : payments) {
+            amounts.merge(payment.getMethod(), payment.getAmount(), BigDecimal::add);
+            counts.merge(payment.getMethod(), 1, Integer::sum);
+            if (payment.isActualPayment()) {
+                shift.addSale(payment.getAmount(), payment.getMethod());
+            }
+        }
+        amounts.forEach((method, amount) -> shiftPaymentTotalService.recordPayments(
+                shiftId, method, counts.get(method), amount));
+        shiftReportRepository.save(shift);
+    }
+
+    private record SyncContext(User cashier,
+                               Store store,
+                               UUID shiftId,
+                               Map<UUID, Customer> customers,
+                               BasketContext basket,
+                               Map<UUID, OrderRepository.ClientSaleRef> existing) {
+    }
+}
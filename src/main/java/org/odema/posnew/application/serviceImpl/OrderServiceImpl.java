@@ -1,14 +1,20 @@
 package org.odema.posnew.application.serviceImpl;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NonNull;
 import org.odema.posnew.api.exception.BadRequestException;
 import org.odema.posnew.api.exception.NotFoundException;
 import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.dto.request.CheckoutRequest;
 import org.odema.posnew.application.dto.request.OrderRequest;
 import org.odema.posnew.application.dto.request.PaymentRequest;
+import org.odema.posnew.application.dto.response.CursorPage;
+import org.odema.posnew.application.dto.response.KeysetCursor;
 import org.odema.posnew.application.dto.response.OrderResponse;
+import org.odema.posnew.application.dto.response.OrderSummaryResponse;
 import org.odema.posnew.application.mapper.OrderMapper;
+import org.odema.posnew.config.StatementCountInspector;
 import org.odema.posnew.design.event.*;
 import org.odema.posnew.design.factory.SaleStrategyFactory;
 import org.odema.posnew.design.handler.PaymentHandler;
@@ -18,9 +24,16 @@ import org.odema.posnew.domain.model.enums.OrderStatus;
 import org.odema.posnew.domain.model.enums.PaymentMethod;
 import org.odema.posnew.domain.model.enums.PaymentStatus;
 import org.odema.posnew.domain.repository.*;
+import org.odema.posnew.domain.service.MobileMoneyPaymentService;
 import org.odema.posnew.domain.service.OrderService;
+import org.odema.posnew.domain.service.ShiftPaymentTotalService;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockReservationService;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -31,6 +44,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -38,6 +52,8 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
 
     private final PaymentRepository paymentRepository;
     private final ShiftReportRepository shiftReportRepository;
+    private final ShiftPaymentTotalService shiftPaymentTotalService;
+    private final MobileMoneyPaymentService mobileMoneyPaymentService;
     private final ApplicationEventPublisher eventPublisher;
 
     public OrderServiceImpl(
@@ -48,22 +64,32 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
             StoreRepository storeRepository,
             ProductRepository productRepository,
             InventoryRepository inventoryRepository,
+            StoreProductPriceRepository storeProductPriceRepository,
             OrderMapper orderMapper,
             SaleStrategyFactory strategyFactory,
+            MeterRegistry meterRegistry,
+            StockReservationService stockReservationService,
+            StockMovementService stockMovementService,
             PaymentRepository paymentRepository,
             ShiftReportRepository shiftReportRepository,
+            ShiftPaymentTotalService shiftPaymentTotalService,
             @Qualifier("cashPaymentHandler") PaymentHandler cashHandler,
             @Qualifier("creditCardPaymentHandler") PaymentHandler cardHandler,
             @Qualifier("mobileMoneyPaymentHandler") PaymentHandler mobileHandler,
             @Qualifier("creditPaymentHandler") PaymentHandler creditHandler,
+            MobileMoneyPaymentService mobileMoneyPaymentService,
             ApplicationEventPublisher eventPublisher
     ) {
         super(orderRepository, orderItemRepository, customerRepository,
                 userRepository, storeRepository, productRepository,
-                inventoryRepository, orderMapper, strategyFactory);
+                inventoryRepository, storeProductPriceRepository,
+                orderMapper, strategyFactory, meterRegistry, stockReservationService,
+                stockMovementService);
 
         this.paymentRepository = paymentRepository;
         this.shiftReportRepository = shiftReportRepository;
+        this.shiftPaymentTotalService = shiftPaymentTotalService;
+        this.mobileMoneyPaymentService = mobileMoneyPaymentService;
         this.eventPublisher = eventPublisher;
 
         // Chaîne de responsabilité pour les handlers de paiement
@@ -98,20 +124,78 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
 
     /**
      * Crée une commande puis y attache immédiatement un premier paiement.
+     * La commande n'est pas relue : le paiement s'applique à l'entité encore en attente
+     * dans le contexte de persistance, puis un seul flush envoie commande, lignes et
+     * paiement en batch (INSERT de la commande avec son statut de paiement final).
      */
     @Override
     @Transactional
     public OrderResponse createOrderWithPayment(OrderRequest orderRequest,
                                                 PaymentRequest paymentRequest,
                                                 UUID cashierId) throws UnauthorizedException {
-        OrderResponse orderResponse = createOrder(orderRequest, cashierId);
+        long statementsBefore = StatementCountInspector.current();
 
-        if (paymentRequest != null
+        Order order = placeOrder(orderRequest, cashierId);
+
+        if (paymentRequest != null && paymentRequest.amount() != null
                 && paymentRequest.amount().compareTo(BigDecimal.ZERO) > 0) {
-            return addPaymentToOrder(orderResponse.orderId(), paymentRequest, cashierId);
+            applyPayment(order, paymentRequest, cashierId);
         }
 
-        return orderResponse;
+        orderRepository.flush();
+        long statements = StatementCountInspector.current() - statementsBefore;
+        meterRegistry.summary("pos.checkout.statements").record(statements);
+        log.info("Encaissement {}: {} requêtes", order.getOrderNumber(), statements);
+
+        return orderMapper.toResponse(order);
+    }
+
+    /**
+     * Encaissement complet en une transaction : commande, tous les moyens de paiement,
+     * comptabilité du shift et clôture. Caissier et shift sont chargés une fois pour
+     * tous les paiements ; le ticket est demandé par l'événement de création (outbox),
+     * après le commit, avec les paiements déjà rattachés.
+     */
+    @Override
+    @Transactional
+    public OrderResponse checkout(CheckoutRequest request, UUID cashierId) throws UnauthorizedException {
+        long statementsBefore = StatementCountInspector.current();
+
+        List<PaymentRequest> tenders = request.tendersOrEmpty();
+        for (PaymentRequest tender : tenders) {
+            if (tender.method() == null || tender.amount() == null
+                    || tender.amount().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new BadRequestException("Chaque paiement doit avoir une méthode et un montant positif");
+            }
+        }
+
+        Order order = placeOrder(request.order(), cashierId);
+
+        if (!tenders.isEmpty()) {
+            // Déjà dans le contexte de persistance après placeOrder : pas de relecture
+            User cashier = loadCashier(cashierId);
+            ShiftReport shiftReport = loadOpenShift(cashier);
+            for (PaymentRequest tender : tenders) {
+                applyPayment(order, tender, cashier, shiftReport);
+            }
+        }
+
+        if (request.complete()) {
+            if (order.getPaymentStatus() == PaymentStatus.UNPAID) {
+                throw new BadRequestException("La commande n'a aucun paiement enregistré");
+            }
+            stockReservationService.convert(order);
+            order.markAsCompleted();
+            eventPublisher.publishEvent(new OrderCompletedEvent(this, order));
+        }
+
+        orderRepository.flush();
+        long statements = StatementCountInspector.current() - statementsBefore;
+        meterRegistry.summary("pos.checkout.statements").record(statements);
+        log.info("Checkout {}: {} paiement(s), {} requêtes, statut {}",
+                order.getOrderNumber(), tenders.size(), statements, order.getStatus());
+
+        return orderMapper.toResponse(order);
     }
 
     // =========================================================================
@@ -131,9 +215,32 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
             throw new BadRequestException("Le montant du paiement doit être positif");
         }
 
-        Order order = orderRepository.findByIdWithPayments(orderId)
+        // Verrou : totaux de paiement écrits aussi par les callbacks Mobile Money
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new NotFoundException("Commande non trouvée"));
 
+        return orderMapper.toResponse(applyPayment(order, paymentRequest, cashierId));
+    }
+
+    private Order applyPayment(Order order, PaymentRequest paymentRequest, UUID cashierId) {
+        User cashier = loadCashier(cashierId);
+        return applyPayment(order, paymentRequest, cashier, loadOpenShift(cashier));
+    }
+
+    private ShiftReport loadOpenShift(User cashier) {
+        // ✅ Vérifier que le caissier est actif
+        if (!cashier.getActive()) {
+            throw new BadRequestException("Ce compte caissier est désactivé");
+        }
+        return shiftReportRepository
+                .findOpenShiftByCashier(cashier.getUserId())
+                .orElseThrow(() -> new BadRequestException(
+                        "Aucune caisse ouverte pour ce caissier"));
+    }
+
+    private Order applyPayment(Order order, PaymentRequest paymentRequest,
+                               User cashier, ShiftReport shiftReport) {
+        UUID orderId = order.getOrderId();
         if (order.getStatus() == OrderStatus.CANCELLED) {
             log.warn("Tentative paiement sur commande annulée: {}", orderId);
             throw new BadRequestException(
@@ -155,20 +262,15 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
             }
         }
 
-        User cashier = loadCashier(cashierId);
-
-        // ✅ Vérifier que le caissier est actif
-        if (!cashier.getActive()) {
-            throw new BadRequestException("Ce compte caissier est désactivé");
-        }
-
-        ShiftReport shiftReport = shiftReportRepository
-                .findOpenShiftByCashier(cashierId)
-                .orElseThrow(() -> new BadRequestException(
-                        "Aucune caisse ouverte pour ce caissier"));
-
         Payment payment = buildAndSavePayment(paymentRequest, order, cashier, shiftReport);
         order.addPayment(payment);
+        // Commande payée (même partiellement ou à crédit) : la marchandise part,
+        // la réservation devient une déduction du stock
+        if (order.getPaymentStatus() != PaymentStatus.UNPAID) {
+            stockReservationService.convert(order);
+        }
+        shiftPaymentTotalService.recordPayment(
+                shiftReport.getShiftReportId(), payment.getMethod(), payment.getAmount());
 
         if (payment.isActualPayment()) {
             shiftReport.addSale(payment.getAmount(), payment.getMethod());
@@ -181,7 +283,7 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
         log.debug("Paiement ajouté - Statut: {}, Total payé: {}",
                 updatedOrder.getPaymentStatus(), updatedOrder.getTotalPaid());
 
-        return orderMapper.toResponse(updatedOrder);
+        return updatedOrder;
     }
 
     private Payment buildAndSavePayment(PaymentRequest request, Order order,
@@ -231,6 +333,7 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
         }
 
         // markAsCompleted() appelle customer.recordPurchase() en interne si client présent
+        stockReservationService.convert(order);
         order.markAsCompleted();
         Order updatedOrder = orderRepository.save(order);
 
@@ -245,7 +348,8 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
     public void cancelOrder(UUID orderId) {
         log.info("Annulation commande {}", orderId);
 
-        Order order = orderRepository.findById(orderId)
+        // Verrou : un callback Mobile Money ne peut pas confirmer un paiement en même temps
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new NotFoundException("Commande non trouvée"));
 
         if (order.getStatus() == OrderStatus.CANCELLED) {
@@ -258,9 +362,14 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
         // cancel() existe dans Order avec une signature (String reason)
         order.cancel("Annulée par l'opérateur");
         orderRepository.save(order);
+        // Paiements Mobile Money en attente : annulés, un callback tardif sera à rembourser
+        mobileMoneyPaymentService.cancelPending(orderId, "Commande annulée");
 
-        // restoreInventoryForOrder est protected dans le template — accessible ici
-        restoreInventoryForOrder(order);
+        // Stock réservé : libéré sans écrire l'inventaire. Sinon (commande antérieure
+        // aux réservations) le stock avait été déduit à la création → restauration
+        if (!stockReservationService.release(order)) {
+            restoreInventoryForOrder(order);
+        }
 
         eventPublisher.publishEvent(new OrderCancelledEvent(this, order));
     }
@@ -295,20 +404,41 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
         if (request.globalDiscountPercentage() != null)
             order.setGlobalDiscountPercentage(request.globalDiscountPercentage());
 
-        // Pas de calculateTotals() — Order calcule tout en @Transient à la volée
+        // Remise globale modifiée → total persisté et statut de paiement à jour
+        order.calculateTotalAmount();
+        order.recalculatePaymentStatus();
         return orderMapper.toResponse(orderRepository.save(order));
     }
 
+    /**
+     * Rattrapage au démarrage des totaux dénormalisés (commandes antérieures aux colonnes).
+     * Sans effet une fois toutes les lignes renseignées.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillOrderTotals() {
+        int updated = orderRepository.backfillTotals();
+        if (updated > 0) {
+            log.info("Totaux dénormalisés renseignés pour {} commandes", updated);
+        }
+    }
+
     // =========================================================================
     // QUERIES
     // =========================================================================
 
+    /**
+     * Détail complet : graphe commande + lignes en une requête, puis paiements
+     * (même contexte de persistance, la collection est simplement initialisée).
+     */
     @Override
+    @Transactional(readOnly = true)
     @PreAuthorize("hasAnyRole('ADMIN','STORE_ADMIN','CASHIER')")
     public OrderResponse getOrderById(UUID orderId) {
-        return orderMapper.toResponse(
-                orderRepository.findByIdWithPayments(orderId)
-                        .orElseThrow(() -> new NotFoundException("Commande non trouvée")));
+        Order order = orderRepository.findDetailById(orderId)
+                .orElseThrow(() -> new NotFoundException("Commande non trouvée"));
+        orderRepository.findByIdWithPayments(orderId);
+        return orderMapper.toResponse(order);
     }
 
     @Override
@@ -319,66 +449,110 @@ public class OrderServiceImpl extends OrderServiceTemplate implements OrderServi
                         .orElseThrow(() -> new NotFoundException("Commande non trouvée")));
     }
 
-    @Override
-    @PreAuthorize("hasAnyRole('ADMIN','STORE_ADMIN','CASHIER')")
-    public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(orderMapper::toResponse)
-                .toList();
-    }
+    // Les listes renvoient la projection OrderSummaryResponse : une requête par page,
+    // sans charger ni mapper les entités (le détail passe par getOrderById).
+    // Les historiques sont paginés par clé (createdAt, orderId) : voir KeysetCursor.
 
     @Override
+    @Transactional(readOnly = true)
     @PreAuthorize("hasAnyRole('ADMIN','STORE_ADMIN','CASHIER')")
-    public Page<OrderResponse> getOrders(UUID userId, Pageable pageable) {
+    public Page<OrderSummaryResponse> getOrders(UUID userId, Pageable pageable) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Utilisateur non trouvé"));
 
-        return switch (user.getUserRole()) {
-            case ADMIN -> orderRepository.findAll(pageable)
-                    .map(orderMapper::toResponse);
+        long statementsBefore = StatementCountInspector.current();
+        Page<OrderSummaryResponse> page = switch (user.getUserRole()) {
+            case ADMIN -> orderRepository.findSummaries(pageable);
             case STORE_ADMIN -> orderRepository
-                    .findByStore_StoreId(user.getAssignedStore().getStoreId(), pageable)
-                    .map(orderMapper::toResponse);
+                    .findSummariesByStore(user.getAssignedStore().getStoreId(), pageable);
             case CASHIER -> orderRepository
-                    .findByCashier_UserId(user.getUserId(), pageable)
-                    .map(orderMapper::toResponse);
+                    .findSummariesByCashier(user.getUserId(), pageable);
             default -> throw new BadRequestException("Rôle non autorisé: " + user.getUserRole());
         };
+        // Attendu : 2 (page + comptage), quel que soit le nombre de lignes
+        meterRegistry.summary("pos.order.list.statements")
+                .record(StatementCountInspector.current() - statementsBefore);
+        return page;
     }
 
     @Override
-    public List<OrderResponse> getOrdersByStore(UUID storeId) {
-        return orderRepository.findByStore_StoreId(storeId).stream()
-                .map(orderMapper::toResponse).toList();
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAnyRole('ADMIN','STORE_ADMIN','CASHIER')")
+    public CursorPage<OrderSummaryResponse> getOrderHistory(UUID userId, String cursor, Integer size) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Utilisateur non trouvé"));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        Limit limit = KeysetCursor.fetchLimit(pageSize);
+
+        List<OrderSummaryResponse> rows = switch (user.getUserRole()) {
+            case ADMIN -> orderRepository
+                    .findSummariesAfter(after.createdAt(), after.id(), limit);
+            case STORE_ADMIN -> orderRepository.findSummariesByStoreAfter(
+                    user.getAssignedStore().getStoreId(), after.createdAt(), after.id(), limit);
+            case CASHIER -> orderRepository.findSummariesByCashierAfter(
+                    user.getUserId(), after.createdAt(), after.id(), limit);
+            default -> throw new BadRequestException("Rôle non autorisé: " + user.getUserRole());
+        };
+        return summaryPage(rows, pageSize);
     }
 
     @Override
-    public List<OrderResponse> getOrdersByCustomer(UUID customerId) {
-        return orderRepository.findByCustomer_CustomerId(customerId).stream()
-                .map(orderMapper::toResponse).toList();
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> getOrdersByStore(UUID storeId, String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return summaryPage(orderRepository.findSummariesByStoreAfter(
+                storeId, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
     }
 
     @Override
-    public List<OrderResponse> getOrdersByCashier(UUID cashierId) {
-        return orderRepository.findByCashier_UserId(cashierId).stream()
-                .map(orderMapper::toResponse).toList();
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> getOrdersByCustomer(UUID customerId, String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return summaryPage(orderRepository.findSummariesByCustomerAfter(
+                customerId, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
     }
 
     @Override
-    public List<OrderResponse> getOrdersByStatus(String status) {
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> getOrdersByCashier(UUID cashierId, String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return summaryPage(orderRepository.findSummariesByCashierAfter(
+                cashierId, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> getOrdersByStatus(String status, String cursor, Integer size) {
+        OrderStatus orderStatus;
         try {
-            OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            return orderRepository.findByStatus(orderStatus).stream()
-                    .map(orderMapper::toResponse).toList();
+            orderStatus = OrderStatus.valueOf(status.toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new BadRequestException("Statut invalide: " + status);
         }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return summaryPage(orderRepository.findSummariesByStatusAfter(
+                orderStatus, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
     }
 
     @Override
-    public List<OrderResponse> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findByDateRange(startDate, endDate).stream()
-                .map(orderMapper::toResponse).toList();
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                                 String cursor, Integer size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        return summaryPage(orderRepository.findSummariesByDateRangeAfter(
+                startDate, endDate, after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize)), pageSize);
+    }
+
+    private static CursorPage<OrderSummaryResponse> summaryPage(List<OrderSummaryResponse> rows, int pageSize) {
+        return CursorPage.of(rows, pageSize,
+                row -> new KeysetCursor(row.createdAt(), row.orderId()),
+                Function.identity());
     }
 
     @Override
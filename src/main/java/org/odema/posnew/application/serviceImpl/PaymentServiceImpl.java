@@ -22,6 +22,8 @@ import org.odema.posnew.domain.repository.PaymentRepository;
 import org.odema.posnew.domain.repository.ShiftReportRepository;
 import org.odema.posnew.domain.repository.UserRepository;
 import org.odema.posnew.domain.service.PaymentService;
+import org.odema.posnew.domain.service.ShiftPaymentTotalService;
+import org.odema.posnew.domain.service.StockReservationService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,13 +41,15 @@ public class PaymentServiceImpl implements PaymentService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ShiftReportRepository shiftReportRepository;
+    private final ShiftPaymentTotalService shiftPaymentTotalService;
     private final PaymentMapper paymentMapper;
+    private final StockReservationService stockReservationService;
 
     @Override
     @Transactional
     public PaymentResponse processPayment(UUID orderId, PaymentRequest request, UUID cashierId) throws UnauthorizedException {
-        // Récupérer la commande
-        Order order = orderRepository.findById(orderId)
+        // Récupérer la commande, verrouillée : totaux écrits aussi par les callbacks Mobile Money
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new NotFoundException("Commande non trouvée"));
 
         // Vérifications de base
@@ -89,6 +93,17 @@ public class PaymentServiceImpl implements PaymentService {
         // Ajouter le paiement à la commande
         order.addPayment(savedPayment);
 
+        // Commande payée : la réservation de stock devient une déduction
+        if (order.getPaymentStatus() != PaymentStatus.UNPAID) {
+            stockReservationService.convert(order);
+        }
+
+        // Agrégat par méthode du shift (crédit inclus)
+        if (shift != null) {
+            shiftPaymentTotalService.recordPayment(
+                    shift.getShiftReportId(), request.method(), request.amount());
+        }
+
         // Mettre à jour le shift report (sauf pour crédit)
         if (shift != null && request.method() != PaymentMethod.CREDIT) {
             shift.addSale(request.amount(),request.method());
@@ -156,10 +171,30 @@ public class PaymentServiceImpl implements PaymentService {
             throw new BadRequestException("Ce paiement est déjà annulé");
         }
 
+        // Retirer la contribution du paiement aux totaux de la commande
+        // avant de changer son statut (totaux dénormalisés)
+        Order order = payment.getOrder();
+        boolean wasPending = payment.isPending();
+        order.removePayment(payment);
+
         // Annuler le paiement
         payment.cancel("Payment annule pour raison inconnue");
         paymentRepository.save(payment);
 
+        // Paiement Mobile Money non confirmé : jamais compté dans le shift
+        if (wasPending) {
+            orderRepository.save(order);
+            log.info("Paiement en attente {} annulé pour commande {}", paymentId, order.getOrderNumber());
+            return;
+        }
+
+        // Agrégat par méthode : le paiement passe en remboursements
+        if (payment.getShiftReport() != null) {
+            shiftPaymentTotalService.recordCancellation(
+                    payment.getShiftReport().getShiftReportId(),
+                    payment.getMethod(), payment.getAmount());
+        }
+
         // Mettre à jour le shift report si nécessaire
         if (payment.getShiftReport() != null && payment.getMethod() != PaymentMethod.CREDIT) {
             ShiftReport shift = payment.getShiftReport();
@@ -170,11 +205,7 @@ public class PaymentServiceImpl implements PaymentService {
             shiftReportRepository.save(shift);
         }
 
-        // Mettre à jour le statut de la commande
-        Order order = payment.getOrder();
-        order.removePayment(payment);
-        //order.setPaymentStatus(order.getComputedPaymentStatus());
-        order.setPaymentStatus(order.getPaymentStatus());
+        // Statut de paiement recalculé par removePayment
         orderRepository.save(order);
 
         log.info("Paiement {} annulé pour commande {}", paymentId, order.getOrderNumber());
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.odema.posnew.api.exception.BadRequestException;
 import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.application.cache.CatalogCache;
 
 import org.odema.posnew.domain.model.Product;
 import org.odema.posnew.domain.repository.ProductRepository;
@@ -24,6 +25,7 @@ public class ProductImageServiceImpl implements ProductImageService {
 
     private final ProductRepository productRepository;
     private final FileStorageService fileStorageService;
+    private final CatalogCache catalogCache;
 
     @Value("${app.file.directories.products:products}")
     private String productsDirectory;
@@ -63,6 +65,7 @@ public class ProductImageServiceImpl implements ProductImageService {
         product.setImageUrl(null); // Désactiver l'URL externe si on utilise le stockage local
 
         productRepository.save(product);
+        catalogCache.evictProduct(productId);
 
         return getProductImageUrl(productId);
     }
@@ -85,6 +88,7 @@ public class ProductImageServiceImpl implements ProductImageService {
         product.setImageUrl(null);
 
         productRepository.save(product);
+        catalogCache.evictProduct(productId);
     }
 
     @Override
@@ -0,0 +1,105 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.application.cache.CatalogCache;
+import org.odema.posnew.application.cache.StockLevelCache;
+import org.odema.posnew.application.dto.response.ProductScanResponse;
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.enums.StockStatus;
+import org.odema.posnew.domain.service.ProductScanService;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chemin rapide du scan en caisse.
+ *
+ * Produit et prix viennent du {@link CatalogCache} (index code-barres en mémoire, codes
+ * inconnus compris), le stock physique du {@link StockLevelCache}, diminué des réservations
+ * en cours (compteurs en mémoire). Quantité et statut sont tous deux calculés sur ce
+ * disponible à la vente. Pas de transaction englobante : un scan servi par les caches
+ * ne prend aucune connexion.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductScanServiceImpl implements ProductScanService {
+
+    private final CatalogCache catalogCache;
+    private final StockLevelCache stockLevelCache;
+    private final StockReservationService stockReservationService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<UUID, Timer> timersByStore = new ConcurrentHashMap<>();
+
+    @Override
+    public ProductScanResponse scan(String barcode, UUID storeId) {
+        if (barcode == null || barcode.isBlank()) {
+            throw new BadRequestException("Code-barres requis");
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "found";
+        try {
+            CatalogCache.ProductView product = catalogCache.productByBarcode(barcode)
+                    .filter(CatalogCache.ProductView::active)
+                    .orElse(null);
+            if (product == null) {
+                outcome = "not_found";
+                throw new NotFoundException("Aucun produit pour le code-barres " + barcode.trim());
+            }
+
+            CatalogCache.PriceView price = catalogCache
+                    .activePrice(storeId, product.productId())
+                    .orElse(null);
+
+            StockLevelCache.Level stock = stockLevelCache.level(storeId, product.productId()).orElse(null);
+            int onHand = stock != null ? stock.quantity() : 0;
+            // Disponible à la vente : le stock retenu par des commandes non payées est exclu
+            int quantity = stockReservationService.availableToSell(storeId, product.productId(), onHand);
+            StockStatus status = stock != null
+                    ? Inventory.statusOf(quantity, stock.reorderPoint(), stock.maxStock())
+                    : StockStatus.OUT_OF_STOCK;
+
+            return new ProductScanResponse(
+                    product.productId(),
+                    product.name(),
+                    product.sku(),
+                    product.barcode(),
+                    product.categoryId(),
+                    product.categoryName(),
+                    product.imageUrl(),
+                    storeId,
+                    price != null ? price.basePrice() : null,
+                    price != null ? price.taxRate() : null,
+                    price != null ? price.discountValue() : null,
+                    price != null ? price.finalPrice() : null,
+                    quantity,
+                    status,
+                    quantity > 0
+            );
+        } finally {
+            sample.stop(timer(storeId, outcome));
+        }
+    }
+
+    private Timer timer(UUID storeId, String outcome) {
+        // Un timer par magasin (p99 publié) ; les scans inconnus sont comptés à part
+        if (!"found".equals(outcome)) {
+            return meterRegistry.timer("pos.scan.latency", "store", storeId.toString(), "outcome", outcome);
+        }
+        return timersByStore.computeIfAbsent(storeId, id -> Timer.builder("pos.scan.latency")
+                .description("Latence du scan code-barres en caisse")
+                .tag("store", id.toString())
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
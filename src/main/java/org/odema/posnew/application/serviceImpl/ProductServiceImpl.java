@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.odema.posnew.api.exception.BadRequestException;
 import org.odema.posnew.api.exception.NotFoundException;
 import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.cache.CatalogCache;
 import org.odema.posnew.application.dto.request.ProductRequest;
 import org.odema.posnew.application.dto.response.ProductResponse;
 import org.odema.posnew.application.mapper.ProductMapper;
@@ -13,6 +14,7 @@ import org.odema.posnew.domain.model.Product;
 import org.odema.posnew.domain.model.User;
 import org.odema.posnew.domain.model.enums.UserRole;
 import org.odema.posnew.domain.repository.CategoryRepository;
+import org.odema.posnew.domain.repository.InventoryRepository;
 import org.odema.posnew.domain.repository.ProductRepository;
 import org.odema.posnew.domain.service.ProductService;
 import org.springframework.data.domain.Page;
@@ -20,8 +22,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,7 +34,9 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final InventoryRepository inventoryRepository;
     private final ProductMapper productMapper;
+    private final CatalogCache catalogCache;
 
     @Override
     @Transactional
@@ -56,16 +63,27 @@ public class ProductServiceImpl implements ProductService {
         // Créer le produit
         Product product = productMapper.toEntity(request, category);
         Product savedProduct = productRepository.save(product);
+        // Code-barres éventuellement mis en cache comme inconnu, nombre de produits des catégories
+        catalogCache.evictProduct(savedProduct.getProductId());
 
         return productMapper.toResponse(savedProduct);
     }
 
+    /**
+     * Fiche produit depuis le cache catalogue ; seul le stock est lu en base.
+     * Le prix est celui du magasin demandé (aucun prix sans magasin : il n'y a pas
+     * de prix catalogue commun à tous les magasins).
+     */
     @Override
-    public ProductResponse getProductById(UUID productId) throws NotFoundException {
-        Product product = productRepository.findById(productId)
+    public ProductResponse getProductById(UUID productId, UUID storeId) throws NotFoundException {
+        CatalogCache.ProductView product = catalogCache.productById(productId)
                 .orElseThrow(() -> new NotFoundException("Produit non trouvé"));
 
-        return productMapper.toResponse(product);
+        BigDecimal price = storeId != null
+                ? catalogCache.activePrice(storeId, productId).map(CatalogCache.PriceView::finalPrice).orElse(null)
+                : null;
+        int stock = totalStock(List.of(productId)).getOrDefault(productId, 0);
+        return productMapper.toResponse(product, price, stock);
     }
 
 
@@ -77,69 +95,78 @@ public class ProductServiceImpl implements ProductService {
                 .orElseThrow(() -> new NotFoundException("Produit non trouvé"));
 
         productRepository.delete(product);
+        catalogCache.evictProduct(productId, product.getBarcode(), product.getSku());
     }
 
     // ============ MÉTHODES PAGINÉES ============
 
     @Override
     public Page<ProductResponse> getAllProducts(Pageable pageable) {
-        return productRepository.findByIsActiveTrue(pageable)
-                .map(productMapper::toResponse);
+        return toResponses(productRepository.findByIsActiveTrue(pageable));
     }
 
     @Override
     public Page<ProductResponse> getProductsByCategory(UUID categoryId, Pageable pageable) {
-        return productRepository.findByCategory_CategoryId(categoryId, pageable)
-                .map(productMapper::toResponse);
+        return toResponses(productRepository.findByCategory_CategoryId(categoryId, pageable));
     }
 
     @Override
     public Page<ProductResponse> searchProducts(String keyword, Pageable pageable) {
-        return productRepository.findByNameContainingIgnoreCase(keyword, pageable)
-                .map(productMapper::toResponse);
+        return toResponses(productRepository.findByNameContainingIgnoreCase(keyword, pageable));
     }
 
     @Override
     public Page<ProductResponse> getLowStockProducts(Pageable pageable) {
-        return productRepository.findLowStockProducts(pageable)
-                .map(productMapper::toResponse);
+        return toResponses(productRepository.findLowStockProducts(pageable));
     }
 
     // ============ MÉTHODES NON PAGINÉES ============
 
     @Override
     public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(productMapper::toResponse)
-                .toList();
+        return toResponses(productRepository.findAll());
     }
 
     @Override
     public List<ProductResponse> getProductsByCategory(UUID categoryId) {
         List<Product> products = productRepository.findByCategory_CategoryId(categoryId);
-        return products.stream()
-                .map(productMapper::toResponse)
-                .toList();
+        return toResponses(products);
     }
 
     @Override
     public List<ProductResponse> searchProducts(String keyword) {
         List<Product> products = productRepository.findByNameContainingIgnoreCase(keyword);
-        return products.stream()
-                .map(productMapper::toResponse)
-                .toList();
+        return toResponses(products);
     }
 
 
     @Override
     public List<ProductResponse> getLowStockProducts(Integer threshold){
         List<Product> products = productRepository.findLowStockProducts();
+        return toResponses(products);
+    }
+
+
+
+    // Stock total des produits de la liste en une requête groupée
+    private List<ProductResponse> toResponses(List<Product> products) {
+        Map<UUID, Integer> stock = totalStock(products.stream().map(Product::getProductId).toList());
         return products.stream()
-                .map(productMapper::toResponse)
+                .map(p -> productMapper.toResponse(p, stock.getOrDefault(p.getProductId(), 0)))
                 .toList();
     }
 
+    private Page<ProductResponse> toResponses(Page<Product> page) {
+        Map<UUID, Integer> stock = totalStock(page.getContent().stream().map(Product::getProductId).toList());
+        return page.map(p -> productMapper.toResponse(p, stock.getOrDefault(p.getProductId(), 0)));
+    }
 
+    private Map<UUID, Integer> totalStock(List<UUID> productIds) {
+        if (productIds.isEmpty()) return Map.of();
+        return inventoryRepository.sumActiveQuantityByProducts(productIds).stream()
+                .collect(Collectors.toMap(InventoryRepository.ProductStock::getProductId,
+                        ps -> ps.getQuantity() != null ? ps.getQuantity().intValue() : 0));
+    }
 
     private boolean hasProductManagementPermission(User user) {
         UserRole role = user.getUserRole();
@@ -156,6 +183,9 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new NotFoundException("Produit non trouvé"));
 
+        // Anciennes clés du cache catalogue, avant modification
+        catalogCache.evictProduct(productId, product.getBarcode(), product.getSku());
+
         if (request.name() != null)        product.setName(request.name());
         if (request.description() != null) product.setDescription(request.description());
         if (request.categoryId() != null) {
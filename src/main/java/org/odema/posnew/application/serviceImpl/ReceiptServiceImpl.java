@@ -9,8 +9,11 @@ import org.odema.posnew.design.event.ReceiptGeneratedEvent;
 import org.odema.posnew.design.factory.DocumentBuilderFactory;
 import org.odema.posnew.design.factory.DocumentStrategyFactory;
 import org.odema.posnew.design.strategy.DocumentStrategy;
+import org.odema.posnew.design.template.DocumentRenderQueue;
 import org.odema.posnew.design.template.DocumentServiceTemplate;
 
+import org.odema.posnew.application.dto.response.CursorPage;
+import org.odema.posnew.application.dto.response.KeysetCursor;
 import org.odema.posnew.application.dto.response.ReceiptResponse;
 import org.odema.posnew.api.exception.BadRequestException;
 import org.odema.posnew.api.exception.NotFoundException;
@@ -22,6 +25,7 @@ import org.odema.posnew.domain.model.enums.DocumentType;
 import org.odema.posnew.domain.model.enums.PaymentMethod;
 import org.odema.posnew.domain.model.enums.ReceiptStatus;
 import org.odema.posnew.domain.model.enums.ReceiptType;
+import org.odema.posnew.domain.model.enums.RenderStatus;
 import org.odema.posnew.domain.repository.OrderRepository;
 import org.odema.posnew.domain.repository.ReceiptRepository;
 import org.odema.posnew.domain.repository.ShiftReportRepository;
@@ -31,16 +35,20 @@ import org.odema.posnew.domain.service.ReceiptService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -53,6 +61,8 @@ public class ReceiptServiceImpl
     private final ShiftReportRepository shiftReportRepository;
     private final ReceiptMapper receiptMapper;
     private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate writeTx;
+    private final TransactionTemplate readOnlyTx;
 
     @Value("${app.file.directories.receipts:receipts}")
     private String receiptsDirectory;
@@ -63,17 +73,22 @@ public class ReceiptServiceImpl
             DocumentNumberService documentNumberService,
             FileStorageService fileStorageService,
             DocumentBuilderFactory builderFactory,        // ✅ AJOUTÉ
+            DocumentRenderQueue renderQueue,
             ReceiptRepository receiptRepository,
             ShiftReportRepository shiftReportRepository,
             ReceiptMapper receiptMapper,
-            ApplicationEventPublisher eventPublisher
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager
     ) {
         super(orderRepository, strategyFactory, documentNumberService,
-                fileStorageService, builderFactory);         // ✅ passé au super
+                fileStorageService, builderFactory, renderQueue);  // ✅ passé au super
         this.receiptRepository     = receiptRepository;
         this.shiftReportRepository = shiftReportRepository;
         this.receiptMapper         = receiptMapper;
         this.eventPublisher        = eventPublisher;
+        this.writeTx               = new TransactionTemplate(transactionManager);
+        this.readOnlyTx            = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
     }
 
     @Override
@@ -131,30 +146,55 @@ public class ReceiptServiceImpl
         }
     }
 
+    /**
+     * Lectures et écritures en transactions courtes ; l'attente d'un rendu en file
+     * (jusqu'à {@code await-timeout-ms}) se fait hors transaction, sans connexion
+     * retenue : une rafale de réimpressions ne vide pas le pool.
+     */
     @Override
     public byte[] generateReceiptPdf(UUID receiptId) throws IOException {
-        Receipt receipt = loadDocument(receiptId);
+        String pdfFilename = readOnlyTx.execute(status -> loadDocument(receiptId).getPdfFilename());
 
         // Lire depuis le disque si déjà généré
-        if (receipt.getPdfFilename() != null && !receipt.getPdfFilename().isBlank()) {
+        if (pdfFilename != null && !pdfFilename.isBlank()) {
             try {
-                byte[] stored = fileStorageService.readFileAsBytes(
-                        receipt.getPdfFilename(), getStorageDirectory()
-                );
+                byte[] stored = fileStorageService.readFileAsBytes(pdfFilename, getStorageDirectory());
                 if (stored != null && stored.length > 0) {
-                    receipt.incrementPrintCount();
-                    receiptRepository.save(receipt);
-                    log.info("PDF ticket {} servi depuis disque (impression #{})",
-                            receipt.getReceiptNumber(), receipt.getPrintCount());
+                    recordPrint(receiptId, "servi depuis disque");
                     return stored;
                 }
             } catch (IOException e) {
-                log.warn("PDF introuvable sur disque pour {}, régénération...",
-                        receipt.getReceiptNumber());
+                log.warn("PDF introuvable sur disque pour {}, régénération...", pdfFilename);
             }
         }
 
+        // Rendu en file (ou en cours) : l'attendre plutôt que rendre deux fois
+        Optional<byte[]> rendered = renderQueue.await(receiptId);
+        if (rendered.isPresent()) {
+            recordPrint(receiptId, "servi après rendu asynchrone");  // chemin PDF posé par le worker
+            return rendered.get();
+        }
+
         // Régénérer si absent
+        try {
+            return writeTx.execute(status -> renderNow(receiptId));
+        } catch (UncheckedIOException e) {
+            throw new IOException("Erreur génération PDF: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void recordPrint(UUID receiptId, String origin) {
+        writeTx.executeWithoutResult(status -> {
+            Receipt receipt = loadDocument(receiptId);
+            receipt.incrementPrintCount();
+            receiptRepository.save(receipt);
+            log.info("PDF ticket {} {} (impression #{})",
+                    receipt.getReceiptNumber(), origin, receipt.getPrintCount());
+        });
+    }
+
+    private byte[] renderNow(UUID receiptId) {
+        Receipt receipt = loadDocument(receiptId);
         try {
             // Pas de strategy disponible ici — on passe null,
             // generatePdfDocument() gère ce cas via isShiftReceipt()
@@ -165,15 +205,15 @@ public class ReceiptServiceImpl
 
             receipt.setPdfFilename(filename);
             receipt.setPdfPath(getStorageDirectory() + "/" + filename);
+            receipt.setRenderStatus(RenderStatus.RENDERED);
             receipt.incrementPrintCount();
             receiptRepository.save(receipt);
 
             log.info("PDF ticket {} régénéré (impression #{})",
                     receipt.getReceiptNumber(), receipt.getPrintCount());
             return pdfBytes;
-
         } catch (IOException e) {
-            throw new IOException("Erreur génération PDF: " + e.getMessage(), e);
+            throw new UncheckedIOException(e);
         }
     }
 //
@@ -243,35 +283,47 @@ public class ReceiptServiceImpl
     }
 
     @Override
-    public List<ReceiptResponse> getReceiptsByDateRange(UUID storeId,
-                                                        LocalDate startDate,
-                                                        LocalDate endDate) {
+    @Transactional(readOnly = true)
+    public CursorPage<ReceiptResponse> getReceiptsByDateRange(UUID storeId,
+                                                              LocalDate startDate,
+                                                              LocalDate endDate,
+                                                              String cursor,
+                                                              Integer size) {
         if (startDate.isAfter(endDate)) {
             throw new BadRequestException("La date de début doit être avant la date de fin");
         }
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end   = endDate.atTime(23, 59, 59);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
 
-        return receiptRepository.findByStoreAndDateRange(storeId, start, end)
-                .stream()
-                .map(receiptMapper::toResponse)
-                .toList();
+        List<Receipt> rows = receiptRepository.findByStoreAndDateRangeAfter(
+                storeId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59),
+                after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize));
+        return receiptPage(rows, pageSize);
     }
 
     @Override
-    public List<ReceiptResponse> getReceiptsByCashier(UUID cashierId,
-                                                      LocalDate startDate,
-                                                      LocalDate endDate) {
+    @Transactional(readOnly = true)
+    public CursorPage<ReceiptResponse> getReceiptsByCashier(UUID cashierId,
+                                                            LocalDate startDate,
+                                                            LocalDate endDate,
+                                                            String cursor,
+                                                            Integer size) {
         if (startDate.isAfter(endDate)) {
             throw new BadRequestException("La date de début doit être avant la date de fin");
         }
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end   = endDate.atTime(23, 59, 59);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
 
-        return receiptRepository.findByCashierAndDateRange(cashierId, start, end)
-                .stream()
-                .map(receiptMapper::toResponse)
-                .toList();
+        List<Receipt> rows = receiptRepository.findByCashierAndDateRangeAfter(
+                cashierId, startDate.atStartOfDay(), endDate.atTime(23, 59, 59),
+                after.createdAt(), after.id(), KeysetCursor.fetchLimit(pageSize));
+        return receiptPage(rows, pageSize);
+    }
+
+    private CursorPage<ReceiptResponse> receiptPage(List<Receipt> rows, int pageSize) {
+        return CursorPage.of(rows, pageSize,
+                receipt -> new KeysetCursor(receipt.getCreatedAt(), receipt.getReceiptId()),
+                receiptMapper::toResponse);
     }
 
     // =========================================================================
@@ -313,7 +365,7 @@ public class ReceiptServiceImpl
                 shift.getClosingTime(), notes);
 
         Receipt saved = receiptRepository.save(receipt);
-        saveReceiptPdfQuietly(saved);  // ✅ une seule version
+        requestReceiptRender(saved);
 
         log.info("Ticket fermeture caisse généré: {}", receiptNumber);
         return receiptMapper.toResponse(saved);
@@ -338,7 +390,7 @@ public class ReceiptServiceImpl
                 shift.getClosingTime(), notes);
 
         Receipt saved = receiptRepository.save(receipt);
-        saveReceiptPdfQuietly(saved);  // ✅ une seule version
+        requestReceiptRender(saved);
 
         log.info("Ticket ouverture caisse généré: {}", receiptNumber);
         return receiptMapper.toResponse(saved);
@@ -379,7 +431,7 @@ public class ReceiptServiceImpl
                 .build();
 
         Receipt saved = receiptRepository.save(receipt);
-        saveReceiptPdfQuietly(saved);  // ✅ une seule version
+        requestReceiptRender(saved);
 
         log.info("Reçu paiement généré: {} - {} FCFA", receiptNumber, amount);
         return receiptMapper.toResponse(saved);
@@ -407,7 +459,7 @@ public class ReceiptServiceImpl
                 LocalDateTime.now(), notes);
 
         Receipt saved = receiptRepository.save(receipt);
-        saveReceiptPdfQuietly(saved);
+        requestReceiptRender(saved);
 
         log.info("Ticket entrée argent généré: {} - {} FCFA", receiptNumber, amount);
         return receiptMapper.toResponse(saved);
@@ -433,7 +485,7 @@ public class ReceiptServiceImpl
                 LocalDateTime.now(), notes);
 
         Receipt saved = receiptRepository.save(receipt);
-        saveReceiptPdfQuietly(saved);
+        requestReceiptRender(saved);
 
         log.info("Ticket sortie argent généré: {} - {} FCFA", receiptNumber, amount);
         return receiptMapper.toResponse(saved);
@@ -510,6 +562,11 @@ public class ReceiptServiceImpl
         receipt.setPdfPath(pdfPath);
     }
 
+    @Override
+    protected void updateRenderStatus(Receipt receipt, RenderStatus status) {
+        receipt.setRenderStatus(status);
+    }
+
     @Override
     protected Receipt afterDocumentGeneration(Receipt receipt,
                                               Order order,
@@ -583,6 +640,33 @@ public class ReceiptServiceImpl
         return document.getReceiptId();
     }
 
+    @Override
+    protected String getDocumentNumber(Receipt document) {
+        return document.getReceiptNumber();
+    }
+
+    @Override
+    protected List<Receipt> findStaleRenders(LocalDateTime requestedBefore, int limit) {
+        return receiptRepository.findStaleRenders(requestedBefore, limit);
+    }
+
+    @Override
+    protected int getRenderAttempts(Receipt document) {
+        return document.getRenderAttempts() != null ? document.getRenderAttempts() : 0;
+    }
+
+    @Override
+    protected void markRenderRequested(Receipt document) {
+        document.setRenderAttempts(getRenderAttempts(document) + 1);
+        document.setRenderRequestedAt(LocalDateTime.now());
+    }
+
+    @Override
+    protected DocumentRenderQueue.RenderPriority renderPriority() {
+        // Ticket remis au client en caisse : ne doit pas attendre derrière les factures
+        return DocumentRenderQueue.RenderPriority.HIGH;
+    }
+
     // =========================================================================
     // MÉTHODES UTILITAIRES PRIVÉES
     // =========================================================================
@@ -665,19 +749,10 @@ public class ReceiptServiceImpl
                 .build();
     }
 
-    private void saveReceiptPdfQuietly(Receipt receipt) {
-        try {
-            byte[] pdfBytes = generatePdfDocument(receipt, null);
-            String filename = receipt.getReceiptNumber() + ".pdf";
-            fileStorageService.storeFileFromBytes(pdfBytes, filename, receiptsDirectory);
-            receipt.setPdfFilename(filename);
-            receipt.setPdfPath(receiptsDirectory + "/" + filename);
-            receiptRepository.save(receipt);
-            log.debug("PDF sauvegardé pour ticket {}", receipt.getReceiptNumber());
-        } catch (Exception e) {
-            log.warn("Impossible de générer le PDF pour le ticket {}: {}",
-                    receipt.getReceiptNumber(), e.getMessage());
-        }
+    private void requestReceiptRender(Receipt receipt) {
+        receipt.setRenderStatus(RenderStatus.PENDING);
+        requestRender(receipt, null, receipt.getReceiptNumber());
+        log.debug("Rendu PDF en file pour ticket {}", receipt.getReceiptNumber());
     }
 
     // -------- Méthodes utilitaires --------
@@ -972,7 +1047,7 @@ public class ReceiptServiceImpl
                 .build();
 
         Receipt saved = receiptRepository.save(voidReceipt);
-        saveReceiptPdfQuietly(saved);
+        requestReceiptRender(saved);
 
         log.info("Ticket VOID généré: {} pour annulation de {}",
                 voidNumber, originalReceipt.getReceiptNumber());
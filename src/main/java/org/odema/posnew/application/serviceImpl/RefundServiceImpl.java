@@ -16,6 +16,7 @@ import org.odema.posnew.domain.repository.*;
 import org.odema.posnew.domain.service.DocumentNumberService;
 import org.odema.posnew.domain.service.FileStorageService;
 import org.odema.posnew.domain.service.RefundService;
+import org.odema.posnew.domain.service.StockMovementService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -48,6 +49,7 @@ public class RefundServiceImpl implements RefundService {
     private final RefundMapper refundMapper;
     private final DocumentBuilderFactory builderFactory;
     private final InventoryRepository inventoryRepository;
+    private final StockMovementService stockMovementService;
 
     @Value("${app.file.directories.refunds:refunds}")
     private String refundsDirectory;
@@ -270,7 +272,7 @@ public class RefundServiceImpl implements RefundService {
         // ✅ CORRECTION: Utilise la méthode correcte avec storeId
         for (RefundItem item : refund.getItems()) {
             if (item.getIsReturned()) {
-                returnProductToStock(item, refund.getStore().getStoreId());
+                returnProductToStock(item, refund);
             }
         }
 
@@ -384,24 +386,19 @@ public class RefundServiceImpl implements RefundService {
         };
     }
 
-    // ✅ CORRECTION: Cette méthode met à jour Inventory, pas Product
-    private void returnProductToStock(RefundItem item, UUID storeId) {
+    // Incrément atomique de la projection + mouvement REFUND au journal
+    private void returnProductToStock(RefundItem item, Refund refund) {
         if (item.getProduct() == null) return;
 
-        inventoryRepository
-                .findByProduct_ProductIdAndStore_StoreId(
-                        item.getProduct().getProductId(), storeId)
-                .ifPresentOrElse(
-                        inv -> {
-                            inv.increaseQuantity(item.getQuantity());
-                            inventoryRepository.save(inv);
-                            log.debug("Stock restauré: {} x{} pour {}",
-                                    item.getQuantity(),
-                                    item.getProduct().getName(),
-                                    storeId);
-                        },
-                        () -> log.warn("Inventaire non trouvé pour produit {} dans store {}",
-                                item.getProduct().getProductId(), storeId)
-                );
+        UUID storeId = refund.getStore().getStoreId();
+        UUID productId = item.getProduct().getProductId();
+        if (inventoryRepository.increment(storeId, productId, item.getQuantity()) > 0) {
+            stockMovementService.record(storeId, productId, StockMovementType.REFUND,
+                    item.getQuantity(), refund.getRefundId(), refund.getRefundNumber());
+            log.debug("Stock restauré: {} x{} pour {}",
+                    item.getQuantity(), item.getProduct().getName(), storeId);
+        } else {
+            log.warn("Inventaire non trouvé pour produit {} dans store {}", productId, storeId);
+        }
     }
-}
\ No newline at end of file
+}
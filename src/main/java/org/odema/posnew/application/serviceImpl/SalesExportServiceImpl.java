@@ -0,0 +1,262 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Receipt;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.ExportFormat;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.OrderRepository;
+import org.odema.posnew.domain.repository.ReceiptRepository;
+import org.odema.posnew.domain.repository.UserRepository;
+import org.odema.posnew.domain.service.SalesExportService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Export en flux : lecture par curseur JDBC ({@code Stream}), écriture directe dans
+ * la réponse, entités détachées ligne par ligne — le tas reste plat.
+ *
+ * Appelé depuis un {@code StreamingResponseBody} (thread asynchrone MVC) :
+ * la transaction en lecture seule est ouverte ici, pas par la requête HTTP.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesExportServiceImpl implements SalesExportService {
+
+    // Au-delà, on vide aussi le contexte (magasins, caissiers, clients joints)
+    private static final int CLEAR_EVERY = 500;
+
+    private static final List<String> ORDER_COLUMNS = List.of(
+            "orderNumber", "createdAt", "completedAt", "status", "paymentStatus", "orderType",
+            "storeName", "cashier", "customer", "totalAmount");
+
+    private static final List<String> RECEIPT_COLUMNS = List.of(
+            "receiptNumber", "receiptType", "status", "receiptDate", "storeName", "cashier",
+            "paymentMethod", "totalAmount", "amountPaid", "changeAmount");
+
+    private final OrderRepository orderRepository;
+    private final ReceiptRepository receiptRepository;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    @Transactional(readOnly = true)
+    public UUID resolveExportStore(UUID userId, UUID requestedStoreId) throws UnauthorizedException {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Utilisateur non trouvé"));
+        if (user.getUserRole() != UserRole.STORE_ADMIN) {
+            return requestedStoreId;
+        }
+
+        if (user.getAssignedStore() == null) {
+            throw new UnauthorizedException("Gérant sans magasin affecté : export impossible");
+        }
+        UUID assignedStoreId = user.getAssignedStore().getStoreId();
+        if (requestedStoreId != null && !requestedStoreId.equals(assignedStoreId)) {
+            throw new UnauthorizedException("Export limité au magasin du gérant");
+        }
+        return assignedStoreId;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportOrders(UUID storeId, LocalDateTime start, LocalDateTime end,
+                             ExportFormat format, OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        RowWriter writer = new RowWriter(format, ORDER_COLUMNS, out);
+        long rows = 0;
+
+        try (Stream<Order> orders = storeId != null
+                ? orderRepository.streamByStoreAndDateRange(storeId, start, end)
+                : orderRepository.streamByDateRange(start, end)) {
+            for (Order order : (Iterable<Order>) orders::iterator) {
+                writer.row(
+                        order.getOrderNumber(),
+                        order.getCreatedAt(),
+                        order.getCompletedAt(),
+                        order.getStatus(),
+                        order.getPaymentStatus(),
+                        order.getOrderType(),
+                        order.getStore().getName(),
+                        order.getCashier().getUsername(),
+                        order.getCustomer() != null ? order.getCustomer().getFullName() : null,
+                        order.getTotalAmount());
+                entityManager.detach(order);
+                if (++rows % CLEAR_EVERY == 0) entityManager.clear();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+
+        report("orders", rows, startedAt);
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportReceipts(UUID storeId, LocalDateTime start, LocalDateTime end,
+                               ExportFormat format, OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        RowWriter writer = new RowWriter(format, RECEIPT_COLUMNS, out);
+        long rows = 0;
+
+        try (Stream<Receipt> receipts = receiptRepository.streamByStoreAndDateRange(storeId, start, end)) {
+            for (Receipt receipt : (Iterable<Receipt>) receipts::iterator) {
+                writer.row(
+                        receipt.getReceiptNumber(),
+                        receipt.getReceiptType(),
+                        receipt.getStatus(),
+                        receipt.getReceiptDate(),
+                        receipt.getStore() != null ? receipt.getStore().getName() : null,
+                        receipt.getCashier() != null ? receipt.getCashier().getUsername() : null,
+                        receipt.getPaymentMethod(),
+                        receipt.getTotalAmount(),
+                        receipt.getAmountPaid(),
+                        receipt.getChangeAmount());
+                entityManager.detach(receipt);
+                if (++rows % CLEAR_EVERY == 0) entityManager.clear();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+
+        report("receipts", rows, startedAt);
+        return rows;
+    }
+
+    private void report(String type, long rows, long startedAt) {
+        long elapsedMs = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        meterRegistry.counter("pos.export.rows", "type", type).increment(rows);
+        log.info("Export {} terminé: {} lignes en {} ms ({} lignes/s)",
+                type, rows, elapsedMs, rows * 1000 / elapsedMs);
+    }
+
+    // =========================================================================
+    // ÉCRITURE NDJSON / CSV
+    // =========================================================================
+
+    /**
+     * Écrit une ligne par appel dans un tampon de taille fixe ; rien n'est accumulé.
+     */
+    private static final class RowWriter {
+
+        private final ExportFormat format;
+        private final List<String> columns;
+        private final Writer out;
+
+        RowWriter(ExportFormat format, List<String> columns, OutputStream out) throws IOException {
+            this.format = format;
+            this.columns = columns;
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            if (format == ExportFormat.CSV) {
+                this.out.write(String.join(",", columns));
+                this.out.write('\n');
+            }
+        }
+
+        void row(Object... values) {
+            try {
+                if (format == ExportFormat.CSV) {
+                    writeCsv(values);
+                } else {
+                    writeJson(values);
+                }
+                out.write('\n');
+            } catch (IOException e) {
+                // Client déconnecté : on remonte pour fermer le curseur
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            out.flush();
+        }
+
+        private void writeCsv(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                String text = text(values[i]);
+                if (text == null) continue;
+                if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                        || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                    out.write('"');
+                    out.write(text.replace("\"", "\"\""));
+                    out.write('"');
+                } else {
+                    out.write(text);
+                }
+            }
+        }
+
+        private void writeJson(Object[] values) throws IOException {
+            out.write('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                out.write('"');
+                out.write(columns.get(i));
+                out.write("\":");
+                Object value = values[i];
+                if (value == null) {
+                    out.write("null");
+                } else if (value instanceof BigDecimal || value instanceof Number) {
+                    out.write(text(value));
+                } else {
+                    writeJsonString(text(value));
+                }
+            }
+            out.write('}');
+        }
+
+        private void writeJsonString(String text) throws IOException {
+            out.write('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"'  -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                    }
+                }
+            }
+            out.write('"');
+        }
+
+        private static String text(Object value) {
+            if (value == null) return null;
+            if (value instanceof BigDecimal decimal) return decimal.toPlainString();
+            if (value instanceof Enum<?> e) return e.name();
+            return value.toString();
+        }
+    }
+}
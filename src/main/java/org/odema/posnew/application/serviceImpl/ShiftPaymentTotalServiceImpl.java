@@ -0,0 +1,77 @@
+package org.odema.posnew.application.serviceImpl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.config.AuxiliaryConnectionPool;
+import org.odema.posnew.domain.model.enums.PaymentMethod;
+import org.odema.posnew.domain.repository.ShiftPaymentTotalRepository;
+import org.odema.posnew.domain.service.ShiftPaymentTotalService;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Agrégats par incréments, amorcés depuis les paiements.
+ * <p>
+ * À la première écriture d'un shift sans ligne (shift ouvert avant la mise en place des
+ * agrégats, ou premier paiement), les lignes de toutes ses méthodes sont calculées depuis
+ * les paiements validés, dans une transaction séparée sur le pool auxiliaire (pas de
+ * seconde connexion principale pendant l'encaissement) : elle ne voit ni les paiements
+ * de la transaction courante ni ceux des autres encaissements en cours, qui ajoutent
+ * tous leur incrément ensuite. Une ligne présente est donc complète et la lecture n'a de repli
+ * que pour un shift sans aucune ligne.
+ */
+@Slf4j
+@Service
+public class ShiftPaymentTotalServiceImpl implements ShiftPaymentTotalService {
+
+    /**
+     * Lignes initiales d'un shift, une par méthode (mêmes règles que le calcul de repli :
+     * payés, plus les crédits de la méthode CREDIT ; annulés et remboursés en remboursements).
+     */
+    private static final String SEED_SHIFT = "INSERT INTO shift_payment_totals " +
+            "(shift_report_id, method, payment_count, amount, refund_count, refund_amount, updated_at) " +
+            "SELECT ?, p.method, " +
+            "COUNT(*) FILTER (WHERE p.status = 'PAID' OR (p.status = 'CREDIT' AND p.method = 'CREDIT')), " +
+            "COALESCE(SUM(p.amount) FILTER (WHERE p.status = 'PAID' OR (p.status = 'CREDIT' AND p.method = 'CREDIT')), 0), " +
+            "COUNT(*) FILTER (WHERE p.status IN ('CANCELLED', 'REFUNDED')), " +
+            "COALESCE(SUM(p.amount) FILTER (WHERE p.status IN ('CANCELLED', 'REFUNDED')), 0), " +
+            "now() " +
+            "FROM payments p WHERE p.shift_report_id = ? GROUP BY p.method " +
+            "ON CONFLICT (shift_report_id, method) DO NOTHING";
+
+    private final ShiftPaymentTotalRepository repository;
+    private final AuxiliaryConnectionPool auxiliaryPool;
+
+    public ShiftPaymentTotalServiceImpl(ShiftPaymentTotalRepository repository,
+                                        AuxiliaryConnectionPool auxiliaryPool) {
+        this.repository = repository;
+        this.auxiliaryPool = auxiliaryPool;
+    }
+
+    @Override
+    public void recordPayment(UUID shiftId, PaymentMethod method, BigDecimal amount) {
+        ensureSeeded(shiftId);
+        repository.recordPayment(shiftId, method.name(), amount);
+    }
+
+    @Override
+    public void recordPayments(UUID shiftId, PaymentMethod method, int count, BigDecimal amount) {
+        ensureSeeded(shiftId);
+        repository.recordPayments(shiftId, method.name(), count, amount);
+    }
+
+    @Override
+    public void recordCancellation(UUID shiftId, PaymentMethod method, BigDecimal amount) {
+        ensureSeeded(shiftId);
+        repository.recordCancellation(shiftId, method.name(), amount);
+    }
+
+    private void ensureSeeded(UUID shiftId) {
+        if (repository.existsForShift(shiftId)) return;
+        Integer seeded = auxiliaryPool.inTransaction(jdbc -> jdbc.update(SEED_SHIFT, shiftId, shiftId));
+        if (seeded != null && seeded > 0) {
+            log.info("Agrégats du shift {} amorcés depuis les paiements : {} méthode(s)", shiftId, seeded);
+        }
+    }
+}
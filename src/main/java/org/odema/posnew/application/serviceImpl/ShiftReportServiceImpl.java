@@ -1,6 +1,7 @@
 package org.odema.posnew.application.serviceImpl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.odema.posnew.application.dto.request.ShiftReportRequest;
 import org.odema.posnew.application.dto.response.ShiftReportDetailResponse;
 import org.odema.posnew.application.dto.response.ShiftReportResponse;
@@ -22,11 +23,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShiftReportServiceImpl implements ShiftReportService {
@@ -37,6 +41,7 @@ public class ShiftReportServiceImpl implements ShiftReportService {
     private final CashRegisterRepository cashRegisterRepository; // AJOUTÉ
     private final ShiftReportMapper shiftReportMapper;
     private final PaymentRepository paymentRepository;
+    private final ShiftPaymentTotalRepository shiftPaymentTotalRepository;
 
     @Override
     @Transactional
@@ -266,32 +271,23 @@ public class ShiftReportServiceImpl implements ShiftReportService {
         ShiftReport shift = shiftReportRepository.findById(shiftReportId)
                 .orElseThrow(() -> new NotFoundException("Shift non trouvé"));
 
-        List<Payment> payments = paymentRepository.findByShiftReport_ShiftReportId(shiftReportId);
+        Map<PaymentMethod, ShiftPaymentTotal> totals = loadPaymentTotals(shiftReportId);
 
         Map<PaymentMethod, BigDecimal> paymentsByMethod = new HashMap<>();
-        BigDecimal totalCash = BigDecimal.ZERO;
-        BigDecimal totalMobile = BigDecimal.ZERO;
-        BigDecimal totalCard = BigDecimal.ZERO;
-        BigDecimal totalCredit = BigDecimal.ZERO;
-        BigDecimal totalSales = BigDecimal.ZERO;
-
-        for (Payment payment : payments) {
-            if (payment.getStatus() == PaymentStatus.PAID) {
-                switch (payment.getMethod()) {
-                    case CASH -> totalCash = totalCash.add(payment.getAmount());
-                    case MOBILE_MONEY -> totalMobile = totalMobile.add(payment.getAmount());
-                    case CREDIT_CARD -> totalCard = totalCard.add(payment.getAmount());
-                    default -> paymentsByMethod.merge(payment.getMethod(), payment.getAmount(), BigDecimal::add);
-                }
-                totalSales = totalSales.add(payment.getAmount());
-            } else if (payment.getStatus() == PaymentStatus.CREDIT) {
-                totalCredit = totalCredit.add(payment.getAmount());
+        totals.forEach((method, total) -> {
+            if (method != PaymentMethod.CASH && method != PaymentMethod.MOBILE_MONEY
+                    && method != PaymentMethod.CREDIT_CARD && method != PaymentMethod.CREDIT
+                    && total.getPaymentCount() > 0) {
+                paymentsByMethod.put(method, total.getAmount());
             }
-        }
+        });
 
-        long transactionCount = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.PAID)
-                .count();
+        BigDecimal totalCash = amountOf(totals, PaymentMethod.CASH);
+        BigDecimal totalMobile = amountOf(totals, PaymentMethod.MOBILE_MONEY);
+        BigDecimal totalCard = amountOf(totals, PaymentMethod.CREDIT_CARD);
+        BigDecimal totalCredit = amountOf(totals, PaymentMethod.CREDIT);
+        BigDecimal totalSales = totalSalesOf(totals);
+        int transactionCount = transactionCountOf(totals);
 
         return ShiftReportDetailResponse.builder()
                 .shiftReportId(shift.getShiftReportId())
@@ -311,7 +307,7 @@ public class ShiftReportServiceImpl implements ShiftReportService {
                 .expectedBalance(shift.getExpectedBalance())
                 .actualBalance(shift.getActualBalance())
                 .discrepancy(shift.getDiscrepancy())
-                .totalTransactions((int) transactionCount)
+                .totalTransactions(transactionCount)
                 .totalSales(totalSales)
                 .totalRefunds(shift.getTotalRefunds())
                 .netSales(shift.getNetSales())
@@ -329,38 +325,137 @@ public class ShiftReportServiceImpl implements ShiftReportService {
 
     @Override
     public BigDecimal getCashTotal(UUID shiftId) {
-        return paymentRepository.sumByMethodAndShift(PaymentMethod.CASH, shiftId);
+        return amountOf(loadPaymentTotals(shiftId), PaymentMethod.CASH);
     }
 
     @Override
     public BigDecimal getMobileTotal(UUID shiftId) {
-        return paymentRepository.sumByMethodAndShift(PaymentMethod.MOBILE_MONEY, shiftId);
+        return amountOf(loadPaymentTotals(shiftId), PaymentMethod.MOBILE_MONEY);
     }
 
     @Override
     public BigDecimal getCardTotal(UUID shiftId) {
-        return paymentRepository.sumByMethodAndShift(PaymentMethod.CREDIT_CARD, shiftId);
+        return amountOf(loadPaymentTotals(shiftId), PaymentMethod.CREDIT_CARD);
     }
 
     @Override
     public BigDecimal getCreditTotal(UUID shiftId) {
-        return paymentRepository.sumByMethodAndShift(PaymentMethod.CREDIT, shiftId);
+        return amountOf(loadPaymentTotals(shiftId), PaymentMethod.CREDIT);
+    }
+
+    // =========================================================================
+    // AGRÉGATS PAR MÉTHODE DE PAIEMENT
+    // =========================================================================
+
+    /**
+     * Agrégats courants du shift (une ligne par méthode).
+     * La première écriture amorce toutes les méthodes du shift depuis les paiements :
+     * une méthode sans ligne n'a aucun paiement. Repli sur un GROUP BY des paiements
+     * pour les shifts sans aucune ligne.
+     */
+    private Map<PaymentMethod, ShiftPaymentTotal> loadPaymentTotals(UUID shiftId) {
+        List<ShiftPaymentTotal> rows = shiftPaymentTotalRepository.findByShiftReportId(shiftId);
+        if (rows.isEmpty()) {
+            return summarizePayments(shiftId);
+        }
+        Map<PaymentMethod, ShiftPaymentTotal> totals = new EnumMap<>(PaymentMethod.class);
+        rows.forEach(row -> totals.put(row.getMethod(), row));
+        return totals;
+    }
+
+    /**
+     * Recalcule les agrégats depuis les paiements en une requête GROUP BY :
+     * payés, plus les crédits de la méthode CREDIT ; annulés et remboursés
+     * en remboursements (mêmes règles que l'amorçage des agrégats).
+     */
+    private Map<PaymentMethod, ShiftPaymentTotal> summarizePayments(UUID shiftId) {
+        Map<PaymentMethod, ShiftPaymentTotal> totals = new EnumMap<>(PaymentMethod.class);
+        for (PaymentRepository.MethodStatusTotal row : paymentRepository.summarizeByShift(shiftId)) {
+            ShiftPaymentTotal total = totals.computeIfAbsent(row.getMethod(), method ->
+                    ShiftPaymentTotal.builder()
+                            .id(new ShiftPaymentTotal.Key(shiftId, method))
+                            .build());
+            int count = Math.toIntExact(row.getPaymentCount());
+            if (row.getStatus() == PaymentStatus.CANCELLED || row.getStatus() == PaymentStatus.REFUNDED) {
+                total.setRefundCount(total.getRefundCount() + count);
+                total.setRefundAmount(total.getRefundAmount().add(row.getAmount()));
+            } else if (row.getStatus() == PaymentStatus.PAID
+                    || (row.getStatus() == PaymentStatus.CREDIT && row.getMethod() == PaymentMethod.CREDIT)) {
+                total.setPaymentCount(total.getPaymentCount() + count);
+                total.setAmount(total.getAmount().add(row.getAmount()));
+            }
+            // En attente ou échoués : rien d'encaissé
+        }
+        return totals;
+    }
+
+    /**
+     * Compare les agrégats courants au GROUP BY des paiements ;
+     * en cas d'écart, les paiements font foi et les lignes sont corrigées.
+     */
+    private Map<PaymentMethod, ShiftPaymentTotal> reconcilePaymentTotals(UUID shiftId) {
+        Map<PaymentMethod, ShiftPaymentTotal> running = new EnumMap<>(PaymentMethod.class);
+        shiftPaymentTotalRepository.findByShiftReportIdForUpdate(shiftId)
+                .forEach(row -> running.put(row.getMethod(), row));
+        Map<PaymentMethod, ShiftPaymentTotal> actual = summarizePayments(shiftId);
+
+        List<ShiftPaymentTotal> repaired = new ArrayList<>();
+        for (PaymentMethod method : PaymentMethod.values()) {
+            ShiftPaymentTotal row = running.get(method);
+            ShiftPaymentTotal expected = actual.get(method);
+            if (row == null && expected == null) continue;
+            if (row == null) {
+                if (!running.isEmpty()) {
+                    log.warn("Agrégat shift {} manquant pour {}: {} (paiements)",
+                            shiftId, method, expected.getAmount());
+                }
+                repaired.add(expected);
+                continue;
+            }
+            if (expected == null) {
+                expected = ShiftPaymentTotal.builder().id(row.getId()).build();
+            }
+            if (!sameTotals(row, expected)) {
+                log.warn("Écart agrégat shift {} pour {}: {} (agrégat) vs {} (paiements)",
+                        shiftId, method, row.getAmount(), expected.getAmount());
+                row.setPaymentCount(expected.getPaymentCount());
+                row.setAmount(expected.getAmount());
+                row.setRefundCount(expected.getRefundCount());
+                row.setRefundAmount(expected.getRefundAmount());
+                repaired.add(row);
+            }
+        }
+        if (!repaired.isEmpty()) {
+            shiftPaymentTotalRepository.saveAll(repaired);
+        }
+        return actual;
+    }
+
+    private static boolean sameTotals(ShiftPaymentTotal a, ShiftPaymentTotal b) {
+        return a.getPaymentCount().equals(b.getPaymentCount())
+                && a.getAmount().compareTo(b.getAmount()) == 0
+                && a.getRefundCount().equals(b.getRefundCount())
+                && a.getRefundAmount().compareTo(b.getRefundAmount()) == 0;
+    }
+
+    private BigDecimal amountOf(Map<PaymentMethod, ShiftPaymentTotal> totals, PaymentMethod method) {
+        ShiftPaymentTotal total = totals.get(method);
+        return total != null ? total.getAmount() : BigDecimal.ZERO;
     }
 
-    private BigDecimal calculateTotalSalesFromPayments(UUID shiftId) {
-        BigDecimal total = BigDecimal.ZERO;
-        total = total.add(paymentRepository.sumByMethodAndShift(PaymentMethod.CASH, shiftId));
-        total = total.add(paymentRepository.sumByMethodAndShift(PaymentMethod.MOBILE_MONEY, shiftId));
-        total = total.add(paymentRepository.sumByMethodAndShift(PaymentMethod.CREDIT_CARD, shiftId));
-        total = total.add(paymentRepository.sumByMethodAndShift(PaymentMethod.BANK_TRANSFER, shiftId));
-        total = total.add(paymentRepository.sumByMethodAndShift(PaymentMethod.CHECK, shiftId));
-        total = total.add(paymentRepository.sumByMethodAndShift(PaymentMethod.LOYALTY_POINTS, shiftId));
-        return total;
+    /** Ventes encaissées : toutes méthodes sauf crédit client */
+    private BigDecimal totalSalesOf(Map<PaymentMethod, ShiftPaymentTotal> totals) {
+        return totals.values().stream()
+                .filter(t -> t.getMethod().isImmediatePayment())
+                .map(ShiftPaymentTotal::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
-    private Integer countTransactions(UUID shiftId) {
-        return Math.toIntExact(paymentRepository.countByShiftReport_ShiftReportIdAndStatus(
-                shiftId, PaymentStatus.PAID));
+    private int transactionCountOf(Map<PaymentMethod, ShiftPaymentTotal> totals) {
+        return totals.values().stream()
+                .filter(t -> t.getMethod().isImmediatePayment())
+                .mapToInt(ShiftPaymentTotal::getPaymentCount)
+                .sum();
     }
 
     private String generateShiftNumber() {
@@ -390,12 +485,13 @@ public class ShiftReportServiceImpl implements ShiftReportService {
             throw new BadRequestException("Le shift est déjà fermé");
         }
 
-        // ✅ Recalculer totalSales depuis les paiements AVANT la clôture
-        BigDecimal totalSales = calculateTotalSalesFromPayments(shiftReportId);
+        // ✅ Recalculer totalSales depuis les agrégats (réconciliés) AVANT la clôture
+        Map<PaymentMethod, ShiftPaymentTotal> totals = reconcilePaymentTotals(shiftReportId);
+        BigDecimal totalSales = totalSalesOf(totals);
         shift.setTotalSales(totalSales);
         shift.setNetSales(totalSales.subtract(
                 shift.getTotalRefunds() != null ? shift.getTotalRefunds() : BigDecimal.ZERO));
-        shift.setTotalTransactions(countTransactions(shiftReportId));
+        shift.setTotalTransactions(transactionCountOf(totals));
 
         if (notes != null) {
             shift.addNote(notes);
@@ -0,0 +1,208 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.application.dto.response.StockLevelResponse;
+import org.odema.posnew.application.dto.response.StockMovementResponse;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.StockMovement;
+import org.odema.posnew.domain.model.StockSnapshot;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+import org.odema.posnew.domain.repository.StockMovementRepository;
+import org.odema.posnew.domain.repository.StockSnapshotRepository;
+import org.odema.posnew.domain.service.LowStockService;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockValuationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Journal de mouvements tamponné par transaction.
+ * <p>
+ * Les mouvements d'une transaction (une vente de 30 lignes, un transfert…) partent en
+ * un seul {@code saveAll} au commit, en batch JDBC ; un rollback n'écrit rien.
+ * Ils sont horodatés au commit : les snapshots, calculés en SQL ensembliste à une coupure
+ * décalée de {@code settle}, ne manquent pas le mouvement d'une transaction longue.
+ * <p>
+ * Le journal est un historique en insertion seule (audit, stock à une date), pas le
+ * chemin d'écriture du stock : {@code inventories.quantity} reste mis à jour en place,
+ * verrou de ligne tenu jusqu'au commit ; le journal n'enlève pas cette contention.
+ * <p>
+ * Le tampon d'une transaction sert aussi à la détection des franchissements de seuil :
+ * toute écriture de stock passe par le journal, la détection n'a qu'un point d'entrée.
+ */
+@Slf4j
+@Service
+public class StockMovementServiceImpl implements StockMovementService {
+
+    private final StockMovementRepository movementRepository;
+    private final StockSnapshotRepository snapshotRepository;
+    private final LowStockService lowStockService;
+    private final StockValuationService stockValuationService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate snapshotTx;
+    private final Duration settle;
+
+    public StockMovementServiceImpl(StockMovementRepository movementRepository,
+                                    StockSnapshotRepository snapshotRepository,
+                                    LowStockService lowStockService,
+                                    StockValuationService stockValuationService,
+                                    MeterRegistry meterRegistry,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.stock.journal.snapshot-settle-minutes:5}") long settleMinutes) {
+        this.movementRepository = movementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.lowStockService = lowStockService;
+        this.stockValuationService = stockValuationService;
+        this.meterRegistry = meterRegistry;
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.settle = Duration.ofMinutes(settleMinutes);
+    }
+
+    @Override
+    public void record(UUID storeId, UUID productId, StockMovementType type, int quantity,
+                       UUID referenceId, String note) {
+        if (quantity == 0) return;
+
+        // Horodatage au commit (beforeCommit), pas ici : voir TxMovements
+        txMovements().pending.add(StockMovement.builder()
+                .storeId(storeId)
+                .productId(productId)
+                .type(type)
+                .quantity(quantity)
+                .referenceId(referenceId)
+                .note(note != null && note.length() > 255 ? note.substring(0, 255) : note));
+        stockValuationService.track(storeId, productId, quantity);
+    }
+
+    @Override
+    public void recordOrder(Order order, StockMovementType type) {
+        int sign = type == StockMovementType.SALE ? -1 : 1;
+        UUID storeId = order.getStore().getStoreId();
+        for (Map.Entry<UUID, Integer> line : order.baseQuantitiesByProduct().entrySet()) {
+            record(storeId, line.getKey(), type, sign * line.getValue(),
+                    order.getOrderId(), order.getOrderNumber());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<StockMovementResponse> getMovements(UUID storeId, UUID productId, Pageable pageable) {
+        return movementRepository.findHistory(storeId, productId, pageable)
+                .map(m -> new StockMovementResponse(
+                        m.getMovementId(), m.getStoreId(), m.getProductId(), m.getType(),
+                        m.getQuantity(), m.getReferenceId(), m.getNote(), m.getOccurredAt()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockLevelResponse getStockAt(UUID storeId, UUID productId, LocalDateTime at) {
+        StockSnapshot snapshot = snapshotRepository.findLatestAtOrBefore(storeId, productId, at)
+                .orElseThrow(() -> new BadRequestException(
+                        "Aucun historique de stock pour ce produit avant le " + at));
+
+        LocalDateTime snapshotAt = snapshot.getId().getTakenAt();
+        int delta = (int) movementRepository.sumBetween(storeId, productId, snapshotAt, at);
+        return new StockLevelResponse(storeId, productId, at,
+                snapshot.getQuantity() + delta, snapshotAt, delta);
+    }
+
+    @Override
+    @Scheduled(cron = "${app.stock.journal.snapshot-cron:0 5 * * * *}")
+    public int takeSnapshots() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(settle);
+
+        Integer written = snapshotTx.execute(status -> {
+            int count = 0;
+            LocalDateTime since = snapshotRepository.findLastCutoff().orElse(null);
+            if (since != null) {
+                if (!cutoff.isAfter(since)) return 0;
+                count += snapshotRepository.rollForward(since, cutoff);
+            }
+            // Inventaires créés depuis (ou premier passage) : snapshot d'ouverture
+            count += snapshotRepository.seedOpening(cutoff);
+            return count;
+        });
+
+        int total = written != null ? written : 0;
+        meterRegistry.counter("pos.stock.snapshots").increment(total);
+        log.info("Snapshots de stock à {}: {} écrits", cutoff, total);
+        return total;
+    }
+
+    // =========================================================================
+    // INTERNES
+    // =========================================================================
+
+    private TxMovements txMovements() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Mouvement de stock hors transaction");
+        }
+        TxMovements tx = (TxMovements) TransactionSynchronizationManager.getResource(this);
+        if (tx == null) {
+            tx = new TxMovements();
+            TransactionSynchronizationManager.bindResource(this, tx);
+            TransactionSynchronizationManager.registerSynchronization(tx);
+        }
+        return tx;
+    }
+
+    /**
+     * Mouvements enregistrés par la transaction courante.
+     */
+    private final class TxMovements implements TransactionSynchronization {
+
+        private final List<StockMovement.StockMovementBuilder> pending = new ArrayList<>();
+
+        /**
+         * Horodaté à l'insertion, juste avant le commit : une transaction longue ne
+         * produit pas de mouvement antérieur à une coupure de snapshot déjà passée
+         * (seul l'écart beforeCommit → commit, bien inférieur à {@code settle}, subsiste).
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (pending.isEmpty()) return;
+            LocalDateTime occurredAt = LocalDateTime.now();
+            List<StockMovement> movements = pending.stream()
+                    .map(builder -> builder.occurredAt(occurredAt).build())
+                    .toList();
+            movementRepository.saveAll(movements);
+            for (StockMovement movement : movements) {
+                meterRegistry.counter("pos.stock.movements", "type", movement.getType().name()).increment();
+            }
+            lowStockService.detectCrossings(movements);
+        }
+
+        // Transaction imbriquée (REQUIRES_NEW) : elle tient son propre tampon
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(StockMovementServiceImpl.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(StockMovementServiceImpl.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StockMovementServiceImpl.this);
+        }
+    }
+}
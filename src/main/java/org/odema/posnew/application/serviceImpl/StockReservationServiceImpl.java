@@ -0,0 +1,259 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.application.cache.ReservedStockCounters;
+import org.odema.posnew.design.context.BasketContext;
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.OrderItem;
+import org.odema.posnew.domain.model.StockReservation;
+import org.odema.posnew.domain.model.enums.ReservationStatus;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+import org.odema.posnew.domain.repository.InventoryRepository;
+import org.odema.posnew.domain.repository.StockReservationRepository;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Journal de réservations + compteurs en mémoire.
+ * <p>
+ * Les réservations créées dans une transaction ne sont insérées qu'au commit, et
+ * seulement si elles sont encore actives : une vente payée dans la même transaction
+ * que sa création (encaissement direct) ne coûte aucune écriture de réservation,
+ * uniquement le décrément du stock comme avant.
+ */
+@Slf4j
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final StockReservationRepository reservationRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ReservedStockCounters counters;
+    private final StockMovementService stockMovementService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate sweepTx;
+    private final Duration ttl;
+    private final int sweepBatchSize;
+
+    public StockReservationServiceImpl(StockReservationRepository reservationRepository,
+                                       InventoryRepository inventoryRepository,
+                                       ReservedStockCounters counters,
+                                       StockMovementService stockMovementService,
+                                       MeterRegistry meterRegistry,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.stock.reservation.ttl-minutes:30}") long ttlMinutes,
+                                       @Value("${app.stock.reservation.sweep-batch-size:500}") int sweepBatchSize) {
+        this.reservationRepository = reservationRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.counters = counters;
+        this.stockMovementService = stockMovementService;
+        this.meterRegistry = meterRegistry;
+        this.sweepTx = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    @Override
+    public void reserve(Order order, BasketContext basket) {
+        UUID storeId = order.getStore().getStoreId();
+        TxReservations tx = txReservations();
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+
+        for (Map.Entry<UUID, Integer> line : order.baseQuantitiesByProduct().entrySet()) {
+            Inventory inventory = basket.inventory(line.getKey());
+            int onHand = inventory != null && inventory.getQuantity() != null ? inventory.getQuantity() : 0;
+
+            long granted = counters.tryReserve(storeId, line.getKey(), onHand, line.getValue());
+            if (granted < 0) {
+                throw new BadRequestException(String.format(
+                        "Stock insuffisant pour %s. Disponible: %d, Demandé: %d",
+                        productName(order, line.getKey()), -granted - 1, line.getValue()));
+            }
+            // Enregistrée aussitôt : un rollback rend la quantité au compteur
+            tx.created.add(StockReservation.builder()
+                    .orderId(order.getOrderId())
+                    .storeId(storeId)
+                    .productId(line.getKey())
+                    .quantity(line.getValue())
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+        order.setStockReserved(true);
+    }
+
+    @Override
+    public void convert(Order order) {
+        if (!order.hasReservedStock()) return;
+
+        resolve(order, ReservationStatus.CONSUMED);
+
+        // Déduction du stock physique : décrément conditionnel, arbitre final
+        // (couvre aussi une réservation expirée entre-temps)
+        UUID storeId = order.getStore().getStoreId();
+        for (Map.Entry<UUID, Integer> line : order.baseQuantitiesByProduct().entrySet()) {
+            if (inventoryRepository.decrementIfAvailable(storeId, line.getKey(), line.getValue()) == 0) {
+                throw new BadRequestException(String.format(
+                        "Stock insuffisant pour %s. Demandé: %d",
+                        productName(order, line.getKey()), line.getValue()));
+            }
+        }
+        stockMovementService.recordOrder(order, StockMovementType.SALE);
+        order.setStockReserved(false);
+    }
+
+    @Override
+    public boolean release(Order order) {
+        if (!order.hasReservedStock()) return false;
+
+        resolve(order, ReservationStatus.RELEASED);
+        order.setStockReserved(false);
+        return true;
+    }
+
+    @Override
+    public int availableToSell(UUID storeId, UUID productId, int onHand) {
+        return counters.availableToSell(storeId, productId, onHand);
+    }
+
+    @Override
+    public long holdUntilCompletion(UUID storeId, UUID productId, int onHand, int quantity) {
+        TxReservations tx = txReservations();
+        long granted = counters.tryReserve(storeId, productId, onHand, quantity);
+        if (granted >= 0) {
+            tx.held.add(StockReservation.builder()
+                    .storeId(storeId)
+                    .productId(productId)
+                    .quantity(quantity)
+                    .build());
+        }
+        return granted;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.stock.reservation.sweep-interval-ms:60000}")
+    public int expireStale() {
+        int total = 0;
+        int claimed;
+        do {
+            List<StockReservation> expired = sweepTx.execute(status -> {
+                List<StockReservation> batch = reservationRepository.claimExpired(sweepBatchSize);
+                batch.forEach(r -> r.resolve(ReservationStatus.EXPIRED));
+                return batch;
+            });
+            claimed = expired != null ? expired.size() : 0;
+            if (claimed > 0) {
+                // Commit effectué : le stock redevient disponible à la vente
+                expired.forEach(r -> counters.release(r.getStoreId(), r.getProductId(), r.getQuantity()));
+                total += claimed;
+            }
+        } while (claimed == sweepBatchSize);
+
+        if (total > 0) {
+            meterRegistry.counter("pos.stock.reservations", "outcome", "expired").increment(total);
+            log.info("{} réservation(s) de stock expirée(s) libérée(s)", total);
+        }
+        return total;
+    }
+
+    // =========================================================================
+    // INTERNES
+    // =========================================================================
+
+    /**
+     * Passe les réservations actives de la commande au statut final. Celles créées dans
+     * la transaction courante ne sont jamais insérées ; les autres sont relues verrouillées.
+     */
+    private void resolve(Order order, ReservationStatus outcome) {
+        TxReservations tx = txReservations();
+        List<StockReservation> live = new ArrayList<>();
+        boolean createdInTx = false;
+        for (StockReservation reservation : tx.created) {
+            if (reservation.getOrderId().equals(order.getOrderId())) {
+                createdInTx = true;
+                if (reservation.isActive()) live.add(reservation);
+            }
+        }
+        if (!createdInTx) {
+            live.addAll(reservationRepository.findActiveByOrderForUpdate(order.getOrderId()));
+        }
+
+        for (StockReservation reservation : live) {
+            reservation.resolve(outcome);
+            tx.resolved.add(reservation);
+        }
+        meterRegistry.counter("pos.stock.reservations", "outcome", outcome.name().toLowerCase())
+                .increment(live.size());
+    }
+
+    private TxReservations txReservations() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Réservation de stock hors transaction");
+        }
+        TxReservations tx = (TxReservations) TransactionSynchronizationManager.getResource(this);
+        if (tx == null) {
+            tx = new TxReservations();
+            TransactionSynchronizationManager.bindResource(this, tx);
+            TransactionSynchronizationManager.registerSynchronization(tx);
+        }
+        return tx;
+    }
+
+    private static String productName(Order order, UUID productId) {
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct().getProductId().equals(productId)) {
+                return item.getProduct().getName();
+            }
+        }
+        return productId.toString();
+    }
+
+    /**
+     * Réservations touchées par la transaction courante.
+     */
+    private final class TxReservations implements TransactionSynchronization {
+
+        private final List<StockReservation> created = new ArrayList<>();
+        private final List<StockReservation> resolved = new ArrayList<>();
+        // Retenues hors commande (transferts) : jamais insérées, toujours rendues
+        private final List<StockReservation> held = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            List<StockReservation> live = created.stream().filter(StockReservation::isActive).toList();
+            if (!live.isEmpty()) {
+                reservationRepository.saveAll(live);
+                meterRegistry.counter("pos.stock.reservations", "outcome", "reserved").increment(live.size());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StockReservationServiceImpl.this);
+            // Validée : seules les réservations résolues quittent les compteurs.
+            // Annulée : tout ce qui a été réservé dans la transaction est rendu.
+            List<StockReservation> released = status == STATUS_COMMITTED ? resolved : created;
+            for (StockReservation r : released) {
+                counters.release(r.getStoreId(), r.getProductId(), r.getQuantity());
+            }
+            for (StockReservation r : held) {
+                counters.release(r.getStoreId(), r.getProductId(), r.getQuantity());
+            }
+        }
+    }
+}
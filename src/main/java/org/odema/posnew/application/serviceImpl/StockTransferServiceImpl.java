@@ -0,0 +1,271 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.BusinessException;
+import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.application.dto.request.StockTransferRequest;
+import org.odema.posnew.application.dto.response.StockTransferResponse;
+import org.odema.posnew.config.StatementCountInspector;
+import org.odema.posnew.design.event.StockTransferDocumentEvent;
+import org.odema.posnew.design.factory.DocumentBuilderFactory;
+import org.odema.posnew.design.template.DocumentRenderQueue;
+import org.odema.posnew.domain.model.*;
+import org.odema.posnew.domain.model.enums.InvoiceType;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+import org.odema.posnew.domain.repository.*;
+import org.odema.posnew.domain.service.DocumentNumberService;
+import org.odema.posnew.domain.service.FileStorageService;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.odema.posnew.domain.service.StockTransferService;
+import org.odema.posnew.domain.service.StockValuationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transfert multi-lignes.
+ * <p>
+ * Toutes les lignes d'inventaire concernées (source et destination) sont verrouillées
+ * en une instruction, dans l'ordre (produit, magasin) : deux transferts croisés A→B et
+ * B→A, ou un transfert et une vente, prennent leurs verrous dans le même ordre.
+ * Les quantités sont modifiées sur les entités verrouillées et partent au flush en
+ * UPDATE groupés ; lignes du document et mouvements du journal en INSERT groupés.
+ * Le stock réservé par des commandes non payées n'est pas transférable.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockTransferServiceImpl implements StockTransferService {
+
+    private final StockTransferRepository transferRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ProductRepository productRepository;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final StockMovementService stockMovementService;
+    private final StockReservationService stockReservationService;
+    private final StockValuationService stockValuationService;
+    private final DocumentNumberService documentNumberService;
+    private final DocumentBuilderFactory builderFactory;
+    private final DocumentRenderQueue renderQueue;
+    private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.file.directories.transfers:transfers}")
+    private String transfersDirectory;
+
+    @Override
+    @Transactional
+    public StockTransferResponse createTransfer(StockTransferRequest request, UUID userId) {
+        long statementsBefore = StatementCountInspector.current();
+
+        UUID fromStoreId = request.fromStoreId();
+        UUID toStoreId = request.toStoreId();
+        if (fromStoreId.equals(toStoreId)) {
+            throw new BusinessException("Les stores source et destination doivent être différents");
+        }
+
+        // Lignes cumulées par produit, dans l'ordre de verrouillage
+        Map<UUID, Integer> quantities = new TreeMap<>(Inventory.LOCK_ORDER);
+        for (StockTransferRequest.Line line : request.lines()) {
+            quantities.merge(line.productId(), line.quantity(), Integer::sum);
+        }
+
+        Map<UUID, Store> stores = storeRepository.findAllById(List.of(fromStoreId, toStoreId)).stream()
+                .collect(Collectors.toMap(Store::getStoreId, Function.identity()));
+        Store fromStore = Optional.ofNullable(stores.get(fromStoreId))
+                .orElseThrow(() -> new NotFoundException("Store source non trouvé"));
+        Store toStore = Optional.ofNullable(stores.get(toStoreId))
+                .orElseThrow(() -> new NotFoundException("Store destination non trouvé"));
+
+        Map<UUID, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        for (UUID productId : quantities.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new NotFoundException("Produit non trouvé: " + productId);
+            }
+        }
+
+        // Un seul SELECT ... FOR UPDATE pour source et destination
+        Map<UUID, Inventory> sources = new HashMap<>();
+        Map<UUID, Inventory> targets = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.findForUpdate(List.of(fromStoreId, toStoreId), quantities.keySet())) {
+            UUID productId = inventory.getProduct().getProductId();
+            if (inventory.getStore().getStoreId().equals(fromStoreId)) {
+                sources.put(productId, inventory);
+            } else {
+                targets.put(productId, inventory);
+            }
+        }
+
+        // Tout ou rien : chaque manque est signalé, rien n'est écrit.
+        // Le contrôle porte sur le disponible à la vente (stock physique - réservations
+        // actives) et la quantité transférée est retenue sous le même verrou que les
+        // réservations des ventes jusqu'à la fin de la transaction.
+        List<String> shortages = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            Inventory source = sources.get(productId);
+            int onHand = source != null ? source.getQuantity() : 0;
+            long granted = stockReservationService.holdUntilCompletion(fromStoreId, productId, onHand, quantity);
+            if (granted < 0) {
+                shortages.add(String.format("%s (disponible: %d, demandé: %d)",
+                        products.get(productId).getName(), -granted - 1, quantity));
+            }
+        });
+        if (!shortages.isEmpty()) {
+            throw new BadRequestException("Stock insuffisant pour le transfert: " + String.join(", ", shortages));
+        }
+
+        // Destinations manquantes : INSERT ... ON CONFLICT DO NOTHING, puis relecture
+        // verrouillée. Deux transferts vers le même magasin ne se heurtent plus à la
+        // contrainte unique (produit, magasin) : le second attend le premier et reprend
+        // la ligne qu'il a créée.
+        List<UUID> missing = quantities.keySet().stream()
+                .filter(productId -> !targets.containsKey(productId))
+                .toList();
+        if (!missing.isEmpty()) {
+            for (UUID productId : missing) {
+                if (inventoryRepository.insertTransferTarget(fromStoreId, toStoreId, productId) == 1) {
+                    // Créée par cette transaction : ne comptait pas dans les agrégats
+                    stockValuationService.beforeChange(Inventory.builder()
+                            .product(products.get(productId))
+                            .store(toStore)
+                            .build());
+                }
+            }
+            inventoryRepository.findForUpdate(List.of(toStoreId), missing)
+                    .forEach(inventory -> targets.put(inventory.getProduct().getProductId(), inventory));
+        }
+
+        StockTransfer transfer = StockTransfer.builder()
+                .transferNumber(documentNumberService.generateDeliveryNoteNumber(InvoiceType.DELIVERY_NOTE))
+                .fromStore(fromStore)
+                .toStore(toStore)
+                .createdBy(userId != null ? userRepository.getReferenceById(userId) : null)
+                .totalQuantity(quantities.values().stream().mapToInt(Integer::intValue).sum())
+                .notes(request.notes())
+                .build();
+
+        quantities.forEach((productId, quantity) -> {
+            sources.get(productId).decreaseQuantity(quantity);
+            targets.get(productId).increaseQuantity(quantity);
+            transfer.addLine(products.get(productId), quantity);
+        });
+        StockTransfer saved = transferRepository.save(transfer);
+
+        quantities.forEach((productId, quantity) -> {
+            stockMovementService.record(fromStoreId, productId, StockMovementType.TRANSFER_OUT,
+                    -quantity, saved.getTransferId(), saved.getTransferNumber());
+            stockMovementService.record(toStoreId, productId, StockMovementType.TRANSFER_IN,
+                    quantity, saved.getTransferId(), saved.getTransferNumber());
+        });
+
+        // Stock faible : détecté au commit à partir des mouvements du journal
+        eventPublisher.publishEvent(new StockTransferDocumentEvent(this, saved));
+
+        // Bon de livraison rendu après commit, hors du chemin du transfert
+        UUID transferId = saved.getTransferId();
+        renderQueue.submitAfterCommit(transferId, DocumentRenderQueue.RenderPriority.LOW,
+                () -> renderAndStore(transferId),
+                id -> log.warn("Bon de livraison du transfert {} non rendu — rendu à la demande", id));
+
+        // Un flush : mises à jour d'inventaire et lignes du document en batch JDBC
+        transferRepository.flush();
+        long statements = StatementCountInspector.current() - statementsBefore;
+        meterRegistry.summary("pos.stock.transfer.statements").record(statements);
+        meterRegistry.summary("pos.stock.transfer.lines").record(quantities.size());
+
+        log.info("Transfert {} : {} ligne(s), {} unités de {} vers {}, Requêtes: {}",
+                saved.getTransferNumber(), quantities.size(), saved.getTotalQuantity(),
+                fromStore.getName(), toStore.getName(), statements);
+        return toResponse(saved);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockTransferResponse getTransfer(UUID transferId) {
+        return toResponse(loadTransfer(transferId));
+    }
+
+    @Override
+    @Transactional
+    public byte[] getDeliveryNotePdf(UUID transferId) {
+        StockTransfer transfer = loadTransfer(transferId);
+
+        if (transfer.getPdfFilename() != null) {
+            try {
+                byte[] stored = fileStorageService.readFileAsBytes(transfer.getPdfFilename(), transfersDirectory);
+                if (stored != null && stored.length > 0) return stored;
+            } catch (IOException e) {
+                log.warn("PDF introuvable sur disque pour {}, régénération...", transfer.getTransferNumber());
+            }
+        }
+
+        return renderQueue.await(transferId).orElseGet(() -> renderAndStore(transferId));
+    }
+
+    // =========================================================================
+    // INTERNES
+    // =========================================================================
+
+    private StockTransfer loadTransfer(UUID transferId) {
+        return transferRepository.findWithLines(transferId)
+                .orElseThrow(() -> new NotFoundException("Transfert non trouvé"));
+    }
+
+    private byte[] renderAndStore(UUID transferId) {
+        StockTransfer transfer = loadTransfer(transferId);
+        byte[] pdf = builderFactory.createTransferDeliveryNoteBuilder(transfer)
+                .initialize()
+                .addHeader()
+                .addMainInfo()
+                .addItemsTable()
+                .addTotals()
+                .addFooter()
+                .build();
+
+        String filename = transfer.getTransferNumber() + ".pdf";
+        try {
+            fileStorageService.storeFileFromBytes(pdf, filename, transfersDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        transfer.setPdfFilename(filename);
+        transferRepository.save(transfer);
+        return pdf;
+    }
+
+    private StockTransferResponse toResponse(StockTransfer transfer) {
+        List<StockTransferResponse.Line> lines = transfer.getLines().stream()
+                .map(line -> new StockTransferResponse.Line(
+                        line.getProduct().getProductId(),
+                        line.getProduct().getName(),
+                        line.getProduct().getSku(),
+                        line.getQuantity()))
+                .toList();
+        return new StockTransferResponse(
+                transfer.getTransferId(),
+                transfer.getTransferNumber(),
+                transfer.getFromStore().getStoreId(),
+                transfer.getFromStore().getName(),
+                transfer.getToStore().getStoreId(),
+                transfer.getToStore().getName(),
+                lines,
+                transfer.getTotalQuantity(),
+                transfer.getNotes(),
+                transfer.getCreatedAt()
+        );
+    }
+}
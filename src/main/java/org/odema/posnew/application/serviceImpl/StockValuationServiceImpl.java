@@ -0,0 +1,266 @@
+package org.odema.posnew.application.serviceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.application.dto.response.InventoryLevelProjection;
+import org.odema.posnew.application.dto.response.InventorySummaryProjection;
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.StoreStockSummary;
+import org.odema.posnew.domain.repository.InventoryRepository;
+import org.odema.posnew.domain.repository.StoreRepository;
+import org.odema.posnew.domain.repository.StoreStockSummaryRepository;
+import org.odema.posnew.domain.service.StockValuationService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Agrégats par incréments.
+ * <p>
+ * Au commit, la contribution de chaque couple (magasin, produit) touché est calculée
+ * avant et après : après depuis la base (une requête pour tous les couples), avant depuis
+ * l'état noté ou, à défaut, en retranchant le delta de quantité. Les différences sont
+ * cumulées par magasin puis appliquées en un UPDATE par magasin, dans l'ordre de
+ * {@link Inventory#LOCK_ORDER} pour qu'un transfert A→B et un B→A ne s'interbloquent pas.
+ * <p>
+ * La vérification verrouille la ligne d'un magasin avant de relire la source : les
+ * transactions qui ont déjà appliqué leur incrément sont validées, les autres
+ * l'appliqueront sur la valeur corrigée.
+ */
+@Slf4j
+@Service
+public class StockValuationServiceImpl implements StockValuationService {
+
+    private final StoreStockSummaryRepository summaryRepository;
+    private final InventoryRepository inventoryRepository;
+    private final StoreRepository storeRepository;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate verifyTx;
+
+    public StockValuationServiceImpl(StoreStockSummaryRepository summaryRepository,
+                                     InventoryRepository inventoryRepository,
+                                     StoreRepository storeRepository,
+                                     MeterRegistry meterRegistry,
+                                     PlatformTransactionManager transactionManager) {
+        this.summaryRepository = summaryRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.storeRepository = storeRepository;
+        this.meterRegistry = meterRegistry;
+        this.verifyTx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void track(UUID storeId, UUID productId, int quantity) {
+        txValuation().deltas.merge(new StockKey(storeId, productId), quantity, Integer::sum);
+    }
+
+    @Override
+    public void beforeChange(Inventory inventory) {
+        StockKey key = new StockKey(inventory.getStore().getStoreId(), inventory.getProduct().getProductId());
+        txValuation().baselines.computeIfAbsent(key, k -> inventory.getInventoryId() == null
+                ? Contribution.NONE
+                : Contribution.of(inventory.getIsActive(), inventory.getQuantity(),
+                        inventory.getReorderPoint(), inventory.getUnitCost()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InventorySummaryProjection getSummary(UUID storeId) {
+        return summaryRepository.findById(storeId)
+                .map(s -> new InventorySummaryProjection(s.getTotalProducts(), s.getLowStockProducts(),
+                        s.getOutOfStockProducts(), s.getTotalQuantity(), s.getTotalValue()))
+                .orElseGet(() -> inventoryRepository.getSummaryByStore(storeId));
+    }
+
+    @Override
+    @Scheduled(cron = "${app.stock.valuation.verify-cron:0 30 2 * * *}")
+    public int verifyAndRepair() {
+        int repaired = 0;
+        for (Store store : storeRepository.findAll()) {
+            if (Boolean.TRUE.equals(verifyTx.execute(status -> verify(store.getStoreId())))) {
+                repaired++;
+            }
+        }
+        meterRegistry.counter("pos.stock.valuation.repairs").increment(repaired);
+        log.info("Vérification des agrégats de stock : {} store(s) corrigé(s)", repaired);
+        return repaired;
+    }
+
+    // =========================================================================
+    // INTERNES
+    // =========================================================================
+
+    private boolean verify(UUID storeId) {
+        Optional<StoreStockSummary> locked = summaryRepository.findForUpdate(storeId);
+        if (locked.isEmpty()) {
+            summaryRepository.seed(storeId);
+            return false;
+        }
+        StoreStockSummary summary = locked.get();
+        InventorySummaryProjection source = inventoryRepository.getSummaryByStore(storeId);
+
+        long products = orZero(source.totalProducts());
+        long lowStock = orZero(source.lowStockProducts());
+        long outOfStock = orZero(source.outOfStockProducts());
+        long quantity = orZero(source.totalQuantity());
+        BigDecimal value = source.totalValue() != null ? source.totalValue() : BigDecimal.ZERO;
+
+        boolean drift = summary.getTotalProducts() != products
+                || summary.getLowStockProducts() != lowStock
+                || summary.getOutOfStockProducts() != outOfStock
+                || summary.getTotalQuantity() != quantity
+                || summary.getTotalValue().compareTo(value) != 0;
+        if (drift) {
+            log.warn("Écart d'agrégats de stock pour le store {} — produits {}→{}, stock faible {}→{}, " +
+                            "ruptures {}→{}, unités {}→{}, valeur {}→{}",
+                    storeId, summary.getTotalProducts(), products, summary.getLowStockProducts(), lowStock,
+                    summary.getOutOfStockProducts(), outOfStock, summary.getTotalQuantity(), quantity,
+                    summary.getTotalValue(), value);
+            meterRegistry.summary("pos.stock.valuation.drift.units")
+                    .record(Math.abs(summary.getTotalQuantity() - quantity));
+            summary.setTotalProducts(products);
+            summary.setLowStockProducts(lowStock);
+            summary.setOutOfStockProducts(outOfStock);
+            summary.setTotalQuantity(quantity);
+            summary.setTotalValue(value);
+            summary.setUpdatedAt(LocalDateTime.now());
+        }
+        summary.setVerifiedAt(LocalDateTime.now());
+        return drift;
+    }
+
+    private void apply(UUID storeId, Contribution delta) {
+        if (summaryRepository.applyDelta(storeId, delta.products(), delta.lowStock(), delta.outOfStock(),
+                delta.quantity(), delta.value()) > 0) {
+            return;
+        }
+        // Première écriture du magasin : la ligne calculée inclut déjà cette transaction
+        if (summaryRepository.seed(storeId) == 0) {
+            summaryRepository.applyDelta(storeId, delta.products(), delta.lowStock(), delta.outOfStock(),
+                    delta.quantity(), delta.value());
+        }
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private TxValuation txValuation() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Écriture de stock hors transaction");
+        }
+        TxValuation tx = (TxValuation) TransactionSynchronizationManager.getResource(this);
+        if (tx == null) {
+            tx = new TxValuation();
+            TransactionSynchronizationManager.bindResource(this, tx);
+            TransactionSynchronizationManager.registerSynchronization(tx);
+        }
+        return tx;
+    }
+
+    private record StockKey(UUID storeId, UUID productId) {}
+
+    /**
+     * Part d'un inventaire dans les agrégats de son magasin (mêmes définitions que
+     * {@code InventoryRepository.getSummaryByStore}).
+     */
+    private record Contribution(long products, long lowStock, long outOfStock, long quantity, BigDecimal value) {
+
+        static final Contribution NONE = new Contribution(0, 0, 0, 0, BigDecimal.ZERO);
+
+        static Contribution of(Boolean active, int quantity, Integer reorderPoint, BigDecimal unitCost) {
+            if (!Boolean.TRUE.equals(active)) return NONE;
+            int threshold = reorderPoint != null ? reorderPoint : 0;
+            return new Contribution(1,
+                    quantity <= threshold && quantity > 0 ? 1 : 0,
+                    quantity <= 0 ? 1 : 0,
+                    quantity,
+                    unitCost != null ? unitCost.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO);
+        }
+
+        Contribution plus(Contribution other) {
+            return new Contribution(products + other.products, lowStock + other.lowStock,
+                    outOfStock + other.outOfStock, quantity + other.quantity, value.add(other.value));
+        }
+
+        Contribution minus(Contribution other) {
+            return new Contribution(products - other.products, lowStock - other.lowStock,
+                    outOfStock - other.outOfStock, quantity - other.quantity, value.subtract(other.value));
+        }
+
+        boolean isZero() {
+            return products == 0 && lowStock == 0 && outOfStock == 0 && quantity == 0
+                    && value.signum() == 0;
+        }
+    }
+
+    /**
+     * Couples touchés par la transaction courante.
+     */
+    private final class TxValuation implements TransactionSynchronization {
+
+        private final Map<StockKey, Integer> deltas = new HashMap<>();
+        private final Map<StockKey, Contribution> baselines = new HashMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Set<StockKey> keys = new HashSet<>(deltas.keySet());
+            keys.addAll(baselines.keySet());
+            if (keys.isEmpty()) return;
+
+            Set<UUID> storeIds = new HashSet<>();
+            Set<UUID> productIds = new HashSet<>();
+            keys.forEach(key -> {
+                storeIds.add(key.storeId());
+                productIds.add(key.productId());
+            });
+            Map<StockKey, InventoryLevelProjection> levels = new HashMap<>();
+            for (InventoryLevelProjection level : inventoryRepository.findLevels(storeIds, productIds)) {
+                levels.put(new StockKey(level.storeId(), level.productId()), level);
+            }
+
+            Map<UUID, Contribution> byStore = new TreeMap<>(Inventory.LOCK_ORDER);
+            for (StockKey key : keys) {
+                InventoryLevelProjection level = levels.get(key);
+                Contribution after = level == null ? Contribution.NONE
+                        : Contribution.of(level.isActive(), level.quantity(), level.reorderPoint(), level.unitCost());
+                Contribution before = baselines.get(key);
+                if (before == null) {
+                    before = level == null ? Contribution.NONE
+                            : Contribution.of(level.isActive(), level.quantity() - deltas.getOrDefault(key, 0),
+                                    level.reorderPoint(), level.unitCost());
+                }
+                byStore.merge(key.storeId(), after.minus(before), Contribution::plus);
+            }
+
+            byStore.forEach((storeId, delta) -> {
+                if (!delta.isZero()) apply(storeId, delta);
+            });
+        }
+
+        // Transaction imbriquée (REQUIRES_NEW) : elle tient son propre tampon
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(StockValuationServiceImpl.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(StockValuationServiceImpl.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StockValuationServiceImpl.this);
+        }
+    }
+}
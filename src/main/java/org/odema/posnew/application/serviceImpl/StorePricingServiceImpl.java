@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.odema.posnew.api.exception.BusinessException;
 import org.odema.posnew.api.exception.NotFoundException;
+import org.odema.posnew.application.cache.CatalogCache;
 import org.odema.posnew.application.dto.request.*;
 import org.odema.posnew.application.dto.response.StoreProductPriceResponse;
 import org.odema.posnew.application.mapper.StoreProductPriceMapper;
@@ -31,6 +32,7 @@ public class StorePricingServiceImpl implements StorePricingService {
     private final ProductRepository productRepository;
     private final StoreRepository storeRepository;
     private final StoreProductPriceMapper priceMapper;
+    private final CatalogCache catalogCache;
 
     @Override
     @Transactional
@@ -70,6 +72,7 @@ public class StorePricingServiceImpl implements StorePricingService {
                 .build();
 
         StoreProductPrice saved = priceRepository.save(price);
+        catalogCache.evictPrice(request.storeId(), request.productId());
         log.info("Price set: {} -> {} (final: {})",
                 request.newBasePrice(), saved.getPriceId(), saved.getFinalPrice());
 
@@ -110,14 +113,16 @@ public class StorePricingServiceImpl implements StorePricingService {
                 .build();
 
         StoreProductPrice saved = priceRepository.save(discountPrice);
+        catalogCache.evictPrice(request.storeId(), request.productId());
         return priceMapper.toResponse(saved);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public BigDecimal calculateFinalPrice(UUID productId, UUID storeId, UUID customerId) {
-        StoreProductPrice price = getActivePrice(productId, storeId);
-        return price.getFinalPrice();
+        return catalogCache.activePrice(storeId, productId)
+                .map(CatalogCache.PriceView::finalPrice)
+                .orElseThrow(() -> new NotFoundException(
+                        "Prix non trouvé pour ce produit dans ce magasin"));
     }
 
     @Override
@@ -173,6 +178,7 @@ public class StorePricingServiceImpl implements StorePricingService {
         if (request.description() != null) price.setDescription(request.description());
 
         StoreProductPrice updated = priceRepository.save(price);
+        evictPrice(price);
         return priceMapper.toResponse(updated);
     }
 
@@ -183,6 +189,7 @@ public class StorePricingServiceImpl implements StorePricingService {
                 .orElseThrow(() -> new NotFoundException("Prix non trouvé"));
         price.setIsActive(false);
         priceRepository.save(price);
+        evictPrice(price);
         log.info("Prix désactivé: {}", priceId);
     }
 
@@ -204,6 +211,10 @@ public class StorePricingServiceImpl implements StorePricingService {
     }
 
     // Méthodes utilitaires privées
+    private void evictPrice(StoreProductPrice price) {
+        catalogCache.evictPrice(price.getStore().getStoreId(), price.getProduct().getProductId());
+    }
+
     private StoreProductPrice getActivePrice(UUID productId, UUID storeId) {
         return priceRepository.findActivePriceForProductAndStore(productId, storeId)
                 .orElseThrow(() -> new NotFoundException(
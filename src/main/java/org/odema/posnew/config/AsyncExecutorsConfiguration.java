@@ -0,0 +1,83 @@
+package org.odema.posnew.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Voies d'exécution asynchrone nommées, bornées et instrumentées.
+ * <ul>
+ *   <li>{@value #HIGH_PRIORITY} : tickets et paiements — l'appelant exécute si la voie sature ;</li>
+ *   <li>{@value #LOW_PRIORITY} : factures, rapports — ne concurrence pas la voie haute ;</li>
+ *   <li>{@value #IO} : écouteurs I/O (emails, notifications) sur threads virtuels ;</li>
+ *   <li>{@value #MVC} : traitements asynchrones des contrôleurs (exports en flux),
+ *       enregistrée par {@link WebAsyncConfiguration}.</li>
+ * </ul>
+ * {@code @Async} sans nom utilise la voie basse : un traitement non classé ne peut pas
+ * affamer les tickets. Par défaut, une voie saturée ne perd rien : l'appelant exécute
+ * (voies de tâches) ou la requête est refusée (voie MVC) ; chaque rejet est compté
+ * ({@code pos.executor.rejected}).
+ */
+@Slf4j
+@Configuration
+@EnableAsync
+@RequiredArgsConstructor
+public class AsyncExecutorsConfiguration implements AsyncConfigurer {
+
+    public static final String HIGH_PRIORITY = "highPriorityExecutor";
+    public static final String LOW_PRIORITY = "lowPriorityExecutor";
+    public static final String IO = "ioExecutor";
+    public static final String MVC = "mvcAsyncExecutor";
+
+    private final MeterRegistry meterRegistry;
+
+    @Bean(name = HIGH_PRIORITY)
+    public LaneExecutor highPriorityExecutor(
+            @Value("${app.executors.high.core-size:0}") int coreSize,
+            @Value("${app.executors.high.queue-capacity:500}") int queueCapacity,
+            @Value("${app.executors.high.rejection:CALLER_RUNS}") LaneExecutor.RejectionPolicy policy) {
+        int size = coreSize > 0 ? coreSize : Runtime.getRuntime().availableProcessors();
+        return LaneExecutor.platform("exec-high", size, size, queueCapacity, policy, meterRegistry);
+    }
+
+    // Alias « taskExecutor » : exécuteur par défaut de @Async sans nom
+    @Bean(name = {LOW_PRIORITY, "taskExecutor"})
+    public LaneExecutor lowPriorityExecutor(
+            @Value("${app.executors.low.core-size:0}") int coreSize,
+            @Value("${app.executors.low.queue-capacity:1000}") int queueCapacity,
+            @Value("${app.executors.low.rejection:CALLER_RUNS}") LaneExecutor.RejectionPolicy policy) {
+        // Au plus la moitié des cœurs : les rendus de factures laissent de la marge aux tickets
+        int size = coreSize > 0 ? coreSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return LaneExecutor.platform("exec-low", size, size, queueCapacity, policy, meterRegistry);
+    }
+
+    @Bean(name = IO)
+    public LaneExecutor ioExecutor(
+            @Value("${app.executors.io.max-concurrency:50}") int maxConcurrency,
+            @Value("${app.executors.io.queue-capacity:2000}") int queueCapacity,
+            @Value("${app.executors.io.rejection:CALLER_RUNS}") LaneExecutor.RejectionPolicy policy) {
+        return LaneExecutor.virtual("exec-io", maxConcurrency, queueCapacity, policy, meterRegistry);
+    }
+
+    // Chaque export tient une connexion pendant tout le flux : concurrence faible
+    @Bean(name = MVC)
+    public LaneExecutor mvcAsyncExecutor(
+            @Value("${app.executors.mvc.max-concurrency:4}") int maxConcurrency,
+            @Value("${app.executors.mvc.queue-capacity:20}") int queueCapacity,
+            @Value("${app.executors.mvc.rejection:ABORT}") LaneExecutor.RejectionPolicy policy) {
+        return LaneExecutor.virtual("exec-mvc", maxConcurrency, queueCapacity, policy, meterRegistry);
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) ->
+                log.error("Erreur dans la tâche asynchrone {}.{}",
+                        method.getDeclaringClass().getSimpleName(), method.getName(), ex);
+    }
+}
@@ -0,0 +1,78 @@
+package org.odema.posnew.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.Function;
+
+/**
+ * Petit pool de connexions séparé du pool principal, pour les écritures validées
+ * indépendamment de la transaction appelante : réservation des blocs de numérotation,
+ * amorçage des agrégats d'un shift.
+ * <p>
+ * En REQUIRES_NEW sur le pool principal, ces écritures prenaient une seconde connexion
+ * alors que l'encaissement appelant tient déjà la sienne : si toutes les connexions sont
+ * tenues par des encaissements qui attendent chacun la leur, rien ne se libère avant le
+ * délai d'acquisition. Une transaction de ce pool n'attend jamais une connexion du pool
+ * principal : pas de cycle d'attente possible, quelle que soit la taille de l'un ou l'autre.
+ */
+@Slf4j
+@Component
+public class AuxiliaryConnectionPool implements DisposableBean {
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuxiliaryConnectionPool(DataSource mainDataSource,
+                                   @Value("${app.datasource.auxiliary.pool-size:2}") int poolSize) {
+        HikariDataSource main;
+        try {
+            main = mainDataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Pool auxiliaire : le pool principal doit être HikariCP", e);
+        }
+
+        // Mêmes base et identifiants que le pool principal
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("pos-auxiliary");
+        config.setJdbcUrl(main.getJdbcUrl());
+        config.setUsername(main.getUsername());
+        config.setPassword(main.getPassword());
+        if (main.getDriverClassName() != null) {
+            config.setDriverClassName(main.getDriverClassName());
+        }
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(main.getConnectionTimeout());
+
+        this.dataSource = new HikariDataSource(config);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // Transaction propre, même appelée dans une transaction JPA : celle-ci est suspendue
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        log.info("Pool auxiliaire initialisé : {} connexion(s)", poolSize);
+    }
+
+    /**
+     * Exécute {@code work} dans une transaction du pool auxiliaire, validée au retour.
+     */
+    public <T> T inTransaction(Function<JdbcTemplate, T> work) {
+        return transactionTemplate.execute(status -> work.apply(jdbcTemplate));
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,173 @@
+package org.odema.posnew.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécuteur nommé, borné et instrumenté (une « voie » de travail asynchrone).
+ * <p>
+ * Deux modes :
+ * <ul>
+ *   <li>pool de threads plateforme à file bornée — travail CPU (rendu PDF) ;</li>
+ *   <li>un thread virtuel par tâche, concurrence limitée par sémaphore — travail I/O.</li>
+ * </ul>
+ * Au-delà de {@code queueCapacity} tâches en attente, la politique de rejet s'applique
+ * explicitement (jamais d'abandon silencieux). Métriques par voie (tag {@code executor}) :
+ * {@code pos.executor.queued}, {@code pos.executor.active}, {@code pos.executor.wait}
+ * (soumission → démarrage), {@code pos.executor.run}, {@code pos.executor.rejected}.
+ */
+@Slf4j
+public class LaneExecutor implements AsyncTaskExecutor, DisposableBean {
+
+    public enum RejectionPolicy {
+        /** Exécutée par l'appelant : ralentit le producteur, rien n'est perdu */
+        CALLER_RUNS,
+        /** RejectedExecutionException levée : l'appelant décide */
+        ABORT,
+        /** Tâche abandonnée, comptée et journalisée — uniquement pour du travail jetable */
+        DISCARD
+    }
+
+    @Getter
+    private final String name;
+    private final RejectionPolicy policy;
+    private final int queueCapacity;
+    private final ExecutorService delegate;
+    private final Semaphore concurrency;      // mode virtuel uniquement
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Timer waitTimer;
+    private final Timer runTimer;
+    private final Counter rejectedCounter;
+
+    private LaneExecutor(String name, RejectionPolicy policy, int queueCapacity,
+                         ExecutorService delegate, Semaphore concurrency, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.policy = policy;
+        this.queueCapacity = queueCapacity;
+        this.delegate = delegate;
+        this.concurrency = concurrency;
+
+        Gauge.builder("pos.executor.queued", queued, AtomicInteger::get)
+                .tag("executor", name).register(meterRegistry);
+        Gauge.builder("pos.executor.active", active, AtomicInteger::get)
+                .tag("executor", name).register(meterRegistry);
+        this.waitTimer = Timer.builder("pos.executor.wait").tag("executor", name)
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.runTimer = Timer.builder("pos.executor.run").tag("executor", name)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("pos.executor.rejected").tag("executor", name)
+                .tag("policy", policy.name()).register(meterRegistry);
+    }
+
+    /**
+     * Pool de threads plateforme, file bornée à {@code queueCapacity}.
+     */
+    public static LaneExecutor platform(String name, int coreSize, int maxSize, int queueCapacity,
+                                        RejectionPolicy policy, MeterRegistry meterRegistry) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                coreSize, Math.max(coreSize, maxSize), 60L, TimeUnit.SECONDS,
+                // Capacité réelle contrôlée par le compteur queued : la file ne refuse jamais
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(false);
+        return new LaneExecutor(name, policy, queueCapacity, pool, null, meterRegistry);
+    }
+
+    /**
+     * Un thread virtuel par tâche, au plus {@code maxConcurrency} en exécution.
+     */
+    public static LaneExecutor virtual(String name, int maxConcurrency, int queueCapacity,
+                                       RejectionPolicy policy, MeterRegistry meterRegistry) {
+        ExecutorService perTask = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(name + "-", 1).factory());
+        return new LaneExecutor(name, policy, queueCapacity, perTask,
+                new Semaphore(maxConcurrency), meterRegistry);
+    }
+
+    /**
+     * Soumission avec la politique de rejet de la voie (utilisée par {@code @Async}
+     * et, via {@code submit}, par le traitement asynchrone de Spring MVC).
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (trySubmit(task)) return;
+
+        rejectedCounter.increment();
+        switch (policy) {
+            case CALLER_RUNS -> {
+                log.warn("Voie {} saturée ({} en attente) — exécution par l'appelant", name, queued.get());
+                task.run();
+            }
+            case ABORT -> throw new RejectedExecutionException("Voie " + name + " saturée");
+            case DISCARD -> log.warn("Voie {} saturée ({} en attente) — tâche abandonnée", name, queued.get());
+        }
+    }
+
+    /**
+     * Soumission sans politique de rejet : {@code false} si la voie est saturée,
+     * l'appelant garde la main (ex. rendu PDF différé à la première lecture).
+     */
+    public boolean trySubmit(Runnable task) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            return false;
+        }
+        long submittedAt = System.nanoTime();
+        try {
+            delegate.execute(() -> run(task, submittedAt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Exécuteur arrêté
+            queued.decrementAndGet();
+            return false;
+        }
+    }
+
+    private void run(Runnable task, long submittedAt) {
+        boolean acquired = false;
+        try {
+            if (concurrency != null) {
+                concurrency.acquire();
+                acquired = true;
+            }
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            long startedAt = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                active.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            queued.decrementAndGet();
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Tâche en échec sur la voie {}", name, e);
+        } finally {
+            if (acquired) concurrency.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        delegate.shutdown();
+    }
+}
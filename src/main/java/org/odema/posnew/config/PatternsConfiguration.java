@@ -6,6 +6,7 @@ import org.odema.posnew.domain.repository.PaymentRepository;
 import org.odema.posnew.domain.repository.ShiftReportRepository;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.context.annotation.Bean;
 import org.odema.posnew.design.strategy.SaleStrategy;
 import org.odema.posnew.design.handler.impl.CashPaymentHandler;
@@ -23,6 +24,7 @@ import java.util.Map;
  */
 @Configuration
 @EnableAsync
+@EnableScheduling
 @RequiredArgsConstructor
 public class PatternsConfiguration {
 
@@ -0,0 +1,27 @@
+package org.odema.posnew.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Compte les requêtes SQL préparées par Hibernate, par thread.
+ * Enregistré via {@code hibernate.session_factory.statement_inspector} :
+ * les services lisent {@link #current()} avant/après une opération pour
+ * mesurer le nombre d'allers-retours base de données qu'elle a coûté.
+ */
+public class StatementCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNTER = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNTER.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Compteur monotone du thread courant — ne faire que des différences.
+     */
+    public static long current() {
+        return COUNTER.get()[0];
+    }
+}
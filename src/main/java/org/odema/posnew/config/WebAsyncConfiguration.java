@@ -0,0 +1,26 @@
+package org.odema.posnew.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Exécuteur des traitements asynchrones de Spring MVC ({@code StreamingResponseBody},
+ * {@code Callable}). Les voies déclarées remplacent l'exécuteur par défaut de Spring Boot,
+ * qui laisserait alors MVC sur un exécuteur sans borne (un thread par requête).
+ */
+@Configuration
+public class WebAsyncConfiguration implements WebMvcConfigurer {
+
+    private final LaneExecutor mvcExecutor;
+
+    public WebAsyncConfiguration(@Qualifier(AsyncExecutorsConfiguration.MVC) LaneExecutor mvcExecutor) {
+        this.mvcExecutor = mvcExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcExecutor);
+    }
+}
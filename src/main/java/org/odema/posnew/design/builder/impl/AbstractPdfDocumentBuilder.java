@@ -7,6 +7,7 @@ import org.odema.posnew.domain.model.Order;
 
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.util.function.Supplier;
 
 /**
  * Classe abstraite de base pour tous les builders PDF.
@@ -14,6 +15,7 @@ import java.math.BigDecimal;
  *
  * Responsabilités :
  *  - Utilitaires partagés : esc(), formatCurrency(), xhtmlDocStart(), renderHtmlToPdf()
+ *  - Accès aux ressources pré-calculées (PdfTemplateCache) : documentStart(), logoDataUri(), newRenderer()
  *  - Contrat minimal : outputStream + order
  *
  * Ce que cette classe NE fait PAS :
@@ -49,6 +51,28 @@ public abstract class AbstractPdfDocumentBuilder implements DocumentBuilder {
                 "</head><body>";
     }
 
+    /**
+     * Début de document mis en cache par type de builder : le CSS statique
+     * n'est concaténé qu'au premier document rendu.
+     */
+    protected String documentStart(Supplier<String> css) {
+        return PdfTemplateCache.documentStart(getClass(), () -> xhtmlDocStart(css.get()));
+    }
+
+    /**
+     * Logo encodé en data URI, lu une seule fois depuis le classpath.
+     */
+    protected String logoDataUri(String path) {
+        return PdfTemplateCache.logoDataUri(path);
+    }
+
+    /**
+     * Renderer openhtmltopdf partageant le cache de polices entre documents.
+     */
+    protected PdfRendererBuilder newRenderer() {
+        return PdfTemplateCache.newRenderer();
+    }
+
     /**
      * Rend le HTML en PDF via openhtmltopdf.
      * Appeler dans build() de chaque sous-classe.
@@ -56,7 +80,7 @@ public abstract class AbstractPdfDocumentBuilder implements DocumentBuilder {
     protected byte[] renderHtmlToPdf(String html) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfRendererBuilder builder = new PdfRendererBuilder();
+            PdfRendererBuilder builder = newRenderer();
             builder.withHtmlContent(html, null);
             builder.toStream(baos);
             builder.run();
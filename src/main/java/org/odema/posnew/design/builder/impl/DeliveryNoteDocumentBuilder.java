@@ -6,18 +6,21 @@ import org.odema.posnew.design.builder.DocumentBuilder;
 import org.odema.posnew.domain.model.Customer;
 import org.odema.posnew.domain.model.Order;
 import org.odema.posnew.domain.model.OrderItem;
+import org.odema.posnew.domain.model.StockTransfer;
+import org.odema.posnew.domain.model.StockTransferLine;
+import org.odema.posnew.domain.model.Store;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Builder pour les bons de livraison.
  * Format A4 professionnel - Document de suivi logistique.
+ * Source : une commande (livraison client) ou un transfert de stock entre magasins.
  */
 @Slf4j
 @Component
@@ -39,6 +42,7 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
     private String trackingNumber;
     private String deliveryAddress;
     private String deliveryInstructions;
+    private StockTransfer transfer;
     private final StringBuilder html = new StringBuilder();
 
     public DeliveryNoteDocumentBuilder() { super(null); }
@@ -80,18 +84,22 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
         return this;
     }
 
+    /**
+     * Bon de livraison d'un transfert : destinataire = magasin de destination,
+     * articles = lignes du transfert.
+     */
+    public DeliveryNoteDocumentBuilder withTransfer(StockTransfer transfer) {
+        this.transfer = transfer;
+        this.deliveryNoteNumber = transfer.getTransferNumber();
+        if (this.deliveryInstructions == null) this.deliveryInstructions = transfer.getNotes();
+        return this;
+    }
+
     @Override
     public DocumentBuilder initialize() {
         this.outputStream = new ByteArrayOutputStream();
         html.setLength(0);
-        html.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
-                .append("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" ")
-                .append("\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">")
-                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"fr\" lang=\"fr\">")
-                .append("<head>")
-                .append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\"/>")
-                .append("<style>").append(buildCss()).append("</style>")
-                .append("</head><body>");
+        html.append(documentStart(this::buildCss));
         return this;
     }
 
@@ -115,7 +123,9 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
                 .append("<table class=\"meta-table\">")
                 .append(metaRow("N&#176; BL", esc(deliveryNoteNumber != null ? deliveryNoteNumber : "BL-" + (order != null ? order.getOrderNumber() : "TEMP"))))
                 .append(metaRow("Date", java.time.LocalDateTime.now().format(FMT_DATE)))
-                .append(metaRow("R&#233;f. Commande", order != null ? esc(order.getOrderNumber()) : "&#8212;"))
+                .append(transfer != null
+                        ? metaRow("Exp&#233;diteur", esc(transfer.getFromStore().getName()))
+                        : metaRow("R&#233;f. Commande", order != null ? esc(order.getOrderNumber()) : "&#8212;"))
                 .append("</table>")
                 .append("</td>")
                 .append("</tr></table>");
@@ -125,6 +135,10 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
 
     @Override
     public DocumentBuilder addMainInfo() {
+        if (transfer != null) {
+            addTransferInfo();
+            return this;
+        }
         Customer c = order != null ? order.getCustomer() : null;
 
         html.append("<table class=\"info-grid\"><tr>")
@@ -181,6 +195,42 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
         return this;
     }
 
+    private void addTransferInfo() {
+        Store to = transfer.getToStore();
+        Store from = transfer.getFromStore();
+
+        html.append("<table class=\"info-grid\"><tr>")
+                .append("<td class=\"info-box info-box--navy\">")
+                .append("<div class=\"info-box__title\">MAGASIN DESTINATAIRE</div>")
+                .append("<div class=\"info-box__name\">").append(esc(to.getName())).append("</div>")
+                .append("<div class=\"info-box__body\">")
+                .append(esc(to.getAddress())).append("<br/>")
+                .append("T&#233;l: ").append(to.getPhone() != null ? esc(to.getPhone()) : "&#8212;")
+                .append("</div>")
+                .append("</td>")
+
+                .append("<td class=\"info-box info-box--green\">")
+                .append("<div class=\"info-box__title\">MAGASIN EXP&#201;DITEUR</div>")
+                .append("<div class=\"info-box__name\">").append(esc(from.getName())).append("</div>")
+                .append("<div class=\"info-box__body\">")
+                .append(esc(from.getAddress())).append("<br/>");
+        if (carrierName != null) {
+            html.append("<b>Transporteur:</b> ").append(esc(carrierName)).append("<br/>");
+        }
+        html.append("<b>Transfert du:</b> ")
+                .append(transfer.getCreatedAt() != null ? transfer.getCreatedAt().format(FMT_DT) : "&#8212;")
+                .append("</div>")
+                .append("</td>")
+                .append("</tr></table>");
+
+        if (deliveryInstructions != null && !deliveryInstructions.isBlank()) {
+            html.append("<div class=\"instructions-box\">")
+                    .append("<div class=\"instructions-title\">&#128712; INSTRUCTIONS SP&#201;CIALES</div>")
+                    .append("<div class=\"instructions-body\">").append(esc(deliveryInstructions)).append("</div>")
+                    .append("</div>");
+        }
+    }
+
     @Override
     public DocumentBuilder addItemsTable() {
         html.append("<div class=\"section-title\">ARTICLES &#192; LIVRER</div>")
@@ -193,29 +243,24 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
                 .append("<th class=\"col-check\">&#10003;</th>")
                 .append("</tr></thead><tbody>");
 
-        if (order != null && order.getItems() != null) {
-            int i = 1;
-            for (OrderItem item : order.getItems()) {
-                String rowClass = (i % 2 == 0) ? "row-alt" : "";
-                String name = item.getProduct() != null ? esc(item.getProduct().getName()) : "Article";
-                String sku = item.getProduct() != null && item.getProduct().getSku() != null
-                        ? esc(item.getProduct().getSku()) : "&#8212;";
-
-                html.append("<tr class=\"").append(rowClass).append("\">")
-                        .append("<td class=\"center\">").append(i).append("</td>")
-                        .append("<td>").append(name).append("</td>")
-                        .append("<td class=\"center sku\">").append(sku).append("</td>")
-                        .append("<td class=\"center bold\">").append(item.getQuantity()).append("</td>")
-                        .append("<td class=\"center check-box\">&#9744;</td>")
-                        .append("</tr>");
-                i++;
-            }
+        List<Row> rows = rows();
+        int i = 1;
+        for (Row row : rows) {
+            String rowClass = (i % 2 == 0) ? "row-alt" : "";
+            html.append("<tr class=\"").append(rowClass).append("\">")
+                    .append("<td class=\"center\">").append(i).append("</td>")
+                    .append("<td>").append(row.name()).append("</td>")
+                    .append("<td class=\"center sku\">").append(row.sku()).append("</td>")
+                    .append("<td class=\"center bold\">").append(row.quantity()).append("</td>")
+                    .append("<td class=\"center check-box\">&#9744;</td>")
+                    .append("</tr>");
+            i++;
         }
 
-        int totalQty = order != null ? order.getItems().stream().mapToInt(OrderItem::getQuantity).sum() : 0;
+        int totalQty = rows.stream().mapToInt(Row::quantity).sum();
         html.append("</tbody></table>")
                 .append("<div class=\"items-summary\">")
-                .append("<b>Total colis:</b> ").append(order != null ? order.getItems().size() : 0).append(" article(s) &#160;&#183;&#160; ")
+                .append("<b>Total colis:</b> ").append(rows.size()).append(" article(s) &#160;&#183;&#160; ")
                 .append(totalQty).append(" unit&#233;(s) &#160;&#183;&#160; ")
                 .append("<b>Poids estim&#233;:</b> ~").append(totalQty * 0.5).append(" kg")
                 .append("</div>");
@@ -300,7 +345,7 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
         try {
             String finalHtml = html.toString();
             ByteArrayOutputStream baos = (ByteArrayOutputStream) this.outputStream;
-            PdfRendererBuilder builder = new PdfRendererBuilder();
+            PdfRendererBuilder builder = newRenderer();
             builder.withHtmlContent(finalHtml, null);
             builder.toStream(baos);
             builder.run();
@@ -398,23 +443,35 @@ public class DeliveryNoteDocumentBuilder extends AbstractPdfDocumentBuilder {
                         ".muted { color: #718096; }";
     }
 
+    /** Lignes à livrer, échappées : lignes du transfert ou articles de la commande */
+    private List<Row> rows() {
+        List<Row> rows = new ArrayList<>();
+        if (transfer != null) {
+            for (StockTransferLine line : transfer.getLines()) {
+                rows.add(new Row(esc(line.getProduct().getName()),
+                        line.getProduct().getSku() != null ? esc(line.getProduct().getSku()) : "&#8212;",
+                        line.getQuantity()));
+            }
+        } else if (order != null && order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                rows.add(new Row(item.getProduct() != null ? esc(item.getProduct().getName()) : "Article",
+                        item.getProduct() != null && item.getProduct().getSku() != null
+                                ? esc(item.getProduct().getSku()) : "&#8212;",
+                        item.getQuantity()));
+            }
+        }
+        return rows;
+    }
+
+    private record Row(String name, String sku, int quantity) {}
+
     private String metaRow(String label, String value) {
         return "<tr><td class=\"lbl\">" + label + "</td><td class=\"val\">" + value + "</td></tr>";
     }
 
     private String buildLogoTag() {
-        try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(logoPath);
-            if (is != null) {
-                byte[] bytes = is.readAllBytes();
-                String b64  = Base64.getEncoder().encodeToString(bytes);
-                String mime = logoPath.endsWith(".png") ? "image/png" : "image/jpeg";
-                return "<img class=\"logo-img\" src=\"data:" + mime + ";base64," + b64 + "\"/>";
-            }
-        } catch (IOException e) {
-            log.debug("Logo BL non trouv&#233;: {}", logoPath);
-        }
-        return "";
+        String dataUri = logoDataUri(logoPath);
+        return dataUri.isEmpty() ? "" : "<img class=\"logo-img\" src=\"" + dataUri + "\"/>";
     }
 
     private String fmtCur(BigDecimal amount) {
@@ -11,13 +11,10 @@ import org.odema.posnew.domain.model.enums.PaymentStatus;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -72,14 +69,7 @@ public class InvoiceDocumentBuilder extends AbstractPdfDocumentBuilder {
     public DocumentBuilder initialize() {
         this.outputStream = new ByteArrayOutputStream();
         html.setLength(0);
-        html.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
-                .append("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" ")
-                .append("\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">")
-                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"fr\" lang=\"fr\">")
-                .append("<head>")
-                .append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\"/>")
-                .append("<style>").append(buildCss()).append("</style>")
-                .append("</head><body>");
+        html.append(documentStart(this::buildCss));
         log.debug("InvoiceDocumentBuilder HTML initialisé");
         return this;
     }
@@ -343,7 +333,7 @@ public class InvoiceDocumentBuilder extends AbstractPdfDocumentBuilder {
         try {
             String finalHtml = html.toString();
             ByteArrayOutputStream baos = (ByteArrayOutputStream) this.outputStream;
-            PdfRendererBuilder builder = new PdfRendererBuilder();
+            PdfRendererBuilder builder = newRenderer();
             builder.withHtmlContent(finalHtml, null);
             builder.toStream(baos);
             builder.run();
@@ -447,18 +437,8 @@ public class InvoiceDocumentBuilder extends AbstractPdfDocumentBuilder {
     }
 
     private String buildLogoTag() {
-        try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(companyLogoPath);
-            if (is != null) {
-                byte[] bytes = is.readAllBytes();
-                String b64  = Base64.getEncoder().encodeToString(bytes);
-                String mime = companyLogoPath.endsWith(".png") ? "image/png" : "image/jpeg";
-                return "<img class=\"logo-img\" src=\"data:" + mime + ";base64," + b64 + "\"/>";
-            }
-        } catch (IOException e) {
-            log.debug("Logo non trouvé: {}", companyLogoPath);
-        }
-        return "";
+        String dataUri = logoDataUri(companyLogoPath);
+        return dataUri.isEmpty() ? "" : "<img class=\"logo-img\" src=\"" + dataUri + "\"/>";
     }
 
     protected String fmtCur(BigDecimal amount) {
@@ -0,0 +1,104 @@
+package org.odema.posnew.design.builder.impl;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Ressources PDF partagées entre tous les builders, calculées une seule fois
+ * par JVM au lieu d'une fois par document :
+ *  - en-tête XHTML + CSS statique de chaque type de builder
+ *  - logos lus depuis le classpath et encodés en data URI base64
+ *  - cache openhtmltopdf des métriques de polices, réutilisé par chaque rendu
+ *
+ * Seul le fragment dynamique (lignes, totaux, paiements) reste construit par document.
+ */
+@Slf4j
+final class PdfTemplateCache {
+
+    private static final Map<Class<?>, String> DOCUMENT_STARTS = new ConcurrentHashMap<>();
+    private static final Map<String, String> LOGO_DATA_URIS = new ConcurrentHashMap<>();
+    private static final FSCacheEx<String, FSCacheValue> FONT_METRICS = new SharedCacheStore();
+
+    private PdfTemplateCache() {
+    }
+
+    /**
+     * Début de document (prologue XHTML + CSS) du builder, calculé au premier appel.
+     * Le CSS ne doit dépendre que du type de builder, jamais du document rendu.
+     */
+    static String documentStart(Class<?> builderType, Supplier<String> template) {
+        return DOCUMENT_STARTS.computeIfAbsent(builderType, type -> template.get());
+    }
+
+    /**
+     * Logo du classpath encodé en data URI ; chaîne vide si la ressource est absente.
+     */
+    static String logoDataUri(String path) {
+        return LOGO_DATA_URIS.computeIfAbsent(path, PdfTemplateCache::loadLogo);
+    }
+
+    /**
+     * Nouveau renderer branché sur le cache partagé des métriques de polices.
+     * Un PdfRendererBuilder n'est pas réutilisable : un par rendu.
+     */
+    static PdfRendererBuilder newRenderer() {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useCacheStore(BaseRendererBuilder.CacheStore.PDF_FONT_METRICS, FONT_METRICS);
+        return builder;
+    }
+
+    private static String loadLogo(String path) {
+        try (InputStream is = PdfTemplateCache.class.getClassLoader().getResourceAsStream(path)) {
+            if (is != null) {
+                String b64  = Base64.getEncoder().encodeToString(is.readAllBytes());
+                String mime = path.endsWith(".png") ? "image/png" : "image/jpeg";
+                return "data:" + mime + ";base64," + b64;
+            }
+        } catch (IOException e) {
+            log.warn("Lecture logo impossible: {}", path);
+        }
+        log.debug("Logo non trouvé: {}", path);
+        return "";
+    }
+
+    /**
+     * Implémentation thread-safe de FSCacheEx partagée entre rendus concurrents.
+     */
+    private static final class SharedCacheStore implements FSCacheEx<String, FSCacheValue> {
+
+        private final Map<String, FSCacheValue> values = new ConcurrentHashMap<>();
+
+        @Override
+        public void put(String key, FSCacheValue value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public FSCacheValue get(String key, Callable<? extends FSCacheValue> loader) {
+            return values.computeIfAbsent(key, k -> {
+                try {
+                    return loader.call();
+                } catch (Exception e) {
+                    log.debug("Chargement cache police {} impossible: {}", k, e.getMessage());
+                    return null;
+                }
+            });
+        }
+
+        @Override
+        public FSCacheValue get(String key) {
+            return values.get(key);
+        }
+    }
+}
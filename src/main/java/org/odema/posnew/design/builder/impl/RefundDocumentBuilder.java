@@ -10,11 +10,8 @@ import org.odema.posnew.domain.model.enums.RefundMethod;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
 
 /**
  * Builder pour les tickets de remboursement.
@@ -71,14 +68,7 @@ public class RefundDocumentBuilder extends AbstractPdfDocumentBuilder {
     public DocumentBuilder initialize() {
         this.outputStream = new ByteArrayOutputStream();
         html.setLength(0);
-        html.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
-                .append("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" ")
-                .append("\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">")
-                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"fr\" lang=\"fr\">")
-                .append("<head>")
-                .append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\"/>")
-                .append("<style>").append(buildCss()).append("</style>")
-                .append("</head><body>");
+        html.append(documentStart(this::buildCss));
         return this;
     }
 
@@ -229,7 +219,7 @@ public class RefundDocumentBuilder extends AbstractPdfDocumentBuilder {
     public byte[] build() {
         try {
             ByteArrayOutputStream baos = (ByteArrayOutputStream) this.outputStream;
-            PdfRendererBuilder builder = new PdfRendererBuilder();
+            PdfRendererBuilder builder = newRenderer();
             builder.withHtmlContent(html.toString(), null);
             builder.toStream(baos);
             builder.run();
@@ -318,18 +308,8 @@ public class RefundDocumentBuilder extends AbstractPdfDocumentBuilder {
     }
 
     private String buildLogoTag() {
-        try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(logoPath);
-            if (is != null) {
-                byte[] bytes = is.readAllBytes();
-                String b64  = Base64.getEncoder().encodeToString(bytes);
-                String mime = logoPath.endsWith(".png") ? "image/png" : "image/jpeg";
-                return "<img src=\"data:" + mime + ";base64," + b64 + "\"/>";
-            }
-        } catch (IOException e) {
-            log.debug("Logo remboursement non trouv&#233;: {}", logoPath);
-        }
-        return "";
+        String dataUri = logoDataUri(logoPath);
+        return dataUri.isEmpty() ? "" : "<img src=\"" + dataUri + "\"/>";
     }
 
     private String fmtCur(BigDecimal amount) {
@@ -7,11 +7,8 @@ import org.odema.posnew.domain.model.Receipt;
 import org.odema.posnew.domain.model.enums.ReceiptType;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
 
 /**
  * Ticket événements de caisse (ouverture/fermeture, entrée/sortie d'argent…)
@@ -62,14 +59,7 @@ public class ShiftReceiptDocumentBuilder extends AbstractPdfDocumentBuilder {
     public DocumentBuilder initialize() {
         this.outputStream = new ByteArrayOutputStream();
         html.setLength(0);
-        html.append("<?xml version='1.0' encoding='UTF-8'?>")
-                .append("<!DOCTYPE html PUBLIC '-//W3C//DTD XHTML 1.0 Strict//EN' ")
-                .append("'http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd'>")
-                .append("<html xmlns='http://www.w3.org/1999/xhtml'>")
-                .append("<head>")
-                .append("<meta http-equiv='Content-Type' content='text/html; charset=UTF-8'/>")
-                .append("<style>").append(buildCss()).append("</style>")
-                .append("</head><body>");
+        html.append(documentStart(this::buildCss));
         log.debug("ShiftReceiptDocumentBuilder HTML initialisé");
         return this;
     }
@@ -187,7 +177,7 @@ public class ShiftReceiptDocumentBuilder extends AbstractPdfDocumentBuilder {
             // Log debug pour voir le HTML généré en cas d'erreur
             log.debug("HTML généré (500 premiers chars): {}", finalHtml.substring(0, Math.min(500, finalHtml.length())));
 
-            PdfRendererBuilder builder = new PdfRendererBuilder();
+            PdfRendererBuilder builder = newRenderer();
             builder.withHtmlContent(finalHtml, null);
             builder.toStream(baos);
             builder.run();
@@ -319,18 +309,8 @@ public class ShiftReceiptDocumentBuilder extends AbstractPdfDocumentBuilder {
     }
 
     private String buildLogoTag() {
-        try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(companyLogoPath);
-            if (is != null) {
-                byte[] bytes = is.readAllBytes();
-                String b64  = Base64.getEncoder().encodeToString(bytes);
-                String mime = companyLogoPath.endsWith(".png") ? "image/png" : "image/jpeg";
-                return "<img class='logo-img' src='data:" + mime + ";base64," + b64 + "'/>";
-            }
-        } catch (IOException e) {
-            log.debug("Logo shift ticket non trouvé: {}", companyLogoPath);
-        }
-        return "";
+        String dataUri = logoDataUri(companyLogoPath);
+        return dataUri.isEmpty() ? "" : "<img class='logo-img' src='" + dataUri + "'/>";
     }
 
     private String fmtCur(BigDecimal amount) {
@@ -0,0 +1,45 @@
+package org.odema.posnew.design.context;
+
+import lombok.Getter;
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.Product;
+import org.odema.posnew.domain.model.StoreProductPrice;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Données catalogue d'un panier, chargées en un nombre fixe de requêtes
+ * ensemblistes (produits, inventaires du magasin, prix actifs) puis
+ * réutilisées pour la construction des lignes et la déduction du stock.
+ */
+@Getter
+public class BasketContext {
+
+    private final UUID storeId;
+    private final Map<UUID, Product> products;
+    private final Map<UUID, Inventory> inventories;
+    private final Map<UUID, StoreProductPrice> prices;
+
+    public BasketContext(UUID storeId,
+                         Map<UUID, Product> products,
+                         Map<UUID, Inventory> inventories,
+                         Map<UUID, StoreProductPrice> prices) {
+        this.storeId = storeId;
+        this.products = products;
+        this.inventories = inventories;
+        this.prices = prices;
+    }
+
+    public Product product(UUID productId) {
+        return products.get(productId);
+    }
+
+    public Inventory inventory(UUID productId) {
+        return inventories.get(productId);
+    }
+
+    public StoreProductPrice price(UUID productId) {
+        return prices.get(productId);
+    }
+}
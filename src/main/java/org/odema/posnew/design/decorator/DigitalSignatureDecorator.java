@@ -22,14 +22,12 @@ public class DigitalSignatureDecorator extends DocumentDecorator {
     }
 
     @Override
-    public byte[] build()  {
-        byte[] originalPdf = super.build();
-
+    protected PdfOverlay overlay() {
         // TODO: Implémenter signature numérique avec certificat
-        // Pour l'instant, on retourne le PDF tel quel
+        // Pour l'instant, aucune surimpression : le PDF n'est pas re-parsé pour rien
 
         log.debug("Signature numérique: {} - {}", signerName, signatureReason);
 
-        return originalPdf;
+        return null;
     }
 }
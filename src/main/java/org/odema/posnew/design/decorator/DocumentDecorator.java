@@ -1,11 +1,24 @@
 package org.odema.posnew.design.decorator;
 
 
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+import lombok.extern.slf4j.Slf4j;
 import org.odema.posnew.design.builder.DocumentBuilder;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
- * Decorator pour enrichir les documents PDF
+ * Decorator pour enrichir les documents PDF.
+ *
+ * Les décorateurs ne re-parsent plus le PDF chacun leur tour : le décorateur
+ * le plus externe collecte les surimpressions de toute la chaîne, fait rendre
+ * le builder de base une seule fois, puis applique toutes les surimpressions
+ * en une seule passe PdfReader/PdfStamper.
  */
+@Slf4j
 public abstract class DocumentDecorator implements DocumentBuilder {
 
     protected final DocumentBuilder wrappedBuilder;
@@ -14,38 +27,90 @@ public abstract class DocumentDecorator implements DocumentBuilder {
         this.wrappedBuilder = builder;
     }
 
+    /**
+     * Surimpression apportée par ce décorateur, ou null s'il n'a rien à appliquer.
+     */
+    protected abstract PdfOverlay overlay();
+
+    // Délégation puis retour du décorateur : la chaîne fluide se termine
+    // sur build() de ce décorateur, sinon les surimpressions seraient perdues
+
     @Override
     public DocumentBuilder initialize() {
-        return wrappedBuilder.initialize();
+        wrappedBuilder.initialize();
+        return this;
     }
 
     @Override
     public DocumentBuilder addHeader() {
-        return wrappedBuilder.addHeader();
+        wrappedBuilder.addHeader();
+        return this;
     }
 
     @Override
     public DocumentBuilder addMainInfo() {
-        return wrappedBuilder.addMainInfo();
+        wrappedBuilder.addMainInfo();
+        return this;
     }
 
     @Override
     public DocumentBuilder addItemsTable() {
-        return wrappedBuilder.addItemsTable();
+        wrappedBuilder.addItemsTable();
+        return this;
     }
 
     @Override
     public DocumentBuilder addTotals() {
-        return wrappedBuilder.addTotals();
+        wrappedBuilder.addTotals();
+        return this;
     }
 
     @Override
     public DocumentBuilder addFooter() {
-        return wrappedBuilder.addFooter();
+        wrappedBuilder.addFooter();
+        return this;
     }
 
     @Override
     public byte[] build()  {
-        return wrappedBuilder.build();
+        // Ordre d'application = ordre d'empilement (décorateur le plus interne d'abord)
+        Deque<PdfOverlay> overlays = new ArrayDeque<>();
+        DocumentBuilder base = this;
+        while (base instanceof DocumentDecorator decorator) {
+            PdfOverlay overlay = decorator.overlay();
+            if (overlay != null) overlays.addFirst(overlay);
+            base = decorator.wrappedBuilder;
+        }
+
+        byte[] pdf = base.build();
+        if (overlays.isEmpty()) return pdf;
+
+        try {
+            return stamp(pdf, overlays);
+        } catch (Exception e) {
+            log.error("Erreur post-traitement PDF", e);
+            return pdf; // Retourner le PDF sans surimpression en cas d'erreur
+        }
+    }
+
+    private byte[] stamp(byte[] pdfBytes, Deque<PdfOverlay> overlays) throws Exception {
+        PdfReader reader = new PdfReader(pdfBytes);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(pdfBytes.length + 8192);
+        PdfStamper stamper = new PdfStamper(reader, output);
+        try {
+            for (PdfOverlay overlay : overlays) {
+                try {
+                    overlay.apply(reader, stamper);
+                } catch (Exception e) {
+                    // Une surimpression en échec n'empêche pas les autres
+                    log.error("Erreur surimpression PDF", e);
+                }
+            }
+        } finally {
+            stamper.close();
+            reader.close();
+        }
+        log.debug("{} surimpression(s) appliquée(s) en une passe", overlays.size());
+        return output.toByteArray();
     }
 }
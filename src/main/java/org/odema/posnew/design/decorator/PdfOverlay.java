@@ -0,0 +1,15 @@
+package org.odema.posnew.design.decorator;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+
+/**
+ * Surimpression appliquée à un PDF déjà rendu (QR code, watermark, signature…).
+ * Toutes les surimpressions d'une chaîne de décorateurs partagent
+ * le même PdfReader/PdfStamper : le PDF n'est relu et réécrit qu'une fois.
+ */
+@FunctionalInterface
+public interface PdfOverlay {
+
+    void apply(PdfReader reader, PdfStamper stamper) throws Exception;
+}
@@ -0,0 +1,58 @@
+package org.odema.posnew.design.decorator;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU des QR codes encodés en PNG, indexé par contenu.
+ * Une réimpression ou un second type de document pour la même facture
+ * réutilise l'image au lieu de ré-encoder la matrice.
+ */
+final class QRCodeImageCache {
+
+    private static final int MAX_ENTRIES = 512;
+    private static final int SIZE_PX = 150;
+
+    private static final Map<String, byte[]> IMAGES =
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private QRCodeImageCache() {
+    }
+
+    static byte[] png(String payload) throws WriterException, IOException {
+        synchronized (IMAGES) {
+            byte[] cached = IMAGES.get(payload);
+            if (cached != null) return cached;
+        }
+        // Encodage hors verrou : au pire deux threads encodent le même contenu
+        byte[] png = encode(payload);
+        synchronized (IMAGES) {
+            IMAGES.put(payload, png);
+        }
+        return png;
+    }
+
+    private static byte[] encode(String payload) throws WriterException, IOException {
+        BitMatrix bitMatrix = new QRCodeWriter().encode(
+                payload,
+                BarcodeFormat.QR_CODE,
+                SIZE_PX, SIZE_PX
+        );
+        ByteArrayOutputStream qrOutput = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", qrOutput);
+        return qrOutput.toByteArray();
+    }
+}
@@ -2,6 +2,7 @@ package org.odema.posnew.design.event;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.config.AsyncExecutorsConfiguration;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
@@ -17,7 +18,7 @@ public class DocumentEventListener {
     /**
      * Réagit à la génération d'un ticket
      */
-    @Async
+    @Async(AsyncExecutorsConfiguration.IO)
     @EventListener
     public void handleReceiptGenerated(ReceiptGeneratedEvent event) {
         log.info("Événement: Ticket généré - {} pour commande {}",
@@ -33,7 +34,7 @@ public class DocumentEventListener {
     /**
      * Réagit à la génération d'une facture
      */
-    @Async
+    @Async(AsyncExecutorsConfiguration.IO)
     @EventListener
     public void handleInvoiceGenerated(InvoiceGeneratedEvent event) {
         log.info("Événement: Facture générée - {} pour commande {}",
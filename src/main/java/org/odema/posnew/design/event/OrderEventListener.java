@@ -1,59 +1,18 @@
 package org.odema.posnew.design.event;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.odema.posnew.design.facade.DocumentGenerationFacade;
-import org.odema.posnew.design.factory.SaleStrategyFactory;
-import org.odema.posnew.design.strategy.SaleStrategy;
-
 import org.odema.posnew.domain.model.Order;
-import org.odema.posnew.domain.model.enums.DocumentType;
-import org.odema.posnew.domain.model.enums.OrderType;
-import org.odema.posnew.domain.model.enums.ReceiptType;
-import org.odema.posnew.domain.service.InvoiceService;
-import org.odema.posnew.domain.service.ReceiptService;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 /**
- * Listener qui réagit aux événements commande
+ * Listener qui réagit aux événements commande.
+ * La génération du document de vente passe par l'outbox ({@code DocumentOutboxHandler}).
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OrderEventListener {
 
-    private final DocumentGenerationFacade documentFacade;
-    private final SaleStrategyFactory strategyFactory;
-    private  final InvoiceService invoiceService;
-    private    final ReceiptService receiptService;
-
-    /**
-     * Génère automatiquement le document approprié lors de la création
-     */
-    @Async
-    @EventListener
-    public void handleOrderCreated(OrderCreatedEvent event) {
-        Order order = event.getOrder();
-        log.info("Événement: Commande créée - {}", order.getOrderNumber());
-
-        try {
-            SaleStrategy strategy = strategyFactory.getStrategy(
-                    order.getOrderType() != null ? order.getOrderType() : OrderType.POS_SALE
-            );
-            DocumentType docType = strategy.getDocumentType();
-
-            switch (docType) {
-                case INVOICE, PROFORMA -> invoiceService.generateInvoice(order.getOrderId());
-                case TICKET, RECEIPT -> receiptService.generateReceipt(order.getOrderId(), ReceiptType.SALE);
-            }
-
-            log.info("Document {} généré pour commande {}", docType, order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Erreur génération document automatique", e);
-        }
-    }
     /**
      * Actions lors de la complétion d'une commande
      */
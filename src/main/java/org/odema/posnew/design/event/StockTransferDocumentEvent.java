@@ -0,0 +1,17 @@
+package org.odema.posnew.design.event;
+
+import lombok.Getter;
+import org.odema.posnew.domain.model.StockTransfer;
+
+/**
+ * Document de transfert enregistré : un seul événement pour toutes ses lignes.
+ */
+@Getter
+public class StockTransferDocumentEvent extends StockEvent {
+    private final StockTransfer transfer;
+
+    public StockTransferDocumentEvent(Object source, StockTransfer transfer) {
+        super(source);
+        this.transfer = transfer;
+    }
+}
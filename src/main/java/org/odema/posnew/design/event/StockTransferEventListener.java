@@ -17,4 +17,12 @@ public class StockTransferEventListener {
 
         // Notification au store de destination pour préparer la réception
     }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockTransferDocument(StockTransferDocumentEvent event) {
+        log.info("TRANSFERT STOCK {} : {} ligne(s), {} unités de '{}' vers '{}'",
+                event.getTransfer().getTransferNumber(), event.getTransfer().getLines().size(),
+                event.getTransfer().getTotalQuantity(),
+                event.getTransfer().getFromStore().getName(), event.getTransfer().getToStore().getName());
+    }
 }
\ No newline at end of file
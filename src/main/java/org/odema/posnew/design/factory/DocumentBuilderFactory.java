@@ -12,6 +12,7 @@ import org.odema.posnew.domain.model.Order;
 import org.odema.posnew.domain.model.Receipt;
 import org.odema.posnew.domain.model.Refund;
 import org.odema.posnew.domain.model.ShiftReport;
+import org.odema.posnew.domain.model.StockTransfer;
 import org.odema.posnew.domain.model.enums.DocumentType;
 import org.odema.posnew.domain.model.enums.ReceiptType;
 import org.springframework.stereotype.Component;
@@ -110,6 +111,23 @@ public class DocumentBuilderFactory {
                 );
     }
 
+    /**
+     * Crée un builder pour le bon de livraison d'un transfert entre magasins
+     */
+    public DeliveryNoteDocumentBuilder createTransferDeliveryNoteBuilder(StockTransfer transfer) {
+        log.debug("Création DeliveryNoteDocumentBuilder pour transfert {}", transfer.getTransferNumber());
+        return new DeliveryNoteDocumentBuilder()
+                .withConfig(
+                        config.getCompanyName(),
+                        config.getCompanyAddress(),
+                        config.getCompanyPhone(),
+                        config.getCompanyEmail(),
+                        config.getCompanyTaxId(),
+                        config.getCompanyWebsite()
+                )
+                .withTransfer(transfer);
+    }
+
     /**
      * Crée un builder pour un ticket de remboursement
      */
@@ -0,0 +1,16 @@
+package org.odema.posnew.design.mobilemoney;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Demande de débit transmise à l'opérateur ; {@code paymentId} revient dans le callback.
+ */
+public record MobileMoneyCharge(
+        UUID paymentId,
+        String provider,
+        String phoneNumber,
+        BigDecimal amount,
+        String orderNumber
+) {
+}
@@ -0,0 +1,18 @@
+package org.odema.posnew.design.mobilemoney;
+
+/**
+ * Accès aux API des opérateurs Mobile Money (MTN, Orange, Airtel).
+ * <p>
+ * {@link #initiate} est un appel réseau bloquant : il est toujours exécuté sur la
+ * voie I/O (threads virtuels), jamais sur un thread de requête. Il ne fait que
+ * déclencher la demande de validation sur le téléphone du client ; le résultat
+ * arrive plus tard par callback.
+ */
+public interface MobileMoneyGateway {
+
+    /**
+     * @return référence de la transaction chez l'opérateur (peut être {@code null})
+     * @throws RuntimeException si l'opérateur refuse la demande
+     */
+    String initiate(MobileMoneyCharge charge);
+}
@@ -0,0 +1,68 @@
+package org.odema.posnew.design.mobilemoney;
+
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.dto.request.MobileMoneyCallbackRequest;
+import org.odema.posnew.config.AsyncExecutorsConfiguration;
+import org.odema.posnew.config.LaneExecutor;
+import org.odema.posnew.domain.service.MobileMoneyPaymentService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opérateur simulé (développement, tests) : accepte la demande puis rappelle le
+ * callback après {@code confirm-delay-ms}. Un numéro se terminant par {@code 0}
+ * simule un refus du client.
+ * <p>
+ * Jamais actif par défaut : uniquement sous les profils {@code dev} ou {@code test}
+ * et avec {@code app.payment.mobile-money.gateway=stub} explicite.
+ */
+@Slf4j
+@Component
+@Profile({"dev", "test"})
+@ConditionalOnProperty(name = "app.payment.mobile-money.gateway", havingValue = "stub")
+public class StubMobileMoneyGateway implements MobileMoneyGateway {
+
+    private final ObjectProvider<MobileMoneyPaymentService> paymentService;
+    private final LaneExecutor ioExecutor;
+    private final long confirmDelayMs;
+    private final String callbackSecret;
+
+    public StubMobileMoneyGateway(ObjectProvider<MobileMoneyPaymentService> paymentService,
+                                  @Qualifier(AsyncExecutorsConfiguration.IO) LaneExecutor ioExecutor,
+                                  @Value("${app.payment.mobile-money.stub.confirm-delay-ms:3000}") long confirmDelayMs,
+                                  @Value("${app.payment.mobile-money.callback-secret:}") String callbackSecret) {
+        this.paymentService = paymentService;
+        this.ioExecutor = ioExecutor;
+        this.confirmDelayMs = confirmDelayMs;
+        this.callbackSecret = callbackSecret;
+    }
+
+    @Override
+    public String initiate(MobileMoneyCharge charge) {
+        String reference = charge.provider() + "-" + UUID.randomUUID();
+        boolean success = !charge.phoneNumber().endsWith("0");
+        log.info("[STUB] Demande Mobile Money {} {} FCFA → {} ({})",
+                charge.provider(), charge.amount(), charge.phoneNumber(), success ? "acceptée" : "refusée");
+
+        MobileMoneyCallbackRequest callback = new MobileMoneyCallbackRequest(
+                charge.paymentId(), reference, success, charge.amount(),
+                success ? null : "Refusé par le client");
+        CompletableFuture.runAsync(() -> {
+            try {
+                paymentService.getObject().handleCallback(callbackSecret, callback);
+            } catch (UnauthorizedException e) {
+                log.error("[STUB] Callback refusé : app.payment.mobile-money.callback-secret non configuré");
+            }
+        }, CompletableFuture.delayedExecutor(confirmDelayMs, TimeUnit.MILLISECONDS, ioExecutor));
+        return reference;
+    }
+}
@@ -0,0 +1,67 @@
+package org.odema.posnew.design.outbox;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.design.factory.SaleStrategyFactory;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.enums.DocumentType;
+import org.odema.posnew.domain.model.enums.OrderType;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.model.enums.ReceiptType;
+import org.odema.posnew.domain.repository.InvoiceRepository;
+import org.odema.posnew.domain.repository.ReceiptRepository;
+import org.odema.posnew.domain.service.InvoiceService;
+import org.odema.posnew.domain.service.ReceiptService;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Génère le document de vente (ticket ou facture selon la stratégie) d'une commande créée.
+ * Remplace l'ancien {@code @Async @EventListener} : la génération ne démarre qu'une fois
+ * la commande commitée et survit à un redémarrage.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentOutboxHandler implements OutboxHandler {
+
+    private final SaleStrategyFactory strategyFactory;
+    private final InvoiceService invoiceService;
+    private final ReceiptService receiptService;
+    private final InvoiceRepository invoiceRepository;
+    private final ReceiptRepository receiptRepository;
+
+    @Override
+    public Set<OutboxEventType> eventTypes() {
+        return Set.of(OutboxEventType.ORDER_CREATED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        UUID orderId = event.getUuid("orderId");
+        OrderType orderType = event.get("orderType") != null
+                ? OrderType.valueOf(event.get("orderType"))
+                : OrderType.POS_SALE;
+        DocumentType docType = strategyFactory.getStrategy(orderType).getDocumentType();
+
+        // Idempotence : un document déjà généré (tentative précédente) n'est pas refait
+        switch (docType) {
+            case INVOICE, PROFORMA -> {
+                if (invoiceRepository.findByOrder_OrderId(orderId).isEmpty()) {
+                    invoiceService.generateInvoice(orderId);
+                }
+            }
+            case TICKET, RECEIPT -> {
+                if (receiptRepository.findByOrder_OrderId(orderId).isEmpty()) {
+                    receiptService.generateReceipt(orderId, ReceiptType.SALE);
+                }
+            }
+            default -> {
+                return;
+            }
+        }
+        log.info("Document {} généré pour commande {}", docType, event.get("orderNumber"));
+    }
+}
@@ -0,0 +1,45 @@
+package org.odema.posnew.design.outbox;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.repository.LoyaltyTransactionRepository;
+import org.odema.posnew.domain.service.LoyaltyService;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Attribue les points fidélité d'une commande terminée.
+ * Un échec est retenté par l'outbox (plus de rattrapage manuel nécessaire).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoyaltyOutboxHandler implements OutboxHandler {
+
+    private final LoyaltyService loyaltyService;
+    private final LoyaltyTransactionRepository loyaltyTransactionRepository;
+
+    @Override
+    public Set<OutboxEventType> eventTypes() {
+        return Set.of(OutboxEventType.ORDER_COMPLETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        UUID customerId = event.getUuid("customerId");
+        if (customerId == null) return;
+
+        UUID orderId = event.getUuid("orderId");
+        // Idempotence : points déjà attribués pour cette commande
+        if (!loyaltyTransactionRepository.findByOrderId(orderId).isEmpty()) return;
+
+        BigDecimal amount = new BigDecimal(event.get("totalAmount"));
+        loyaltyService.awardPointsForPurchase(customerId, amount, orderId);
+        log.info("Points fidélité attribués pour commande {}: {}", event.get("orderNumber"), amount);
+    }
+}
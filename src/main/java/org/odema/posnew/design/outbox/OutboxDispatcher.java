@@ -0,0 +1,168 @@
+package org.odema.posnew.design.outbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.model.enums.OutboxStatus;
+import org.odema.posnew.domain.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distribution de l'outbox par lots.
+ * <p>
+ * Chaque lot est réservé dans une transaction (verrous {@code FOR UPDATE SKIP LOCKED}),
+ * chaque handler s'exécute dans sa propre transaction : l'échec d'un événement ne
+ * remet en cause ni ses voisins ni l'acquittement du lot. Un événement en échec est
+ * retenté avec un délai exponentiel ; tant qu'il n'est pas distribué (PENDING, ou
+ * FAILED après abandon), les événements suivants du même agrégat attendent (ordre
+ * garanti par agrégat). La jauge {@code pos.outbox.failed} signale les agrégats bloqués.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate claimTx;
+    private final TransactionTemplate handlerTx;
+    private final TransactionTemplate cleanupTx;
+    private final Map<OutboxEventType, List<OutboxHandler>> handlers = new EnumMap<>(OutboxEventType.class);
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private final int retentionDays;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<OutboxHandler> outboxHandlers,
+                            MeterRegistry meterRegistry,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.outbox.batch-size:100}") int batchSize,
+                            @Value("${app.outbox.max-batches-per-poll:20}") int maxBatchesPerPoll,
+                            @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${app.outbox.retry-base-ms:1000}") long retryBaseMs,
+                            @Value("${app.outbox.retry-max-ms:300000}") long retryMaxMs,
+                            @Value("${app.outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.meterRegistry = meterRegistry;
+        this.claimTx = new TransactionTemplate(transactionManager);
+        this.handlerTx = new TransactionTemplate(transactionManager);
+        this.handlerTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cleanupTx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        this.retentionDays = retentionDays;
+
+        for (OutboxHandler handler : outboxHandlers) {
+            for (OutboxEventType type : handler.eventTypes()) {
+                handlers.computeIfAbsent(type, t -> new ArrayList<>()).add(handler);
+            }
+        }
+        Gauge.builder("pos.outbox.pending", pending, AtomicLong::get)
+                .description("Événements de l'outbox en attente de distribution")
+                .register(meterRegistry);
+        Gauge.builder("pos.outbox.failed", failed, AtomicLong::get)
+                .description("Événements abandonnés, bloquant la suite de leur agrégat")
+                .register(meterRegistry);
+        log.info("Outbox: {} handlers pour {} types d'événements", outboxHandlers.size(), handlers.size());
+    }
+
+    /**
+     * Relève l'outbox. Enchaîne les lots tant qu'ils reviennent non vides
+     * (les événements suivants d'un agrégat deviennent éligibles au lot d'après),
+     * dans la limite de {@code maxBatchesPerPoll}.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void poll() {
+        int batches = 0;
+        int dispatched;
+        do {
+            Integer count = claimTx.execute(status -> dispatchBatch());
+            dispatched = count != null ? count : 0;
+            batches++;
+        } while (dispatched > 0 && batches < maxBatchesPerPoll);
+
+        pending.set(outboxEventRepository.countByStatus(OutboxStatus.PENDING));
+        failed.set(outboxEventRepository.countByStatus(OutboxStatus.FAILED));
+    }
+
+    /**
+     * Purge quotidienne des événements distribués au-delà de la rétention.
+     */
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 30 3 * * *}")
+    public void purgeProcessed() {
+        Integer deleted = cleanupTx.execute(status -> outboxEventRepository
+                .deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays)));
+        log.info("Outbox: {} événements distribués purgés", deleted);
+    }
+
+    // ═══════════════════════════════════════════════════
+    // INTERNES
+    // ═══════════════════════════════════════════════════
+
+    private int dispatchBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.claimBatch(batchSize);
+        for (OutboxEvent event : batch) {
+            dispatch(event);
+        }
+        outboxEventRepository.saveAll(batch);
+        return batch.size();
+    }
+
+    private void dispatch(OutboxEvent event) {
+        try {
+            for (OutboxHandler handler : handlers.getOrDefault(event.getEventType(), List.of())) {
+                handlerTx.executeWithoutResult(status -> {
+                    try {
+                        handler.handle(event);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                });
+            }
+            event.markProcessed();
+            meterRegistry.timer("pos.outbox.lag", "type", event.getEventType().name())
+                    .record(Duration.between(event.getCreatedAt(), event.getProcessedAt()));
+            meterRegistry.counter("pos.outbox.dispatched",
+                    "type", event.getEventType().name(), "outcome", "processed").increment();
+
+        } catch (RuntimeException e) {
+            long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(event.getAttempts(), 20));
+            event.markFailed(e.getMessage(), maxAttempts, delay);
+            boolean abandoned = event.getStatus() == OutboxStatus.FAILED;
+            meterRegistry.counter("pos.outbox.dispatched",
+                    "type", event.getEventType().name(), "outcome", abandoned ? "failed" : "retry").increment();
+            if (abandoned) {
+                log.error("Outbox: événement {} {} abandonné après {} tentatives — agrégat {} bloqué",
+                        event.getEventType(), event.getEventId(), event.getAttempts(), event.getAggregateId(), e);
+            } else {
+                log.warn("Outbox: événement {} {} en échec (tentative {}), nouvel essai dans {} ms: {}",
+                        event.getEventType(), event.getEventId(), event.getAttempts(), delay, e.getMessage());
+            }
+        }
+    }
+}
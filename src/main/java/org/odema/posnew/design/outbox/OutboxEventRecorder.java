@@ -0,0 +1,155 @@
+package org.odema.posnew.design.outbox;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.design.event.*;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.StockTransfer;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.repository.OutboxEventRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Écrit les événements métier dans l'outbox, de façon synchrone, dans la transaction
+ * de l'émetteur : l'événement est commité (ou annulé) avec la commande, le paiement
+ * ou le mouvement de stock qui l'a produit. Les émetteurs restent inchangés
+ * ({@code ApplicationEventPublisher}).
+ * <p>
+ * Chaque événement prend le rang suivant de son agrégat ; le compteur reste verrouillé
+ * jusqu'au commit de l'émetteur. Les agrégats d'une même transaction sont ceux dont
+ * l'émetteur tient déjà les verrous (commande, lignes d'inventaire dans l'ordre
+ * {@code Inventory.LOCK_ORDER}) : ces compteurs ne créent pas de nouvel ordre de verrouillage.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxEventRecorder {
+
+    private static final String ORDER = "ORDER";
+    private static final String INVENTORY = "INVENTORY";
+    private static final String TRANSFER = "TRANSFER";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @EventListener
+    public void onOrderCreated(OrderCreatedEvent event) {
+        record(OutboxEventType.ORDER_CREATED, ORDER, event.getOrder().getOrderId(), orderPayload(event.getOrder()));
+    }
+
+    @EventListener
+    public void onOrderCompleted(OrderCompletedEvent event) {
+        record(OutboxEventType.ORDER_COMPLETED, ORDER, event.getOrder().getOrderId(), orderPayload(event.getOrder()));
+    }
+
+    @EventListener
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        record(OutboxEventType.ORDER_CANCELLED, ORDER, event.getOrder().getOrderId(), orderPayload(event.getOrder()));
+    }
+
+    @EventListener
+    public void onPaymentReceived(PaymentReceivedEvent event) {
+        Map<String, String> payload = orderPayload(event.getOrder());
+        payload.put("paymentId", String.valueOf(event.getPayment().getPaymentId()));
+        payload.put("method", String.valueOf(event.getPayment().getMethod()));
+        payload.put("amount", String.valueOf(event.getPayment().getAmount()));
+        record(OutboxEventType.PAYMENT_RECEIVED, ORDER, event.getOrder().getOrderId(), payload);
+    }
+
+    @EventListener
+    public void onStockAdjusted(StockAdjustmentEvent event) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("inventoryId", String.valueOf(event.getInventoryId()));
+        payload.put("productId", String.valueOf(event.getProductId()));
+        payload.put("productName", event.getProductName());
+        payload.put("storeId", String.valueOf(event.getStoreId()));
+        payload.put("operation", event.getOperation());
+        payload.put("quantityChanged", String.valueOf(event.getQuantityChanged()));
+        payload.put("newTotalQuantity", String.valueOf(event.getNewTotalQuantity()));
+        payload.put("reason", event.getReason());
+        record(OutboxEventType.STOCK_ADJUSTED, INVENTORY,
+                inventoryAggregate(event.getStoreId(), event.getProductId()), payload);
+    }
+
+    @EventListener
+    public void onLowStock(LowStockEvent event) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("productId", String.valueOf(event.getProductId()));
+        payload.put("productName", event.getProductName());
+        payload.put("storeId", String.valueOf(event.getStoreId()));
+        payload.put("storeName", event.getStoreName());
+        payload.put("currentQuantity", String.valueOf(event.getCurrentQuantity()));
+        payload.put("reorderPoint", String.valueOf(event.getReorderPoint()));
+        record(OutboxEventType.STOCK_LOW, INVENTORY,
+                inventoryAggregate(event.getStoreId(), event.getProductId()), payload);
+    }
+
+    @EventListener
+    public void onStockTransferred(StockTransferEvent event) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("productId", String.valueOf(event.getProductId()));
+        payload.put("productName", event.getProductName());
+        payload.put("fromStoreId", String.valueOf(event.getFromStoreId()));
+        payload.put("toStoreId", String.valueOf(event.getToStoreId()));
+        payload.put("quantity", String.valueOf(event.getQuantity()));
+        record(OutboxEventType.STOCK_TRANSFERRED, INVENTORY,
+                inventoryAggregate(event.getFromStoreId(), event.getProductId()), payload);
+    }
+
+    @EventListener
+    public void onStockTransferDocument(StockTransferDocumentEvent event) {
+        StockTransfer transfer = event.getTransfer();
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("transferId", String.valueOf(transfer.getTransferId()));
+        payload.put("transferNumber", transfer.getTransferNumber());
+        payload.put("fromStoreId", String.valueOf(transfer.getFromStore().getStoreId()));
+        payload.put("toStoreId", String.valueOf(transfer.getToStore().getStoreId()));
+        payload.put("lineCount", String.valueOf(transfer.getLines().size()));
+        payload.put("totalQuantity", String.valueOf(transfer.getTotalQuantity()));
+        record(OutboxEventType.STOCK_TRANSFER_CREATED, TRANSFER, transfer.getTransferId(), payload);
+    }
+
+    // ═══════════════════════════════════════════════════
+    // INTERNES
+    // ═══════════════════════════════════════════════════
+
+    private void record(OutboxEventType type, String aggregateType, UUID aggregateId,
+                        Map<String, String> payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Émis hors transaction : écrit seul, sans atomicité avec l'émetteur
+            log.warn("Événement {} ({}) émis hors transaction", type, aggregateId);
+        }
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(type)
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .aggregateSeq(outboxEventRepository.nextAggregateSeq(aggregateId))
+                .payload(payload)
+                .build());
+    }
+
+    private static Map<String, String> orderPayload(Order order) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("orderId", String.valueOf(order.getOrderId()));
+        payload.put("orderNumber", order.getOrderNumber());
+        payload.put("orderType", order.getOrderType() != null ? order.getOrderType().name() : null);
+        payload.put("storeId", String.valueOf(order.getStore().getStoreId()));
+        if (order.getCustomer() != null) {
+            payload.put("customerId", String.valueOf(order.getCustomer().getCustomerId()));
+        }
+        payload.put("totalAmount", String.valueOf(order.getTotalAmount()));
+        return payload;
+    }
+
+    /** Agrégat de stock = ligne d'inventaire (magasin, produit) */
+    private static UUID inventoryAggregate(UUID storeId, UUID productId) {
+        return UUID.nameUUIDFromBytes((storeId + ":" + productId).getBytes(StandardCharsets.UTF_8));
+    }
+}
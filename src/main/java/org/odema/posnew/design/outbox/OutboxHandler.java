@@ -0,0 +1,18 @@
+package org.odema.posnew.design.outbox;
+
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+
+import java.util.Set;
+
+/**
+ * Traitement d'un événement de l'outbox, exécuté dans sa propre transaction.
+ * Un événement peut être redistribué (échec puis nouvelle tentative, arrêt avant
+ * l'acquittement) : les implémentations doivent être idempotentes.
+ */
+public interface OutboxHandler {
+
+    Set<OutboxEventType> eventTypes();
+
+    void handle(OutboxEvent event) throws Exception;
+}
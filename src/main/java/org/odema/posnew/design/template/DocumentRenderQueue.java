@@ -0,0 +1,145 @@
+package org.odema.posnew.design.template;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.config.AsyncExecutorsConfiguration;
+import org.odema.posnew.config.LaneExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * File de rendu PDF hors du chemin d'encaissement.
+ *
+ * Le document est d'abord enregistré (statut PENDING) dans la transaction
+ * appelante ; le rendu est soumis après le commit à une voie d'exécution bornée
+ * (tickets en priorité haute, factures en basse : une rafale de factures
+ * n'affame pas les tickets) et s'exécute dans sa propre transaction.
+ * Les lectures PDF peuvent attendre un rendu en cours via {@link #await}.
+ * Un rendu perdu (voie pleine, arrêt) est relancé par {@link DocumentRenderSweeper}.
+ */
+@Slf4j
+@Component
+public class DocumentRenderQueue {
+
+    public enum RenderPriority { HIGH, LOW }
+
+    private final LaneExecutor highLane;
+    private final LaneExecutor lowLane;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<UUID, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final Timer renderTimer;
+    private final Counter failureCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${app.document.render.await-timeout-ms:15000}")
+    private long awaitTimeoutMs;
+
+    public DocumentRenderQueue(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Qualifier(AsyncExecutorsConfiguration.HIGH_PRIORITY) LaneExecutor highLane,
+                               @Qualifier(AsyncExecutorsConfiguration.LOW_PRIORITY) LaneExecutor lowLane) {
+        this.highLane = highLane;
+        this.lowLane = lowLane;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.renderTimer     = meterRegistry.timer("pos.document.render");
+        this.failureCounter  = meterRegistry.counter("pos.document.render.failures");
+        this.rejectedCounter = meterRegistry.counter("pos.document.render.rejected");
+    }
+
+    /**
+     * Soumet le rendu après le commit de la transaction courante
+     * (immédiatement s'il n'y en a pas) : le worker doit voir le document.
+     *
+     * @param render    rendu + stockage, exécuté dans une nouvelle transaction
+     * @param onFailure marquage de l'échec, exécuté dans une transaction séparée
+     */
+    public void submitAfterCommit(UUID documentId,
+                                  RenderPriority priority,
+                                  Supplier<byte[]> render,
+                                  Consumer<UUID> onFailure) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(documentId, priority, render, onFailure);
+                }
+            });
+        } else {
+            submit(documentId, priority, render, onFailure);
+        }
+    }
+
+    /**
+     * Attend la fin d'un rendu en cours pour ce document.
+     * Vide si aucun rendu n'est en file, s'il a échoué ou si le délai expire —
+     * l'appelant rend alors lui-même le document.
+     */
+    public Optional<byte[]> await(UUID documentId) {
+        CompletableFuture<byte[]> future = inFlight.get(documentId);
+        if (future == null) return Optional.empty();
+        try {
+            return Optional.ofNullable(future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Rendu document {} indisponible: {}", documentId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void submit(UUID documentId, RenderPriority priority,
+                        Supplier<byte[]> render, Consumer<UUID> onFailure) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(documentId, future) != null) {
+            log.debug("Rendu déjà en file pour document {}", documentId);
+            return;
+        }
+        LaneExecutor lane = priority == RenderPriority.HIGH ? highLane : lowLane;
+        if (!lane.trySubmit(() -> run(documentId, render, onFailure, future))) {
+            // Le document reste PENDING : il sera rendu à la première lecture
+            inFlight.remove(documentId, future);
+            rejectedCounter.increment();
+            log.warn("Voie {} pleine — document {} rendu à la demande", lane.getName(), documentId);
+        }
+    }
+
+    private void run(UUID documentId,
+                     Supplier<byte[]> render,
+                     Consumer<UUID> onFailure,
+                     CompletableFuture<byte[]> future) {
+        Timer.Sample sample = Timer.start();
+        try {
+            byte[] pdf = transactionTemplate.execute(status -> render.get());
+            future.complete(pdf);
+        } catch (Exception e) {
+            failureCounter.increment();
+            log.error("Échec rendu PDF document {}", documentId, e);
+            try {
+                transactionTemplate.executeWithoutResult(status -> onFailure.accept(documentId));
+            } catch (Exception ex) {
+                log.error("Impossible de marquer l'échec du rendu {}", documentId, ex);
+            }
+            future.completeExceptionally(e);
+        } finally {
+            sample.stop(renderTimer);
+            inFlight.remove(documentId, future);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.odema.posnew.design.template;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Balayage des documents dont le rendu n'a jamais abouti : soumission refusée par une
+ * voie pleine, instance arrêtée avant le rendu, rendu perdu. Les documents PENDING
+ * depuis plus de {@code stale-minutes} sont remis en file ; au-delà de
+ * {@code max-attempts} relances ils passent en FAILED.
+ */
+@Slf4j
+@Component
+public class DocumentRenderSweeper {
+
+    private final List<DocumentServiceTemplate<?, ?>> documentServices;
+    private final Counter resubmittedCounter;
+    private final Counter abandonedCounter;
+    private final long staleMinutes;
+    private final int maxAttempts;
+    private final int batchSize;
+
+    public DocumentRenderSweeper(List<DocumentServiceTemplate<?, ?>> documentServices,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.document.render.stale-minutes:5}") long staleMinutes,
+                                 @Value("${app.document.render.max-attempts:3}") int maxAttempts,
+                                 @Value("${app.document.render.sweep-batch-size:200}") int batchSize) {
+        this.documentServices = documentServices;
+        this.resubmittedCounter = meterRegistry.counter("pos.document.render.resubmitted");
+        this.abandonedCounter = meterRegistry.counter("pos.document.render.abandoned");
+        this.staleMinutes = staleMinutes;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.document.render.sweep-interval-ms:60000}")
+    public void sweep() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(staleMinutes);
+        for (DocumentServiceTemplate<?, ?> service : documentServices) {
+            try {
+                DocumentServiceTemplate.StaleRenders result =
+                        service.resubmitStaleRenders(before, maxAttempts, batchSize);
+                resubmittedCounter.increment(result.resubmitted());
+                abandonedCounter.increment(result.failed());
+                if (result.resubmitted() > 0 || result.failed() > 0) {
+                    log.info("Rendus relancés ({}) : {} remis en file, {} en échec",
+                            service.getClass().getSimpleName(), result.resubmitted(), result.failed());
+                }
+            } catch (RuntimeException e) {
+                log.error("Balayage des rendus en attente impossible ({})",
+                        service.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
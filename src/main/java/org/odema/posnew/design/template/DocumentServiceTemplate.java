@@ -11,12 +11,16 @@ import org.odema.posnew.design.strategy.ValidationResult;
 import org.odema.posnew.api.exception.BadRequestException;
 import org.odema.posnew.domain.model.Order;
 import org.odema.posnew.domain.model.enums.DocumentType;
+import org.odema.posnew.domain.model.enums.RenderStatus;
 import org.odema.posnew.domain.repository.OrderRepository;
 import org.odema.posnew.domain.service.DocumentNumberService;
 import org.odema.posnew.domain.service.FileStorageService;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -27,6 +31,8 @@ import java.util.UUID;
  *  - Les sous-classes surchargent UNIQUEMENT si elles ont besoin de décorateurs
  *    ou d'une logique spéciale (shift receipts, watermark, QR code...)
  *  - Plus de new XxxBuilder() dans les services
+ *  - Le rendu PDF est asynchrone : generateDocument() enregistre le document
+ *    en PENDING et confie le rendu à {@link DocumentRenderQueue} après commit
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -37,6 +43,7 @@ public abstract class DocumentServiceTemplate<T, R> {
     protected final DocumentNumberService documentNumberService;
     protected final FileStorageService fileStorageService;
     protected final DocumentBuilderFactory builderFactory;  // ✅ injecté ici
+    protected final DocumentRenderQueue renderQueue;
 
     // =========================================================================
     // TEMPLATE METHOD — génération
@@ -70,32 +77,24 @@ public abstract class DocumentServiceTemplate<T, R> {
         // 6. Générer le numéro unique
         String documentNumber = generateUniqueDocumentNumber(order, strategy);
 
-        // 7. Créer l'entité
+        // 7. Créer l'entité — PDF à rendre
         T document = createDocumentEntity(order, strategy, documentNumber);
+        updateRenderStatus(document, RenderStatus.PENDING);
 
-        // 8. Sauvegarder pour obtenir l'ID
+        // 8. Hook post-génération
+        document = afterDocumentGeneration(document, order, strategy);
+
+        // 9. Sauvegarder (une seule écriture)
         T savedDocument = saveDocument(document);
         log.debug("Document sauvegardé avec ID: {}", getDocumentId(savedDocument));
 
-        // 9. ✅ Générer le PDF via la factory — plus de new Builder() dans les services
-        byte[] pdfBytes = generatePdfDocument(savedDocument, strategy);
-
-        // 10. Sauvegarder le PDF sur disque
-        String pdfPath = savePdfDocument(savedDocument, pdfBytes, documentNumber);
-
-        // 11. Mettre à jour le chemin PDF
-        updateDocumentWithPdfPath(savedDocument, pdfPath);
-
-        // 12. Re-sauvegarder avec le chemin
-        savedDocument = saveDocument(savedDocument);
-
-        // 13. Hook post-génération
-        savedDocument = afterDocumentGeneration(savedDocument, order, strategy);
+        // 10. Rendu PDF asynchrone, soumis après le commit
+        requestRender(savedDocument, strategy, documentNumber);
 
-        // 14. Publier événement
+        // 11. Publier événement
         publishDocumentEvent(savedDocument, order);
 
-        log.info("Document {} généré avec succès", documentNumber);
+        log.info("Document {} enregistré, rendu PDF en file", documentNumber);
 
         return mapToResponse(savedDocument);
     }
@@ -145,6 +144,82 @@ public abstract class DocumentServiceTemplate<T, R> {
                 .build();
     }
 
+    // =========================================================================
+    // RENDU ASYNCHRONE
+    // =========================================================================
+
+    /**
+     * Met le rendu PDF du document en file. Le worker recharge le document
+     * dans sa propre transaction, rend le PDF, le stocke et passe le statut
+     * à RENDERED (FAILED en cas d'erreur).
+     */
+    protected void requestRender(T document, DocumentStrategy strategy, String documentNumber) {
+        UUID documentId = getDocumentId(document);
+        renderQueue.submitAfterCommit(documentId, renderPriority(),
+                () -> renderAndStore(documentId, strategy, documentNumber),
+                this::markRenderFailed);
+    }
+
+    /**
+     * Voie de rendu : basse par défaut (factures), haute pour les tickets remis en caisse.
+     */
+    protected DocumentRenderQueue.RenderPriority renderPriority() {
+        return DocumentRenderQueue.RenderPriority.LOW;
+    }
+
+    private byte[] renderAndStore(UUID documentId, DocumentStrategy strategy, String documentNumber) {
+        T document = loadDocument(documentId);
+        try {
+            byte[] pdfBytes = generatePdfDocument(document, strategy);
+            String pdfPath  = savePdfDocument(document, pdfBytes, documentNumber);
+            updateDocumentWithPdfPath(document, pdfPath);
+            updateRenderStatus(document, RenderStatus.RENDERED);
+            saveDocument(document);
+            return pdfBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Relance les rendus restés PENDING (voie pleine, redémarrage, worker perdu) :
+     * chaque document est remis en file après le commit, puis passé en FAILED au-delà
+     * de {@code maxAttempts} relances. Le rendu à la demande reste possible à la lecture.
+     */
+    @Transactional
+    public StaleRenders resubmitStaleRenders(LocalDateTime requestedBefore, int maxAttempts, int limit) {
+        int resubmitted = 0;
+        int failed = 0;
+        for (T document : findStaleRenders(requestedBefore, limit)) {
+            UUID documentId = getDocumentId(document);
+            if (getRenderAttempts(document) >= maxAttempts) {
+                updateRenderStatus(document, RenderStatus.FAILED);
+                saveDocument(document);
+                failed++;
+                log.error("Rendu du document {} abandonné après {} relances", documentId, maxAttempts);
+                continue;
+            }
+            markRenderRequested(document);
+            saveDocument(document);
+            // Sans stratégie : les sous-classes rendent depuis l'entité (comme à la lecture)
+            String documentNumber = getDocumentNumber(document);
+            renderQueue.submitAfterCommit(documentId, renderPriority(),
+                    () -> renderAndStore(documentId, null, documentNumber),
+                    this::markRenderFailed);
+            resubmitted++;
+        }
+        return new StaleRenders(resubmitted, failed);
+    }
+
+    public record StaleRenders(int resubmitted, int failed) {
+    }
+
+    private void markRenderFailed(UUID documentId) {
+        T document = loadDocument(documentId);
+        updateRenderStatus(document, RenderStatus.FAILED);
+        saveDocument(document);
+    }
+
     /**
      * Construit le DocumentBuildContext depuis l'entité document.
      *
@@ -173,6 +248,8 @@ public abstract class DocumentServiceTemplate<T, R> {
 
     protected abstract void updateDocumentWithPdfPath(T document, String pdfPath);
 
+    protected abstract void updateRenderStatus(T document, RenderStatus status);
+
     protected abstract T afterDocumentGeneration(T document,
                                                  Order order,
                                                  DocumentStrategy strategy);
@@ -197,6 +274,15 @@ public abstract class DocumentServiceTemplate<T, R> {
 
     protected abstract UUID getDocumentId(T document);
 
+    protected abstract String getDocumentNumber(T document);
+
+    protected abstract List<T> findStaleRenders(LocalDateTime requestedBefore, int limit);
+
+    protected abstract int getRenderAttempts(T document);
+
+    /** Relance du rendu : une tentative de plus, date de la demande */
+    protected abstract void markRenderRequested(T document);
+
     // =========================================================================
     // MÉTHODES CONCRÈTES COMMUNES
     // =========================================================================
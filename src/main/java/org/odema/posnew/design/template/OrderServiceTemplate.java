@@ -1,5 +1,6 @@
 package org.odema.posnew.design.template;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NonNull;
@@ -9,17 +10,29 @@ import org.odema.posnew.application.dto.request.OrderItemRequest;
 import org.odema.posnew.application.dto.request.OrderRequest;
 import org.odema.posnew.application.dto.response.OrderResponse;
 import org.odema.posnew.application.mapper.OrderMapper;
+import org.odema.posnew.config.StatementCountInspector;
+import org.odema.posnew.design.context.BasketContext;
 import org.odema.posnew.design.factory.SaleStrategyFactory;
 import org.odema.posnew.domain.model.*;
 import org.odema.posnew.domain.model.enums.OrderStatus;
 import org.odema.posnew.domain.model.enums.PaymentStatus;
+import org.odema.posnew.domain.model.enums.StockMovementType;
 import org.odema.posnew.domain.repository.*;
+import org.odema.posnew.domain.service.StockMovementService;
+import org.odema.posnew.domain.service.StockReservationService;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -33,8 +46,12 @@ public abstract class OrderServiceTemplate {
     protected final StoreRepository storeRepository;
     protected final ProductRepository productRepository;
     protected final InventoryRepository inventoryRepository;
+    protected final StoreProductPriceRepository storeProductPriceRepository;
     protected final OrderMapper orderMapper;
     protected final SaleStrategyFactory strategyFactory;
+    protected final MeterRegistry meterRegistry;
+    protected final StockReservationService stockReservationService;
+    protected final StockMovementService stockMovementService;
 
     // =========================================================================
     // TEMPLATE METHOD — squelette commun de création de commande
@@ -47,6 +64,26 @@ public abstract class OrderServiceTemplate {
      */
     @Transactional
     public OrderResponse createOrder(OrderRequest request, UUID cashierId) {
+        long statementsBefore = StatementCountInspector.current();
+
+        Order savedOrder = placeOrder(request, cashierId);
+
+        // Un seul flush : commande et lignes partent en batch JDBC, comptées dans la mesure
+        orderRepository.flush();
+
+        long statements = StatementCountInspector.current() - statementsBefore;
+        meterRegistry.summary("pos.order.create.statements").record(statements);
+
+        log.info("Commande créée: {}, Total: {}, Requêtes: {}",
+                savedOrder.getOrderNumber(), savedOrder.getTotalAmount(), statements);
+        return orderMapper.toResponse(savedOrder);
+    }
+
+    /**
+     * Squelette de création, sans flush : la commande reste en attente dans le contexte
+     * de persistance, l'appelant peut la compléter (paiement) avant l'écriture groupée.
+     */
+    protected Order placeOrder(OrderRequest request, UUID cashierId) {
         log.info("Création commande - Type: {}, Caissier: {}", request.orderType(), cashierId);
 
         // 1. Validation de base
@@ -60,20 +97,23 @@ public abstract class OrderServiceTemplate {
         // 3. Construire la commande
         Order order = buildBaseOrder(request, cashier, store, customer);
 
-        // 4. Ajouter les articles (stock vérifié + prix snapshottés)
-        addOrderItems(order, request);
+        // 4. Résoudre le panier en requêtes ensemblistes, puis ajouter les articles
+        //    (stock vérifié + prix snapshottés)
+        BasketContext basket = resolveBasket(store.getStoreId(), request.items());
+        addOrderItems(order, request, basket);
 
         // 5. Valider que le total est cohérent
-        //    getTotalAmount() est @Transient — calculé à la volée depuis les items
+        //    totalAmount est maintenu par addItem() au fil des lignes
         if (order.getTotalAmount().compareTo(BigDecimal.ZERO) <= 0) {
             throw new BadRequestException("Le montant total doit être supérieur à 0");
         }
 
-        // 6. Sauvegarder
+        // 6. Sauvegarder (persist différé : INSERT au flush, identifiant UUID déjà attribué)
         Order savedOrder = orderRepository.save(order);
 
-        // 7. Déduire le stock
-        updateInventoryForOrder(savedOrder);
+        // 7. Réserver le stock (disponible = physique - réservations) ; la déduction a lieu
+        //    au paiement ou à la clôture, une commande abandonnée libère sa réservation
+        stockReservationService.reserve(savedOrder, basket);
 
         // 8. Mettre à jour les stats client
        // updateCustomerStatistics(savedOrder);
@@ -81,8 +121,7 @@ public abstract class OrderServiceTemplate {
         // 9. Hook post-sauvegarde (events, etc.) — surchargeable
         afterOrderSaved(savedOrder, request);
 
-        log.info("Commande créée: {}, Total: {}", savedOrder.getOrderNumber(), savedOrder.getTotalAmount());
-        return orderMapper.toResponse(savedOrder);
+        return savedOrder;
     }
 
     // =========================================================================
@@ -102,7 +141,7 @@ public abstract class OrderServiceTemplate {
     // CONSTRUCTION DE LA COMMANDE
     // =========================================================================
 
-    private Order buildBaseOrder(OrderRequest request, User cashier, Store store, Customer customer) {
+    protected Order buildBaseOrder(OrderRequest request, User cashier, Store store, Customer customer) {
         return Order.builder()
                 .orderNumber(generateOrderNumber())
                 .cashier(cashier)
@@ -130,21 +169,51 @@ public abstract class OrderServiceTemplate {
     // ARTICLES
     // =========================================================================
 
-    private void addOrderItems(Order order, OrderRequest request) {
+    /**
+     * Charge produits, inventaires du magasin et prix actifs de tout le panier
+     * en trois requêtes, quel que soit le nombre de lignes.
+     */
+    protected BasketContext resolveBasket(UUID storeId, List<OrderItemRequest> items) {
+        Set<UUID> productIds = new LinkedHashSet<>();
+        for (OrderItemRequest itemRequest : items) {
+            productIds.add(itemRequest.productId());
+        }
+
+        Map<UUID, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getProductId(), product);
+        }
+
+        Map<UUID, Inventory> inventories = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.findByStoreAndProductIds(storeId, productIds)) {
+            inventories.put(inventory.getProduct().getProductId(), inventory);
+        }
+
+        // Triés par effectiveDate DESC : le premier prix vu par produit est l'actif
+        Map<UUID, StoreProductPrice> prices = new HashMap<>();
+        for (StoreProductPrice price : storeProductPriceRepository
+                .findActivePricesForProductsAtDate(storeId, productIds, LocalDateTime.now())) {
+            prices.putIfAbsent(price.getProduct().getProductId(), price);
+        }
+
+        return new BasketContext(storeId, products, inventories, prices);
+    }
+
+    protected void addOrderItems(Order order, OrderRequest request, BasketContext basket) {
         for (OrderItemRequest itemRequest : request.items()) {
 
             // Charger le produit
-            Product product = productRepository.findById(itemRequest.productId())
-                    .orElseThrow(() -> new NotFoundException(
-                            "Produit non trouvé: " + itemRequest.productId()));
+            Product product = basket.product(itemRequest.productId());
+            if (product == null) {
+                throw new NotFoundException("Produit non trouvé: " + itemRequest.productId());
+            }
 
             // Vérifier le stock dans CE magasin via Inventory
-            Inventory inventory = inventoryRepository
-                    .findByProduct_ProductIdAndStore_StoreId(
-                            product.getProductId(),
-                            order.getStore().getStoreId())
-                    .orElseThrow(() -> new BadRequestException(
-                            "Produit non disponible dans ce magasin: " + product.getName()));
+            Inventory inventory = basket.inventory(product.getProductId());
+            if (inventory == null) {
+                throw new BadRequestException(
+                        "Produit non disponible dans ce magasin: " + product.getName());
+            }
 
             if (inventory.getQuantity() < itemRequest.quantity()) {
                 throw new BadRequestException(String.format(
@@ -153,8 +222,7 @@ public abstract class OrderServiceTemplate {
             }
 
             // Récupérer le prix actif du magasin (StoreProductPrice)
-            StoreProductPrice storePrice = product.getPriceForStore(
-                    order.getStore().getStoreId());
+            StoreProductPrice storePrice = basket.price(product.getProductId());
 
             if (storePrice == null) {
                 throw new BadRequestException(
@@ -185,35 +253,46 @@ public abstract class OrderServiceTemplate {
     // INVENTAIRE
     // =========================================================================
 
-    protected void updateInventoryForOrder(Order order) {
-        for (OrderItem item : order.getItems()) {
-            inventoryRepository.findByProduct_ProductIdAndStore_StoreId(
-                    item.getProduct().getProductId(),
-                    order.getStore().getStoreId()
-            ).ifPresent(inv -> {
-                // Déduire en unités de BASE, pas en unités de commande
-                int baseQty = item.getBaseQuantity() != null
-                        ? item.getBaseQuantity().intValue()
-                        : item.getQuantity();
-                inv.decreaseQuantity(baseQty);
-                inventoryRepository.save(inv);
-            });
+    /**
+     * Déduction immédiate du stock (ventes déjà conclues), par décrément conditionnel
+     * en SQL dans l'ordre des identifiants de produit : sur stock insuffisant,
+     * les décréments déjà appliqués pour cette commande sont compensés et le produit
+     * en défaut est retourné. La transaction englobante reste utilisable (traitement par lot).
+     * Le mouvement {@code SALE} est enregistré par l'appelant, une fois la commande persistée.
+     */
+    protected Optional<UUID> tryUpdateInventoryForOrder(Order order) {
+        UUID storeId = order.getStore().getStoreId();
+        Map<UUID, Integer> applied = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Integer> line : order.baseQuantitiesByProduct().entrySet()) {
+            if (inventoryRepository.decrementIfAvailable(storeId, line.getKey(), line.getValue()) == 0) {
+                applied.forEach((productId, quantity) ->
+                        inventoryRepository.increment(storeId, productId, quantity));
+                return Optional.of(line.getKey());
+            }
+            applied.put(line.getKey(), line.getValue());
         }
+        return Optional.empty();
     }
 
     protected void restoreInventoryForOrder(Order order) {
-        for (OrderItem item : order.getItems()) {
-            inventoryRepository.findByProduct_ProductIdAndStore_StoreId(
-                    item.getProduct().getProductId(),
-                    order.getStore().getStoreId()
-            ).ifPresent(inv -> {
-                inv.increaseQuantity(item.getQuantity());
-                inventoryRepository.save(inv);
+        UUID storeId = order.getStore().getStoreId();
+        for (Map.Entry<UUID, Integer> line : order.baseQuantitiesByProduct().entrySet()) {
+            if (inventoryRepository.increment(storeId, line.getKey(), line.getValue()) > 0) {
+                stockMovementService.record(storeId, line.getKey(), StockMovementType.SALE_CANCELLED,
+                        line.getValue(), order.getOrderId(), order.getOrderNumber());
                 log.debug("Stock restauré: {} x {} (produit: {})",
-                        item.getQuantity(), item.getProduct().getName(),
-                        item.getProduct().getProductId());
-            });
+                        line.getValue(), productName(order, line.getKey()), line.getKey());
+            }
+        }
+    }
+
+    protected String productName(Order order, UUID productId) {
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct().getProductId().equals(productId)) {
+                return item.getProduct().getName();
+            }
         }
+        return productId.toString();
     }
 
     // =========================================================================
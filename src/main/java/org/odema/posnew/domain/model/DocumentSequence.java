@@ -0,0 +1,33 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compteur de numérotation par clé (préfixe, magasin, période).
+ * {@code nextValue} est la dernière valeur réservée : chaque nœud réserve
+ * un bloc de valeurs (hi/lo) puis les distribue depuis la mémoire.
+ */
+@Entity
+@Table(name = "document_sequences")
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentSequence {
+
+    @Id
+    @Column(name = "sequence_key", length = 80, updatable = false, nullable = false)
+    private String sequenceKey;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -8,12 +8,14 @@ import org.odema.posnew.domain.model.enums.StockStatus;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.UUID;
 
 @Entity
 @Table(name = "inventories", indexes = {
         @Index(name = "idx_inventory_product_store", columnList = "product_id,store_id", unique = true),
         @Index(name = "idx_inventory_status", columnList = "stock_status"),
+        @Index(name = "idx_inventory_store_status", columnList = "store_id,stock_status"),
         @Index(name = "idx_inventory_active", columnList = "is_active")
 })
 @Setter
@@ -23,6 +25,15 @@ import java.util.UUID;
 @Builder
 public class Inventory {
 
+    /**
+     * Ordre de verrouillage des lignes d'inventaire : celui de PostgreSQL sur uuid
+     * (octets non signés). Tout traitement qui écrit plusieurs produits les prend
+     * dans cet ordre, en Java comme en SQL ({@code ORDER BY product_id}) : pas d'interblocage.
+     */
+    public static final Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @Column(name = "inventory_id", updatable = false, nullable = false)
@@ -92,15 +103,18 @@ public class Inventory {
     @PrePersist
     @PreUpdate
     public void updateStockStatus() {
-        if (quantity <= 0) {
-            stockStatus = StockStatus.OUT_OF_STOCK;
-        } else if (quantity <= reorderPoint) {
-            stockStatus = StockStatus.LOW_STOCK;
-        } else if (quantity > maxStock) {
-            stockStatus = StockStatus.OVER_STOCK;
-        } else {
-            stockStatus = StockStatus.IN_STOCK;
-        }
+        stockStatus = statusOf(quantity, reorderPoint, maxStock);
+    }
+
+    /**
+     * Statut d'une quantité selon les seuils (mêmes règles que le recalcul SQL des
+     * décréments conditionnels).
+     */
+    public static StockStatus statusOf(int quantity, int reorderPoint, int maxStock) {
+        if (quantity <= 0) return StockStatus.OUT_OF_STOCK;
+        if (quantity <= reorderPoint) return StockStatus.LOW_STOCK;
+        if (quantity > maxStock) return StockStatus.OVER_STOCK;
+        return StockStatus.IN_STOCK;
     }
 
     public boolean isLowStock() {
@@ -6,6 +6,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.odema.posnew.domain.model.enums.InvoiceStatus;
 import org.odema.posnew.domain.model.enums.InvoiceType;
+import org.odema.posnew.domain.model.enums.RenderStatus;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,7 +20,12 @@ import java.util.UUID;
         @Index(name = "idx_invoice_store", columnList = "store_id"),
         @Index(name = "idx_invoice_status", columnList = "status"),
         @Index(name = "idx_invoice_type", columnList = "invoice_type"),
-        @Index(name = "idx_invoice_dates", columnList = "invoice_date,payment_due_date")
+        @Index(name = "idx_invoice_dates", columnList = "invoice_date,payment_due_date"),
+        // Pagination par clé (createdAt, invoiceId)
+        @Index(name = "idx_invoice_keyset", columnList = "created_at,invoice_id"),
+        @Index(name = "idx_invoice_store_keyset", columnList = "store_id,created_at,invoice_id"),
+        @Index(name = "idx_invoice_customer_keyset", columnList = "customer_id,created_at,invoice_id"),
+        @Index(name = "idx_invoice_status_keyset", columnList = "status,created_at,invoice_id")
 })
 @Getter
 @Setter
@@ -95,6 +101,18 @@ public class Invoice {
     @Column(name = "pdf_path", length = 500)
     private String pdfPath;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "render_status", length = 20)
+    private RenderStatus renderStatus;
+
+    // Relances du rendu par le balayage des documents restés PENDING
+    @Column(name = "render_attempts")
+    @Builder.Default
+    private Integer renderAttempts = 0;
+
+    @Column(name = "render_requested_at")
+    private LocalDateTime renderRequestedAt;
+
     @Column(name = "print_count", nullable = false)
     @Builder.Default
     private Integer printCount = 0;
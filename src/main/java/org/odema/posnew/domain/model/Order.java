@@ -15,6 +15,8 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Slf4j
@@ -27,7 +29,14 @@ import java.util.UUID;
         @Index(name = "idx_order_status", columnList = "status"),
         @Index(name = "idx_order_payment", columnList = "payment_status"),
         @Index(name = "idx_order_type", columnList = "order_type"),
-        @Index(name = "idx_order_dates", columnList = "created_at,completed_at")
+        @Index(name = "idx_order_dates", columnList = "created_at,completed_at"),
+        // Pagination par clé (createdAt, orderId)
+        @Index(name = "idx_order_keyset", columnList = "created_at,order_id"),
+        @Index(name = "idx_order_store_keyset", columnList = "store_id,created_at,order_id"),
+        @Index(name = "idx_order_cashier_keyset", columnList = "cashier_id,created_at,order_id"),
+        @Index(name = "idx_order_customer_keyset", columnList = "customer_id,created_at,order_id"),
+        @Index(name = "idx_order_status_keyset", columnList = "status,created_at,order_id"),
+        @Index(name = "idx_order_client_sale", columnList = "client_sale_id", unique = true)
 })
 @Setter
 @Getter
@@ -44,6 +53,15 @@ public class Order {
     @Column(nullable = false, unique = true, length = 50)
     private String orderNumber;
 
+    // Identifiant généré par la caisse pour une vente hors ligne (idempotence de la synchro)
+    @Column(name = "client_sale_id", unique = true, updatable = false)
+    private UUID clientSaleId;
+
+    // true : stock réservé (StockReservation), pas encore déduit de l'inventaire.
+    // null/false : stock déjà déduit (commandes antérieures aux réservations, ventes hors ligne)
+    @Column(name = "stock_reserved")
+    private Boolean stockReserved;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
@@ -96,6 +114,29 @@ public class Order {
     @Column(name = "total_amount", precision = 15, scale = 2)
     private BigDecimal totalAmount;
 
+    // Totaux dénormalisés, maintenus par addItem/removeItem/addPayment/removePayment :
+    // les agrégats et les listes lisent ces colonnes sans charger items ni payments.
+    // null = commande antérieure aux colonnes → recalcul complet au premier accès.
+    @Column(name = "subtotal_amount", precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal subtotalAmount = BigDecimal.ZERO;
+
+    @Column(name = "tax_amount", precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal taxAmount = BigDecimal.ZERO;
+
+    @Column(name = "items_discount_amount", precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal itemsDiscountAmount = BigDecimal.ZERO;
+
+    @Column(name = "paid_amount", precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal paidAmount = BigDecimal.ZERO;
+
+    @Column(name = "credit_amount", precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal creditAmount = BigDecimal.ZERO;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -110,26 +151,23 @@ public class Order {
     @Column(name = "cancelled_at")
     private LocalDateTime cancelledAt;
 
-    // ✅ Keep transient methods for runtime calculations
+    // ✅ Totaux lus depuis les colonnes dénormalisées
     @Transient
     public BigDecimal getSubtotal() {
-        return items.stream()
-                .map(OrderItem::getFinalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ensureTotals();
+        return subtotalAmount;
     }
 
     @Transient
     public BigDecimal getTaxAmount() {
-        return items.stream()
-                .map(OrderItem::getTaxAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ensureTotals();
+        return taxAmount;
     }
 
     @Transient
     public BigDecimal getItemsDiscountAmount() {
-        return items.stream()
-                .map(OrderItem::getDiscountAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ensureTotals();
+        return itemsDiscountAmount;
     }
 
     @Transient
@@ -166,20 +204,77 @@ public class Order {
 
     @Transient
     public BigDecimal getTotalPaid() {
-        return payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.PAID)
-                .filter(p -> p.getMethod() != PaymentMethod.CREDIT)
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ensureTotals();
+        return paidAmount;
     }
 
     @Transient
     public BigDecimal getTotalCredit() {
-        return payments.stream()
-                .filter(p -> p.getMethod() == PaymentMethod.CREDIT)
-                .filter(p -> p.getStatus() == PaymentStatus.CREDIT)
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ensureTotals();
+        return creditAmount;
+    }
+
+    /**
+     * Recalcul complet des totaux depuis les collections (initialise items et payments).
+     * Sert de rattrapage pour les commandes antérieures aux colonnes dénormalisées.
+     */
+    public boolean hasReservedStock() {
+        return Boolean.TRUE.equals(stockReserved);
+    }
+
+    /**
+     * Quantités en unités de BASE (pas en unités de commande), cumulées par produit,
+     * triées selon {@link Inventory#LOCK_ORDER}.
+     */
+    public Map<UUID, Integer> baseQuantitiesByProduct() {
+        Map<UUID, Integer> quantities = new TreeMap<>(Inventory.LOCK_ORDER);
+        for (OrderItem item : items) {
+            int baseQty = item.getBaseQuantity() != null
+                    ? item.getBaseQuantity().intValue()
+                    : item.getQuantity();
+            quantities.merge(item.getProduct().getProductId(), baseQty, Integer::sum);
+        }
+        return quantities;
+    }
+
+    public void recalculateTotals() {
+        this.subtotalAmount = BigDecimal.ZERO;
+        this.taxAmount = BigDecimal.ZERO;
+        this.itemsDiscountAmount = BigDecimal.ZERO;
+        this.paidAmount = BigDecimal.ZERO;
+        this.creditAmount = BigDecimal.ZERO;
+        items.forEach(item -> applyItem(item, 1));
+        payments.forEach(payment -> applyPayment(payment, 1));
+        calculateTotalAmount();
+    }
+
+    private void ensureTotals() {
+        if (subtotalAmount == null || taxAmount == null || itemsDiscountAmount == null
+                || paidAmount == null || creditAmount == null) {
+            recalculateTotals();
+        }
+    }
+
+    private void applyItem(OrderItem item, int sign) {
+        if (item.getFinalPrice() == null) {
+            item.calculate();
+        }
+        subtotalAmount = subtotalAmount.add(signed(item.getFinalPrice(), sign));
+        taxAmount = taxAmount.add(signed(item.getTaxAmount(), sign));
+        itemsDiscountAmount = itemsDiscountAmount.add(signed(item.getDiscountAmount(), sign));
+    }
+
+    private void applyPayment(Payment payment, int sign) {
+        if (payment.getStatus() == PaymentStatus.PAID && payment.getMethod() != PaymentMethod.CREDIT) {
+            paidAmount = paidAmount.add(signed(payment.getAmount(), sign));
+        } else if (payment.getStatus() == PaymentStatus.CREDIT && payment.getMethod() == PaymentMethod.CREDIT) {
+            creditAmount = creditAmount.add(signed(payment.getAmount(), sign));
+        }
+    }
+
+    private static BigDecimal signed(BigDecimal amount, int sign) {
+        if (amount == null) return BigDecimal.ZERO;
+        return sign < 0 ? amount.negate() : amount;
     }
 
     @Transient
@@ -209,29 +304,58 @@ public class Order {
 
     // ✅ Update totalAmount when adding items
     public void addItem(OrderItem item) {
+        ensureTotals();
         items.add(item);
         item.setOrder(this);
+        applyItem(item, 1);
         calculateTotalAmount();
     }
 
     public void removeItem(OrderItem item) {
-        items.remove(item);
+        ensureTotals();
+        if (items.remove(item)) {
+            applyItem(item, -1);
+        }
         item.setOrder(null);
         calculateTotalAmount();
     }
 
     public void addPayment(Payment payment) {
+        ensureTotals();
         payments.add(payment);
         payment.setOrder(this);
+        applyPayment(payment, 1);
         recalculatePaymentStatus();
     }
 
+    /**
+     * Retire le paiement et sa contribution aux totaux.
+     * À appeler AVANT de changer le statut du paiement (annulation) :
+     * la contribution retirée dépend du statut courant.
+     */
     public void removePayment(Payment payment) {
-        payments.remove(payment);
+        ensureTotals();
+        if (payments.remove(payment)) {
+            applyPayment(payment, -1);
+        }
         payment.setOrder(null);
         recalculatePaymentStatus();
     }
 
+    /**
+     * Confirme un paiement en attente (Mobile Money) : sa contribution aux
+     * totaux n'est comptée qu'à partir de la confirmation.
+     */
+    public void confirmPayment(Payment payment, String providerReference) {
+        if (!payment.isPending()) {
+            throw new IllegalStateException("Paiement non en attente: " + payment.getPaymentId());
+        }
+        ensureTotals();
+        payment.confirm(providerReference);
+        applyPayment(payment, 1);
+        recalculatePaymentStatus();
+    }
+
     public void recalculatePaymentStatus() {
         BigDecimal total = getTotalAmount();
         BigDecimal paid = getTotalPaid();
@@ -0,0 +1,28 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Dernier numéro d'ordre attribué aux événements d'un agrégat de l'outbox.
+ * La ligne reste verrouillée jusqu'au commit de la transaction qui l'incrémente :
+ * deux écritures du même agrégat obtiennent leurs numéros dans l'ordre de leurs commits.
+ */
+@Entity
+@Table(name = "outbox_aggregate_sequences")
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxAggregateSequence {
+
+    @Id
+    @Column(name = "aggregate_id", updatable = false, nullable = false)
+    private UUID aggregateId;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
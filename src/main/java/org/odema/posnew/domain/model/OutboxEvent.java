@@ -0,0 +1,115 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.model.enums.OutboxStatus;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Événement métier écrit dans la transaction qui le produit, puis distribué
+ * par {@code OutboxDispatcher} : rien n'est perdu si l'application s'arrête
+ * entre le commit et le traitement, et rien n'est traité avant le commit.
+ * <p>
+ * L'ordre de distribution au sein d'un agrégat est fixé par {@code aggregateSeq},
+ * attribué sous le verrou de l'agrégat ({@link OutboxAggregateSequence}) : l'identifiant,
+ * tiré d'une séquence par blocs, ne suit pas l'ordre des commits entre instances.
+ */
+@Entity
+@Table(name = "outbox_events", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_outbox_aggregate_seq", columnNames = {"aggregate_id", "aggregate_seq"})
+}, indexes = {
+        @Index(name = "idx_outbox_pending", columnList = "status,next_attempt_at,event_id"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregate_id,status,aggregate_seq"),
+        @Index(name = "idx_outbox_processed", columnList = "status,processed_at")
+})
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    @Column(name = "event_id", updatable = false, nullable = false)
+    private Long eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 30)
+    private OutboxEventType eventType;
+
+    /** ORDER, INVENTORY… */
+    @Column(name = "aggregate_type", nullable = false, length = 30)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+
+    /** Rang dans l'agrégat (nul pour les événements écrits avant sa mise en place) */
+    @Column(name = "aggregate_seq", updatable = false)
+    private Long aggregateSeq;
+
+    @Convert(converter = OutboxPayloadConverter.class)
+    @Column(columnDefinition = "TEXT")
+    @Builder.Default
+    private Map<String, String> payload = new HashMap<>();
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public String get(String key) {
+        return payload.get(key);
+    }
+
+    public UUID getUuid(String key) {
+        String value = payload.get(key);
+        return value != null ? UUID.fromString(value) : null;
+    }
+
+    public void markProcessed() {
+        this.status = OutboxStatus.PROCESSED;
+        this.processedAt = LocalDateTime.now();
+        this.lastError = null;
+    }
+
+    /**
+     * Échec d'un traitement : nouvelle tentative après {@code retryDelayMs},
+     * ou abandon (FAILED) au-delà de {@code maxAttempts}.
+     */
+    public void markFailed(String error, int maxAttempts, long retryDelayMs) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (attempts >= maxAttempts) {
+            this.status = OutboxStatus.FAILED;
+        } else {
+            this.nextAttemptAt = LocalDateTime.now().plusNanos(retryDelayMs * 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Charge utile de l'outbox stockée en paires clé=valeur encodées (format formulaire) :
+ * lisible en base, sans dépendance à un mapper JSON.
+ */
+@Converter
+public class OutboxPayloadConverter implements AttributeConverter<Map<String, String>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> payload) {
+        if (payload == null || payload.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder();
+        payload.forEach((key, value) -> {
+            if (value == null) return;
+            if (!sb.isEmpty()) sb.append('&');
+            sb.append(URLEncoder.encode(key, StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return sb.toString();
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String column) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        if (column == null || column.isEmpty()) return payload;
+        for (String pair : column.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) continue;
+            payload.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return payload;
+    }
+}
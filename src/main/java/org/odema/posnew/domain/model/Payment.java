@@ -17,7 +17,8 @@ import java.util.UUID;
         @Index(name = "idx_payment_cashier", columnList = "cashier_id"),
         @Index(name = "idx_payment_method", columnList = "method"),
         @Index(name = "idx_payment_status", columnList = "status"),
-        @Index(name = "idx_payment_date", columnList = "created_at")
+        @Index(name = "idx_payment_date", columnList = "created_at"),
+        @Index(name = "idx_payment_provider_ref", columnList = "provider_reference")
 })
 @Getter
 @Setter
@@ -58,6 +59,19 @@ public class Payment {
     @Column(length = 500)
     private String notes;
 
+    // Paiement opérateur (Mobile Money) : renseignés à l'initiation / à la confirmation
+    @Column(length = 20)
+    private String provider;
+
+    @Column(name = "payer_phone", length = 30)
+    private String payerPhone;
+
+    @Column(name = "provider_reference", length = 100)
+    private String providerReference;
+
+    @Column(name = "confirmed_at")
+    private LocalDateTime confirmedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -84,6 +98,45 @@ public class Payment {
         this.notes = (this.notes != null ? this.notes + "\n" : "") + "CANCELLED: " + reason;
     }
 
+    public boolean isPending() {
+        return status == PaymentStatus.PENDING;
+    }
+
+    /**
+     * Confirmation opérateur. Passer par {@link Order#confirmPayment} pour que
+     * le montant soit ajouté aux totaux de la commande.
+     */
+    void confirm(String providerReference) {
+        this.status = PaymentStatus.PAID;
+        this.confirmedAt = LocalDateTime.now();
+        if (providerReference != null) {
+            this.providerReference = providerReference;
+        }
+    }
+
+    /**
+     * Confirmation opérateur arrivée après l'échec, l'expiration ou l'annulation du
+     * paiement : le client a été débité mais la vente n'a pas eu lieu. Le statut reste
+     * inchangé (hors totaux) ; la référence est conservée pour le remboursement.
+     */
+    public void recordLateConfirmation(String providerReference) {
+        if (this.providerReference == null && providerReference != null) {
+            this.providerReference = providerReference;
+        }
+        this.confirmedAt = LocalDateTime.now();
+        this.notes = (this.notes != null ? this.notes + "\n" : "") +
+                "CONFIRMÉ APRÈS " + status + " (réf. " + providerReference + "): remboursement client à effectuer";
+    }
+
+    /**
+     * Échec ou expiration d'un paiement en attente : il n'a jamais compté dans les totaux.
+     */
+    public void fail(String reason) {
+        this.status = PaymentStatus.FAILED;
+        this.isActive = false;
+        this.notes = (this.notes != null ? this.notes + "\n" : "") + "FAILED: " + reason;
+    }
+
     public boolean canBeCancelled() {
         return isActive && status != PaymentStatus.CANCELLED;
     }
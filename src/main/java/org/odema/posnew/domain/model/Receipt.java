@@ -6,6 +6,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.odema.posnew.domain.model.enums.ReceiptStatus;
 import org.odema.posnew.domain.model.enums.ReceiptType;
+import org.odema.posnew.domain.model.enums.RenderStatus;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,7 +21,10 @@ import java.util.UUID;
         @Index(name = "idx_receipt_store", columnList = "store_id"),
         @Index(name = "idx_receipt_status", columnList = "status"),
         @Index(name = "idx_receipt_type", columnList = "receipt_type"),
-        @Index(name = "idx_receipt_date", columnList = "receipt_date")
+        @Index(name = "idx_receipt_date", columnList = "receipt_date"),
+        // Pagination par clé (createdAt, receiptId)
+        @Index(name = "idx_receipt_store_keyset", columnList = "store_id,created_at,receipt_id"),
+        @Index(name = "idx_receipt_cashier_keyset", columnList = "cashier_id,created_at,receipt_id")
 })
 @Getter
 @Setter
@@ -83,6 +87,18 @@ public class Receipt {
     @Column(name = "pdf_path", length = 500)
     private String pdfPath;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "render_status", length = 20)
+    private RenderStatus renderStatus;
+
+    // Relances du rendu par le balayage des documents restés PENDING
+    @Column(name = "render_attempts")
+    @Builder.Default
+    private Integer renderAttempts = 0;
+
+    @Column(name = "render_requested_at")
+    private LocalDateTime renderRequestedAt;
+
     @Column(name = "thermal_data", columnDefinition = "TEXT")
     private String thermalData;
 
@@ -0,0 +1,72 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.odema.posnew.domain.model.enums.PaymentMethod;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Agrégat courant d'un shift pour une méthode de paiement.
+ * Mis à jour par upsert atomique dans la transaction qui enregistre ou
+ * annule le paiement : les rapports X/Z et le détail du shift lisent
+ * une ligne par méthode au lieu de re-sommer les paiements.
+ */
+@Entity
+@Table(name = "shift_payment_totals")
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShiftPaymentTotal {
+
+    @EmbeddedId
+    private Key id;
+
+    /** Paiements actifs (annulations déduites) */
+    @Column(name = "payment_count", nullable = false)
+    @Builder.Default
+    private Integer paymentCount = 0;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    @Builder.Default
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    /** Paiements annulés/remboursés */
+    @Column(name = "refund_count", nullable = false)
+    @Builder.Default
+    private Integer refundCount = 0;
+
+    @Column(name = "refund_amount", nullable = false, precision = 12, scale = 2)
+    @Builder.Default
+    private BigDecimal refundAmount = BigDecimal.ZERO;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public PaymentMethod getMethod() {
+        return id != null ? id.getMethod() : null;
+    }
+
+    @Embeddable
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Column(name = "shift_report_id", nullable = false)
+        private UUID shiftReportId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 20)
+        private PaymentMethod method;
+    }
+}
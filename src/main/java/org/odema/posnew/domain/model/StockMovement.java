@@ -0,0 +1,58 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Mouvement de stock, en insertion seule : jamais modifié ni supprimé.
+ * <p>
+ * {@code quantity} est signée (négative en sortie). {@code Inventory.quantity} reste la
+ * valeur de référence, mise à jour dans la même transaction que le mouvement ; le stock
+ * à une date se reconstruit depuis le dernier {@link StockSnapshot} antérieur plus la
+ * somme des mouvements qui suivent.
+ */
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_movement_stock_time", columnList = "store_id,product_id,occurred_at"),
+        @Index(name = "idx_movement_time", columnList = "occurred_at")
+})
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    @SequenceGenerator(name = "stock_movement_seq", sequenceName = "stock_movement_seq", allocationSize = 50)
+    @Column(name = "movement_id", updatable = false, nullable = false)
+    private Long movementId;
+
+    @Column(name = "store_id", nullable = false, updatable = false)
+    private UUID storeId;
+
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private UUID productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, updatable = false, length = 20)
+    private StockMovementType type;
+
+    @Column(nullable = false, updatable = false)
+    private Integer quantity;
+
+    /** Commande, remboursement ou inventaire à l'origine du mouvement */
+    @Column(name = "reference_id", updatable = false)
+    private UUID referenceId;
+
+    @Column(updatable = false)
+    private String note;
+
+    // Horodaté au commit de la transaction qui l'enregistre (insertion différée au commit)
+    @Column(name = "occurred_at", nullable = false, updatable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,74 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.odema.posnew.domain.model.enums.ReservationStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Réservation de stock d'une commande non payée, par produit (unités de base).
+ * <p>
+ * Journal en insertion seule côté création : réserver n'écrit pas la ligne
+ * {@code inventories} du produit. Le stock physique n'est déduit qu'à la
+ * conversion (paiement ou clôture) ; l'annulation et l'expiration ne font que
+ * changer le statut de la réservation.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_reservation_live", columnList = "store_id,product_id,status"),
+        @Index(name = "idx_reservation_order", columnList = "order_id,status"),
+        @Index(name = "idx_reservation_expiry", columnList = "status,expires_at")
+})
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservation_seq")
+    @SequenceGenerator(name = "stock_reservation_seq", sequenceName = "stock_reservation_seq", allocationSize = 50)
+    @Column(name = "reservation_id", updatable = false, nullable = false)
+    private Long reservationId;
+
+    // Identifiants simples : le balayage et les compteurs n'ont besoin d'aucune association
+    @Column(name = "order_id", nullable = false, updatable = false)
+    private UUID orderId;
+
+    @Column(name = "store_id", nullable = false, updatable = false)
+    private UUID storeId;
+
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private UUID productId;
+
+    @Column(nullable = false, updatable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private ReservationStatus status = ReservationStatus.ACTIVE;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+
+    public boolean isActive() {
+        return status == ReservationStatus.ACTIVE;
+    }
+
+    public void resolve(ReservationStatus outcome) {
+        this.status = outcome;
+        this.resolvedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,46 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stock d'un produit dans un magasin à une date de coupure.
+ * Écrit uniquement par la prise de snapshots, pour les seuls produits ayant bougé
+ * depuis la coupure précédente : le snapshot le plus récent antérieur à une date
+ * reste valable jusqu'au mouvement suivant.
+ */
+@Entity
+@Table(name = "stock_snapshots")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSnapshot {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Embeddable
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Column(name = "store_id", nullable = false)
+        private UUID storeId;
+
+        @Column(name = "product_id", nullable = false)
+        private UUID productId;
+
+        @Column(name = "taken_at", nullable = false)
+        private LocalDateTime takenAt;
+    }
+}
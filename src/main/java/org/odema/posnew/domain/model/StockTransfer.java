@@ -0,0 +1,76 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Document de transfert de stock entre deux magasins : N lignes déplacées dans
+ * une seule transaction, un seul bon de livraison. Immuable une fois enregistré.
+ */
+@Entity
+@Table(name = "stock_transfers", indexes = {
+        @Index(name = "idx_transfer_number", columnList = "transfer_number", unique = true),
+        @Index(name = "idx_transfer_from_store", columnList = "from_store_id,created_at"),
+        @Index(name = "idx_transfer_to_store", columnList = "to_store_id,created_at")
+})
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockTransfer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "transfer_id", updatable = false, nullable = false)
+    private UUID transferId;
+
+    /** Numéro du bon de livraison (série BL) */
+    @Column(name = "transfer_number", nullable = false, updatable = false, length = 50)
+    private String transferNumber;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "from_store_id", nullable = false, updatable = false)
+    private Store fromStore;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "to_store_id", nullable = false, updatable = false)
+    private Store toStore;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by", updatable = false)
+    private User createdBy;
+
+    @OneToMany(mappedBy = "transfer", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("lineNumber ASC")
+    @Builder.Default
+    private List<StockTransferLine> lines = new ArrayList<>();
+
+    @Column(name = "total_quantity", nullable = false)
+    private Integer totalQuantity;
+
+    @Column(columnDefinition = "TEXT")
+    private String notes;
+
+    @Column(name = "pdf_filename")
+    private String pdfFilename;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public void addLine(Product product, int quantity) {
+        lines.add(StockTransferLine.builder()
+                .transfer(this)
+                .product(product)
+                .lineNumber(lines.size() + 1)
+                .quantity(quantity)
+                .build());
+    }
+}
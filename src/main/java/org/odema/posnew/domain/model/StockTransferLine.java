@@ -0,0 +1,38 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+@Entity
+@Table(name = "stock_transfer_lines", indexes = {
+        @Index(name = "idx_transfer_line_transfer", columnList = "transfer_id,line_number")
+})
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockTransferLine {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "line_id", updatable = false, nullable = false)
+    private UUID lineId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transfer_id", nullable = false, updatable = false)
+    private StockTransfer transfer;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false, updatable = false)
+    private Product product;
+
+    @Column(name = "line_number", nullable = false, updatable = false)
+    private Integer lineNumber;
+
+    /** Unités de base */
+    @Column(nullable = false, updatable = false)
+    private Integer quantity;
+}
@@ -0,0 +1,53 @@
+package org.odema.posnew.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Agrégats de stock d'un magasin (inventaires actifs), tenus à jour par incréments
+ * au commit de chaque écriture de stock.
+ * <p>
+ * Mêmes définitions que le calcul depuis {@code inventories} : stock faible si
+ * {@code 0 < quantity <= reorderPoint}, rupture si {@code quantity <= 0}, valeur
+ * {@code quantity * unitCost}. La vérification nocturne recalcule depuis la source
+ * et corrige tout écart.
+ */
+@Entity
+@Table(name = "store_stock_summaries")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreStockSummary {
+
+    @Id
+    @Column(name = "store_id", updatable = false, nullable = false)
+    private UUID storeId;
+
+    @Column(name = "total_products", nullable = false)
+    private Long totalProducts;
+
+    @Column(name = "low_stock_products", nullable = false)
+    private Long lowStockProducts;
+
+    @Column(name = "out_of_stock_products", nullable = false)
+    private Long outOfStockProducts;
+
+    @Column(name = "total_quantity", nullable = false)
+    private Long totalQuantity;
+
+    @Column(name = "total_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalValue;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Dernière vérification contre la source
+    @Column(name = "verified_at")
+    private LocalDateTime verifiedAt;
+}
@@ -0,0 +1,7 @@
+package org.odema.posnew.domain.model.enums;
+
+public enum OfflineSaleOutcome {
+    CREATED,    // vente enregistrée
+    DUPLICATE,  // déjà synchronisée (même clientSaleId) — aucune écriture
+    REJECTED    // refusée (produit inconnu, stock insuffisant, paiement manquant…)
+}
@@ -0,0 +1,12 @@
+package org.odema.posnew.domain.model.enums;
+
+public enum OutboxEventType {
+    ORDER_CREATED,
+    ORDER_COMPLETED,
+    ORDER_CANCELLED,
+    PAYMENT_RECEIVED,
+    STOCK_ADJUSTED,
+    STOCK_LOW,
+    STOCK_TRANSFERRED,
+    STOCK_TRANSFER_CREATED
+}
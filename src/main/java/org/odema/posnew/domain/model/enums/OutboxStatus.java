@@ -0,0 +1,7 @@
+package org.odema.posnew.domain.model.enums;
+
+public enum OutboxStatus {
+    PENDING,    // à distribuer (éventuellement après un échec, voir nextAttemptAt)
+    PROCESSED,  // distribué à tous ses handlers
+    FAILED      // nombre maximal de tentatives atteint — à traiter manuellement
+}
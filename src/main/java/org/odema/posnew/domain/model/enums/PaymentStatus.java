@@ -6,7 +6,10 @@ public enum PaymentStatus {
     PAID("Payé"),
     CREDIT("Crédit"),
     REFUNDED("Remboursé"),
-    CANCELLED("Annulé");
+    CANCELLED("Annulé"),
+    // Paiement opérateur (Mobile Money) en attente de confirmation : ne compte pas dans les totaux
+    PENDING("En attente de confirmation"),
+    FAILED("Échoué");
 
     private final String label;
 
@@ -19,6 +22,6 @@ public enum PaymentStatus {
     }
 
     public boolean isFinal() {
-        return this == PAID || this == CREDIT || this == REFUNDED || this == CANCELLED;
+        return this == PAID || this == CREDIT || this == REFUNDED || this == CANCELLED || this == FAILED;
     }
 }
@@ -0,0 +1,17 @@
+package org.odema.posnew.domain.model.enums;
+
+public enum RenderStatus {
+    PENDING("En attente"),
+    RENDERED("Généré"),
+    FAILED("Échec");
+
+    private final String label;
+
+    RenderStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,8 @@
+package org.odema.posnew.domain.model.enums;
+
+public enum ReservationStatus {
+    ACTIVE,     // retient le stock : disponible à la vente = stock physique - réservations actives
+    CONSUMED,   // convertie en déduction du stock (paiement ou clôture de la commande)
+    RELEASED,   // commande annulée
+    EXPIRED     // commande abandonnée : libérée par le balayage
+}
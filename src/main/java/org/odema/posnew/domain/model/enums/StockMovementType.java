@@ -0,0 +1,11 @@
+package org.odema.posnew.domain.model.enums;
+
+public enum StockMovementType {
+    SALE,           // vente conclue (paiement, clôture ou vente hors ligne)
+    SALE_CANCELLED, // commande annulée après déduction du stock
+    REFUND,         // article retourné en stock
+    TRANSFER_OUT,   // transfert vers un autre magasin
+    TRANSFER_IN,    // transfert reçu d'un autre magasin
+    RESTOCK,        // réapprovisionnement
+    ADJUSTMENT      // correction manuelle ou création d'inventaire
+}
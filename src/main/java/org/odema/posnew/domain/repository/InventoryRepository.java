@@ -1,16 +1,24 @@
 package org.odema.posnew.domain.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.odema.posnew.application.dto.response.InventoryLevelProjection;
 import org.odema.posnew.application.dto.response.InventorySummaryProjection;
 import org.odema.posnew.domain.model.Inventory;
 import org.odema.posnew.domain.model.enums.StockStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,8 +28,126 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
 
     Optional<Inventory> findByProduct_ProductIdAndStore_StoreId(UUID productId, UUID storeId);
 
+    /**
+     * Niveau de stock seul (scan en caisse) : une ligne via l'index unique (produit, magasin).
+     */
+    @Query("SELECT i.quantity AS quantity, i.reorderPoint AS reorderPoint, i.maxStock AS maxStock FROM Inventory i " +
+            "WHERE i.product.productId = :productId AND i.store.storeId = :storeId AND i.isActive = true")
+    Optional<StockLevel> findStockLevel(@Param("productId") UUID productId,
+                                        @Param("storeId") UUID storeId);
+
     boolean existsByProduct_ProductIdAndStore_StoreId(UUID productId, UUID storeId);
 
+    /**
+     * Décrément conditionnel en une instruction : pas de lecture-modification-écriture,
+     * donc pas d'échec de verrou optimiste sous ventes concurrentes.
+     * Le statut est recalculé en SQL (mêmes seuils que Inventory.updateStockStatus())
+     * et la version incrémentée, pour qu'une entité chargée ailleurs ne puisse pas
+     * écraser la nouvelle quantité. Retourne 0 si le stock est insuffisant.
+     */
+    @Modifying
+    @Query("UPDATE Inventory i SET " +
+            "i.quantity = i.quantity - :quantity, " +
+            "i.stockStatus = CASE " +
+            "  WHEN i.quantity - :quantity <= 0 THEN org.odema.posnew.domain.model.enums.StockStatus.OUT_OF_STOCK " +
+            "  WHEN i.quantity - :quantity <= i.reorderPoint THEN org.odema.posnew.domain.model.enums.StockStatus.LOW_STOCK " +
+            "  WHEN i.quantity - :quantity > i.maxStock THEN org.odema.posnew.domain.model.enums.StockStatus.OVER_STOCK " +
+            "  ELSE org.odema.posnew.domain.model.enums.StockStatus.IN_STOCK END, " +
+            "i.version = i.version + 1, " +
+            "i.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE i.store.storeId = :storeId AND i.product.productId = :productId " +
+            "AND i.quantity >= :quantity")
+    int decrementIfAvailable(@Param("storeId") UUID storeId,
+                             @Param("productId") UUID productId,
+                             @Param("quantity") int quantity);
+
+    /**
+     * Ré-incrément atomique (annulation de commande) ; retourne 0 si l'inventaire n'existe pas.
+     */
+    @Modifying
+    @Query("UPDATE Inventory i SET " +
+            "i.quantity = i.quantity + :quantity, " +
+            "i.stockStatus = CASE " +
+            "  WHEN i.quantity + :quantity <= 0 THEN org.odema.posnew.domain.model.enums.StockStatus.OUT_OF_STOCK " +
+            "  WHEN i.quantity + :quantity <= i.reorderPoint THEN org.odema.posnew.domain.model.enums.StockStatus.LOW_STOCK " +
+            "  WHEN i.quantity + :quantity > i.maxStock THEN org.odema.posnew.domain.model.enums.StockStatus.OVER_STOCK " +
+            "  ELSE org.odema.posnew.domain.model.enums.StockStatus.IN_STOCK END, " +
+            "i.version = i.version + 1, " +
+            "i.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE i.store.storeId = :storeId AND i.product.productId = :productId")
+    int increment(@Param("storeId") UUID storeId,
+                  @Param("productId") UUID productId,
+                  @Param("quantity") int quantity);
+
+    @Query("SELECT i FROM Inventory i WHERE i.store.storeId = :storeId " +
+            "AND i.product.productId IN :productIds")
+    List<Inventory> findByStoreAndProductIds(@Param("storeId") UUID storeId,
+                                             @Param("productIds") Collection<UUID> productIds);
+
+    /**
+     * Lignes d'inventaire de plusieurs magasins, verrouillées en une instruction dans
+     * l'ordre (produit, magasin) — même ordre que {@link Inventory#LOCK_ORDER} côté ventes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.store.storeId IN :storeIds " +
+            "AND i.product.productId IN :productIds " +
+            "ORDER BY i.product.productId, i.store.storeId")
+    List<Inventory> findForUpdate(@Param("storeIds") Collection<UUID> storeIds,
+                                  @Param("productIds") Collection<UUID> productIds);
+
+    /**
+     * Inventaire de destination d'un transfert, créé à quantité nulle avec les seuils et
+     * prix de la source. Idempotent face à un transfert concurrent vers le même magasin :
+     * retourne 0 si la ligne (produit, magasin) existe déjà.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventories"))
+    @Query(value = "INSERT INTO inventories (inventory_id, version, product_id, store_id, quantity, " +
+            "unit_cost, selling_price, reorder_point, max_stock, min_stock, stock_status, " +
+            "created_at, updated_at, is_active) " +
+            "SELECT gen_random_uuid(), 0, i.product_id, :toStoreId, 0, " +
+            "i.unit_cost, i.selling_price, i.reorder_point, i.max_stock, i.min_stock, 'OUT_OF_STOCK', " +
+            "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, true " +
+            "FROM inventories i WHERE i.store_id = :fromStoreId AND i.product_id = :productId " +
+            "ON CONFLICT (product_id, store_id) DO NOTHING",
+            nativeQuery = true)
+    int insertTransferTarget(@Param("fromStoreId") UUID fromStoreId,
+                             @Param("toStoreId") UUID toStoreId,
+                             @Param("productId") UUID productId);
+
+    /**
+     * Niveaux après écriture (quantité, seuils, libellés) des couples touchés par une
+     * transaction ; valeurs scalaires, donc lues en base après le flush automatique.
+     */
+    @Query("""
+    SELECT (
+        i.inventoryId, i.store.storeId, i.store.name, i.product.productId, i.product.name,
+        i.quantity, i.reorderPoint, i.minStock, i.maxStock, i.unitCost, i.isActive
+    )
+    FROM Inventory i
+    WHERE i.store.storeId IN :storeIds
+    AND i.product.productId IN :productIds
+""")
+    List<InventoryLevelProjection> findLevels(@Param("storeIds") Collection<UUID> storeIds,
+                                              @Param("productIds") Collection<UUID> productIds);
+
+    /**
+     * Inventaires actifs en stock faible ou en rupture d'un magasin, via l'index
+     * (magasin, statut) : amorçage de l'ensemble maintenu en mémoire.
+     */
+    @Query("""
+    SELECT (
+        i.inventoryId, i.store.storeId, i.store.name, i.product.productId, i.product.name,
+        i.quantity, i.reorderPoint, i.minStock, i.maxStock, i.unitCost, i.isActive
+    )
+    FROM Inventory i
+    WHERE i.store.storeId = :storeId
+    AND i.isActive = true
+    AND i.stockStatus IN (org.odema.posnew.domain.model.enums.StockStatus.LOW_STOCK,
+                          org.odema.posnew.domain.model.enums.StockStatus.OUT_OF_STOCK)
+""")
+    List<InventoryLevelProjection> findLowStockLevels(@Param("storeId") UUID storeId);
+
     List<Inventory> findByStore_StoreId(UUID storeId);
 
     Page<Inventory> findByStore_StoreId(UUID storeId, Pageable pageable);
@@ -44,6 +170,14 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
     @Query("SELECT i FROM Inventory i WHERE i.isActive = true AND i.quantity <= :threshold")
     Page<Inventory> findLowStockByThreshold(@Param("threshold") int threshold, Pageable pageable);
 
+    /**
+     * Stock actif total par produit, en une requête pour une page de produits
+     * (au lieu d'initialiser la collection d'inventaires de chacun).
+     */
+    @Query("SELECT i.product.productId AS productId, SUM(i.quantity) AS quantity FROM Inventory i " +
+            "WHERE i.isActive = true AND i.product.productId IN :productIds GROUP BY i.product.productId")
+    List<ProductStock> sumActiveQuantityByProducts(@Param("productIds") Collection<UUID> productIds);
+
     @Query("SELECT SUM(i.quantity * i.unitCost) FROM Inventory i WHERE i.store.storeId = :storeId AND i.isActive = true")
     BigDecimal findTotalStockValueByStore(@Param("storeId") UUID storeId);
 
@@ -66,4 +200,15 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
     AND i.isActive = true
 """)
     InventorySummaryProjection getSummaryByStore(@Param("storeId") UUID storeId);
+
+    interface StockLevel {
+        Integer getQuantity();
+        Integer getReorderPoint();
+        Integer getMaxStock();
+    }
+
+    interface ProductStock {
+        UUID getProductId();
+        Long getQuantity();
+    }
 }
@@ -3,6 +3,7 @@ package org.odema.posnew.domain.repository;
 import org.odema.posnew.domain.model.Invoice;
 import org.odema.posnew.domain.model.enums.InvoiceStatus;
 import org.odema.posnew.domain.model.enums.InvoiceType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -21,9 +22,32 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
     // ✅ MÉTHODE MANQUANTE - Vérifie l'existence d'un numéro de facture
     boolean existsByInvoiceNumber(String invoiceNumber);
 
+    /**
+     * Documents restés PENDING depuis {@code before} (création ou dernière relance),
+     * verrouillés sans attendre : deux instances ne relancent pas le même document.
+     */
+    @Query(value = "SELECT * FROM invoices d WHERE d.render_status = 'PENDING' " +
+            "AND COALESCE(d.render_requested_at, d.created_at) < :before " +
+            "ORDER BY d.created_at " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Invoice> findStaleRenders(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
     // ✅ MÉTHODE MANQUANTE - Compte les factures par type et période
     long countByInvoiceTypeAndCreatedAtBetween(InvoiceType type, LocalDateTime start, LocalDateTime end);
 
+    /**
+     * Plus grand suffixe numérique des numéros de la forme préfixe + chiffres, 0 si aucun.
+     * {@code pattern} : le préfixe échappé pour LIKE suivi de %. Amorce le compteur de
+     * numérotation d'une clé (les trous et numéros annulés ne faussent pas la reprise).
+     */
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(t.invoice_number FROM :prefixLength + 1) AS BIGINT)), 0) " +
+            "FROM invoices t WHERE t.invoice_number LIKE :pattern " +
+            "AND SUBSTRING(t.invoice_number FROM :prefixLength + 1) ~ '^[0-9]{1,18}$'",
+            nativeQuery = true)
+    long findMaxNumberSuffix(@Param("pattern") String pattern, @Param("prefixLength") int prefixLength);
+
     Optional<Invoice> findByOrder_OrderId(UUID orderId);
 
     Optional<Invoice> findByOrder_OrderIdAndInvoiceType(UUID orderId, InvoiceType type);
@@ -39,6 +63,39 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
     @Query("SELECT i FROM Invoice i WHERE i.createdAt BETWEEN :start AND :end")
     List<Invoice> findByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
+    // Historique paginé par clé (createdAt, invoiceId) décroissante
+    String KEYSET_AFTER = "(i.createdAt, i.invoiceId) < (:createdAt, :invoiceId) ";
+    String KEYSET_ORDER = "ORDER BY i.createdAt DESC, i.invoiceId DESC";
+
+    @Query("SELECT i FROM Invoice i WHERE i.customer.customerId = :customerId AND " +
+            KEYSET_AFTER + KEYSET_ORDER)
+    List<Invoice> findByCustomerAfter(@Param("customerId") UUID customerId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("invoiceId") UUID invoiceId,
+                                      Limit limit);
+
+    @Query("SELECT i FROM Invoice i WHERE i.store.storeId = :storeId AND " +
+            KEYSET_AFTER + KEYSET_ORDER)
+    List<Invoice> findByStoreAfter(@Param("storeId") UUID storeId,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("invoiceId") UUID invoiceId,
+                                   Limit limit);
+
+    @Query("SELECT i FROM Invoice i WHERE i.status = :status AND " +
+            KEYSET_AFTER + KEYSET_ORDER)
+    List<Invoice> findByStatusAfter(@Param("status") InvoiceStatus status,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("invoiceId") UUID invoiceId,
+                                    Limit limit);
+
+    @Query("SELECT i FROM Invoice i WHERE i.createdAt >= :start AND i.createdAt <= :end AND " +
+            KEYSET_AFTER + KEYSET_ORDER)
+    List<Invoice> findByDateRangeAfter(@Param("start") LocalDateTime start,
+                                       @Param("end") LocalDateTime end,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("invoiceId") UUID invoiceId,
+                                       Limit limit);
+
     @Query("SELECT i FROM Invoice i WHERE i.paymentDueDate < :now AND i.status NOT IN ('PAID', 'CANCELLED')")
     List<Invoice> findOverdueInvoices(@Param("now") LocalDateTime now);
 
@@ -1,30 +1,162 @@
 package org.odema.posnew.domain.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.odema.posnew.application.dto.response.OrderSummaryResponse;
 import org.odema.posnew.domain.model.Order;
 import org.odema.posnew.domain.model.enums.OrderStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
 
+    /**
+     * Projection de liste : une seule requête par page, totaux lus dans les colonnes
+     * dénormalisées, compteurs par sous-requêtes corrélées (aucune collection chargée).
+     */
+    String SUMMARY_SELECT = "SELECT new org.odema.posnew.application.dto.response.OrderSummaryResponse(" +
+            "o.orderId, o.orderNumber, o.status, o.paymentStatus, o.orderType, " +
+            "s.storeId, s.name, ca.userId, ca.username, " +
+            "cu.customerId, CONCAT(cu.firstName, ' ', cu.lastName), " +
+            "o.totalAmount, " +
+            "COALESCE(o.paidAmount, 0), COALESCE(o.creditAmount, 0), " +
+            "(SELECT COUNT(i) FROM OrderItem i WHERE i.order = o), " +
+            "(SELECT COUNT(p) FROM Payment p WHERE p.order = o), " +
+            "o.createdAt, o.completedAt) " +
+            "FROM Order o JOIN o.store s JOIN o.cashier ca LEFT JOIN o.customer cu ";
+
+    /**
+     * Rattrapage des totaux dénormalisés pour les commandes créées avant leur ajout :
+     * une seule instruction, n'agit que sur les lignes encore à null.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET " +
+            "o.subtotalAmount = COALESCE((SELECT SUM(i.finalPrice) FROM OrderItem i WHERE i.order = o), 0), " +
+            "o.taxAmount = COALESCE((SELECT SUM(i.taxAmount) FROM OrderItem i WHERE i.order = o), 0), " +
+            "o.itemsDiscountAmount = COALESCE((SELECT SUM(i.discountAmount) FROM OrderItem i WHERE i.order = o), 0), " +
+            "o.paidAmount = COALESCE((SELECT SUM(p.amount) FROM Payment p WHERE p.order = o " +
+            "  AND p.status = org.odema.posnew.domain.model.enums.PaymentStatus.PAID " +
+            "  AND p.method <> org.odema.posnew.domain.model.enums.PaymentMethod.CREDIT), 0), " +
+            "o.creditAmount = COALESCE((SELECT SUM(p.amount) FROM Payment p WHERE p.order = o " +
+            "  AND p.status = org.odema.posnew.domain.model.enums.PaymentStatus.CREDIT " +
+            "  AND p.method = org.odema.posnew.domain.model.enums.PaymentMethod.CREDIT), 0) " +
+            "WHERE o.subtotalAmount IS NULL OR o.paidAmount IS NULL OR o.creditAmount IS NULL " +
+            "   OR o.taxAmount IS NULL OR o.itemsDiscountAmount IS NULL")
+    int backfillTotals();
+
+    /**
+     * Ventes hors ligne déjà synchronisées parmi les identifiants caisse donnés.
+     */
+    @Query("SELECT o.clientSaleId AS clientSaleId, o.orderId AS orderId, o.orderNumber AS orderNumber " +
+            "FROM Order o WHERE o.clientSaleId IN :clientSaleIds")
+    List<ClientSaleRef> findByClientSaleIdIn(@Param("clientSaleIds") Collection<UUID> clientSaleIds);
+
+    interface ClientSaleRef {
+        UUID getClientSaleId();
+        UUID getOrderId();
+        String getOrderNumber();
+    }
+
+    @Query(value = SUMMARY_SELECT,
+            countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderSummaryResponse> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE s.storeId = :storeId",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.store.storeId = :storeId")
+    Page<OrderSummaryResponse> findSummariesByStore(@Param("storeId") UUID storeId, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE ca.userId = :cashierId",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.cashier.userId = :cashierId")
+    Page<OrderSummaryResponse> findSummariesByCashier(@Param("cashierId") UUID cashierId, Pageable pageable);
+
+    // Historique paginé par clé (createdAt, orderId) décroissante : la comparaison de tuple
+    // reprend après la dernière ligne servie, via les index composites de Order.
+    String KEYSET_AFTER = "(o.createdAt, o.orderId) < (:createdAt, :orderId) ";
+    String KEYSET_ORDER = "ORDER BY o.createdAt DESC, o.orderId DESC";
+
+    @Query(SUMMARY_SELECT + "WHERE " + KEYSET_AFTER + KEYSET_ORDER)
+    List<OrderSummaryResponse> findSummariesAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("orderId") UUID orderId,
+                                                  Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE s.storeId = :storeId AND " + KEYSET_AFTER + KEYSET_ORDER)
+    List<OrderSummaryResponse> findSummariesByStoreAfter(@Param("storeId") UUID storeId,
+                                                         @Param("createdAt") LocalDateTime createdAt,
+                                                         @Param("orderId") UUID orderId,
+                                                         Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE ca.userId = :cashierId AND " + KEYSET_AFTER + KEYSET_ORDER)
+    List<OrderSummaryResponse> findSummariesByCashierAfter(@Param("cashierId") UUID cashierId,
+                                                           @Param("createdAt") LocalDateTime createdAt,
+                                                           @Param("orderId") UUID orderId,
+                                                           Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE cu.customerId = :customerId AND " + KEYSET_AFTER + KEYSET_ORDER)
+    List<OrderSummaryResponse> findSummariesByCustomerAfter(@Param("customerId") UUID customerId,
+                                                            @Param("createdAt") LocalDateTime createdAt,
+                                                            @Param("orderId") UUID orderId,
+                                                            Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE o.status = :status AND " + KEYSET_AFTER + KEYSET_ORDER)
+    List<OrderSummaryResponse> findSummariesByStatusAfter(@Param("status") OrderStatus status,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("orderId") UUID orderId,
+                                                          Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE o.createdAt >= :start AND o.createdAt <= :end AND " +
+            KEYSET_AFTER + KEYSET_ORDER)
+    List<OrderSummaryResponse> findSummariesByDateRangeAfter(@Param("start") LocalDateTime start,
+                                                             @Param("end") LocalDateTime end,
+                                                             @Param("createdAt") LocalDateTime createdAt,
+                                                             @Param("orderId") UUID orderId,
+                                                             Limit limit);
+
+    /**
+     * Détail : commande, parties liées et lignes (avec produits) en une requête.
+     * Les paiements sont une seconde collection "bag" : Hibernate ne peut pas
+     * les joindre dans la même requête (MultipleBagFetchException).
+     */
+    @EntityGraph(attributePaths = {"customer", "cashier", "store", "items", "items.product"})
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId")
+    Optional<Order> findDetailById(@Param("orderId") UUID orderId);
+
     Optional<Order> findByOrderNumber(String orderNumber);
 
     boolean existsByOrderNumber(String orderNumber);
 
     long countByCreatedAtDate(LocalDate date);
 
+    /**
+     * Plus grand suffixe numérique des numéros de la forme préfixe + chiffres, 0 si aucun.
+     * {@code pattern} : le préfixe échappé pour LIKE suivi de %. Amorce le compteur de
+     * numérotation d'une clé (les trous et numéros annulés ne faussent pas la reprise).
+     */
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(t.order_number FROM :prefixLength + 1) AS BIGINT)), 0) " +
+            "FROM orders t WHERE t.order_number LIKE :pattern " +
+            "AND SUBSTRING(t.order_number FROM :prefixLength + 1) ~ '^[0-9]{1,18}$'",
+            nativeQuery = true)
+    long findMaxNumberSuffix(@Param("pattern") String pattern, @Param("prefixLength") int prefixLength);
+
     List<Order> findByCustomer_CustomerId(UUID customerId);
 
     List<Order> findByCashier_UserId(UUID cashierId);
@@ -37,12 +169,47 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     List<Order> findByStatus(OrderStatus status);
 
+    /**
+     * Verrou ligne de la commande avant toute écriture de ses totaux de paiement
+     * ({@code paidAmount}, statut) : paiements en caisse, callbacks Mobile Money et
+     * annulation sont sérialisés. Ordre des verrous : commande, puis paiements.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId")
+    Optional<Order> findByIdForUpdate(@Param("orderId") UUID orderId);
+
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.payments WHERE o.orderId = :orderId")
     Optional<Order> findByIdWithPayments(@Param("orderId") UUID orderId);
 
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.orderId = :orderId")
     Optional<Order> findByIdWithItems(@Param("orderId") UUID orderId);
 
+    /**
+     * Lecture en flux pour l'export : curseur JDBC (fetch size), entités en lecture seule.
+     * À consommer dans une transaction, en détachant les lignes au fur et à mesure.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o JOIN FETCH o.store JOIN FETCH o.cashier LEFT JOIN FETCH o.customer " +
+            "WHERE o.createdAt >= :start AND o.createdAt <= :end ORDER BY o.createdAt, o.orderId")
+    Stream<Order> streamByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Lecture en flux pour l'export d'un magasin (mêmes contraintes que {@link #streamByDateRange}).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o JOIN FETCH o.store JOIN FETCH o.cashier LEFT JOIN FETCH o.customer " +
+            "WHERE o.store.storeId = :storeId AND o.createdAt >= :start AND o.createdAt <= :end " +
+            "ORDER BY o.createdAt, o.orderId")
+    Stream<Order> streamByStoreAndDateRange(@Param("storeId") UUID storeId,
+                                            @Param("start") LocalDateTime start,
+                                            @Param("end") LocalDateTime end);
+
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :start AND :end")
     List<Order> findByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
@@ -0,0 +1,58 @@
+package org.odema.posnew.domain.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.enums.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Réserve (verrou de ligne) les événements prêts, un seul par agrégat : celui de tête.
+     * Un événement attend tant qu'un prédécesseur du même agrégat n'est pas distribué :
+     * en attente de nouvel essai comme abandonné (FAILED, à traiter manuellement). L'ordre
+     * est celui de {@code aggregate_seq} ; les événements antérieurs à ce rang (nul)
+     * passent d'abord, dans l'ordre de leur identifiant. Sûr avec plusieurs instances
+     * (SKIP LOCKED).
+     */
+    @Query(value = "SELECT * FROM outbox_events e " +
+            "WHERE e.status = 'PENDING' AND e.next_attempt_at <= now() " +
+            "AND NOT EXISTS (SELECT 1 FROM outbox_events p " +
+            "  WHERE p.aggregate_id = e.aggregate_id AND p.status <> 'PROCESSED' " +
+            "  AND (COALESCE(p.aggregate_seq, 0), p.event_id) < (COALESCE(e.aggregate_seq, 0), e.event_id)) " +
+            "ORDER BY e.created_at, e.event_id " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("limit") int limit);
+
+    /**
+     * Rang suivant de l'agrégat. La ligne du compteur reste verrouillée jusqu'au commit :
+     * les écritures concurrentes du même agrégat attendent, et les rangs suivent l'ordre
+     * des commits.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "outbox_aggregate_sequences"))
+    @Query(value = "INSERT INTO outbox_aggregate_sequences (aggregate_id, last_seq) VALUES (:aggregateId, 1) " +
+            "ON CONFLICT (aggregate_id) DO UPDATE SET last_seq = outbox_aggregate_sequences.last_seq + 1 " +
+            "RETURNING last_seq",
+            nativeQuery = true)
+    long nextAggregateSeq(@Param("aggregateId") UUID aggregateId);
+
+    long countByStatus(OutboxStatus status);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = org.odema.posnew.domain.model.enums.OutboxStatus.PROCESSED " +
+            "AND e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,15 +1,19 @@
 package org.odema.posnew.domain.repository;
 
+import jakarta.persistence.LockModeType;
 import org.odema.posnew.domain.model.Payment;
 import org.odema.posnew.domain.model.enums.PaymentMethod;
 import org.odema.posnew.domain.model.enums.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -31,9 +35,50 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
             "AND p.method = 'CREDIT' AND p.status = 'CREDIT'")
     BigDecimal getTotalCreditByOrder(@Param("orderId") UUID orderId);
 
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.order.orderId = :orderId " +
+            "AND p.status = 'PENDING'")
+    BigDecimal getTotalPendingByOrder(@Param("orderId") UUID orderId);
+
+    /**
+     * Verrou ligne : callback opérateur, expiration et échec d'initiation
+     * peuvent se croiser sur le même paiement en attente.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p JOIN FETCH p.order WHERE p.paymentId = :paymentId")
+    Optional<Payment> findByIdForUpdate(@Param("paymentId") UUID paymentId);
+
+    /**
+     * Paiements en attente d'une commande, verrouillés (après la commande) pour l'annulation.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.order.orderId = :orderId AND p.status = 'PENDING'")
+    List<Payment> findPendingByOrderForUpdate(@Param("orderId") UUID orderId);
+
+    @Query("SELECT p.order.orderId FROM Payment p WHERE p.paymentId = :paymentId")
+    Optional<UUID> findOrderIdByPaymentId(@Param("paymentId") UUID paymentId);
+
+    @Query("SELECT p.paymentId FROM Payment p WHERE p.status = 'PENDING' AND p.createdAt < :before")
+    List<UUID> findPendingIdsCreatedBefore(@Param("before") LocalDateTime before);
+
     @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.shiftReport.shiftReportId = :shiftId " +
             "AND p.method = :method AND p.status = 'PAID'")
     BigDecimal sumByMethodAndShift(@Param("method") PaymentMethod method, @Param("shiftId") UUID shiftId);
 
     Long countByShiftReport_ShiftReportIdAndStatus(UUID shiftId, PaymentStatus status);
+
+    /**
+     * Totaux d'un shift en une seule requête GROUP BY — repli et
+     * réconciliation des agrégats {@code shift_payment_totals}.
+     */
+    @Query("SELECT p.method AS method, p.status AS status, COUNT(p) AS paymentCount, " +
+            "COALESCE(SUM(p.amount), 0) AS amount FROM Payment p " +
+            "WHERE p.shiftReport.shiftReportId = :shiftId GROUP BY p.method, p.status")
+    List<MethodStatusTotal> summarizeByShift(@Param("shiftId") UUID shiftId);
+
+    interface MethodStatusTotal {
+        PaymentMethod getMethod();
+        PaymentStatus getStatus();
+        Long getPaymentCount();
+        BigDecimal getAmount();
+    }
 }
@@ -48,4 +48,11 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     @Query("SELECT p FROM Product p JOIN p.inventories i WHERE p.isActive = true " +
             "AND i.store.storeId = :storeId AND i.quantity > 0")
     List<Product> findAvailableProductsInStore(@Param("storeId") UUID storeId);
+
+    /**
+     * Produits actifs ayant un code-barres (préchargement de l'index de scan).
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category " +
+            "WHERE p.isActive = true AND p.barcode IS NOT NULL")
+    List<Product> findActiveWithBarcode(Pageable pageable);
 }
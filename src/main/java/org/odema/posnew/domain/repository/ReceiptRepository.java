@@ -1,9 +1,13 @@
 package org.odema.posnew.domain.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.odema.posnew.domain.model.Receipt;
 import org.odema.posnew.domain.model.enums.ReceiptType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -11,6 +15,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReceiptRepository extends JpaRepository<Receipt, UUID> {
@@ -38,12 +43,73 @@ public interface ReceiptRepository extends JpaRepository<Receipt, UUID> {
     List<Receipt> findByCashierAndDateRange(@Param("cashierId") UUID cashierId,
                                             @Param("start") LocalDateTime start,
                                             @Param("end") LocalDateTime end);
+
+    /**
+     * Lecture en flux pour l'export (curseur JDBC, entités en lecture seule).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Receipt r LEFT JOIN FETCH r.cashier LEFT JOIN FETCH r.store " +
+            "WHERE r.store.storeId = :storeId AND r.createdAt >= :start AND r.createdAt <= :end " +
+            "ORDER BY r.createdAt, r.receiptId")
+    Stream<Receipt> streamByStoreAndDateRange(@Param("storeId") UUID storeId,
+                                              @Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+
+    // Historique paginé par clé (createdAt, receiptId) décroissante
+    @Query("SELECT r FROM Receipt r WHERE r.store.storeId = :storeId " +
+            "AND r.createdAt >= :start AND r.createdAt <= :end " +
+            "AND (r.createdAt, r.receiptId) < (:createdAt, :receiptId) " +
+            "ORDER BY r.createdAt DESC, r.receiptId DESC")
+    List<Receipt> findByStoreAndDateRangeAfter(@Param("storeId") UUID storeId,
+                                               @Param("start") LocalDateTime start,
+                                               @Param("end") LocalDateTime end,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("receiptId") UUID receiptId,
+                                               Limit limit);
+
+    @Query("SELECT r FROM Receipt r WHERE r.cashier.userId = :cashierId " +
+            "AND r.createdAt >= :start AND r.createdAt <= :end " +
+            "AND (r.createdAt, r.receiptId) < (:createdAt, :receiptId) " +
+            "ORDER BY r.createdAt DESC, r.receiptId DESC")
+    List<Receipt> findByCashierAndDateRangeAfter(@Param("cashierId") UUID cashierId,
+                                                 @Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("receiptId") UUID receiptId,
+                                                 Limit limit);
+
     // ✅ MÉTHODE MANQUANTE - Vérifie l'existence d'un numéro de ticket
     boolean existsByReceiptNumber(String receiptNumber);
 
+    /**
+     * Documents restés PENDING depuis {@code before} (création ou dernière relance),
+     * verrouillés sans attendre : deux instances ne relancent pas le même document.
+     */
+    @Query(value = "SELECT * FROM receipts d WHERE d.render_status = 'PENDING' " +
+            "AND COALESCE(d.render_requested_at, d.created_at) < :before " +
+            "ORDER BY d.created_at " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Receipt> findStaleRenders(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
     // ✅ MÉTHODE MANQUANTE - Compte les tickets par store et période
     long countByStore_StoreIdAndCreatedAtBetween(UUID storeId, LocalDateTime start, LocalDateTime end);
 
+    /**
+     * Plus grand suffixe numérique des numéros de la forme préfixe + chiffres, 0 si aucun.
+     * {@code pattern} : le préfixe échappé pour LIKE suivi de %. Amorce le compteur de
+     * numérotation d'une clé (les trous et numéros annulés ne faussent pas la reprise).
+     */
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(t.receipt_number FROM :prefixLength + 1) AS BIGINT)), 0) " +
+            "FROM receipts t WHERE t.receipt_number LIKE :pattern " +
+            "AND SUBSTRING(t.receipt_number FROM :prefixLength + 1) ~ '^[0-9]{1,18}$'",
+            nativeQuery = true)
+    long findMaxNumberSuffix(@Param("pattern") String pattern, @Param("prefixLength") int prefixLength);
+
 
 
     @Query("SELECT r FROM Receipt r WHERE r.createdAt BETWEEN :start AND :end")
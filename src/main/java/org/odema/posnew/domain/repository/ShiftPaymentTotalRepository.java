@@ -0,0 +1,87 @@
+package org.odema.posnew.domain.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.odema.posnew.domain.model.ShiftPaymentTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Requêtes natives déclarées sur leur seul espace {@code shift_payment_totals} :
+ * sans cet indice, Hibernate viderait tout le contexte de persistance avant chacune
+ * (commande et paiement en attente écrits hors batch, au milieu de l'encaissement).
+ */
+@Repository
+public interface ShiftPaymentTotalRepository extends JpaRepository<ShiftPaymentTotal, ShiftPaymentTotal.Key> {
+
+    @Query("SELECT t FROM ShiftPaymentTotal t WHERE t.id.shiftReportId = :shiftId")
+    List<ShiftPaymentTotal> findByShiftReportId(@Param("shiftId") UUID shiftId);
+
+    /**
+     * Lignes du shift verrouillées : les encaissements qui ont déjà incrémenté sont
+     * validés avant la relecture des paiements, les suivants incrémentent la valeur corrigée.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM ShiftPaymentTotal t WHERE t.id.shiftReportId = :shiftId")
+    List<ShiftPaymentTotal> findByShiftReportIdForUpdate(@Param("shiftId") UUID shiftId);
+
+    @Query("SELECT COUNT(t) > 0 FROM ShiftPaymentTotal t WHERE t.id.shiftReportId = :shiftId")
+    boolean existsForShift(@Param("shiftId") UUID shiftId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shift_payment_totals"))
+    @Query(value = "INSERT INTO shift_payment_totals " +
+            "(shift_report_id, method, payment_count, amount, refund_count, refund_amount, updated_at) " +
+            "VALUES (:shiftId, :method, 1, :amount, 0, 0, now()) " +
+            "ON CONFLICT (shift_report_id, method) DO UPDATE SET " +
+            "payment_count = shift_payment_totals.payment_count + 1, " +
+            "amount = shift_payment_totals.amount + EXCLUDED.amount, " +
+            "updated_at = now()",
+            nativeQuery = true)
+    void recordPayment(@Param("shiftId") UUID shiftId,
+                       @Param("method") String method,
+                       @Param("amount") BigDecimal amount);
+
+    /**
+     * Variante cumulée de {@link #recordPayment} : plusieurs paiements d'une même
+     * méthode en une instruction (synchronisation des ventes hors ligne).
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shift_payment_totals"))
+    @Query(value = "INSERT INTO shift_payment_totals " +
+            "(shift_report_id, method, payment_count, amount, refund_count, refund_amount, updated_at) " +
+            "VALUES (:shiftId, :method, :count, :amount, 0, 0, now()) " +
+            "ON CONFLICT (shift_report_id, method) DO UPDATE SET " +
+            "payment_count = shift_payment_totals.payment_count + EXCLUDED.payment_count, " +
+            "amount = shift_payment_totals.amount + EXCLUDED.amount, " +
+            "updated_at = now()",
+            nativeQuery = true)
+    void recordPayments(@Param("shiftId") UUID shiftId,
+                        @Param("method") String method,
+                        @Param("count") int count,
+                        @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "shift_payment_totals"))
+    @Query(value = "UPDATE shift_payment_totals SET " +
+            "payment_count = payment_count - 1, " +
+            "amount = amount - :amount, " +
+            "refund_count = refund_count + 1, " +
+            "refund_amount = refund_amount + :amount, " +
+            "updated_at = now() " +
+            "WHERE shift_report_id = :shiftId AND method = :method",
+            nativeQuery = true)
+    int recordCancellation(@Param("shiftId") UUID shiftId,
+                           @Param("method") String method,
+                           @Param("amount") BigDecimal amount);
+}
@@ -0,0 +1,35 @@
+package org.odema.posnew.domain.repository;
+
+import org.odema.posnew.domain.model.StockMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    /**
+     * Somme des mouvements d'un produit sur l'intervalle {@code ]from, to]}
+     * (parcours d'index store, produit, date).
+     */
+    @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM StockMovement m " +
+            "WHERE m.storeId = :storeId AND m.productId = :productId " +
+            "AND m.occurredAt > :from AND m.occurredAt <= :to")
+    long sumBetween(@Param("storeId") UUID storeId,
+                    @Param("productId") UUID productId,
+                    @Param("from") LocalDateTime from,
+                    @Param("to") LocalDateTime to);
+
+    @Query("SELECT m FROM StockMovement m " +
+            "WHERE m.storeId = :storeId AND m.productId = :productId " +
+            "ORDER BY m.occurredAt DESC, m.movementId DESC")
+    Page<StockMovement> findHistory(@Param("storeId") UUID storeId,
+                                    @Param("productId") UUID productId,
+                                    Pageable pageable);
+}
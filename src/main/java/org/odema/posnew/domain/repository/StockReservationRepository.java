@@ -0,0 +1,46 @@
+package org.odema.posnew.domain.repository;
+
+import jakarta.persistence.LockModeType;
+import org.odema.posnew.domain.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    /**
+     * Quantité réservée d'un produit dans un magasin (amorçage des compteurs).
+     */
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r " +
+            "WHERE r.storeId = :storeId AND r.productId = :productId " +
+            "AND r.status = org.odema.posnew.domain.model.enums.ReservationStatus.ACTIVE")
+    long sumActive(@Param("storeId") UUID storeId, @Param("productId") UUID productId);
+
+    /**
+     * Réservations actives d'une commande, verrouillées : une réservation prise
+     * par le balayage (SKIP LOCKED) ne peut pas être convertie ou libérée deux fois.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId " +
+            "AND r.status = org.odema.posnew.domain.model.enums.ReservationStatus.ACTIVE " +
+            "ORDER BY r.productId")
+    List<StockReservation> findActiveByOrderForUpdate(@Param("orderId") UUID orderId);
+
+    /**
+     * Lot de réservations échues, verrouillées sans attendre celles en cours
+     * de conversion ou de libération.
+     */
+    @Query(value = "SELECT * FROM stock_reservations " +
+            "WHERE status = 'ACTIVE' AND expires_at < now() " +
+            "ORDER BY expires_at " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<StockReservation> claimExpired(@Param("limit") int limit);
+}
@@ -0,0 +1,67 @@
+package org.odema.posnew.domain.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.odema.posnew.domain.model.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, StockSnapshot.Key> {
+
+    @Query(value = "SELECT * FROM stock_snapshots " +
+            "WHERE store_id = :storeId AND product_id = :productId AND taken_at <= :at " +
+            "ORDER BY taken_at DESC LIMIT 1",
+            nativeQuery = true)
+    Optional<StockSnapshot> findLatestAtOrBefore(@Param("storeId") UUID storeId,
+                                                 @Param("productId") UUID productId,
+                                                 @Param("at") LocalDateTime at);
+
+    @Query("SELECT MAX(s.id.takenAt) FROM StockSnapshot s")
+    Optional<LocalDateTime> findLastCutoff();
+
+    /**
+     * Nouveau snapshot à {@code cutoff} pour chaque produit ayant bougé sur
+     * {@code ]since, cutoff]} : dernier snapshot antérieur à {@code since} + mouvements.
+     * Une exécution concurrente part des mêmes snapshots, donc du même résultat.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "stock_snapshots"))
+    @Query(value = "INSERT INTO stock_snapshots (store_id, product_id, taken_at, quantity) " +
+            "SELECT m.store_id, m.product_id, :cutoff, s.quantity + m.delta " +
+            "FROM (SELECT store_id, product_id, SUM(quantity) AS delta FROM stock_movements " +
+            "      WHERE occurred_at > :since AND occurred_at <= :cutoff " +
+            "      GROUP BY store_id, product_id) m " +
+            "JOIN LATERAL (SELECT p.quantity FROM stock_snapshots p " +
+            "      WHERE p.store_id = m.store_id AND p.product_id = m.product_id AND p.taken_at <= :since " +
+            "      ORDER BY p.taken_at DESC LIMIT 1) s ON true " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int rollForward(@Param("since") LocalDateTime since, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Snapshot d'ouverture des inventaires qui n'en ont pas encore : quantité
+     * courante moins les mouvements postérieurs à la coupure.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "stock_snapshots"))
+    @Query(value = "INSERT INTO stock_snapshots (store_id, product_id, taken_at, quantity) " +
+            "SELECT i.store_id, i.product_id, :cutoff, i.quantity - COALESCE(" +
+            "  (SELECT SUM(m.quantity) FROM stock_movements m " +
+            "   WHERE m.store_id = i.store_id AND m.product_id = i.product_id " +
+            "   AND m.occurred_at > :cutoff), 0) " +
+            "FROM inventories i " +
+            "WHERE NOT EXISTS (SELECT 1 FROM stock_snapshots p " +
+            "  WHERE p.store_id = i.store_id AND p.product_id = i.product_id) " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int seedOpening(@Param("cutoff") LocalDateTime cutoff);
+}
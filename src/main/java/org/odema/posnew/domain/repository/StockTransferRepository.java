@@ -0,0 +1,23 @@
+package org.odema.posnew.domain.repository;
+
+import org.odema.posnew.domain.model.StockTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockTransferRepository extends JpaRepository<StockTransfer, UUID> {
+
+    /**
+     * Document complet (magasins, lignes, produits) en une requête : bon de livraison.
+     */
+    @Query("SELECT DISTINCT t FROM StockTransfer t " +
+            "JOIN FETCH t.fromStore JOIN FETCH t.toStore " +
+            "LEFT JOIN FETCH t.lines l LEFT JOIN FETCH l.product " +
+            "WHERE t.transferId = :transferId")
+    Optional<StockTransfer> findWithLines(@Param("transferId") UUID transferId);
+}
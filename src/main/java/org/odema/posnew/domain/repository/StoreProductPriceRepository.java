@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -45,6 +46,16 @@ public interface StoreProductPriceRepository extends JpaRepository<StoreProductP
             @Param("productId") UUID productId,
             @Param("storeId") UUID storeId);
 
+    // Prix valides d'un lot de produits pour un magasin — le plus récent en premier
+    @Query("SELECT spp FROM StoreProductPrice spp WHERE spp.store.storeId = :storeId " +
+            "AND spp.product.productId IN :productIds AND spp.isActive = true " +
+            "AND spp.effectiveDate <= :dateTime AND (spp.endDate IS NULL OR spp.endDate >= :dateTime) " +
+            "ORDER BY spp.effectiveDate DESC")
+    List<StoreProductPrice> findActivePricesForProductsAtDate(
+            @Param("storeId") UUID storeId,
+            @Param("productIds") Collection<UUID> productIds,
+            @Param("dateTime") LocalDateTime dateTime);
+
     // ✅ Trouve les prix avec remises qui chevauchent une période
     @Query("SELECT spp FROM StoreProductPrice spp WHERE spp.product.productId = :productId " +
             "AND spp.store.storeId = :storeId AND spp.isActive = true " +
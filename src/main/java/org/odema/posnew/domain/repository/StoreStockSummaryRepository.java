@@ -0,0 +1,66 @@
+package org.odema.posnew.domain.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.odema.posnew.domain.model.StoreStockSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StoreStockSummaryRepository extends JpaRepository<StoreStockSummary, UUID> {
+
+    /**
+     * Incrément atomique des agrégats d'un magasin ; retourne 0 si la ligne n'existe pas encore.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "store_stock_summaries"))
+    @Query(value = "UPDATE store_stock_summaries SET " +
+            "total_products = total_products + :products, " +
+            "low_stock_products = low_stock_products + :lowStock, " +
+            "out_of_stock_products = out_of_stock_products + :outOfStock, " +
+            "total_quantity = total_quantity + :quantity, " +
+            "total_value = total_value + :value, " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE store_id = :storeId",
+            nativeQuery = true)
+    int applyDelta(@Param("storeId") UUID storeId,
+                   @Param("products") long products,
+                   @Param("lowStock") long lowStock,
+                   @Param("outOfStock") long outOfStock,
+                   @Param("quantity") long quantity,
+                   @Param("value") BigDecimal value);
+
+    /**
+     * Première ligne d'un magasin, calculée depuis {@code inventories} (écritures de la
+     * transaction courante comprises). Retourne 0 si une transaction concurrente l'a
+     * créée entre-temps : l'appelant applique alors son incrément.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "store_stock_summaries"))
+    @Query(value = "INSERT INTO store_stock_summaries (store_id, total_products, low_stock_products, " +
+            "out_of_stock_products, total_quantity, total_value, updated_at) " +
+            "SELECT :storeId, COUNT(*), " +
+            "COALESCE(SUM(CASE WHEN i.quantity <= i.reorder_point AND i.quantity > 0 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN i.quantity <= 0 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(i.quantity), 0), " +
+            "COALESCE(SUM(i.quantity * i.unit_cost), 0), " +
+            "CURRENT_TIMESTAMP " +
+            "FROM inventories i WHERE i.store_id = :storeId AND i.is_active = true " +
+            "ON CONFLICT (store_id) DO NOTHING",
+            nativeQuery = true)
+    int seed(@Param("storeId") UUID storeId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StoreStockSummary s WHERE s.storeId = :storeId")
+    Optional<StoreStockSummary> findForUpdate(@Param("storeId") UUID storeId);
+}
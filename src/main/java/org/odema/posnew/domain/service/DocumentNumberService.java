@@ -8,16 +8,17 @@ import org.odema.posnew.domain.model.enums.ReceiptType;
 import org.odema.posnew.domain.repository.InvoiceRepository;
 import org.odema.posnew.domain.repository.OrderRepository;
 import org.odema.posnew.domain.repository.ReceiptRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.ByteBuffer;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.Map;
 import java.util.UUID;
-import java.util.function.LongFunction;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Service centralisé pour générer des numéros de documents uniques.
@@ -34,6 +35,11 @@ import java.util.function.Predicate;
  *  - Bon de livraison   → BL-202602-0001
  *  - Avoir              → AV-202602-0001
  *  - Commande           → ORD-20260217-0001
+ *
+ * Les séquences sont tenues par clé (préfixe, magasin, période) dans la table
+ * {@code document_sequences}. Chaque nœud réserve un bloc de valeurs via
+ * {@link DocumentSequenceAllocator} et les distribue depuis un {@link AtomicLong} :
+ * sans verrou JVM, uniques entre nœuds, avec des trous possibles au redémarrage.
  */
 @Slf4j
 @Service
@@ -43,6 +49,12 @@ public class DocumentNumberService {
     private final ReceiptRepository receiptRepository;
     private final InvoiceRepository invoiceRepository;
     private final OrderRepository orderRepository;
+    private final DocumentSequenceAllocator sequenceAllocator;
+
+    @Value("${app.document.sequence-block-size:20}")
+    private int blockSize;
+
+    private final Map<SequenceKey, SequenceHolder> sequences = new ConcurrentHashMap<>();
 
     // =========================================================================
     // TICKETS (Receipts)
@@ -53,8 +65,7 @@ public class DocumentNumberService {
      * Format: {PREFIX}-{STORE_CODE}-{YYYYMMDD}-{SEQ:0000}
      * Exemple: RCP-ST0F3A-20260217-0001
      **/
-    @Transactional
-    public synchronized String generateReceiptNumber(UUID storeId, ReceiptType type) {
+    public String generateReceiptNumber(UUID storeId, ReceiptType type) {
         return getReceiptPrefix(storeId, type);
     }
 
@@ -99,8 +110,7 @@ public class DocumentNumberService {
      * Format: {PREFIX}-{YYYYMM}-{SEQ:0000}
      * Exemple: INV-202602-0001 / PRO-202602-0001 / BL-202602-0001
      */
-    @Transactional
-    public synchronized String generateInvoiceNumber(InvoiceType type) {
+    public String generateInvoiceNumber(InvoiceType type) {
         return getPrefix(type);
     }
 
@@ -128,59 +138,99 @@ public class DocumentNumberService {
      * Format: ORD-{YYYYMMDD}-{SEQ:0000}
      * Exemple: ORD-20260217-0001
      */
-    @Transactional
-    public synchronized String generateOrderNumber() {
+    public String generateOrderNumber() {
         LocalDate today   = LocalDate.now();
         String    dateStr = String.format("%04d%02d%02d",
                 today.getYear(), today.getMonthValue(), today.getDayOfMonth());
 
-        long count = orderRepository.countByCreatedAtDate(today);
+        String prefix = "ORD-" + dateStr + "-";
+        long seq = nextValue(new SequenceKey("ORD", "ALL", dateStr),
+                () -> orderRepository.findMaxNumberSuffix(likePrefix(prefix), prefix.length()));
 
-        return resolveUniqueNumber(
-                (seq) -> String.format("ORD-%s-%04d", dateStr, seq),
-                orderRepository::existsByOrderNumber,
-                count
-        );
+        return String.format("ORD-%s-%04d", dateStr, seq);
     }
 
     // =========================================================================
-    // RÉSOLUTION D'UNICITÉ (méthode générique)
+    // SÉQUENCES (hi/lo)
     // =========================================================================
 
     /**
-     * Résout un numéro de séquence en garantissant l'unicité en base.
-     * En cas de collision (race condition), incrémente jusqu'à trouver un numéro libre.
+     * Retourne la prochaine valeur de la séquence.
+     * Cas courant : un incrément mémoire. Quand le bloc local est épuisé,
+     * un seul thread par clé réserve le bloc suivant en base.
      *
-     * @param formatter   Fonction qui génère le numéro à partir du seq
-     * @param existsCheck Fonction qui vérifie l'existence en base
-     * @param baseCount   Compteur de base (pour le premier seq)
+     * @param seed plus grand numéro déjà émis pour cette clé, utilisé
+     *             uniquement à la création du compteur
      */
-    private String resolveUniqueNumber(
-            LongFunction<String> formatter,
-            Predicate<String> existsCheck,
-            long baseCount) {
+    private long nextValue(SequenceKey key, LongSupplier seed) {
+        SequenceHolder holder = sequences.get(key);
+        if (holder == null) {
+            // Nouvelle période : oublier les blocs des périodes précédentes de la série
+            sequences.keySet().removeIf(key::sameSeries);
+            holder = sequences.computeIfAbsent(key, k -> new SequenceHolder());
+        }
+
+        long value = holder.current.next();
+        while (value < 0) {
+            synchronized (holder) {
+                value = holder.current.next();
+                if (value < 0) {
+                    long hi = sequenceAllocator.allocateBlock(key.asString(), blockSize, seed);
+                    holder.current = new SequenceBlock(hi - blockSize + 1, hi);
+                    value = holder.current.next();
+                }
+            }
+        }
 
-        long seq    = baseCount + 1;
-        String number = formatter.apply(seq);
+        log.debug("Séquence {} → {}", key.asString(), value);
+        return value;
+    }
+
+    /**
+     * Motif LIKE des numéros commençant par {@code prefix} (le code magasin peut contenir '_').
+     */
+    private static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Clé de séquence : une série (préfixe + portée) découpée par période.
+     */
+    private record SequenceKey(String prefix, String scope, String period) {
 
-        int maxAttempts = 20;
-        int attempt     = 0;
+        boolean sameSeries(SequenceKey other) {
+            return prefix.equals(other.prefix) && scope.equals(other.scope)
+                    && !period.equals(other.period);
+        }
 
-        while (existsCheck.test(number) && attempt < maxAttempts) {
-            attempt++;
-            seq++;
-            number = formatter.apply(seq);
+        String asString() {
+            return prefix + "|" + scope + "|" + period;
         }
+    }
+
+    private static final class SequenceHolder {
+        private volatile SequenceBlock current = SequenceBlock.EXHAUSTED;
+    }
+
+    /**
+     * Bloc immuable [low, high] — remplacé en entier quand il est épuisé,
+     * jamais réinitialisé, pour qu'aucune valeur ne soit distribuée deux fois.
+     */
+    private static final class SequenceBlock {
+        private static final SequenceBlock EXHAUSTED = new SequenceBlock(1, 0);
+
+        private final AtomicLong cursor;
+        private final long high;
 
-        if (existsCheck.test(number)) {
-            throw new RuntimeException(
-                    "Impossible de générer un numéro unique après " + maxAttempts + " tentatives. " +
-                            "Dernier numéro essayé: " + number
-            );
+        private SequenceBlock(long low, long high) {
+            this.cursor = new AtomicLong(low);
+            this.high   = high;
         }
 
-        log.debug("Numéro unique généré: {}", number);
-        return number;
+        long next() {
+            long value = cursor.getAndIncrement();
+            return value <= high ? value : -1;
+        }
     }
 
     // =========================================================================
@@ -209,26 +259,17 @@ public class DocumentNumberService {
     public String generateCreditNoteNumber(InvoiceType type) {
         return getPrefix(type);
     }
-    private LocalDate today     = LocalDate.now();
-
-    //long count = orderRepository.countByCreatedAtDate(today);
-
-    // Dans getPrefix() pour Invoice - CORRIGÉ
     private String getPrefix(InvoiceType type) {
         String    prefix    = getInvoicePrefix(type);
         LocalDate today     = LocalDate.now();
-        LocalDateTime start = today.atStartOfDay();
-        LocalDateTime end   = today.plusMonths(1).atStartOfDay();
-
-        long count = invoiceRepository.countByInvoiceTypeAndCreatedAtBetween(type, start, end);
 
         String yearMonth = String.format("%04d%02d", today.getYear(), today.getMonthValue());
 
-        return resolveUniqueNumber(
-                (seq) -> String.format("%s-%s-%04d", prefix, yearMonth, seq),
-                invoiceRepository::existsByInvoiceNumber,
-                count
-        );
+        String numberPrefix = prefix + "-" + yearMonth + "-";
+        long seq = nextValue(new SequenceKey(prefix, type.name(), yearMonth),
+                () -> invoiceRepository.findMaxNumberSuffix(likePrefix(numberPrefix), numberPrefix.length()));
+
+        return String.format("%s-%s-%04d", prefix, yearMonth, seq);
     }
     public String generateProformaNumber(InvoiceType type) {
         return getPrefix(type);
@@ -248,16 +289,12 @@ public class DocumentNumberService {
         String dateStr = String.format("%04d%02d%02d",
                 today.getYear(), today.getMonthValue(), today.getDayOfMonth());
 
-        LocalDateTime start = today.atStartOfDay();
-        LocalDateTime end   = today.plusMonths(1).atStartOfDay();
 
-        long count = receiptRepository.countByStore_StoreIdAndCreatedAtBetween(storeId, start, end);
+        String numberPrefix = prefix + "-" + storeCode + "-" + dateStr + "-";
+        long seq = nextValue(new SequenceKey(prefix, storeCode, dateStr),
+                () -> receiptRepository.findMaxNumberSuffix(likePrefix(numberPrefix), numberPrefix.length()));
 
-        return resolveUniqueNumber(
-                (seq) -> String.format("%s-%s-%s-%04d", prefix, storeCode, dateStr, seq),
-                receiptRepository::existsByReceiptNumber,
-                count
-        );
+        return String.format("%s-%s-%s-%04d", prefix, storeCode, dateStr, seq);
     }
 
 
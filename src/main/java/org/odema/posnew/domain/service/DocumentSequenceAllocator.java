@@ -0,0 +1,54 @@
+package org.odema.posnew.domain.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.odema.posnew.config.AuxiliaryConnectionPool;
+import org.springframework.stereotype.Service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Réserve des blocs de numéros dans la table {@code document_sequences}.
+ * Exécuté dans sa propre transaction, sur le pool auxiliaire : un bloc réservé reste
+ * réservé même si la transaction appelante échoue (numérotation tolérante aux trous),
+ * et un encaissement en cours ne prend pas de seconde connexion au pool principal.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentSequenceAllocator {
+
+    private final AuxiliaryConnectionPool auxiliaryPool;
+
+    /**
+     * Réserve {@code blockSize} valeurs pour la clé.
+     *
+     * @param seed valeur initiale si la clé n'existe pas encore
+     *             (numéros déjà émis avant la mise en place du compteur) ;
+     *             lue par la connexion de l'appelant
+     * @return la dernière valeur du bloc réservé (bloc = [hi - blockSize + 1, hi])
+     */
+    public long allocateBlock(String key, int blockSize, LongSupplier seed) {
+        Boolean exists = auxiliaryPool.inTransaction(jdbc -> jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM document_sequences WHERE sequence_key = ?)",
+                Boolean.class, key));
+        if (!Boolean.TRUE.equals(exists)) {
+            long initialValue = seed.getAsLong();
+            // Création idempotente — deux nœuds peuvent initialiser la même clé en même temps
+            auxiliaryPool.inTransaction(jdbc -> jdbc.update(
+                    "INSERT INTO document_sequences (sequence_key, next_value, updated_at) " +
+                            "VALUES (?, ?, now()) ON CONFLICT (sequence_key) DO NOTHING",
+                    key, initialValue));
+        }
+
+        // Incrément et lecture en une instruction : le bloc retourné est le nôtre
+        Long hi = auxiliaryPool.inTransaction(jdbc -> jdbc.queryForObject(
+                "UPDATE document_sequences SET next_value = next_value + ?, updated_at = now() " +
+                        "WHERE sequence_key = ? RETURNING next_value",
+                Long.class, blockSize, key));
+
+        log.debug("Bloc de numérotation réservé - Clé: {}, Plage: {}..{}",
+                key, hi - blockSize + 1, hi);
+        return hi;
+    }
+}
@@ -1,6 +1,7 @@
 package org.odema.posnew.domain.service;
 
 import org.odema.posnew.application.dto.InvoiceResponse;
+import org.odema.posnew.application.dto.response.CursorPage;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
@@ -32,10 +33,12 @@ public interface InvoiceService {
     InvoiceResponse getInvoiceById(UUID invoiceId);
     InvoiceResponse getInvoiceByNumber(String invoiceNumber);
     InvoiceResponse getInvoiceByOrder(UUID orderId);
-    List<InvoiceResponse> getInvoicesByCustomer(UUID customerId);
-    List<InvoiceResponse> getInvoicesByStore(UUID storeId);
-    List<InvoiceResponse> getInvoicesByStatus(String status);
-    List<InvoiceResponse> getInvoicesByDateRange(LocalDate startDate, LocalDate endDate);
+    // Historiques paginés par curseur (null = première page)
+    CursorPage<InvoiceResponse> getInvoicesByCustomer(UUID customerId, String cursor, Integer size);
+    CursorPage<InvoiceResponse> getInvoicesByStore(UUID storeId, String cursor, Integer size);
+    CursorPage<InvoiceResponse> getInvoicesByStatus(String status, String cursor, Integer size);
+    CursorPage<InvoiceResponse> getInvoicesByDateRange(LocalDate startDate, LocalDate endDate,
+                                                       String cursor, Integer size);
     List<InvoiceResponse> getOverdueInvoices();
 
     // ── Mutations ────────────────────────────────────────
@@ -0,0 +1,29 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.application.dto.response.InventoryAlertResponse;
+import org.odema.posnew.domain.model.StockMovement;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Détection des passages sous le seuil de réapprovisionnement ou à zéro.
+ * <p>
+ * Les mouvements d'une transaction sont cumulés par (magasin, produit) : un seul signal
+ * par couple, émis uniquement au franchissement du seuil, et soumis à un anti-rebond.
+ * L'ensemble des produits en stock faible par magasin est maintenu au fil des commits.
+ */
+public interface LowStockService {
+
+    /**
+     * Compare les niveaux avant/après des couples touchés par les mouvements de la
+     * transaction courante et publie un {@code LowStockEvent} par franchissement
+     * (appelé avant commit, après l'écriture du journal).
+     */
+    void detectCrossings(List<StockMovement> movements);
+
+    /**
+     * Alertes de stock d'un magasin, lues dans l'ensemble maintenu.
+     */
+    List<InventoryAlertResponse> getStoreAlerts(UUID storeId);
+}
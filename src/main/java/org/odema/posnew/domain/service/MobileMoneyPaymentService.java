@@ -0,0 +1,58 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.dto.request.MobileMoneyCallbackRequest;
+import org.odema.posnew.application.dto.request.MobileMoneyPaymentRequest;
+import org.odema.posnew.application.dto.response.PaymentResponse;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Paiements Mobile Money asynchrones : aucun thread de requête ni connexion
+ * ne reste bloqué en attendant la validation du client sur son téléphone.
+ */
+public interface MobileMoneyPaymentService {
+
+    /**
+     * Enregistre le paiement en attente (PENDING) et déclenche la demande
+     * opérateur après le commit.
+     *
+     * @return le paiement en attente
+     */
+    PaymentResponse initiatePayment(UUID orderId, MobileMoneyPaymentRequest request, UUID cashierId)
+            throws UnauthorizedException;
+
+    /**
+     * Confirmation ou refus de l'opérateur. Idempotent : un callback rejoué
+     * sur un paiement déjà traité est ignoré.
+     *
+     * @param callbackToken secret partagé avec l'opérateur
+     * @throws UnauthorizedException si le secret ne correspond pas
+     */
+    void handleCallback(String callbackToken, MobileMoneyCallbackRequest callback)
+            throws UnauthorizedException;
+
+    /**
+     * Annule les paiements encore en attente d'une commande annulée (commande déjà
+     * verrouillée par l'appelant). Un callback ultérieur est traité comme une
+     * confirmation tardive à rembourser, jamais comme une vente.
+     *
+     * @return nombre de paiements annulés
+     */
+    int cancelPending(UUID orderId, String reason);
+
+    /**
+     * Résultat du paiement dès qu'il est connu, ou son état courant
+     * au bout de {@code maxWait} (attente sans thread bloqué).
+     */
+    CompletableFuture<PaymentResponse> awaitResult(UUID paymentId, Duration maxWait);
+
+    /**
+     * Passe en échec les paiements restés sans confirmation au-delà du délai.
+     *
+     * @return nombre de paiements expirés
+     */
+    int expireStalePayments();
+}
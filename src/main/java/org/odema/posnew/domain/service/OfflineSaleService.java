@@ -0,0 +1,15 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.application.dto.request.OfflineSaleBatchRequest;
+import org.odema.posnew.application.dto.response.OfflineSyncResponse;
+
+import java.util.UUID;
+
+public interface OfflineSaleService {
+
+    /**
+     * Enregistre un lot de ventes réalisées hors ligne par une caisse.
+     * Idempotent par clientSaleId ; une vente refusée n'empêche pas les autres.
+     */
+    OfflineSyncResponse syncSales(OfflineSaleBatchRequest request, UUID cashierId);
+}
@@ -1,7 +1,10 @@
 package org.odema.posnew.domain.service;
 
 import org.odema.posnew.application.dto.request.PaymentRequest;
+import org.odema.posnew.application.dto.response.CursorPage;
 import org.odema.posnew.application.dto.response.OrderResponse;
+import org.odema.posnew.application.dto.response.OrderSummaryResponse;
+import org.odema.posnew.application.dto.request.CheckoutRequest;
 import org.odema.posnew.application.dto.request.OrderRequest;
 import org.odema.posnew.api.exception.UnauthorizedException;
 import org.springframework.data.domain.Page;
@@ -25,6 +28,10 @@ public interface OrderService {
                                          PaymentRequest paymentRequest,
                                          UUID cashierId) throws UnauthorizedException;
 
+    // Checkout en un appel : création, paiements, clôture (ticket via l'événement de création)
+    @Transactional
+    OrderResponse checkout(CheckoutRequest request, UUID cashierId) throws UnauthorizedException;
+
     // Payment handling
     @Transactional
     OrderResponse addPaymentToOrder(UUID orderId, PaymentRequest paymentRequest, UUID cashierId)
@@ -43,13 +50,16 @@ public interface OrderService {
     // Queries
     OrderResponse getOrderById(UUID orderId);
     OrderResponse getOrderByNumber(String orderNumber);
-    List<OrderResponse> getAllOrders();
-    Page<OrderResponse> getOrders(UUID userId, Pageable pageable);
-    List<OrderResponse> getOrdersByStore(UUID storeId);
-    List<OrderResponse> getOrdersByCustomer(UUID customerId);
-    List<OrderResponse> getOrdersByCashier(UUID cashierId);
-    List<OrderResponse> getOrdersByStatus(String status);
-    List<OrderResponse> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate);
+    Page<OrderSummaryResponse> getOrders(UUID userId, Pageable pageable);
+
+    // Historiques paginés par clé (jeton opaque, null pour la première page)
+    CursorPage<OrderSummaryResponse> getOrderHistory(UUID userId, String cursor, Integer size);
+    CursorPage<OrderSummaryResponse> getOrdersByStore(UUID storeId, String cursor, Integer size);
+    CursorPage<OrderSummaryResponse> getOrdersByCustomer(UUID customerId, String cursor, Integer size);
+    CursorPage<OrderSummaryResponse> getOrdersByCashier(UUID cashierId, String cursor, Integer size);
+    CursorPage<OrderSummaryResponse> getOrdersByStatus(String status, String cursor, Integer size);
+    CursorPage<OrderSummaryResponse> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                          String cursor, Integer size);
     List<OrderResponse> getRecentOrders(int limit);
     //List<OrderResponse> findCashierOrdersByShift(UUID cashierId, UUID shiftId);
 
@@ -0,0 +1,13 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.application.dto.response.ProductScanResponse;
+
+import java.util.UUID;
+
+public interface ProductScanService {
+
+    /**
+     * Produit, prix actif et stock du magasin pour un code-barres scanné.
+     */
+    ProductScanResponse scan(String barcode, UUID storeId);
+}
@@ -12,7 +12,7 @@ import java.util.UUID;
 
 public interface ProductService {
     ProductResponse createProduct(ProductRequest request, User user) throws UnauthorizedException, NotFoundException;
-    ProductResponse getProductById(UUID productId) throws NotFoundException;
+    ProductResponse getProductById(UUID productId, UUID storeId) throws NotFoundException;
     ProductResponse updateProduct(UUID productId, ProductRequest request) throws NotFoundException;
     void deleteProduct(UUID productId) throws NotFoundException;
 
@@ -1,5 +1,6 @@
 package org.odema.posnew.domain.service;
 
+import org.odema.posnew.application.dto.response.CursorPage;
 import org.odema.posnew.application.dto.response.ReceiptResponse;
 import org.odema.posnew.domain.model.enums.ReceiptType;
 
@@ -58,18 +59,22 @@ public interface ReceiptService {
     List<ReceiptResponse> getReceiptsByShift(UUID shiftReportId);
 
     /**
-     * Liste des tickets par plage de dates
+     * Tickets d'un magasin par plage de dates, paginés par curseur (null = première page)
      */
-    List<ReceiptResponse> getReceiptsByDateRange(UUID storeId,
-                                                 LocalDate startDate,
-                                                 LocalDate endDate);
+    CursorPage<ReceiptResponse> getReceiptsByDateRange(UUID storeId,
+                                                       LocalDate startDate,
+                                                       LocalDate endDate,
+                                                       String cursor,
+                                                       Integer size);
 
     /**
-     * Liste des tickets par caissier
+     * Tickets d'un caissier par plage de dates, paginés par curseur
      */
-    List<ReceiptResponse> getReceiptsByCashier(UUID cashierId,
-                                               LocalDate startDate,
-                                               LocalDate endDate);
+    CursorPage<ReceiptResponse> getReceiptsByCashier(UUID cashierId,
+                                                     LocalDate startDate,
+                                                     LocalDate endDate,
+                                                     String cursor,
+                                                     Integer size);
 
     /**
      * Génère un ticket d'ouverture de caisse
@@ -0,0 +1,39 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.domain.model.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Exports comptables en flux : les lignes sont écrites au fil de la lecture,
+ * la mémoire reste constante quelle que soit la période.
+ */
+public interface SalesExportService {
+
+    /**
+     * Magasin exporté pour cet utilisateur : un gérant (STORE_ADMIN) est limité à son
+     * magasin ; ADMIN et ACCOUNTANT exportent le magasin demandé (tous si null).
+     * À appeler avant d'ouvrir le flux, pour que le refus soit une réponse d'erreur.
+     *
+     * @throws UnauthorizedException si le gérant demande un autre magasin
+     *                               ou n'est affecté à aucun magasin
+     */
+    UUID resolveExportStore(UUID userId, UUID requestedStoreId) throws UnauthorizedException;
+
+    /**
+     * @param storeId magasin exporté, null pour tous les magasins
+     * @return nombre de lignes écrites
+     */
+    long exportOrders(UUID storeId, LocalDateTime start, LocalDateTime end,
+                      ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * @return nombre de lignes écrites
+     */
+    long exportReceipts(UUID storeId, LocalDateTime start, LocalDateTime end,
+                        ExportFormat format, OutputStream out) throws IOException;
+}
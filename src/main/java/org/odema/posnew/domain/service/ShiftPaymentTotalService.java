@@ -0,0 +1,19 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.domain.model.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Agrégats par méthode de paiement d'un shift, tenus par incréments dans la
+ * transaction de l'encaissement.
+ */
+public interface ShiftPaymentTotalService {
+
+    void recordPayment(UUID shiftId, PaymentMethod method, BigDecimal amount);
+
+    void recordPayments(UUID shiftId, PaymentMethod method, int count, BigDecimal amount);
+
+    void recordCancellation(UUID shiftId, PaymentMethod method, BigDecimal amount);
+}
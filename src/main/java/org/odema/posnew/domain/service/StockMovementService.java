@@ -0,0 +1,51 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.application.dto.response.StockLevelResponse;
+import org.odema.posnew.application.dto.response.StockMovementResponse;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Journal des mouvements de stock (insertion seule).
+ * <p>
+ * Chaque écriture de {@code inventories.quantity} est accompagnée d'un mouvement
+ * enregistré dans la même transaction ; les mouvements sont insérés par lot au commit.
+ * Des snapshots périodiques bornent la reconstitution d'un stock passé.
+ * Historique d'audit : le journal ne remplace pas la mise à jour en place du stock
+ * et ne supprime pas le verrou de ligne de {@code inventories}.
+ */
+public interface StockMovementService {
+
+    /**
+     * Enregistre un mouvement (transaction courante requise).
+     *
+     * @param quantity quantité signée, négative en sortie
+     */
+    void record(UUID storeId, UUID productId, StockMovementType type, int quantity,
+                UUID referenceId, String note);
+
+    /**
+     * Un mouvement par produit de la commande (unités de base) : sortie pour
+     * {@link StockMovementType#SALE}, entrée sinon.
+     */
+    void recordOrder(Order order, StockMovementType type);
+
+    Page<StockMovementResponse> getMovements(UUID storeId, UUID productId, Pageable pageable);
+
+    /**
+     * Stock d'un produit à une date : dernier snapshot antérieur + mouvements suivants.
+     */
+    StockLevelResponse getStockAt(UUID storeId, UUID productId, LocalDateTime at);
+
+    /**
+     * Prend un snapshot des produits ayant bougé depuis la coupure précédente.
+     *
+     * @return nombre de snapshots écrits
+     */
+    int takeSnapshots();
+}
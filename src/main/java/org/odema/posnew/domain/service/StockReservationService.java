@@ -0,0 +1,58 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.design.context.BasketContext;
+import org.odema.posnew.domain.model.Order;
+
+import java.util.UUID;
+
+/**
+ * Réservations de stock des commandes non payées.
+ * <p>
+ * Disponible à la vente = stock physique - réservations actives. La déduction
+ * du stock physique n'a lieu qu'à la conversion (paiement ou clôture) ; une commande
+ * annulée ou abandonnée libère sa réservation sans écrire l'inventaire.
+ */
+public interface StockReservationService {
+
+    /**
+     * Réserve les quantités de la commande (transaction courante requise).
+     *
+     * @param basket inventaires du panier déjà chargés (stock physique)
+     */
+    void reserve(Order order, BasketContext basket);
+
+    /**
+     * Convertit la réservation en déduction du stock physique. Sans effet si la
+     * commande n'a pas de stock réservé ; une réservation expirée est déduite
+     * directement si le stock le permet encore.
+     */
+    void convert(Order order);
+
+    /**
+     * Libère la réservation d'une commande annulée.
+     *
+     * @return {@code false} si la commande n'avait pas de stock réservé
+     *         (stock déjà déduit : à restaurer par l'appelant)
+     */
+    boolean release(Order order);
+
+    int availableToSell(UUID storeId, UUID productId, int onHand);
+
+    /**
+     * Retient {@code quantity} du disponible à la vente jusqu'à la fin de la transaction
+     * courante, pour une sortie de stock hors vente (transfert). Admise sous le même verrou
+     * que les réservations des ventes ; rendue au commit, quand le stock physique a été
+     * décrémenté, comme au rollback.
+     *
+     * @param onHand stock physique lu sous verrou par l'appelant
+     * @return disponible avant retenue si accordée, sinon {@code -(disponible + 1)}
+     */
+    long holdUntilCompletion(UUID storeId, UUID productId, int onHand, int quantity);
+
+    /**
+     * Libère par lots les réservations échues.
+     *
+     * @return nombre de réservations expirées
+     */
+    int expireStale();
+}
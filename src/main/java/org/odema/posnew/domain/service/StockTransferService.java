@@ -0,0 +1,24 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.application.dto.request.StockTransferRequest;
+import org.odema.posnew.application.dto.response.StockTransferResponse;
+
+import java.util.UUID;
+
+/**
+ * Transferts de stock entre magasins par document (N lignes, un bon de livraison).
+ */
+public interface StockTransferService {
+
+    /**
+     * Déplace toutes les lignes dans une seule transaction : tout ou rien.
+     */
+    StockTransferResponse createTransfer(StockTransferRequest request, UUID userId);
+
+    StockTransferResponse getTransfer(UUID transferId);
+
+    /**
+     * PDF du bon de livraison : lu depuis le stockage, rendu à la demande sinon.
+     */
+    byte[] getDeliveryNotePdf(UUID transferId);
+}
@@ -0,0 +1,42 @@
+package org.odema.posnew.domain.service;
+
+import org.odema.posnew.application.dto.response.InventorySummaryProjection;
+import org.odema.posnew.domain.model.Inventory;
+
+import java.util.UUID;
+
+/**
+ * Agrégats de stock par magasin (produits, stock faible, ruptures, unités, valeur),
+ * tenus à jour par incréments au commit de chaque écriture de stock.
+ * <p>
+ * Les mouvements du journal suffisent pour les écritures de quantité ; une écriture par
+ * entité qui touche aussi le coût, le seuil ou l'activation (ou qui crée l'inventaire)
+ * note l'état antérieur via {@link #beforeChange(Inventory)}.
+ */
+public interface StockValuationService {
+
+    /**
+     * Delta de quantité d'un couple (magasin, produit) dans la transaction courante.
+     */
+    void track(UUID storeId, UUID productId, int quantity);
+
+    /**
+     * État de l'inventaire avant modification (premier appel de la transaction retenu) ;
+     * un inventaire pas encore persisté ne comptait pas.
+     */
+    void beforeChange(Inventory inventory);
+
+    /**
+     * Agrégats d'un magasin : ligne maintenue, ou calcul depuis la source si le magasin
+     * n'en a pas encore.
+     */
+    InventorySummaryProjection getSummary(UUID storeId);
+
+    /**
+     * Recalcule les agrégats de chaque magasin depuis {@code inventories}, signale et
+     * corrige les écarts.
+     *
+     * @return nombre de magasins corrigés
+     */
+    int verifyAndRepair();
+}
@@ -0,0 +1,136 @@
+package org.odema.posnew;
+
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.OrderItem;
+import org.odema.posnew.domain.model.Product;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.StoreStatus;
+import org.odema.posnew.domain.model.enums.StoreType;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.InventoryRepository;
+import org.odema.posnew.domain.repository.OrderRepository;
+import org.odema.posnew.domain.repository.ProductRepository;
+import org.odema.posnew.domain.repository.StoreRepository;
+import org.odema.posnew.domain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Base des tests d'intégration : contexte Spring complet sur PostgreSQL (Testcontainers),
+ * partagé par toutes les sous-classes. Les jeux de données sont validés (commit) : les
+ * requêtes natives et les verrous testés s'exécutent dans leurs propres transactions.
+ * Chaque test crée ses propres magasin/utilisateurs/produits (identifiants uniques).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+public abstract class AbstractIntegrationTest {
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @Autowired
+    protected StoreRepository storeRepository;
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected OrderRepository orderRepository;
+
+    @Autowired
+    protected InventoryRepository inventoryRepository;
+
+    protected static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    protected Store createStore() {
+        return createStore(StoreType.SHOP);
+    }
+
+    protected Store createStore(StoreType type) {
+        return storeRepository.save(Store.builder()
+                .name(unique("Magasin"))
+                .address("1 rue du Test")
+                .storeType(type)
+                .status(StoreStatus.ACTIVE)
+                .build());
+    }
+
+    protected User createUser(UserRole role, Store store) {
+        String username = unique("user");
+        return userRepository.save(User.builder()
+                .username(username)
+                .password("{noop}secret")
+                .email(username + "@test.local")
+                .userRole(role)
+                .assignedStore(store)
+                .build());
+    }
+
+    protected Product createProduct() {
+        return productRepository.save(Product.builder()
+                .name(unique("Produit"))
+                .sku(unique("SKU"))
+                .build());
+    }
+
+    protected Inventory createInventory(Store store, Product product, int quantity) {
+        return inventoryRepository.save(Inventory.builder()
+                .store(store)
+                .product(product)
+                .quantity(quantity)
+                .unitCost(new BigDecimal("500.00"))
+                .build());
+    }
+
+    /**
+     * Commande validée avec {@code itemCount} lignes à 1000 FCFA HT, sans paiement.
+     */
+    protected Order createOrder(Store store, User cashier, int itemCount) {
+        Map<Product, Integer> lines = new LinkedHashMap<>();
+        for (int i = 0; i < itemCount; i++) {
+            lines.put(createProduct(), 1);
+        }
+        return createOrder(store, cashier, lines);
+    }
+
+    /**
+     * Commande validée, une ligne à 1000 FCFA HT par produit, sans paiement ni réservation.
+     */
+    protected Order createOrder(Store store, User cashier, Map<Product, Integer> lines) {
+        return transactionTemplate.execute(status -> orderRepository.save(newOrder(store, cashier, lines)));
+    }
+
+    /**
+     * Commande non enregistrée (à persister dans la transaction de l'appelant).
+     */
+    protected Order newOrder(Store store, User cashier, Map<Product, Integer> lines) {
+        Order order = Order.builder()
+                .orderNumber(unique("TST"))
+                .store(store)
+                .cashier(cashier)
+                .build();
+        lines.forEach((product, quantity) -> order.addItem(OrderItem.builder()
+                .product(product)
+                .quantity(quantity)
+                .unitPrice(new BigDecimal("1000.00"))
+                .taxRate(BigDecimal.ZERO)
+                .build()));
+        return order;
+    }
+}
@@ -1,10 +1,8 @@
 package org.odema.posnew;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class PosNewApplicationTests {
+class PosNewApplicationTests extends AbstractIntegrationTest {
 
     @Test
     void contextLoads() {
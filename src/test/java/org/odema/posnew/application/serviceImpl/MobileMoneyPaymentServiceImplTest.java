@@ -0,0 +1,244 @@
+package org.odema.posnew.application.serviceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.application.dto.request.MobileMoneyCallbackRequest;
+import org.odema.posnew.application.dto.request.MobileMoneyPaymentRequest;
+import org.odema.posnew.application.dto.response.PaymentResponse;
+import org.odema.posnew.domain.model.CashRegister;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Payment;
+import org.odema.posnew.domain.model.ShiftPaymentTotal;
+import org.odema.posnew.domain.model.ShiftReport;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.OrderStatus;
+import org.odema.posnew.domain.model.enums.PaymentMethod;
+import org.odema.posnew.domain.model.enums.PaymentStatus;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.CashRegisterRepository;
+import org.odema.posnew.domain.repository.PaymentRepository;
+import org.odema.posnew.domain.repository.ShiftPaymentTotalRepository;
+import org.odema.posnew.domain.repository.ShiftReportRepository;
+import org.odema.posnew.domain.service.MobileMoneyPaymentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Paiement Mobile Money de bout en bout avec l'opérateur simulé : initiation en attente,
+ * callback authentifié, confirmation comptée une seule fois, refus, expiration, et
+ * commande annulée qui ne devient jamais une vente.
+ */
+class MobileMoneyPaymentServiceImplTest extends AbstractIntegrationTest {
+
+    private static final BigDecimal TOTAL = new BigDecimal("2000.00");
+
+    @Autowired
+    private MobileMoneyPaymentService mobileMoneyService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ShiftReportRepository shiftReportRepository;
+
+    @Autowired
+    private ShiftPaymentTotalRepository shiftPaymentTotalRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.payment.mobile-money.callback-secret}")
+    private String callbackSecret;
+
+    private User cashier;
+    private ShiftReport shift;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        Store store = createStore();
+        cashier = createUser(UserRole.CASHIER, store);
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber(unique("R"))
+                .name("Caisse test")
+                .store(store)
+                .build());
+        shift = shiftReportRepository.save(ShiftReport.builder()
+                .shiftNumber(unique("SHIFT"))
+                .cashier(cashier)
+                .store(store)
+                .cashRegister(register)
+                .openingTime(LocalDateTime.now())
+                .build());
+        order = createOrder(store, cashier, 2);
+    }
+
+    @Test
+    void confirmedPaymentCompletesTheOrderOnce() throws Exception {
+        PaymentResponse pending = initiate(TOTAL, "0612345671");
+        assertThat(pending.status()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(reloadOrder().getPaidAmount()).as("en attente : hors totaux").isEqualByComparingTo("0");
+
+        CompletableFuture<PaymentResponse> result = mobileMoneyService.awaitResult(pending.paymentId(), Duration.ofSeconds(30));
+        callback(pending.paymentId(), true, TOTAL);
+
+        assertThat(result.get(10, TimeUnit.SECONDS).status()).isEqualTo(PaymentStatus.PAID);
+        Order paid = reloadOrder();
+        assertThat(paid.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(paid.getPaymentStatus()).isEqualTo(PaymentStatus.PAID);
+        assertThat(paid.getPaidAmount()).isEqualByComparingTo(TOTAL);
+        assertMobileMoneyTotal(1, TOTAL);
+
+        // Callback rejoué : ignoré
+        callback(pending.paymentId(), true, TOTAL);
+        assertThat(reloadOrder().getPaidAmount()).isEqualByComparingTo(TOTAL);
+        assertMobileMoneyTotal(1, TOTAL);
+    }
+
+    @Test
+    void oneTillTimingOutDoesNotDropTheOthers() throws Exception {
+        PaymentResponse pending = initiate(TOTAL, "0612345671");
+
+        CompletableFuture<PaymentResponse> patient = mobileMoneyService.awaitResult(pending.paymentId(), Duration.ofSeconds(30));
+        CompletableFuture<PaymentResponse> hasty = mobileMoneyService.awaitResult(pending.paymentId(), Duration.ofMillis(50));
+        assertThat(hasty.get(10, TimeUnit.SECONDS).status()).as("délai écoulé : état courant").isEqualTo(PaymentStatus.PENDING);
+
+        callback(pending.paymentId(), true, TOTAL);
+
+        assertThat(patient.get(10, TimeUnit.SECONDS).status()).isEqualTo(PaymentStatus.PAID);
+    }
+
+    @Test
+    void unauthenticatedCallbackIsRejected() {
+        PaymentResponse pending = initiate(TOTAL, "0612345671");
+
+        assertThatThrownBy(() -> mobileMoneyService.handleCallback("mauvais-secret",
+                new MobileMoneyCallbackRequest(pending.paymentId(), "REF", true, TOTAL, null)))
+                .isInstanceOf(UnauthorizedException.class);
+
+        assertThat(payment(pending.paymentId()).getStatus()).isEqualTo(PaymentStatus.PENDING);
+    }
+
+    @Test
+    void refusalAndAmountMismatchFailThePayment() throws Exception {
+        PaymentResponse refused = initiate(new BigDecimal("500.00"), "0612345671");
+        PaymentResponse mismatched = initiate(new BigDecimal("500.00"), "0612345672");
+
+        callback(refused.paymentId(), false, null);
+        callback(mismatched.paymentId(), true, new BigDecimal("50.00"));
+
+        assertThat(payment(refused.paymentId()).getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(payment(mismatched.paymentId()).getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(reloadOrder().getPaidAmount()).isEqualByComparingTo("0");
+        assertThat(mobileMoneyTotal()).isEmpty();
+    }
+
+    @Test
+    void pendingPaymentsReserveTheRemainingAmount() {
+        initiate(new BigDecimal("1500.00"), "0612345671");
+
+        assertThatThrownBy(() -> initiate(new BigDecimal("600.00"), "0612345672"))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(initiate(new BigDecimal("500.00"), "0612345673").status()).isEqualTo(PaymentStatus.PENDING);
+    }
+
+    @Test
+    void confirmationAfterOrderCancellationIsNeverASale() throws Exception {
+        PaymentResponse pending = initiate(TOTAL, "0612345671");
+
+        // Annulation concurrente : statut de commande changé avant le callback
+        transactionTemplate.executeWithoutResult(status -> {
+            Order locked = orderRepository.findByIdForUpdate(order.getOrderId()).orElseThrow();
+            locked.setStatus(OrderStatus.CANCELLED);
+        });
+        callback(pending.paymentId(), true, TOTAL);
+
+        Payment payment = payment(pending.paymentId());
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(payment.getNotes()).contains("remboursement client");
+        assertThat(reloadOrder().getPaidAmount()).isEqualByComparingTo("0");
+        assertThat(mobileMoneyTotal()).isEmpty();
+    }
+
+    @Test
+    void cancelPendingFailsPaymentsAndLateCallbackIsOnlyRecorded() throws Exception {
+        PaymentResponse pending = initiate(TOTAL, "0612345671");
+
+        Integer cancelled = transactionTemplate.execute(status -> {
+            orderRepository.findByIdForUpdate(order.getOrderId()).orElseThrow().setStatus(OrderStatus.CANCELLED);
+            return mobileMoneyService.cancelPending(order.getOrderId(), "Commande annulée");
+        });
+        callback(pending.paymentId(), true, TOTAL);
+
+        assertThat(cancelled).isEqualTo(1);
+        Payment payment = payment(pending.paymentId());
+        assertThat(payment.getStatus()).as("échec, pas remboursement du shift").isEqualTo(PaymentStatus.FAILED);
+        assertThat(payment.getConfirmedAt()).isNotNull();
+        assertThat(mobileMoneyTotal()).isEmpty();
+    }
+
+    @Test
+    void stalePendingPaymentsExpire() {
+        PaymentResponse pending = initiate(TOTAL, "0612345671");
+        jdbcTemplate.update("UPDATE payments SET created_at = now() - interval '1 hour' WHERE payment_id = ?",
+                pending.paymentId());
+
+        assertThat(mobileMoneyService.expireStalePayments()).isGreaterThanOrEqualTo(1);
+
+        assertThat(payment(pending.paymentId()).getStatus()).isEqualTo(PaymentStatus.FAILED);
+    }
+
+    private PaymentResponse initiate(BigDecimal amount, String phone) {
+        try {
+            return mobileMoneyService.initiatePayment(order.getOrderId(),
+                    new MobileMoneyPaymentRequest(amount, "MTN", phone, null), cashier.getUserId());
+        } catch (UnauthorizedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void callback(UUID paymentId, boolean success, BigDecimal amount) throws UnauthorizedException {
+        mobileMoneyService.handleCallback(callbackSecret,
+                new MobileMoneyCallbackRequest(paymentId, "MTN-" + paymentId, success, amount,
+                        success ? null : "Refusé par le client"));
+    }
+
+    private Order reloadOrder() {
+        return orderRepository.findById(order.getOrderId()).orElseThrow();
+    }
+
+    private Payment payment(UUID paymentId) {
+        return paymentRepository.findById(paymentId).orElseThrow();
+    }
+
+    private Optional<ShiftPaymentTotal> mobileMoneyTotal() {
+        return shiftPaymentTotalRepository.findByShiftReportId(shift.getShiftReportId()).stream()
+                .filter(t -> t.getId().getMethod() == PaymentMethod.MOBILE_MONEY)
+                .findFirst();
+    }
+
+    private void assertMobileMoneyTotal(int count, BigDecimal amount) {
+        ShiftPaymentTotal total = mobileMoneyTotal().orElseThrow();
+        assertThat(total.getPaymentCount()).isEqualTo(count);
+        assertThat(total.getAmount()).isEqualByComparingTo(amount);
+    }
+}
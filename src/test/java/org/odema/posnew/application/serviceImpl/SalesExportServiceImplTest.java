@@ -0,0 +1,80 @@
+package org.odema.posnew.application.serviceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.api.exception.UnauthorizedException;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.ExportFormat;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.service.SalesExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Périmètre des exports : un gérant n'exporte que son magasin, l'administrateur
+ * et le comptable exportent le magasin demandé ou tous les magasins.
+ */
+class SalesExportServiceImplTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private SalesExportService exportService;
+
+    private Store ownStore;
+    private Store otherStore;
+
+    @BeforeEach
+    void setUp() {
+        ownStore = createStore();
+        otherStore = createStore();
+    }
+
+    @Test
+    void storeAdminIsLimitedToAssignedStore() throws Exception {
+        User manager = createUser(UserRole.STORE_ADMIN, ownStore);
+
+        assertThat(exportService.resolveExportStore(manager.getUserId(), null))
+                .as("export de tous les magasins ramené au sien")
+                .isEqualTo(ownStore.getStoreId());
+        assertThat(exportService.resolveExportStore(manager.getUserId(), ownStore.getStoreId()))
+                .isEqualTo(ownStore.getStoreId());
+        assertThatThrownBy(() -> exportService.resolveExportStore(manager.getUserId(), otherStore.getStoreId()))
+                .isInstanceOf(UnauthorizedException.class);
+    }
+
+    @Test
+    void storeAdminWithoutStoreCannotExport() {
+        User manager = createUser(UserRole.STORE_ADMIN, null);
+
+        assertThatThrownBy(() -> exportService.resolveExportStore(manager.getUserId(), null))
+                .isInstanceOf(UnauthorizedException.class);
+    }
+
+    @Test
+    void accountantExportsRequestedOrAllStores() throws Exception {
+        User accountant = createUser(UserRole.ACCOUNTANT, null);
+
+        assertThat(exportService.resolveExportStore(accountant.getUserId(), otherStore.getStoreId()))
+                .isEqualTo(otherStore.getStoreId());
+        assertThat(exportService.resolveExportStore(accountant.getUserId(), null)).isNull();
+    }
+
+    @Test
+    void storeScopedOrderExportOmitsOtherStores() throws Exception {
+        User cashier = createUser(UserRole.CASHIER, ownStore);
+        String ownOrder = createOrder(ownStore, cashier, 1).getOrderNumber();
+        String otherOrder = createOrder(otherStore, createUser(UserRole.CASHIER, otherStore), 1).getOrderNumber();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportOrders(ownStore.getStoreId(), LocalDateTime.now().minusHours(1),
+                LocalDateTime.now().plusHours(1), ExportFormat.CSV, out);
+
+        assertThat(out.toString()).contains(ownOrder).doesNotContain(otherOrder);
+    }
+}
@@ -0,0 +1,188 @@
+package org.odema.posnew.application.serviceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.design.context.BasketContext;
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Product;
+import org.odema.posnew.domain.model.StockReservation;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.ReservationStatus;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.StockReservationRepository;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Journal de réservations : disponible à la vente = stock physique - réservations actives,
+ * stock physique déduit à la conversion seulement, quantités rendues à la libération,
+ * à l'expiration et au rollback.
+ */
+class StockReservationServiceImplTest extends AbstractIntegrationTest {
+
+    private static final int ON_HAND = 10;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    private Store store;
+    private User cashier;
+    private Product product;
+    private Inventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        store = createStore();
+        cashier = createUser(UserRole.CASHIER, store);
+        product = createProduct();
+        inventory = createInventory(store, product, ON_HAND);
+    }
+
+    @Test
+    void reservationHoldsStockWithoutTouchingInventory() {
+        UUID orderId = reserveInNewOrder(4);
+
+        assertThat(available()).isEqualTo(ON_HAND - 4);
+        assertThat(onHand()).isEqualTo(ON_HAND);
+        assertThat(reservationsOf(orderId)).singleElement()
+                .satisfies(r -> {
+                    assertThat(r.getStatus()).isEqualTo(ReservationStatus.ACTIVE);
+                    assertThat(r.getQuantity()).isEqualTo(4);
+                });
+    }
+
+    @Test
+    void reservationBeyondAvailableIsRefused() {
+        reserveInNewOrder(7);
+
+        assertThatThrownBy(() -> reserveInNewOrder(4))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Disponible: 3");
+        assertThat(available()).as("rollback : quantité rendue au compteur").isEqualTo(ON_HAND - 7);
+    }
+
+    @Test
+    void releaseRestoresAvailabilityWithoutWritingInventory() {
+        UUID orderId = reserveInNewOrder(4);
+
+        Boolean released = transactionTemplate.execute(status ->
+                reservationService.release(loadOrder(orderId)));
+
+        assertThat(released).isTrue();
+        assertThat(available()).isEqualTo(ON_HAND);
+        assertThat(onHand()).isEqualTo(ON_HAND);
+        assertThat(reservationsOf(orderId)).extracting(StockReservation::getStatus)
+                .containsExactly(ReservationStatus.RELEASED);
+    }
+
+    @Test
+    void conversionDeductsPhysicalStock() {
+        UUID orderId = reserveInNewOrder(4);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = loadOrder(orderId);
+            reservationService.convert(order);
+            orderRepository.save(order);
+        });
+
+        assertThat(onHand()).isEqualTo(ON_HAND - 4);
+        assertThat(available()).isEqualTo(ON_HAND - 4);
+        assertThat(reservationsOf(orderId)).extracting(StockReservation::getStatus)
+                .containsExactly(ReservationStatus.CONSUMED);
+        assertThat(loadOrderOutsideTx(orderId).getStockReserved()).isFalse();
+    }
+
+    @Test
+    void saleReservedAndPaidInOneTransactionWritesNoReservation() {
+        UUID orderId = transactionTemplate.execute(status -> {
+            Order order = orderRepository.save(newOrder(store, cashier, Map.of(product, 3)));
+            reservationService.reserve(order, basket());
+            reservationService.convert(order);
+            return order.getOrderId();
+        });
+
+        assertThat(reservationsOf(orderId)).isEmpty();
+        assertThat(onHand()).isEqualTo(ON_HAND - 3);
+        assertThat(available()).isEqualTo(ON_HAND - 3);
+    }
+
+    @Test
+    void rolledBackReservationIsReturned() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.save(newOrder(store, cashier, Map.of(product, 5)));
+            reservationService.reserve(order, basket());
+            status.setRollbackOnly();
+        });
+
+        assertThat(available()).isEqualTo(ON_HAND);
+    }
+
+    @Test
+    void expiredReservationsAreReleasedBySweep() {
+        UUID orderId = reserveInNewOrder(6);
+        transactionTemplate.executeWithoutResult(status -> reservationsOf(orderId).forEach(r -> {
+            r.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+            reservationRepository.save(r);
+        }));
+
+        assertThat(reservationService.expireStale()).isGreaterThanOrEqualTo(1);
+
+        assertThat(available()).isEqualTo(ON_HAND);
+        assertThat(onHand()).isEqualTo(ON_HAND);
+        assertThat(reservationsOf(orderId)).extracting(StockReservation::getStatus)
+                .containsExactly(ReservationStatus.EXPIRED);
+    }
+
+    private UUID reserveInNewOrder(int quantity) {
+        return transactionTemplate.execute(status -> {
+            Order order = orderRepository.save(newOrder(store, cashier, Map.of(product, quantity)));
+            reservationService.reserve(order, basket());
+            return order.getOrderId();
+        });
+    }
+
+    private BasketContext basket() {
+        Inventory current = inventoryRepository.findById(inventory.getInventoryId()).orElseThrow();
+        return new BasketContext(store.getStoreId(),
+                Map.of(product.getProductId(), product),
+                Map.of(product.getProductId(), current),
+                Map.of());
+    }
+
+    private Order loadOrder(UUID orderId) {
+        return orderRepository.findByIdWithItems(orderId).orElseThrow();
+    }
+
+    private Order loadOrderOutsideTx(UUID orderId) {
+        return orderRepository.findById(orderId).orElseThrow();
+    }
+
+    private List<StockReservation> reservationsOf(UUID orderId) {
+        return reservationRepository.findAll().stream()
+                .filter(r -> r.getOrderId().equals(orderId))
+                .toList();
+    }
+
+    private int available() {
+        return reservationService.availableToSell(store.getStoreId(), product.getProductId(), onHand());
+    }
+
+    private int onHand() {
+        return inventoryRepository.findById(inventory.getInventoryId()).orElseThrow().getQuantity();
+    }
+}
@@ -0,0 +1,221 @@
+package org.odema.posnew.application.serviceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.api.exception.BadRequestException;
+import org.odema.posnew.api.exception.BusinessException;
+import org.odema.posnew.application.dto.request.StockTransferRequest;
+import org.odema.posnew.application.dto.response.StockTransferResponse;
+import org.odema.posnew.design.context.BasketContext;
+import org.odema.posnew.domain.model.Inventory;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.Product;
+import org.odema.posnew.domain.model.StockMovement;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.model.enums.StockMovementType;
+import org.odema.posnew.domain.model.enums.StoreType;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.OutboxEventRepository;
+import org.odema.posnew.domain.repository.StockMovementRepository;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.odema.posnew.domain.service.StockTransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Transferts multi-lignes : tout ou rien, un document et un événement par transfert,
+ * mouvements du journal par ligne, pas d'interblocage entre transferts croisés.
+ */
+class StockTransferServiceImplTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private StockTransferService transferService;
+
+    @Autowired
+    private StockMovementRepository movementRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    private Store depot;
+    private Store shop;
+    private User manager;
+    private Product rice;
+    private Product oil;
+
+    @BeforeEach
+    void setUp() {
+        depot = createStore(StoreType.WAREHOUSE);
+        shop = createStore();
+        manager = createUser(UserRole.ADMIN, null);
+        rice = createProduct();
+        oil = createProduct();
+        createInventory(depot, rice, 10);
+        createInventory(depot, oil, 5);
+        createInventory(shop, rice, 2);
+    }
+
+    @Test
+    void movesEveryLineInOneDocument() {
+        StockTransferResponse response = transferService.createTransfer(request(depot, shop,
+                line(rice, 4), line(oil, 5), line(rice, 1)), manager.getUserId());
+
+        assertThat(quantity(depot, rice)).contains(5);
+        assertThat(quantity(depot, oil)).contains(0);
+        assertThat(quantity(shop, rice)).contains(7);
+        assertThat(quantity(shop, oil)).as("ligne de destination créée").contains(5);
+
+        assertThat(response.transferNumber()).startsWith("BL-");
+        assertThat(response.totalQuantity()).isEqualTo(10);
+        assertThat(response.lines()).extracting(StockTransferResponse.Line::productId, StockTransferResponse.Line::quantity)
+                .containsExactlyInAnyOrder(
+                        tuple(rice.getProductId(), 5),
+                        tuple(oil.getProductId(), 5));
+
+        assertThat(movements(depot, rice)).extracting(StockMovement::getType, StockMovement::getQuantity)
+                .containsExactly(tuple(StockMovementType.TRANSFER_OUT, -5));
+        assertThat(movements(shop, oil)).extracting(StockMovement::getType, StockMovement::getQuantity)
+                .containsExactly(tuple(StockMovementType.TRANSFER_IN, 5));
+
+        assertThat(outboxEventRepository.findAll()).filteredOn(e -> e.getAggregateId().equals(response.transferId()))
+                .extracting(OutboxEvent::getEventType)
+                .containsExactly(OutboxEventType.STOCK_TRANSFER_CREATED);
+    }
+
+    @Test
+    void anyShortageAbortsTheWholeTransfer() {
+        assertThatThrownBy(() -> transferService.createTransfer(request(depot, shop,
+                line(rice, 4), line(oil, 6)), manager.getUserId()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining(oil.getName())
+                .hasMessageNotContaining(rice.getName());
+
+        assertThat(quantity(depot, rice)).contains(10);
+        assertThat(quantity(depot, oil)).contains(5);
+        assertThat(quantity(shop, rice)).contains(2);
+        assertThat(quantity(shop, oil)).isEmpty();
+        assertThat(movements(depot, rice)).isEmpty();
+    }
+
+    @Test
+    void reservedStockIsNotTransferable() {
+        User cashier = createUser(UserRole.CASHIER, depot);
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.save(newOrder(depot, cashier, Map.of(rice, 7)));
+            Inventory current = inventoryRepository
+                    .findByProduct_ProductIdAndStore_StoreId(rice.getProductId(), depot.getStoreId()).orElseThrow();
+            reservationService.reserve(order, new BasketContext(depot.getStoreId(),
+                    Map.of(rice.getProductId(), rice), Map.of(rice.getProductId(), current), Map.of()));
+        });
+
+        assertThatThrownBy(() -> transferService.createTransfer(request(depot, shop,
+                line(rice, 4)), manager.getUserId()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("disponible: 3");
+
+        transferService.createTransfer(request(depot, shop, line(rice, 3)), manager.getUserId());
+        assertThat(quantity(depot, rice)).contains(7);
+        assertThat(reservationService.availableToSell(depot.getStoreId(), rice.getProductId(), 7))
+                .as("retenue du transfert rendue au commit").isZero();
+    }
+
+    @Test
+    void concurrentTransfersCreateTheSameTargetOnce() throws Exception {
+        Store otherDepot = createStore(StoreType.WAREHOUSE);
+        createInventory(otherDepot, oil, 5);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(() -> transferService.createTransfer(
+                            request(depot, shop, line(oil, 2)), manager.getUserId()), pool),
+                    CompletableFuture.runAsync(() -> transferService.createTransfer(
+                            request(otherDepot, shop, line(oil, 3)), manager.getUserId()), pool)
+            ).get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(quantity(shop, oil)).contains(5);
+    }
+
+    @Test
+    void sameSourceAndTargetIsRejected() {
+        assertThatThrownBy(() -> transferService.createTransfer(request(depot, depot,
+                line(rice, 1)), manager.getUserId()))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void crossedTransfersDoNotDeadlockAndConserveStock() throws Exception {
+        // Stock suffisant des deux côtés : seul l'ordre des verrous est testé
+        Product flour = createProduct();
+        Product sugar = createProduct();
+        for (Store store : List.of(depot, shop)) {
+            createInventory(store, flour, 50);
+            createInventory(store, sugar, 50);
+        }
+        int rounds = 20;
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    transferService.createTransfer(request(depot, shop, line(flour, 1), line(sugar, 2)), manager.getUserId());
+                }
+            }, pool));
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    transferService.createTransfer(request(shop, depot, line(sugar, 1), line(flour, 2)), manager.getUserId());
+                }
+            }, pool));
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(120, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(quantity(depot, flour)).contains(50 - rounds + 2 * rounds);
+        assertThat(quantity(shop, flour)).contains(50 + rounds - 2 * rounds);
+        assertThat(quantity(depot, sugar)).contains(50 - 2 * rounds + rounds);
+        assertThat(quantity(shop, sugar)).contains(50 + 2 * rounds - rounds);
+    }
+
+    private static StockTransferRequest request(Store from, Store to, StockTransferRequest.Line... lines) {
+        return new StockTransferRequest(from.getStoreId(), to.getStoreId(), List.of(lines), null);
+    }
+
+    private static StockTransferRequest.Line line(Product product, int quantity) {
+        return new StockTransferRequest.Line(product.getProductId(), quantity);
+    }
+
+    private Optional<Integer> quantity(Store store, Product product) {
+        return inventoryRepository.findByProduct_ProductIdAndStore_StoreId(product.getProductId(), store.getStoreId())
+                .map(Inventory::getQuantity);
+    }
+
+    private List<StockMovement> movements(Store store, Product product) {
+        return movementRepository.findHistory(store.getStoreId(), product.getProductId(), PageRequest.of(0, 50))
+                .getContent();
+    }
+}
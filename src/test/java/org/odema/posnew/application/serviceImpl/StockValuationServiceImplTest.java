@@ -0,0 +1,174 @@
+package org.odema.posnew.application.serviceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.application.dto.request.StockTransferRequest;
+import org.odema.posnew.application.dto.response.InventorySummaryProjection;
+import org.odema.posnew.design.context.BasketContext;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Product;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.StoreStockSummary;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.StoreType;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.repository.StoreStockSummaryRepository;
+import org.odema.posnew.domain.service.StockReservationService;
+import org.odema.posnew.domain.service.StockTransferService;
+import org.odema.posnew.domain.service.StockValuationService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Agrégats de stock par magasin : après chaque écriture de stock (transfert, vente),
+ * la ligne maintenue par incréments est égale au calcul depuis {@code inventories}.
+ */
+class StockValuationServiceImplTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private StockValuationService valuationService;
+
+    @Autowired
+    private StoreStockSummaryRepository summaryRepository;
+
+    @Autowired
+    private StockTransferService transferService;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    private Store depot;
+    private Store shop;
+    private User manager;
+    private Product rice;
+    private Product oil;
+
+    @BeforeEach
+    void setUp() {
+        depot = createStore(StoreType.WAREHOUSE);
+        shop = createStore();
+        manager = createUser(UserRole.ADMIN, null);
+        rice = createProduct();
+        oil = createProduct();
+        // Inventaires créés avant toute écriture suivie : la première écriture amorce la ligne
+        createInventory(depot, rice, 30);
+        createInventory(depot, oil, 5);
+    }
+
+    @Test
+    void transferUpdatesBothStores() {
+        transfer(depot, shop, rice, 25, oil, 5);
+
+        // Dépôt : riz 5 (stock faible, seuil 10), huile 0 (rupture) — coût unitaire 500
+        assertSummary(depot, 2, 1, 1, 5, "2500");
+        // Magasin : lignes créées par le transfert, riz 25, huile 5 (stock faible)
+        assertSummary(shop, 2, 1, 0, 30, "15000");
+        assertMatchesSource(depot);
+        assertMatchesSource(shop);
+    }
+
+    @Test
+    void saleConversionIsCounted() {
+        Order sale = transactionTemplate.execute(status -> {
+            Order order = orderRepository.save(newOrder(depot, createUser(UserRole.CASHIER, depot),
+                    Map.of(rice, 28)));
+            reservationService.reserve(order, basket(depot, rice));
+            reservationService.convert(order);
+            return order;
+        });
+
+        assertThat(sale).isNotNull();
+        assertSummary(depot, 2, 2, 0, 7, "3500");
+        assertMatchesSource(depot);
+    }
+
+    @Test
+    void concurrentWritesLoseNoIncrement() throws Exception {
+        // Lignes de destination déjà présentes : seuls les incréments d'agrégats sont concurrents
+        createInventory(shop, rice, 0);
+        createInventory(shop, oil, 0);
+        int rounds = 15;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < rounds; i++) transfer(depot, shop, rice, 1, oil, 0);
+            }, pool));
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < rounds; i++) transfer(depot, shop, oil, 0, rice, 1);
+            }, pool));
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(120, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Dépôt : riz 0 (rupture), huile 5 (stock faible) ; magasin : riz 30, huile 0 (rupture)
+        assertSummary(depot, 2, 1, 1, 5, "2500");
+        assertSummary(shop, 2, 0, 1, 30, "15000");
+        assertMatchesSource(depot);
+        assertMatchesSource(shop);
+    }
+
+    @Test
+    void verifyRepairsDrift() {
+        transfer(depot, shop, rice, 1, oil, 0);
+        transactionTemplate.executeWithoutResult(status ->
+                summaryRepository.applyDelta(depot.getStoreId(), 0, 0, 0, 42, new BigDecimal("21000")));
+
+        assertThat(valuationService.verifyAndRepair()).isGreaterThanOrEqualTo(1);
+
+        assertMatchesSource(depot);
+        assertThat(summaryRepository.findById(depot.getStoreId()).orElseThrow().getVerifiedAt()).isNotNull();
+    }
+
+    /** Transfert d'un ou deux produits ; une quantité nulle omet la ligne. */
+    private void transfer(Store from, Store to, Product first, int firstQty, Product second, int secondQty) {
+        List<StockTransferRequest.Line> lines = new ArrayList<>();
+        if (firstQty > 0) lines.add(new StockTransferRequest.Line(first.getProductId(), firstQty));
+        if (secondQty > 0) lines.add(new StockTransferRequest.Line(second.getProductId(), secondQty));
+        transferService.createTransfer(
+                new StockTransferRequest(from.getStoreId(), to.getStoreId(), lines, null), manager.getUserId());
+    }
+
+    private BasketContext basket(Store store, Product product) {
+        return new BasketContext(store.getStoreId(),
+                Map.of(product.getProductId(), product),
+                Map.of(product.getProductId(), inventoryRepository
+                        .findByProduct_ProductIdAndStore_StoreId(product.getProductId(), store.getStoreId())
+                        .orElseThrow()),
+                Map.of());
+    }
+
+    private void assertSummary(Store store, long products, long lowStock, long outOfStock,
+                               long quantity, String value) {
+        StoreStockSummary summary = summaryRepository.findById(store.getStoreId()).orElseThrow();
+        assertThat(summary.getTotalProducts()).as("produits").isEqualTo(products);
+        assertThat(summary.getLowStockProducts()).as("stock faible").isEqualTo(lowStock);
+        assertThat(summary.getOutOfStockProducts()).as("ruptures").isEqualTo(outOfStock);
+        assertThat(summary.getTotalQuantity()).as("unités").isEqualTo(quantity);
+        assertThat(summary.getTotalValue()).as("valeur").isEqualByComparingTo(value);
+    }
+
+    private void assertMatchesSource(Store store) {
+        InventorySummaryProjection source = inventoryRepository.getSummaryByStore(store.getStoreId());
+        assertSummary(store,
+                orZero(source.totalProducts()), orZero(source.lowStockProducts()),
+                orZero(source.outOfStockProducts()), orZero(source.totalQuantity()),
+                (source.totalValue() != null ? source.totalValue() : BigDecimal.ZERO).toPlainString());
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+}
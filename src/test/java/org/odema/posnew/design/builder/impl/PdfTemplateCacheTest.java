@@ -0,0 +1,114 @@
+package org.odema.posnew.design.builder.impl;
+
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.OrderItem;
+import org.odema.posnew.domain.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chemin chaud des builders PDF : le prologue XHTML + CSS n'est construit qu'au premier
+ * document d'un type de builder, les suivants ne font que le rendu du fragment dynamique.
+ * Vérifié par comptage d'appels, pas par chronométrage.
+ */
+class PdfTemplateCacheTest {
+
+    private static final int RENDERS = 10;
+
+    private static final AtomicInteger INVOICE_TEMPLATE_BUILDS = new AtomicInteger();
+
+    /** Clés de cache propres au test : le cache est statique, partagé par la JVM. */
+    private static final class ColdBuilder {
+    }
+
+    /** Builder de facture réel, seule la construction du CSS est comptée. */
+    private static final class CountingInvoiceBuilder extends InvoiceDocumentBuilder {
+
+        CountingInvoiceBuilder(Order order) {
+            super(order);
+        }
+
+        @Override
+        protected String documentStart(Supplier<String> css) {
+            return super.documentStart(() -> {
+                INVOICE_TEMPLATE_BUILDS.incrementAndGet();
+                return css.get();
+            });
+        }
+    }
+
+    @Test
+    void documentStartIsBuiltOncePerBuilderType() {
+        AtomicInteger builds = new AtomicInteger();
+        Supplier<String> template = () -> {
+            builds.incrementAndGet();
+            return prologue(css());
+        };
+
+        String first = PdfTemplateCache.documentStart(ColdBuilder.class, template);
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(PdfTemplateCache.documentStart(ColdBuilder.class, template)).isSameAs(first);
+        }
+
+        assertThat(builds).hasValue(1);
+    }
+
+    @Test
+    void missingLogoIsCachedAsEmpty() {
+        String path = "static/absent-" + System.nanoTime() + ".png";
+
+        assertThat(PdfTemplateCache.logoDataUri(path)).isEmpty();
+        assertThat(PdfTemplateCache.logoDataUri(path)).isSameAs(PdfTemplateCache.logoDataUri(path));
+    }
+
+    @Test
+    void invoiceRendersBuildTheirTemplateOnce() {
+        for (int i = 0; i < RENDERS; i++) {
+            byte[] pdf = new CountingInvoiceBuilder(order(i))
+                    .initialize()
+                    .addHeader()
+                    .addMainInfo()
+                    .addItemsTable()
+                    .addTotals()
+                    .addFooter()
+                    .build();
+            assertThat(pdf).isNotEmpty();
+        }
+
+        assertThat(INVOICE_TEMPLATE_BUILDS).as("CSS de facture construit au premier rendu seulement").hasValue(1);
+    }
+
+    private static Order order(int index) {
+        Order order = Order.builder()
+                .orderNumber("TST-" + index)
+                .createdAt(LocalDateTime.now())
+                .build();
+        order.addItem(OrderItem.builder()
+                .product(Product.builder().name("Article " + index).sku("SKU-" + index).build())
+                .quantity(1 + index % 3)
+                .unitPrice(new BigDecimal("1000.00"))
+                .taxRate(BigDecimal.ZERO)
+                .build());
+        return order;
+    }
+
+    private static String prologue(String css) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"fr\" lang=\"fr\">" +
+                "<head><style>" + css + "</style></head><body>";
+    }
+
+    private static String css() {
+        StringBuilder css = new StringBuilder("body { font-family: Helvetica; font-size: 10pt; }");
+        for (int i = 0; i < 200; i++) {
+            css.append(".c").append(i).append(" { margin: ").append(i % 7).append("px; }");
+        }
+        return css.append(".amount { text-align: right; }").toString();
+    }
+}
@@ -0,0 +1,125 @@
+package org.odema.posnew.design.decorator;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.ImageRenderInfo;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.itextpdf.text.pdf.parser.RenderListener;
+import com.itextpdf.text.pdf.parser.TextRenderInfo;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.design.builder.DocumentBuilder;
+import org.odema.posnew.design.builder.impl.InvoiceDocumentBuilder;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.OrderItem;
+import org.odema.posnew.domain.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chaîne de décorateurs appelée comme dans InvoiceServiceImpl : la chaîne fluide
+ * se termine sur le décorateur externe, le watermark et le QR code sont bien
+ * présents dans le PDF final.
+ */
+class DocumentDecoratorTest {
+
+    private static final String WATERMARK = "BROUILLON";
+
+    @Test
+    void fluentChainStaysOnTheOutermostDecorator() {
+        DocumentBuilder decorated = decorate(new InvoiceDocumentBuilder(order()));
+
+        assertThat(decorated.initialize()).isSameAs(decorated);
+        assertThat(decorated.addHeader()).isSameAs(decorated);
+        assertThat(decorated.addMainInfo()).isSameAs(decorated);
+        assertThat(decorated.addItemsTable()).isSameAs(decorated);
+        assertThat(decorated.addTotals()).isSameAs(decorated);
+        assertThat(decorated.addFooter()).isSameAs(decorated);
+    }
+
+    @Test
+    void draftInvoiceWithQrCodeCarriesBothOverlays() throws Exception {
+        byte[] plain = render(new InvoiceDocumentBuilder(order()));
+        byte[] decorated = render(decorate(new InvoiceDocumentBuilder(order())));
+
+        assertThat(firstPageText(plain)).doesNotContain(WATERMARK);
+        assertThat(firstPageText(decorated)).contains(WATERMARK);
+        assertThat(firstPageImages(decorated))
+                .as("QR code ajouté aux images du document")
+                .isEqualTo(firstPageImages(plain) + 1);
+    }
+
+    private static DocumentBuilder decorate(DocumentBuilder builder) {
+        return new QRCodeDecorator(new WatermarkDecorator(builder, WATERMARK), "INV-TEST|2000.00");
+    }
+
+    /** Même enchaînement que les deux sites d'appel de InvoiceServiceImpl. */
+    private static byte[] render(DocumentBuilder builder) {
+        return builder
+                .initialize()
+                .addHeader()
+                .addMainInfo()
+                .addItemsTable()
+                .addTotals()
+                .addFooter()
+                .build();
+    }
+
+    private static Order order() {
+        Order order = Order.builder()
+                .orderNumber("TST-DECORATOR")
+                .createdAt(LocalDateTime.now())
+                .build();
+        order.addItem(OrderItem.builder()
+                .product(Product.builder().name("Riz 5 kg").sku("RIZ-5").build())
+                .quantity(2)
+                .unitPrice(new BigDecimal("1000.00"))
+                .taxRate(BigDecimal.ZERO)
+                .build());
+        return order;
+    }
+
+    private static String firstPageText(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            return PdfTextExtractor.getTextFromPage(reader, 1);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static int firstPageImages(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            ImageCounter counter = new ImageCounter();
+            new PdfReaderContentParser(reader).processContent(1, counter);
+            return counter.images;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static final class ImageCounter implements RenderListener {
+
+        private int images;
+
+        @Override
+        public void beginTextBlock() {
+        }
+
+        @Override
+        public void renderText(TextRenderInfo renderInfo) {
+        }
+
+        @Override
+        public void endTextBlock() {
+        }
+
+        @Override
+        public void renderImage(ImageRenderInfo renderInfo) {
+            images++;
+        }
+    }
+}
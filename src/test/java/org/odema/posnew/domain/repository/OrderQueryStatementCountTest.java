@@ -0,0 +1,96 @@
+package org.odema.posnew.domain.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.application.dto.response.OrderResponse;
+import org.odema.posnew.application.dto.response.OrderSummaryResponse;
+import org.odema.posnew.config.StatementCountInspector;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.odema.posnew.domain.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nombre d'instructions SQL des lectures de commandes, mesuré par
+ * {@link StatementCountInspector} : indépendant du nombre de lignes et de commandes.
+ */
+class OrderQueryStatementCountTest extends AbstractIntegrationTest {
+
+    private static final UUID MAX_ID = new UUID(-1L, -1L);
+
+    @Autowired
+    private OrderService orderService;
+
+    private Store store;
+    private Order smallOrder;
+    private Order largeOrder;
+
+    @BeforeEach
+    void setUp() {
+        store = createStore();
+        User cashier = createUser(UserRole.CASHIER, store);
+        smallOrder = createOrder(store, cashier, 1);
+        createOrder(store, cashier, 3);
+        largeOrder = createOrder(store, cashier, 6);
+    }
+
+    @Test
+    void keysetSummaryPageIsOneStatement() {
+        List<OrderSummaryResponse> rows = counted(() -> orderRepository.findSummariesByStoreAfter(
+                store.getStoreId(), LocalDateTime.now().plusDays(1), MAX_ID, Limit.of(50)));
+
+        assertThat(lastCount).isEqualTo(1);
+        assertThat(rows).hasSize(3);
+        assertThat(rows).extracting(OrderSummaryResponse::itemCount)
+                .containsExactlyInAnyOrder(1L, 3L, 6L);
+    }
+
+    @Test
+    void pagedSummaryIsPagePlusCount() {
+        Page<OrderSummaryResponse> page = counted(() -> orderRepository.findSummariesByStore(
+                store.getStoreId(), PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt"))));
+
+        assertThat(lastCount).isEqualTo(2);
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void detailIsBoundedWhateverTheItemCount() {
+        OrderResponse small = counted(() -> orderService.getOrderById(smallOrder.getOrderId()));
+        long smallCount = lastCount;
+        OrderResponse large = counted(() -> orderService.getOrderById(largeOrder.getOrderId()));
+        long largeCount = lastCount;
+
+        // Graphe commande + lignes + produits, puis paiements : 2 instructions
+        assertThat(smallCount).isLessThanOrEqualTo(2);
+        assertThat(largeCount).isEqualTo(smallCount);
+        assertThat(small.items()).hasSize(1);
+        assertThat(large.items()).hasSize(6);
+    }
+
+    private long lastCount;
+
+    private <T> T counted(Supplier<T> call) {
+        long before = StatementCountInspector.current();
+        T result = call.get();
+        lastCount = StatementCountInspector.current() - before;
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package org.odema.posnew.domain.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.domain.model.OutboxEvent;
+import org.odema.posnew.domain.model.enums.OutboxEventType;
+import org.odema.posnew.domain.model.enums.OutboxStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réservation des événements de l'outbox : un seul événement par agrégat, celui de tête
+ * selon {@code aggregate_seq}, bloqué tant qu'un prédécesseur n'est pas distribué.
+ */
+class OutboxEventRepositoryTest extends AbstractIntegrationTest {
+
+    private static final int CLAIM_ALL = 10_000;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        outboxEventRepository.deleteAllById(created);
+        created.clear();
+    }
+
+    @Test
+    void claimsOnlyTheHeadOfEachAggregate() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        OutboxEvent head = save(first, 1L, OutboxStatus.PENDING);
+        save(first, 2L, OutboxStatus.PENDING);
+        save(first, 3L, OutboxStatus.PENDING);
+        OutboxEvent otherHead = save(second, 1L, OutboxStatus.PENDING);
+
+        assertThat(claimFor(Set.of(first, second)))
+                .containsExactlyInAnyOrder(head.getEventId(), otherHead.getEventId());
+    }
+
+    @Test
+    void ordersByAggregateSequenceNotEventId() {
+        UUID aggregate = UUID.randomUUID();
+        save(aggregate, 2L, OutboxStatus.PENDING);                   // identifiant plus petit
+        OutboxEvent rankOne = save(aggregate, 1L, OutboxStatus.PENDING);
+
+        assertThat(claimFor(Set.of(aggregate))).containsExactly(rankOne.getEventId());
+    }
+
+    @Test
+    void failedPredecessorBlocksTheAggregate() {
+        UUID aggregate = UUID.randomUUID();
+        save(aggregate, 1L, OutboxStatus.FAILED);
+        save(aggregate, 2L, OutboxStatus.PENDING);
+
+        assertThat(claimFor(Set.of(aggregate))).isEmpty();
+    }
+
+    @Test
+    void predecessorAwaitingRetryBlocksItsSuccessors() {
+        UUID aggregate = UUID.randomUUID();
+        OutboxEvent retrying = save(aggregate, 1L, OutboxStatus.PENDING);
+        retrying.setNextAttemptAt(LocalDateTime.now().plusHours(1));
+        outboxEventRepository.save(retrying);
+        save(aggregate, 2L, OutboxStatus.PENDING);
+
+        assertThat(claimFor(Set.of(aggregate))).isEmpty();
+    }
+
+    @Test
+    void processedPredecessorReleasesTheNext() {
+        UUID aggregate = UUID.randomUUID();
+        save(aggregate, 1L, OutboxStatus.PROCESSED);
+        OutboxEvent next = save(aggregate, 2L, OutboxStatus.PENDING);
+
+        assertThat(claimFor(Set.of(aggregate))).containsExactly(next.getEventId());
+    }
+
+    @Test
+    void legacyEventsWithoutRankGoFirst() {
+        UUID aggregate = UUID.randomUUID();
+        save(aggregate, 1L, OutboxStatus.PENDING);
+        OutboxEvent legacy = save(aggregate, null, OutboxStatus.PENDING);
+
+        assertThat(claimFor(Set.of(aggregate))).containsExactly(legacy.getEventId());
+    }
+
+    @Test
+    void concurrentClaimsSkipLockedEvents() throws Exception {
+        UUID aggregate = UUID.randomUUID();
+        OutboxEvent head = save(aggregate, 1L, OutboxStatus.PENDING);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<List<Long>> holder = CompletableFuture.supplyAsync(() ->
+                    transactionTemplate.execute(status -> {
+                        List<Long> ids = idsFor(outboxEventRepository.claimBatch(CLAIM_ALL), Set.of(aggregate));
+                        claimed.countDown();
+                        await(release);
+                        return ids;
+                    }), pool);
+
+            assertThat(claimed.await(30, TimeUnit.SECONDS)).isTrue();
+            List<Long> concurrent = claimFor(Set.of(aggregate));
+            release.countDown();
+
+            assertThat(holder.get(30, TimeUnit.SECONDS)).containsExactly(head.getEventId());
+            assertThat(concurrent).isEmpty();
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void aggregateSequenceIsGaplessUnderConcurrency() throws Exception {
+        UUID aggregate = UUID.randomUUID();
+        int writers = 8;
+        int perWriter = 25;
+        Set<Long> ranks = ConcurrentHashMap.newKeySet();
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        ranks.add(transactionTemplate.execute(
+                                status -> outboxEventRepository.nextAggregateSeq(aggregate)));
+                    }
+                }, pool));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(ranks).hasSize(writers * perWriter);
+        assertThat(ranks).allMatch(rank -> rank >= 1 && rank <= writers * perWriter);
+    }
+
+    private OutboxEvent save(UUID aggregateId, Long seq, OutboxStatus status) {
+        OutboxEvent event = outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(OutboxEventType.STOCK_LOW)
+                .aggregateType("TEST")
+                .aggregateId(aggregateId)
+                .aggregateSeq(seq)
+                .status(status)
+                .nextAttemptAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+        created.add(event.getEventId());
+        return event;
+    }
+
+    private List<Long> claimFor(Set<UUID> aggregates) {
+        return transactionTemplate.execute(status ->
+                idsFor(outboxEventRepository.claimBatch(CLAIM_ALL), aggregates));
+    }
+
+    private static List<Long> idsFor(List<OutboxEvent> events, Set<UUID> aggregates) {
+        return events.stream()
+                .filter(e -> aggregates.contains(e.getAggregateId()))
+                .map(OutboxEvent::getEventId)
+                .toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.odema.posnew.domain.service;
+
+import org.junit.jupiter.api.Test;
+import org.odema.posnew.AbstractIntegrationTest;
+import org.odema.posnew.domain.model.Order;
+import org.odema.posnew.domain.model.Store;
+import org.odema.posnew.domain.model.User;
+import org.odema.posnew.domain.model.enums.UserRole;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Numérotation hi/lo : unicité sous concurrence (nœud et base) et amorçage
+ * du compteur depuis le plus grand numéro déjà émis.
+ */
+class DocumentNumberServiceTest extends AbstractIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 50;
+
+    @Autowired
+    private DocumentNumberService documentNumberService;
+
+    @Autowired
+    private DocumentSequenceAllocator sequenceAllocator;
+
+    @Test
+    void concurrentOrderNumbersAreUnique() throws Exception {
+        List<String> numbers = runConcurrently(() -> {
+            List<String> issued = new ArrayList<>();
+            for (int i = 0; i < PER_THREAD; i++) {
+                issued.add(documentNumberService.generateOrderNumber());
+            }
+            return issued;
+        });
+
+        assertThat(numbers).hasSize(THREADS * PER_THREAD).doesNotHaveDuplicates();
+        assertThat(numbers).allMatch(n -> n.matches("ORD-\\d{8}-\\d{4,}"));
+    }
+
+    @Test
+    void concurrentBlocksAreDisjoint() throws Exception {
+        String key = unique("TEST|ALL");
+        int blockSize = 20;
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+
+        List<Long> highs = runConcurrently(() -> {
+            List<Long> allocated = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                long hi = sequenceAllocator.allocateBlock(key, blockSize, () -> 0L);
+                for (long v = hi - blockSize + 1; v <= hi; v++) {
+                    assertThat(values.add(v)).as("valeur %d distribuée deux fois", v).isTrue();
+                }
+                allocated.add(hi);
+            }
+            return allocated;
+        });
+
+        assertThat(highs).hasSize(THREADS * 10).doesNotHaveDuplicates();
+        assertThat(values).hasSize(THREADS * 10 * blockSize);
+    }
+
+    @Test
+    void blockReservedInsideRolledBackTransactionStaysReserved() {
+        String key = unique("TEST|TX");
+        Long first = transactionTemplate.execute(status -> {
+            long hi = sequenceAllocator.allocateBlock(key, 20, () -> 0L);
+            status.setRollbackOnly();
+            return hi;
+        });
+
+        assertThat(sequenceAllocator.allocateBlock(key, 20, () -> 0L))
+                .as("bloc validé indépendamment de l'appelant")
+                .isEqualTo(first + 20);
+    }
+
+    @Test
+    void newKeyIsSeededAboveHighestIssuedSuffix() {
+        Store store = createStore();
+        User cashier = createUser(UserRole.CASHIER, store);
+        String prefix = unique("SEED") + "-";
+        saveOrderNumbered(store, cashier, prefix + "0007");
+        saveOrderNumbered(store, cashier, prefix + "0950");
+        saveOrderNumbered(store, cashier, prefix + "0100");
+        saveOrderNumbered(store, cashier, prefix + "BIS-2000");   // suffixe non numérique ignoré
+
+        long max = orderRepository.findMaxNumberSuffix(prefix + "%", prefix.length());
+        long hi = sequenceAllocator.allocateBlock(prefix, 20, () -> max);
+
+        assertThat(max).isEqualTo(950);
+        assertThat(hi - 20 + 1).as("premier numéro du premier bloc").isEqualTo(951);
+    }
+
+    @Test
+    void likeWildcardsInPrefixAreEscaped() {
+        Store store = createStore();
+        User cashier = createUser(UserRole.CASHIER, store);
+        String tag = unique("ESC");
+        saveOrderNumbered(store, cashier, tag + "_A-0005");
+        saveOrderNumbered(store, cashier, tag + "XA-0999");   // correspondrait à '_' non échappé
+
+        String prefix = tag + "_A-";
+        String pattern = prefix.replace("_", "\\_") + "%";
+
+        assertThat(orderRepository.findMaxNumberSuffix(pattern, prefix.length())).isEqualTo(5);
+    }
+
+    private void saveOrderNumbered(Store store, User cashier, String number) {
+        orderRepository.save(Order.builder()
+                .orderNumber(number)
+                .store(store)
+                .cashier(cashier)
+                .build());
+    }
+
+    private static <T> List<T> runConcurrently(Callable<List<T>> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<T>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(task));
+            }
+            List<T> all = new ArrayList<>();
+            for (Future<List<T>> future : futures) {
+                all.addAll(future.get());
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}